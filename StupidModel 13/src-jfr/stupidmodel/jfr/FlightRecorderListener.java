@@ -0,0 +1,266 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.jfr;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import stupidmodel.common.SimulationListener;
+import stupidmodel.common.TickMetrics;
+
+/**
+ * Listener committing the simulation events as JDK Flight Recorder events,
+ * so the ticks of the model can be lined up with the garbage collection,
+ * allocation and lock profiles of the same recording.
+ *
+ * <p>
+ * The class depends on the <code>jdk.jfr</code> module, so it is kept in the
+ * <code>src-jfr</code> folder and compiled for Java 11 or later, separately
+ * from the model, which loads it by name (see
+ * {@link stupidmodel.common.SimulationEvents#installFlightRecorderListener()}).
+ * </p>
+ *
+ * <p>
+ * The ticks are recorded as duration events, from
+ * {@link #tickStarted(int, long, int)} to
+ * {@link #tickFinished(int, long, int, int, int)} of the same world; the
+ * other events are instant events. The arguments of the events are only set
+ * if the event is enabled in the recording.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class FlightRecorderListener implements SimulationListener {
+
+	/** The started ticks, by world number. */
+	private final ConcurrentMap<Integer, TickEvent> ticks = new ConcurrentHashMap<Integer, TickEvent>();
+
+	@Override
+	public void tickStarted(final int world, final long tick,
+			final int population) {
+		final TickEvent event = new TickEvent();
+
+		if (event.isEnabled()) {
+			event.world = world;
+			event.tick = tick;
+			event.initialPopulation = population;
+			event.begin();
+			ticks.put(Integer.valueOf(world), event);
+		}
+	}
+
+	@Override
+	public void phaseFinished(final int world, final TickMetrics.Phase phase,
+			final long nanos) {
+		final PhaseEvent event = new PhaseEvent();
+
+		if (event.isEnabled()) {
+			event.world = world;
+			event.phase = phase.name();
+			event.nanos = nanos;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void tickFinished(final int world, final long tick,
+			final int population, final int births, final int deaths) {
+		final TickEvent event = ticks.remove(Integer.valueOf(world));
+
+		// The recording may have started during the tick
+		if (event != null && event.tick == tick) {
+			event.end();
+			event.population = population;
+			event.births = births;
+			event.deaths = deaths;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void reproductionBurst(final int world, final long tick,
+			final int births, final int population) {
+		final ReproductionBurstEvent event = new ReproductionBurstEvent();
+
+		if (event.isEnabled()) {
+			event.world = world;
+			event.tick = tick;
+			event.births = births;
+			event.population = population;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void massMortality(final int world, final long tick,
+			final int deaths, final int population) {
+		final MassMortalityEvent event = new MassMortalityEvent();
+
+		if (event.isEnabled()) {
+			event.world = world;
+			event.tick = tick;
+			event.deaths = deaths;
+			event.population = population;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void stepDecided(final int world, final int from, final int to) {
+		final StepDecidedEvent event = new StepDecidedEvent();
+
+		if (event.isEnabled()) {
+			event.world = world;
+			event.from = from;
+			event.to = to;
+			event.commit();
+		}
+	}
+
+	/**
+	 * A tick of a world.
+	 */
+	@Name("stupidmodel.Tick")
+	@Label("Tick")
+	@Category("StupidModel")
+	@Description("A tick of a world, from the growth of the food to the "
+			+ "births and deaths")
+	static class TickEvent extends Event {
+
+		/** Number of the world. */
+		@Label("World")
+		int world;
+
+		/** The tick. */
+		@Label("Tick")
+		long tick;
+
+		/** Number of living bugs at the start of the tick. */
+		@Label("Initial Population")
+		int initialPopulation;
+
+		/** Number of living bugs at the end of the tick. */
+		@Label("Population")
+		int population;
+
+		/** Number of bugs born in the tick. */
+		@Label("Births")
+		int births;
+
+		/** Number of bugs died in the tick. */
+		@Label("Deaths")
+		int deaths;
+
+	}
+
+	/**
+	 * A timed phase of a tick.
+	 */
+	@Name("stupidmodel.Phase")
+	@Label("Tick Phase")
+	@Category("StupidModel")
+	@Description("A timed phase of a tick, see TickMetrics.Phase")
+	static class PhaseEvent extends Event {
+
+		/** Number of the world. */
+		@Label("World")
+		int world;
+
+		/** Name of the phase. */
+		@Label("Phase")
+		String phase;
+
+		/** Duration of the phase. */
+		@Label("Phase Duration")
+		@Timespan(Timespan.NANOSECONDS)
+		long nanos;
+
+	}
+
+	/**
+	 * Births above the reported fraction of the population.
+	 */
+	@Name("stupidmodel.ReproductionBurst")
+	@Label("Reproduction Burst")
+	@Category("StupidModel")
+	static class ReproductionBurstEvent extends Event {
+
+		/** Number of the world. */
+		@Label("World")
+		int world;
+
+		/** The tick. */
+		@Label("Tick")
+		long tick;
+
+		/** Number of bugs born in the tick. */
+		@Label("Births")
+		int births;
+
+		/** Number of living bugs at the start of the tick. */
+		@Label("Initial Population")
+		int population;
+
+	}
+
+	/**
+	 * Deaths above the reported fraction of the population.
+	 */
+	@Name("stupidmodel.MassMortality")
+	@Label("Mass Mortality")
+	@Category("StupidModel")
+	static class MassMortalityEvent extends Event {
+
+		/** Number of the world. */
+		@Label("World")
+		int world;
+
+		/** The tick. */
+		@Label("Tick")
+		long tick;
+
+		/** Number of bugs died in the tick. */
+		@Label("Deaths")
+		int deaths;
+
+		/** Number of living bugs at the start of the tick. */
+		@Label("Initial Population")
+		int population;
+
+	}
+
+	/**
+	 * A sampled movement decision of a bug.
+	 */
+	@Name("stupidmodel.StepDecided")
+	@Label("Step Decided")
+	@Category("StupidModel")
+	@Description("A sampled movement decision of a bug")
+	static class StepDecidedEvent extends Event {
+
+		/** Number of the world. */
+		@Label("World")
+		int world;
+
+		/** Index of the current cell of the bug. */
+		@Label("From Cell")
+		int from;
+
+		/** Index of the chosen cell, -1 if the bug stays. */
+		@Label("To Cell")
+		int to;
+
+	}
+
+}
@@ -1,204 +1,877 @@
-/*
- * Version info:
- *     $HeadURL: https://cscs-repast-demos.googlecode.com/svn/richard/StupidModel/tags/2011_06_12_model_11/src/stupidmodel/StupidModelContextBuilder.java $
- *     $LastChangedDate: 2011-08-10 13:45:19 +0200 (Sze, 10 aug. 2011) $
- *     $LastChangedRevision: 784 $
- *     $LastChangedBy: richard.legendi@gmail.com $
- */
-package stupidmodel;
-
-import java.util.ArrayList;
-import java.util.Collections;
-
-import repast.simphony.context.Context;
-import repast.simphony.context.DefaultContext;
-import repast.simphony.context.space.continuous.ContinuousSpaceFactoryFinder;
-import repast.simphony.context.space.grid.GridFactoryFinder;
-import repast.simphony.dataLoader.ContextBuilder;
-import repast.simphony.engine.environment.RunEnvironment;
-import repast.simphony.engine.environment.RunState;
-import repast.simphony.engine.schedule.ScheduledMethod;
-import repast.simphony.parameter.Parameters;
-import repast.simphony.space.continuous.ContinuousSpace;
-import repast.simphony.space.continuous.NdPoint;
-import repast.simphony.space.continuous.RandomCartesianAdder;
-import repast.simphony.space.grid.Grid;
-import repast.simphony.space.grid.GridBuilderParameters;
-import repast.simphony.space.grid.SimpleGridAdder;
-import repast.simphony.space.grid.WrapAroundBorders;
-import repast.simphony.valueLayer.GridValueLayer;
-import stupidmodel.agents.Bug;
-import stupidmodel.agents.HabitatCell;
-import stupidmodel.common.Constants;
-
-/**
- * Custom {@link ContextBuilder} implementation for the <i>StupidModel 1</i>.
- * 
- * @author Richard O. Legendi (richard.legendi)
- * @since 2.0-beta, 2011
- * @version $Id: StupidModelContextBuilder.java 150 2011-05-26 19:06:40Z
- *          richard.legendi@gmail.com $
- */
-public class StupidModelContextBuilder extends DefaultContext<Object> implements
-		ContextBuilder<Object> {
-
-	@Override
-	public Context<Object> build(final Context<Object> context) {
-		// Set a specified context ID
-		context.setId(Constants.CONTEXT_ID);
-		final Parameters parameters = RunEnvironment.getInstance()
-				.getParameters();
-
-		// Create a toridal space with random positioning with the specified
-		// dimensions
-		final ContinuousSpace<Object> space = ContinuousSpaceFactoryFinder
-				.createContinuousSpaceFactory(null) // No hints
-				.createContinuousSpace(
-						Constants.SPACE_ID,
-						context,
-						new RandomCartesianAdder<Object>(),
-						new repast.simphony.space.continuous.WrapAroundBorders(),
-						Constants.GRID_SIZE, Constants.GRID_SIZE);
-
-		// Create a toridal space on which agents and cells located at
-		final Grid<Object> grid = GridFactoryFinder
-				.createGridFactory(null)
-				.createGrid(
-						Constants.GRID_ID,
-						context,
-						new GridBuilderParameters<Object>(
-								new repast.simphony.space.grid.WrapAroundBorders(),
-								// This is a simple implementation of an adder
-								// that doesn't perform any action
-								new SimpleGridAdder<Object>(),
-								// Each cell in the grid is multi-occupancy
-								true,
-								// Size of the grid (defined constants)
-								Constants.GRID_SIZE, Constants.GRID_SIZE));
-
-		// ---------------------------------------------------------------------
-		// Create the specified number of Bug agents and assign them to the
-		// space and the grid
-
-		// Parameter usage I: Parameter is declared on the graphical user
-		// interface
-		final int bugCount = ((Integer) parameters
-				.getValue(Constants.PARAMETER_ID_BUG_COUNT)).intValue();
-
-		// ---------------------------------------------------------------------
-
-		// Create Bug agents and add them to the context and to the grid as
-		// placed randomly by the RandomCartesianAdder of the space
-		for (int i = 0; i < bugCount; ++i) {
-			final Bug bug = new Bug();
-			context.add(bug);
-			final NdPoint pt = space.getLocation(bug);
-			grid.moveTo(bug, (int) pt.getX(), (int) pt.getY());
-		}
-
-		// Create a background layer for the displayed grid that represents the
-		// available (grown) food amount
-		final GridValueLayer foodValueLayer = new GridValueLayer(
-				Constants.FOOD_VALUE_LAYER_ID, // Access layer through context
-				true, // Densely populated
-				new WrapAroundBorders(), // Toric world
-				// Size of the grid (defined constants)
-				Constants.GRID_SIZE, Constants.GRID_SIZE);
-
-		context.addValueLayer(foodValueLayer);
-
-		// Fill up the context with cells, and set the initial food values for
-		// the new layer. Also add them to the created grid.
-		for (int i = 0; i < Constants.GRID_SIZE; ++i) {
-			for (int j = 0; j < Constants.GRID_SIZE; ++j) {
-				final HabitatCell cell = new HabitatCell(i, j);
-				context.add(cell); // First add it to the context
-				grid.moveTo(cell, i, j);
-				foodValueLayer.set(cell.getFoodAvailability(), i, j);
-			}
-		}
-
-		return context;
-	}
-
-	/**
-	 * In Model 9, we have to create a randomized order of agent execution.
-	 * <b>Please note</b> it is the default behaviour in the previous model
-	 * versions: methods scheduled for the same time steps with the same
-	 * priority are executed in a random order by default.
-	 * 
-	 * <p>
-	 * This method gathers the current {@link Bug} agent list, randomizes its
-	 * order, and calls their {@link Bug#step() step()} and {@link Bug#grow()
-	 * grow()} functions sequentially after each other.
-	 * </p>
-	 * 
-	 * <p>
-	 * Using the annotation {@link ScheduledMethod} makes this method executed
-	 * from the first simulation tick, and with specifying interval it is
-	 * executed each tick afterwards.
-	 * </p>
-	 * 
-	 * @since Model 9, Model 10
-	 */
-	@ScheduledMethod(start = 1, interval = 1, priority = 0)
-	public void activateAgents() {
-		final ArrayList<Bug> bugList = getBugList();
-
-		// Model 9 requires random agent activation
-		// SimUtilities.shuffle(bugList, RandomHelper.getUniform());
-
-		// Model 10 requires sorted agent activation
-		Collections.sort(bugList);
-
-		for (final Bug bug : bugList) {
-			bug.step();
-		}
-
-		for (final Bug bug : bugList) {
-			bug.grow();
-		}
-		
-		// Model 12: Added mortality, scheduled after the bug move and grow
-		for (final Bug bug : bugList) {
-			bug.mortality();
-		}
-
-		// Model 12: [*] ... or when the number of bugs reaches zero.
-		// We have to re-collect all of the bug agents, since during mortality
-		// it may be heavily modified (e.g. several new agents may
-		// born or die)
-		if (0 == getBugList().size()) {
-			System.out.println("All agents dead, terminating simulation.");
-			RunEnvironment.getInstance().endRun();
-		}
-	}
-
-	/**
-	 * Returns the current active {@link Bug} agent list.
-	 * 
-	 * <p>
-	 * This would have done easier by keeping a simple reference for the context
-	 * built during {@link #build(Context)}, <i>or</i> by keeping a reference
-	 * for the created agents. However, we show here a general solution that may
-	 * be used all of the time without any external modification to access all
-	 * of the agents from a specified subclass.
-	 * </p>
-	 * 
-	 * @return list of bugs associated with the master (<i>root</i>) context
-	 * @since Model 9
-	 */
-	private ArrayList<Bug> getBugList() {
-		@SuppressWarnings("unchecked")
-		final Iterable<Bug> bugs = RunState.getInstance().getMasterContext()
-				.getObjects(Bug.class);
-		final ArrayList<Bug> bugList = new ArrayList<Bug>();
-
-		for (final Bug bug : bugs) {
-			bugList.add(bug);
-		}
-
-		return bugList;
-	}
-
-}
+/*
+ * Version info:
+ *     $HeadURL: https://cscs-repast-demos.googlecode.com/svn/richard/StupidModel/tags/2011_06_12_model_11/src/stupidmodel/StupidModelContextBuilder.java $
+ *     $LastChangedDate: 2011-08-10 13:45:19 +0200 (Sze, 10 aug. 2011) $
+ *     $LastChangedRevision: 784 $
+ *     $LastChangedBy: richard.legendi@gmail.com $
+ */
+package stupidmodel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import repast.simphony.context.Context;
+import repast.simphony.context.DefaultContext;
+import repast.simphony.context.space.continuous.ContinuousSpaceFactoryFinder;
+import repast.simphony.context.space.grid.GridFactoryFinder;
+import repast.simphony.dataLoader.ContextBuilder;
+import repast.simphony.engine.environment.RunEnvironment;
+import repast.simphony.engine.schedule.ScheduleParameters;
+import repast.simphony.engine.schedule.ScheduledMethod;
+import repast.simphony.parameter.Parameters;
+import repast.simphony.random.RandomHelper;
+import repast.simphony.space.continuous.ContinuousSpace;
+import repast.simphony.space.continuous.NdPoint;
+import repast.simphony.space.continuous.RandomCartesianAdder;
+import repast.simphony.space.grid.Grid;
+import repast.simphony.space.grid.GridBuilderParameters;
+import repast.simphony.space.grid.GridPoint;
+import repast.simphony.space.grid.SimpleGridAdder;
+import stupidmodel.agents.BirthDeathBuffer;
+import stupidmodel.agents.Bug;
+import stupidmodel.agents.BugPopulation;
+import stupidmodel.agents.ParallelMovement;
+import stupidmodel.agents.HabitatCell;
+import stupidmodel.common.Constants;
+import stupidmodel.common.RandomStreams;
+import stupidmodel.common.SimulationEvents;
+import stupidmodel.common.SizeHistogram;
+import stupidmodel.common.SizeStatistics;
+import stupidmodel.common.TickMetrics;
+import stupidmodel.common.WorkerPool;
+import stupidmodel.kernel.WorldCheckpoint;
+import stupidmodel.space.FoodField;
+import stupidmodel.space.FoodQuery;
+import stupidmodel.space.FoodValueLayer;
+import stupidmodel.space.HabitatCellIndex;
+import stupidmodel.space.OccupancyLayer;
+import stupidmodel.space.WorldPyramid;
+
+/**
+ * Custom {@link ContextBuilder} implementation for the <i>StupidModel 1</i>.
+ * 
+ * @author Richard O. Legendi (richard.legendi)
+ * @since 2.0-beta, 2011
+ * @version $Id: StupidModelContextBuilder.java 150 2011-05-26 19:06:40Z
+ *          richard.legendi@gmail.com $
+ */
+public class StupidModelContextBuilder extends DefaultContext<Object> implements
+		ContextBuilder<Object> {
+
+	/**
+	 * Registry of the living {@link Bug} agents of the context, maintained by
+	 * the context events.
+	 */
+	private BugPopulation population = null;
+
+	/** Food availability and food production rate of the cells. */
+	private FoodField foodField = null;
+
+	/** The cells occupied by bugs. */
+	private OccupancyLayer occupancy = null;
+
+	/** Lookup table of the cells by their location. */
+	private HabitatCellIndex cellIndex = null;
+
+	/** Best-food queries of the bug movement. */
+	private FoodQuery foodQuery = null;
+
+	/** Counter-based random streams of the parallel phases. */
+	private RandomStreams randomStreams = null;
+
+	/** Seed of the random streams of the parallel phases. */
+	private long seed = 0L;
+
+	/**
+	 * Number of ticks executed before the first tick of the schedule; non-zero
+	 * if the world is restored from a checkpoint.
+	 */
+	private long tickOffset = 0L;
+
+	/** Number of ticks between the written checkpoints; <code>0</code> if none. */
+	private int checkpointInterval = 0;
+
+	/** File of the written checkpoints; <code>null</code> if none. */
+	private File checkpointOutput = null;
+
+	/** Births and deaths of the mortality phase. */
+	private BirthDeathBuffer birthDeathBuffer = null;
+
+	/** Size statistics of the bugs, recorded in the mortality phase. */
+	private SizeStatistics sizeStatistics = null;
+
+	/** Histogram of the sizes of the bugs, updated as the sizes change. */
+	private SizeHistogram sizeHistogram = null;
+
+	/** Durations and activity of the phases of the ticks. */
+	private TickMetrics tickMetrics = null;
+
+	/** Source of the simulation events of the world. */
+	private SimulationEvents events = null;
+
+	/** Overview of the world for zoomed out displays; created on demand. */
+	private WorldPyramid pyramid = null;
+
+	/**
+	 * Parallel implementation of the bug movement; <code>null</code> if the
+	 * bugs move sequentially.
+	 */
+	private ParallelMovement parallelMovement = null;
+
+	/**
+	 * Returns the model context instance for the specified context.
+	 * 
+	 * <p>
+	 * The context declared in <code>context.xml</code> is an instance of this
+	 * class as well (it is the object on which {@link #activateAgents()} is
+	 * scheduled), so it is used to store the world-level structures created in
+	 * {@link #build(Context)}.
+	 * </p>
+	 * 
+	 * @param context
+	 *            the context of the model
+	 * @return the specified context as a <code>StupidModelContextBuilder</code>
+	 *         ; <i>cannot be <code>null</code></i>
+	 * @throws IllegalStateException
+	 *             if the specified context is not a
+	 *             <code>StupidModelContextBuilder</code> instance
+	 */
+	public static StupidModelContextBuilder getModelContext(
+			final Context<?> context) {
+		if (!(context instanceof StupidModelContextBuilder)) {
+			throw new IllegalStateException(String.format(
+					"Context %s should be a StupidModelContextBuilder instance.",
+					context));
+		}
+
+		return (StupidModelContextBuilder) context;
+	}
+
+	@Override
+	public Context<Object> build(final Context<Object> context) {
+		// Set a specified context ID
+		context.setId(Constants.CONTEXT_ID);
+		final StupidModelContextBuilder model = getModelContext(context);
+		final Parameters parameters = RunEnvironment.getInstance()
+				.getParameters();
+
+		// Keep track of the living bugs: the registry is updated each time a
+		// bug is added to or removed from the context
+		model.population = BugPopulation.attach(context);
+
+		// Size statistics are recorded during the mortality phase; the object
+		// is the source of the size and count data sets, and it is added
+		// before the projections are created, so it is not located in them
+		model.sizeStatistics = new SizeStatistics();
+		context.add(model.sizeStatistics);
+
+		// The size histogram is updated by the bugs when they grow, are born
+		// or die, and it is the source of the histogram data set
+		model.sizeHistogram = new SizeHistogram(Constants.SIZE_HISTOGRAM_MIN,
+				Constants.SIZE_HISTOGRAM_MAX, Constants.SIZE_HISTOGRAM_BINS);
+		context.add(model.sizeHistogram);
+
+		// The phases of the ticks are timed, the metrics are printed at the
+		// end of the run; the phases are reported as events of this world
+		model.events = new SimulationEvents();
+		model.tickMetrics = new TickMetrics(model.events);
+
+		// Create a toridal space with random positioning with the specified
+		// dimensions
+		final ContinuousSpace<Object> space = ContinuousSpaceFactoryFinder
+				.createContinuousSpaceFactory(null) // No hints
+				.createContinuousSpace(
+						Constants.SPACE_ID,
+						context,
+						new RandomCartesianAdder<Object>(),
+						new repast.simphony.space.continuous.WrapAroundBorders(),
+						Constants.GRID_SIZE, Constants.GRID_SIZE);
+
+		// Create a toridal space on which agents and cells located at
+		final Grid<Object> grid = GridFactoryFinder
+				.createGridFactory(null)
+				.createGrid(
+						Constants.GRID_ID,
+						context,
+						new GridBuilderParameters<Object>(
+								new repast.simphony.space.grid.WrapAroundBorders(),
+								// This is a simple implementation of an adder
+								// that doesn't perform any action
+								new SimpleGridAdder<Object>(),
+								// Each cell in the grid is multi-occupancy
+								true,
+								// Size of the grid (defined constants)
+								Constants.GRID_SIZE, Constants.GRID_SIZE));
+
+		// ---------------------------------------------------------------------
+		// Create the specified number of Bug agents and assign them to the
+		// space and the grid
+
+		// Parameter usage I: Parameter is declared on the graphical user
+		// interface
+		final int bugCount = ((Integer) parameters
+				.getValue(Constants.PARAMETER_ID_BUG_COUNT)).intValue();
+
+		// Bugs may choose their new location concurrently, see the
+		// ParallelMovement class for the differences; sequential movement
+		// is used if the parameter is not defined
+		if (parameters.getSchema().contains(
+				Constants.PARAMETER_ID_PARALLEL_MOVEMENT)
+				&& ((Boolean) parameters
+				.getValue(Constants.PARAMETER_ID_PARALLEL_MOVEMENT))
+				.booleanValue()) {
+			model.parallelMovement = new ParallelMovement(
+					WorkerPool.getShared());
+		}
+
+		// ---------------------------------------------------------------------
+
+		// Bugs keep the occupancy layer up to date when they move, are born
+		// or die; it is used to find the free cells around them
+		model.occupancy = new OccupancyLayer(Constants.GRID_SIZE,
+				Constants.GRID_SIZE);
+
+		// Births and deaths of the mortality phase are applied in one batch
+		model.birthDeathBuffer = new BirthDeathBuffer(context, grid,
+				model.occupancy);
+
+		// Parameter usage II: a checkpoint of a previous run may be restored
+		// instead of creating a new world
+		final WorldCheckpoint checkpoint = readCheckpoint(parameters);
+
+		// Parameter usage III: checkpoints may be written periodically, to be
+		// restored later the same way
+		model.readCheckpointOutput(parameters);
+
+		if (null == checkpoint) {
+			model.seed = RandomHelper.getSeed();
+
+			// Create Bug agents and add them to the context and to the grid
+			// as placed randomly by the RandomCartesianAdder of the space
+			for (int i = 0; i < bugCount; ++i) {
+				final Bug bug = new Bug();
+				context.add(bug);
+				final NdPoint pt = space.getLocation(bug);
+				grid.moveTo(bug, (int) pt.getX(), (int) pt.getY());
+				model.occupancy.add(model.occupancy.index((int) pt.getX(),
+						(int) pt.getY()));
+				model.sizeStatistics.record(bug.getSize());
+				model.sizeHistogram.add(bug.getSize());
+			}
+		} else {
+			// The state of the default random stream cannot be stored, so it
+			// is reseeded from the seed and the tick of the checkpoint: runs
+			// resumed from the same checkpoint are identical
+			model.seed = checkpoint.getSeed();
+			model.tickOffset = checkpoint.getTick();
+			RandomHelper.setSeed((int) new RandomStreams(model.seed).nextLong(
+					model.tickOffset, -1L, 0L));
+
+			final int[] cells = checkpoint.getCells();
+			for (int i = 0; i < cells.length; ++i) {
+				final Bug bug = new Bug();
+				bug.setSize(checkpoint.getSizes()[i]);
+				bug.setMaxConsumptionRate(checkpoint.getMaxConsumptionRates()[i]);
+				bug.setSurvivalProbability(checkpoint
+						.getSurvivalProbabilities()[i]);
+
+				final int x = model.occupancy.getX(cells[i]);
+				final int y = model.occupancy.getY(cells[i]);
+				context.add(bug);
+				space.moveTo(bug, x, y);
+				grid.moveTo(bug, x, y);
+				model.occupancy.add(cells[i]);
+				model.sizeStatistics.record(bug.getSize());
+				model.sizeHistogram.add(bug.getSize());
+			}
+		}
+
+		model.sizeStatistics.publish();
+
+		// The food of the cells is stored in a shared field, so it can be grown
+		// in one pass each tick; a restored world continues with the field
+		// read from the checkpoint, in the precision it was stored
+		model.foodField = (null == checkpoint) ? new FoodField(
+				Constants.GRID_SIZE, Constants.GRID_SIZE) : checkpoint
+				.getFoodField();
+
+		// Create a background layer for the displayed grid that represents the
+		// available (grown) food amount; it is a view of the food field, so it
+		// does not have to be updated when food grows or is consumed
+		context.addValueLayer(new FoodValueLayer(
+				Constants.FOOD_VALUE_LAYER_ID, // Access layer through context
+				model.foodField));
+
+		// The overview display shows the level of the pyramid matching its
+		// size; batch runs have no displays, so they do not maintain it
+		if (!RunEnvironment.getInstance().isBatch()) {
+			final WorldPyramid pyramid = model.getPyramid();
+			context.addValueLayer(pyramid.createFoodLayer(
+					Constants.FOOD_OVERVIEW_LAYER_ID, pyramid
+							.getLevelForScale(Constants.GUI_OVERVIEW_SIZE
+									/ Constants.GRID_SIZE)));
+		}
+
+		// Bugs access the cells directly by their location instead of
+		// querying the grid
+		model.cellIndex = new HabitatCellIndex(Constants.GRID_SIZE,
+				Constants.GRID_SIZE);
+
+		// Fill up the context with cells, and add them to the created grid
+		for (int i = 0; i < Constants.GRID_SIZE; ++i) {
+			for (int j = 0; j < Constants.GRID_SIZE; ++j) {
+				final HabitatCell cell = new HabitatCell(i, j, model.foodField);
+				context.add(cell); // First add it to the context
+				grid.moveTo(cell, i, j);
+				model.cellIndex.register(cell);
+			}
+		}
+
+		// Bugs find their best target cell through a query service following
+		// the changes of the food and the occupancy
+		model.foodQuery = new FoodQuery(model.foodField, model.occupancy);
+
+		// Parallel phases draw their random numbers from streams keyed by the
+		// tick and the cell, derived from the seed of the run
+		model.randomStreams = new RandomStreams(model.seed);
+
+		return context;
+	}
+
+	/**
+	 * Each time step, food availability of every cell is increased by food
+	 * production, a random floating point number between zero and the maximum
+	 * food production of the cell.
+	 * 
+	 * <p>
+	 * Before, {@link HabitatCell#growFood()} was scheduled for every cell,
+	 * resulting in <code>GRID_SIZE^2</code> scheduled method calls and context
+	 * lookups. Now the whole {@link FoodField} is grown in one pass (split
+	 * between the available processors for large worlds, see
+	 * {@link Constants#PARALLEL_FOOD_GROWTH_THRESHOLD}). The displayed food
+	 * value layer is a view of the same field, so the new values are not
+	 * copied.
+	 * </p>
+	 * 
+	 * <p>
+	 * Food production is scheduled before agent actions.
+	 * </p>
+	 * 
+	 * @see HabitatCell#growFood()
+	 */
+	@ScheduledMethod(start = 1, interval = 1, priority = 1)
+	public void growFood() {
+		if (SimulationEvents.isEnabled()) {
+			getEvents().tickStarted(getTick(), getPopulation().size());
+		}
+
+		final TickMetrics metrics = getTickMetrics();
+		final long start = metrics.start();
+		final FoodField field = getFoodField();
+		final WorkerPool pool = WorkerPool.getShared();
+
+		if (field.size() >= Constants.PARALLEL_FOOD_GROWTH_THRESHOLD) {
+			// Counter-based streams give the same result for any parallelism
+			final long tick = getTick();
+
+			if (pool.getParallelism() > 1) {
+				field.grow(randomStreams, tick, pool);
+			} else {
+				field.grow(randomStreams, tick);
+			}
+		} else {
+			field.grow();
+		}
+
+		metrics.stop(TickMetrics.Phase.GROW_FOOD, start);
+	}
+
+	/**
+	 * In Model 9, we have to create a randomized order of agent execution.
+	 * <b>Please note</b> it is the default behaviour in the previous model
+	 * versions: methods scheduled for the same time steps with the same
+	 * priority are executed in a random order by default.
+	 * 
+	 * <p>
+	 * This method gathers the current {@link Bug} agent list, randomizes its
+	 * order, and calls their {@link Bug#step() step()} and {@link Bug#grow()
+	 * grow()} functions sequentially after each other.
+	 * </p>
+	 * 
+	 * <p>
+	 * If the <code>parallelMovement</code> parameter is set, the bugs choose
+	 * their new locations concurrently by a {@link ParallelMovement} instance
+	 * instead of calling their <code>step()</code> functions.
+	 * </p>
+	 * 
+	 * <p>
+	 * Using the annotation {@link ScheduledMethod} makes this method executed
+	 * from the first simulation tick, and with specifying interval it is
+	 * executed each tick afterwards.
+	 * </p>
+	 * 
+	 * @since Model 9, Model 10
+	 */
+	@ScheduledMethod(start = 1, interval = 1, priority = 0)
+	public void activateAgents() {
+		final TickMetrics metrics = getTickMetrics();
+		final long queries = getFoodQuery().getQueryCount()
+				+ getOccupancy().getQueryCount();
+		final long stepStart = metrics.start();
+		final List<Bug> bugList = getBugList();
+
+		// Model 9 requires random agent activation
+		// SimUtilities.shuffle(bugList, RandomHelper.getUniform());
+
+		// Model 10 requires sorted agent activation
+		Collections.sort(bugList);
+
+		int moved = 0;
+		if (parallelMovement != null) {
+			@SuppressWarnings("unchecked")
+			final Grid<Object> grid = (Grid<Object>) getProjection(Constants.GRID_ID);
+			moved = parallelMovement.move(bugList, grid, getFoodField(),
+					getOccupancy(), getEvents());
+		} else {
+			for (final Bug bug : bugList) {
+				if (bug.step()) {
+					++moved;
+				}
+			}
+		}
+
+		final long growStart = metrics.start();
+		metrics.record(TickMetrics.Phase.STEP, growStart - stepStart);
+
+		for (final Bug bug : bugList) {
+			bug.grow();
+		}
+
+		final long mortalityStart = metrics.start();
+		metrics.record(TickMetrics.Phase.GROW, mortalityStart - growStart);
+		
+		// Model 12: Added mortality, scheduled after the bug move and grow;
+		// births and deaths are applied to the context at the end of the
+		// phase
+		// The sizes of the surviving and the newborn bugs are recorded during
+		// the phase, so the data sets need no separate pass over the bugs
+		final BirthDeathBuffer changes = getBirthDeathBuffer();
+		final SizeStatistics statistics = getSizeStatistics();
+		final long births = changes.getBirthCount();
+		final long deaths = changes.getDeathCount();
+		changes.begin();
+		statistics.reset();
+
+		for (final Bug bug : bugList) {
+			bug.mortality();
+		}
+
+		changes.commit();
+		statistics.publish();
+
+		metrics.stop(TickMetrics.Phase.MORTALITY, mortalityStart);
+		metrics.add(TickMetrics.Counter.MOVED, moved);
+		metrics.add(TickMetrics.Counter.BORN, changes.getBirthCount() - births);
+		metrics.add(TickMetrics.Counter.DIED, changes.getDeathCount() - deaths);
+		metrics.add(TickMetrics.Counter.FREE_CELL_QUERIES, getFoodQuery()
+				.getQueryCount() + getOccupancy().getQueryCount() - queries);
+
+		if (SimulationEvents.isEnabled()) {
+			getEvents().tickFinished(getTick(), getPopulation().size(),
+					(int) (changes.getBirthCount() - births),
+					(int) (changes.getDeathCount() - deaths));
+		}
+
+		// Model 12: [*] ... or when the number of bugs reaches zero.
+		// The registry follows the births and deaths of the mortality phase,
+		// so its size is the current number of bugs
+		if (0 == getPopulation().size()) {
+			System.out.println("All agents dead, terminating simulation.");
+			RunEnvironment.getInstance().endRun();
+		}
+	}
+
+	/**
+	 * Returns the registry of the living {@link Bug} agents.
+	 * 
+	 * @return the population registry created in {@link #build(Context)};
+	 *         <i>cannot be <code>null</code></i>
+	 */
+	public BugPopulation getPopulation() {
+		if (null == population) {
+			throw new IllegalStateException(
+					"Bug population is not initialized, context is not built.");
+		}
+
+		return population;
+	}
+
+	/**
+	 * Returns the food storage of the cells.
+	 * 
+	 * @return the food field created in {@link #build(Context)};
+	 *         <i>cannot be <code>null</code></i>
+	 */
+	public FoodField getFoodField() {
+		if (null == foodField) {
+			throw new IllegalStateException(
+					"Food field is not initialized, context is not built.");
+		}
+
+		return foodField;
+	}
+
+	/**
+	 * Returns the layer storing the cells occupied by bugs.
+	 * 
+	 * @return the occupancy layer created in {@link #build(Context)};
+	 *         <i>cannot be <code>null</code></i>
+	 */
+	public OccupancyLayer getOccupancy() {
+		if (null == occupancy) {
+			throw new IllegalStateException(
+					"Occupancy layer is not initialized, context is not built.");
+		}
+
+		return occupancy;
+	}
+
+	/**
+	 * Returns the lookup table of the cells.
+	 * 
+	 * @return the cell index created in {@link #build(Context)};
+	 *         <i>cannot be <code>null</code></i>
+	 */
+	public HabitatCellIndex getCellIndex() {
+		if (null == cellIndex) {
+			throw new IllegalStateException(
+					"Cell index is not initialized, context is not built.");
+		}
+
+		return cellIndex;
+	}
+
+	/**
+	 * Returns the buffer of the births and deaths of the model.
+	 * 
+	 * @return the buffer created in {@link #build(Context)}; <i>cannot be
+	 *         <code>null</code></i>
+	 */
+	public BirthDeathBuffer getBirthDeathBuffer() {
+		if (null == birthDeathBuffer) {
+			throw new IllegalStateException(
+					"Birth and death buffer is not initialized, context is not built.");
+		}
+
+		return birthDeathBuffer;
+	}
+
+	/**
+	 * Returns the best-food query service of the model.
+	 * 
+	 * @return the query service created in {@link #build(Context)};
+	 *         <i>cannot be <code>null</code></i>
+	 */
+	public FoodQuery getFoodQuery() {
+		if (null == foodQuery) {
+			throw new IllegalStateException(
+					"Food query is not initialized, context is not built.");
+		}
+
+		return foodQuery;
+	}
+
+	/**
+	 * Returns the size statistics of the bugs of the model.
+	 * 
+	 * @return the statistics created in {@link #build(Context)}, published
+	 *         at the end of each {@link #activateAgents()}; <i>cannot be
+	 *         <code>null</code></i>
+	 */
+	public SizeStatistics getSizeStatistics() {
+		if (null == sizeStatistics) {
+			throw new IllegalStateException(
+					"Size statistics is not initialized, context is not built.");
+		}
+
+		return sizeStatistics;
+	}
+
+	/**
+	 * Returns the size histogram of the bugs of the model.
+	 * 
+	 * @return the histogram created in {@link #build(Context)}, kept up to
+	 *         date by the bugs; <i>cannot be <code>null</code></i>
+	 */
+	public SizeHistogram getSizeHistogram() {
+		if (null == sizeHistogram) {
+			throw new IllegalStateException(
+					"Size histogram is not initialized, context is not built.");
+		}
+
+		return sizeHistogram;
+	}
+
+	/**
+	 * Returns the current tick of the world, counting the ticks executed
+	 * before the world was restored from a checkpoint.
+	 * 
+	 * @return the current tick of the schedule plus the restored ticks
+	 */
+	private long getTick() {
+		return tickOffset
+				+ (long) RunEnvironment.getInstance().getCurrentSchedule()
+						.getTickCount();
+	}
+
+	/**
+	 * Returns the durations and the activity of the phases of the ticks of
+	 * the model.
+	 * 
+	 * <p>
+	 * The food growth and the step, grow and mortality phases of the bugs are
+	 * timed; the data sets and the displays are executed by Repast, so the
+	 * data collection and rendering phases are only timed by the headless
+	 * sweeps (see {@link stupidmodel.batch.SweepExecutor}). The metrics may be
+	 * polled at any time, and they are printed at the end of the run.
+	 * </p>
+	 * 
+	 * @return the metrics created in {@link #build(Context)}; <i>cannot be
+	 *         <code>null</code></i>
+	 */
+	public TickMetrics getTickMetrics() {
+		if (null == tickMetrics) {
+			throw new IllegalStateException(
+					"Tick metrics is not initialized, context is not built.");
+		}
+
+		return tickMetrics;
+	}
+
+	/**
+	 * Returns the source of the simulation events of the model, identifying
+	 * this world in the events reported to the
+	 * {@link stupidmodel.common.SimulationListener}.
+	 * 
+	 * @return the event source created in {@link #build(Context)}; <i>cannot
+	 *         be <code>null</code></i>
+	 */
+	public SimulationEvents getEvents() {
+		if (null == events) {
+			throw new IllegalStateException(
+					"Simulation events are not initialized, context is not built.");
+		}
+
+		return events;
+	}
+
+	/**
+	 * Prints the metrics of the phases of the ticks at the end of the run.
+	 * 
+	 * @see #getTickMetrics()
+	 */
+	@ScheduledMethod(start = ScheduleParameters.END)
+	public void reportTickMetrics() {
+		System.out.println("Tick metrics:");
+		System.out.print(getTickMetrics().getReport());
+	}
+
+	/**
+	 * Returns the multi-resolution pyramid of the food and the bug density of
+	 * the world, for displays showing the world zoomed out.
+	 * 
+	 * <p>
+	 * The pyramid is created on the first request, so the worlds without an
+	 * overview display do not maintain it.
+	 * </p>
+	 * 
+	 * @return the pyramid of the world; <i>cannot be <code>null</code></i>
+	 */
+	public WorldPyramid getPyramid() {
+		if (null == pyramid) {
+			pyramid = new WorldPyramid(getFoodField(), getOccupancy());
+		}
+
+		return pyramid;
+	}
+
+	/**
+	 * Creates a checkpoint of the current state of the world, to be restored
+	 * later through the <code>checkpointFile</code> parameter.
+	 * 
+	 * <p>
+	 * It should be called between two ticks, e.g. after
+	 * {@link #activateAgents()}.
+	 * </p>
+	 * 
+	 * @return a new checkpoint, referring to the food field of the world
+	 */
+	public WorldCheckpoint createCheckpoint() {
+		final FoodField field = getFoodField();
+
+		@SuppressWarnings("unchecked")
+		final Grid<Object> grid = (Grid<Object>) getProjection(Constants.GRID_ID);
+		final BugPopulation bugs = getPopulation();
+		final int[] cells = new int[bugs.size()];
+		final double[] sizes = new double[cells.length];
+		final double[] maxConsumptionRates = new double[cells.length];
+		final double[] survivalProbabilities = new double[cells.length];
+
+		for (int i = 0; i < cells.length; ++i) {
+			final Bug bug = bugs.get(i);
+			final GridPoint location = grid.getLocation(bug);
+			cells[i] = field.index(location.getX(), location.getY());
+			sizes[i] = bug.getSize();
+			maxConsumptionRates[i] = bug.getMaxConsumptionRate();
+			survivalProbabilities[i] = bug.getSurvivalProbability();
+		}
+
+		return new WorldCheckpoint(field, getTick(), seed,
+				Constants.BUG_DEFAULT_MAX_CONSUMPTION_RATE,
+				Constants.BUG_DEFAULT_SURVIVAL_PROBABILITY, cells, sizes,
+				maxConsumptionRates, survivalProbabilities);
+	}
+
+	/**
+	 * Writes a checkpoint of the world to the file of the
+	 * <code>checkpointOutput</code> parameter every
+	 * <code>checkpointInterval</code> ticks (counting the ticks before a
+	 * restored checkpoint), after the agents are activated.
+	 * 
+	 * <p>
+	 * The checkpoint is written to a temporary file first, which then replaces
+	 * the previous checkpoint, so the output file always holds a complete
+	 * checkpoint that can be restored through the <code>checkpointFile</code>
+	 * parameter.
+	 * </p>
+	 * 
+	 * @see #createCheckpoint()
+	 */
+	@ScheduledMethod(start = 1, interval = 1, priority = ScheduleParameters.LAST_PRIORITY)
+	public void writeCheckpoint() {
+		if (0 == checkpointInterval || 0 != getTick() % checkpointInterval) {
+			return;
+		}
+
+		final File temporary = new File(checkpointOutput.getPath() + ".tmp");
+		try {
+			createCheckpoint().write(temporary);
+		} catch (final IOException e) {
+			throw new IllegalStateException("Cannot write checkpoint "
+					+ checkpointOutput + ": " + e.getMessage(), e);
+		}
+
+		// Existing files cannot be replaced by renaming on every platform
+		if (!temporary.renameTo(checkpointOutput)
+				&& !(checkpointOutput.delete() && temporary
+						.renameTo(checkpointOutput))) {
+			throw new IllegalStateException("Cannot replace checkpoint "
+					+ checkpointOutput);
+		}
+	}
+
+	/**
+	 * Reads the <code>checkpointInterval</code> and the
+	 * <code>checkpointOutput</code> parameters of the periodic checkpoints.
+	 * 
+	 * @param parameters
+	 *            the parameters of the run
+	 * @throws IllegalArgumentException
+	 *             if the interval is negative, or it is positive and the
+	 *             output file is missing
+	 */
+	private void readCheckpointOutput(final Parameters parameters) {
+		if (!parameters.getSchema().contains(
+				Constants.PARAMETER_ID_CHECKPOINT_INTERVAL)) {
+			return;
+		}
+
+		final int interval = ((Integer) parameters
+				.getValue(Constants.PARAMETER_ID_CHECKPOINT_INTERVAL))
+				.intValue();
+		if (interval < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter %s = %d < 0.",
+					Constants.PARAMETER_ID_CHECKPOINT_INTERVAL, interval));
+		}
+
+		if (0 == interval) {
+			return;
+		}
+
+		final Object path = parameters.getSchema().contains(
+				Constants.PARAMETER_ID_CHECKPOINT_OUTPUT) ? parameters
+				.getValue(Constants.PARAMETER_ID_CHECKPOINT_OUTPUT) : null;
+		if (null == path || 0 == path.toString().trim().length()) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter %s should be set if %s = %d.",
+					Constants.PARAMETER_ID_CHECKPOINT_OUTPUT,
+					Constants.PARAMETER_ID_CHECKPOINT_INTERVAL, interval));
+		}
+
+		checkpointInterval = interval;
+		checkpointOutput = new File(path.toString().trim());
+	}
+
+	/**
+	 * Reads the checkpoint specified by the <code>checkpointFile</code>
+	 * parameter.
+	 * 
+	 * @param parameters
+	 *            the parameters of the run
+	 * @return the checkpoint to restore; <code>null</code> if the parameter is
+	 *         missing or empty
+	 */
+	private static WorldCheckpoint readCheckpoint(final Parameters parameters) {
+		if (!parameters.getSchema().contains(
+				Constants.PARAMETER_ID_CHECKPOINT_FILE)) {
+			return null;
+		}
+
+		final Object path = parameters
+				.getValue(Constants.PARAMETER_ID_CHECKPOINT_FILE);
+		if (null == path || 0 == path.toString().trim().length()) {
+			return null;
+		}
+
+		final WorldCheckpoint ret;
+		try {
+			ret = WorldCheckpoint.read(new File(path.toString().trim()));
+		} catch (final IOException e) {
+			throw new IllegalStateException("Cannot read checkpoint " + path
+					+ ": " + e.getMessage(), e);
+		}
+
+		if (ret.getWidth() != Constants.GRID_SIZE
+				|| ret.getHeight() != Constants.GRID_SIZE) {
+			throw new IllegalStateException(String.format(
+					"Checkpoint %s of %d * %d does not match the grid of %d * %d.",
+					path, ret.getWidth(), ret.getHeight(), Constants.GRID_SIZE,
+					Constants.GRID_SIZE));
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Returns the current active {@link Bug} agent list.
+	 * 
+	 * <p>
+	 * Before, the list was collected from the master context each time it was
+	 * requested. Since the context contains all of the {@link HabitatCell}
+	 * objects as well, it was one of the most expensive parts of a tick, so the
+	 * list is taken from the incrementally maintained {@link BugPopulation}
+	 * registry instead.
+	 * </p>
+	 * 
+	 * @return list of bugs associated with the model context; <i>the list is a
+	 *         reused buffer of the registry, valid until the next call</i>
+	 * @since Model 9
+	 */
+	private List<Bug> getBugList() {
+		return getPopulation().snapshot();
+	}
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.agents;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import repast.simphony.context.Context;
+import repast.simphony.space.grid.Grid;
+import stupidmodel.StupidModelContextBuilder;
+import stupidmodel.space.OccupancyLayer;
+
+/**
+ * Command buffer of the structural changes of the population (births and
+ * deaths of {@link Bug} agents).
+ *
+ * <p>
+ * Adding an agent to or removing it from the context notifies every
+ * projection of the context (the space, the grid) and the
+ * {@link BugPopulation} registry. During the mortality phase these changes
+ * are recorded instead, and applied in one batch at the end of the phase
+ * (see {@link #begin()} and {@link #commit()}): consecutive births are passed
+ * to the bulk <code>addAll()</code> method of the context, dead bugs are
+ * removed one by one (the generic <code>removeAll()</code> of a collection
+ * would scan the whole context, including every habitat cell).
+ * </p>
+ *
+ * <p>
+ * The {@link OccupancyLayer} is updated immediately when a change is
+ * recorded, so the cells of the children placed earlier in the phase are not
+ * offered again, and the cells of the bugs died earlier become free, exactly
+ * as if the changes were applied immediately. Commands are applied in the
+ * order of their recording; outside of a phase they are applied right away.
+ * </p>
+ *
+ * @version $Id$
+ * @see StupidModelContextBuilder#activateAgents()
+ */
+public class BirthDeathBuffer {
+
+	/** Value of {@link #cells} for the recorded deaths. */
+	private static final int DEATH = -1;
+
+	/** The context of the population. */
+	private final Context<Object> context;
+
+	/** The grid the bugs are located at. */
+	private final Grid<Object> grid;
+
+	/** The occupancy layer of the grid. */
+	private final OccupancyLayer occupancy;
+
+	/** The bugs born or died, in the order of recording. */
+	private final List<Bug> bugs = new ArrayList<Bug>();
+
+	/**
+	 * The cell index of the recorded births, {@link #DEATH} for the recorded
+	 * deaths.
+	 */
+	private int[] cells = new int[16];
+
+	/** Whether the changes are recorded or applied immediately. */
+	private boolean deferred = false;
+
+	/** Number of births recorded since the buffer was created. */
+	private long birthCount = 0;
+
+	/** Number of deaths recorded since the buffer was created. */
+	private long deathCount = 0;
+
+	/**
+	 * Creates a new buffer.
+	 *
+	 * @param context
+	 *            the context of the population; <i>cannot be
+	 *            <code>null</code></i>
+	 * @param grid
+	 *            the grid the bugs are located at; <i>cannot be
+	 *            <code>null</code></i>
+	 * @param occupancy
+	 *            the occupancy layer of the grid; <i>cannot be
+	 *            <code>null</code></i>
+	 */
+	public BirthDeathBuffer(final Context<Object> context,
+			final Grid<Object> grid, final OccupancyLayer occupancy) {
+		if (null == context) {
+			throw new IllegalArgumentException(
+					"Parameter context cannot be null.");
+		}
+
+		if (null == grid) {
+			throw new IllegalArgumentException("Parameter grid cannot be null.");
+		}
+
+		if (null == occupancy) {
+			throw new IllegalArgumentException(
+					"Parameter occupancy cannot be null.");
+		}
+
+		this.context = context;
+		this.grid = grid;
+		this.occupancy = occupancy;
+	}
+
+	/**
+	 * Starts recording the changes.
+	 */
+	public void begin() {
+		if (deferred) {
+			throw new IllegalStateException("Buffer is already recording.");
+		}
+
+		deferred = true;
+	}
+
+	/**
+	 * Applies the recorded changes and stops recording.
+	 */
+	public void commit() {
+		if (!deferred) {
+			throw new IllegalStateException("Buffer is not recording.");
+		}
+
+		deferred = false;
+
+		int from = 0;
+		while (from < bugs.size()) {
+			final boolean birth = cells[from] != DEATH;
+
+			int to = from + 1;
+			while (to < bugs.size() && (cells[to] != DEATH) == birth) {
+				++to;
+			}
+
+			final List<Bug> batch = bugs.subList(from, to);
+			if (birth) {
+				context.addAll(batch);
+				for (int i = from; i < to; ++i) {
+					grid.moveTo(bugs.get(i), occupancy.getX(cells[i]),
+							occupancy.getY(cells[i]));
+				}
+			} else {
+				for (final Bug bug : batch) {
+					context.remove(bug);
+				}
+			}
+
+			from = to;
+		}
+
+		bugs.clear();
+	}
+
+	/**
+	 * Returns the number of recorded, not yet applied changes.
+	 *
+	 * @return the number of pending births and deaths
+	 */
+	public int getPendingCount() {
+		return bugs.size();
+	}
+
+	/**
+	 * Returns the number of births recorded by the buffer.
+	 *
+	 * @return the number of births since the buffer was created, including
+	 *         the pending ones
+	 */
+	public long getBirthCount() {
+		return birthCount;
+	}
+
+	/**
+	 * Returns the number of deaths recorded by the buffer.
+	 *
+	 * @return the number of deaths since the buffer was created, including
+	 *         the pending ones
+	 */
+	public long getDeathCount() {
+		return deathCount;
+	}
+
+	/**
+	 * Records the birth of a bug at the specified cell, and marks the cell
+	 * occupied.
+	 *
+	 * @param child
+	 *            the new bug, not yet part of the context; <i>cannot be
+	 *            <code>null</code></i>
+	 * @param cell
+	 *            index of the cell of the new bug
+	 */
+	public void recordBirth(final Bug child, final int cell) {
+		if (null == child) {
+			throw new IllegalArgumentException("Parameter child cannot be null.");
+		}
+
+		occupancy.add(cell);
+		++birthCount;
+
+		if (deferred) {
+			record(child, cell);
+		} else {
+			context.add(child);
+			grid.moveTo(child, occupancy.getX(cell), occupancy.getY(cell));
+		}
+	}
+
+	/**
+	 * Records the death of a bug, and frees its cell.
+	 *
+	 * @param bug
+	 *            the dying bug; <i>cannot be <code>null</code></i>
+	 * @param cell
+	 *            index of the cell of the bug; <code>-1</code> if it is not
+	 *            located on the grid
+	 */
+	public void recordDeath(final Bug bug, final int cell) {
+		if (null == bug) {
+			throw new IllegalArgumentException("Parameter bug cannot be null.");
+		}
+
+		if (cell >= 0) {
+			occupancy.remove(cell);
+		}
+
+		++deathCount;
+
+		if (deferred) {
+			record(bug, DEATH);
+		} else {
+			context.remove(bug);
+		}
+	}
+
+	/**
+	 * Appends a command to the buffer.
+	 *
+	 * @param bug
+	 *            the bug of the command
+	 * @param cell
+	 *            the cell of the birth, or {@link #DEATH}
+	 */
+	private void record(final Bug bug, final int cell) {
+		if (bugs.size() == cells.length) {
+			cells = Arrays.copyOf(cells, 2 * cells.length);
+		}
+
+		cells[bugs.size()] = cell;
+		bugs.add(bug);
+	}
+
+}
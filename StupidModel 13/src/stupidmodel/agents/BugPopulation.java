@@ -0,0 +1,201 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.agents;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import repast.simphony.context.Context;
+import repast.simphony.context.ContextEvent;
+import repast.simphony.context.ContextListener;
+import stupidmodel.StupidModelContextBuilder;
+
+/**
+ * Registry of the living {@link Bug} agents of a context.
+ *
+ * <p>
+ * The registry is attached to the model context as a {@link ContextListener},
+ * so it is maintained incrementally by the <code>add()</code> and
+ * <code>remove()</code> calls of the context (i.e. when bugs are born in
+ * {@link Bug#reproduce()} or die in {@link Bug#die()}). This way the scheduled
+ * methods of {@link StupidModelContextBuilder} never have to scan the whole
+ * context (which also contains every {@link HabitatCell}) to collect the bugs.
+ * </p>
+ *
+ * <p>
+ * Each registered bug stores its index in the registry, so both registration
+ * and removal are <code>O(1)</code> (removal swaps the last bug into the freed
+ * slot, so the order of the registry is not the insertion order).
+ * </p>
+ *
+ * @version $Id$
+ * @see StupidModelContextBuilder#activateAgents()
+ */
+public class BugPopulation implements ContextListener<Object> {
+
+	/** The registered bugs; index <code>i</code> holds a bug with index i. */
+	private final ArrayList<Bug> bugs = new ArrayList<Bug>();
+
+	/** Reusable buffer returned by {@link #snapshot()}. */
+	private final ArrayList<Bug> buffer = new ArrayList<Bug>();
+
+	/**
+	 * Creates a new empty registry.
+	 */
+	public BugPopulation() {
+		super();
+	}
+
+	/**
+	 * Creates a new registry and attaches it to the specified context, also
+	 * registering the bugs already added to it.
+	 *
+	 * @param context
+	 *            the context to follow; <i>cannot be <code>null</code></i>
+	 * @return the new registry listening to the events of the context
+	 */
+	public static BugPopulation attach(final Context<Object> context) {
+		if (null == context) {
+			throw new IllegalArgumentException(
+					"Parameter context cannot be null.");
+		}
+
+		final BugPopulation ret = new BugPopulation();
+
+		for (final Object object : context.getObjects(Bug.class)) {
+			ret.add((Bug) object);
+		}
+
+		context.addContextListener(ret);
+		return ret;
+	}
+
+	/**
+	 * Registers the specified bug.
+	 *
+	 * @param bug
+	 *            the bug to register; <i>cannot be <code>null</code> or
+	 *            already registered</i>
+	 */
+	public void add(final Bug bug) {
+		if (null == bug) {
+			throw new IllegalArgumentException("Parameter bug cannot be null.");
+		}
+
+		if (bug.populationIndex >= 0) {
+			throw new IllegalStateException(String.format(
+					"Bug %s is already registered.", bug));
+		}
+
+		bug.populationIndex = bugs.size();
+		bugs.add(bug);
+	}
+
+	/**
+	 * Removes the specified bug from the registry.
+	 *
+	 * @param bug
+	 *            the bug to remove; <i>cannot be <code>null</code></i>
+	 * @return <code>true</code> if the bug was registered and removed;
+	 *         <code>false</code> otherwise
+	 */
+	public boolean remove(final Bug bug) {
+		if (null == bug) {
+			throw new IllegalArgumentException("Parameter bug cannot be null.");
+		}
+
+		final int index = bug.populationIndex;
+		if (index < 0 || index >= bugs.size() || bugs.get(index) != bug) {
+			return false;
+		}
+
+		// Move the last bug into the freed slot to keep removal O(1)
+		final Bug last = bugs.remove(bugs.size() - 1);
+		if (last != bug) {
+			bugs.set(index, last);
+			last.populationIndex = index;
+		}
+
+		bug.populationIndex = -1;
+		return true;
+	}
+
+	/**
+	 * Returns the number of registered bugs.
+	 *
+	 * @return the current population size; <i>non-negative</i>
+	 */
+	public int size() {
+		return bugs.size();
+	}
+
+	/**
+	 * Returns the registered bug with the specified index.
+	 *
+	 * @param index
+	 *            index of the bug; <i>must be on the interval
+	 *            <code>[0, size())</code></i>
+	 * @return the bug with the specified index
+	 */
+	public Bug get(final int index) {
+		return bugs.get(index);
+	}
+
+	/**
+	 * Returns a copy of the current population in a reusable buffer.
+	 *
+	 * <p>
+	 * The returned list is owned by the registry: it is safe to sort it or to
+	 * modify the population while iterating over it, but its content is
+	 * overwritten by the next call of this method.
+	 * </p>
+	 *
+	 * @return the list of the currently registered bugs
+	 */
+	public List<Bug> snapshot() {
+		buffer.clear();
+		buffer.ensureCapacity(bugs.size());
+
+		for (int i = 0; i < bugs.size(); ++i) {
+			buffer.add(bugs.get(i));
+		}
+
+		return buffer;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * Registers added bugs and removes deleted ones, other events and agents
+	 * are ignored.
+	 * </p>
+	 *
+	 * @see repast.simphony.context.ContextListener#eventOccured(repast.simphony.context.ContextEvent)
+	 */
+	@Override
+	public void eventOccured(final ContextEvent<Object> ev) {
+		if (!(ev.getTarget() instanceof Bug)) {
+			return;
+		}
+
+		final Bug bug = (Bug) ev.getTarget();
+
+		switch (ev.getType()) {
+		case AGENT_ADDED:
+			add(bug);
+			break;
+		case AGENT_REMOVED:
+			remove(bug);
+			break;
+		default:
+			break;
+		}
+	}
+
+}
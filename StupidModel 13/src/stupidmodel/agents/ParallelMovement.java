@@ -0,0 +1,391 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.agents;
+
+import java.util.Arrays;
+import java.util.List;
+
+import repast.simphony.space.grid.Grid;
+import repast.simphony.space.grid.GridPoint;
+import stupidmodel.StupidModelContextBuilder;
+import stupidmodel.common.Constants;
+import stupidmodel.common.SimulationEvents;
+import stupidmodel.common.WorkerPool;
+import stupidmodel.space.FoodField;
+import stupidmodel.space.OccupancyLayer;
+
+/**
+ * Parallel implementation of the movement ({@link Bug#step()}) of a size
+ * ordered bug population.
+ *
+ * <p>
+ * In <i>Model 10</i>, bugs move one at a time in descending size order: each
+ * bug moves to the free cell with the most food within its vision range. This
+ * class computes the same decisions in rounds of a propose/commit scheme:
+ * </p>
+ *
+ * <ol>
+ * <li>Every unresolved bug proposes the best free cell of its neighbourhood
+ * concurrently (<i>propose</i>).</li>
+ * <li>A proposal is accepted only if no unresolved bigger bug can see the
+ * proposed cell, since such a bug may still take it. Accepted proposals are
+ * committed in size order, the rest of the bugs retry in the next round with
+ * the remaining free cells (<i>commit</i>).</li>
+ * </ol>
+ *
+ * <p>
+ * The biggest unresolved bug is always accepted, so every round makes
+ * progress; when a round resolves only a small part of the bugs (e.g. in very
+ * crowded worlds) the rest is resolved sequentially with the same rules.
+ * </p>
+ *
+ * <p>
+ * <b>Difference from the sequential movement</b>: a cell left by a bug stays
+ * blocked until the end of the movement phase, i.e. it cannot be taken by a
+ * smaller bug in the same tick (sequentially, the cell becomes free as soon
+ * as its owner moves). Ties between cells with the same amount of food are
+ * broken by the scan order of the neighbourhood (column by column, from the
+ * lowest coordinates), and ties between bugs of the same size by their order
+ * in the list. With these rules the result does not depend on the number of
+ * threads, and it is identical to a sequential run applying the same rules.
+ * </p>
+ *
+ * <p>
+ * The per-cell buffers are kept between the ticks and only the entries of
+ * the bugs are cleared, so an instance belongs to a single world and must
+ * not be used by multiple threads at once.
+ * </p>
+ *
+ * @version $Id$
+ * @see StupidModelContextBuilder#activateAgents()
+ */
+public class ParallelMovement {
+
+	/** Value of {@link #minRank} for cells without unresolved bugs. */
+	private static final int NONE = Integer.MAX_VALUE;
+
+	/** Decision of a bug that cannot move. */
+	private static final int STAY = -1;
+
+	/** Decision of a bug that has to wait for a bigger one. */
+	private static final int DEFER = -2;
+
+	/** The pool to compute the proposals with. */
+	private final WorkerPool pool;
+
+	/** The vision range of the bugs. */
+	private final int range;
+
+	/**
+	 * Cells that cannot be chosen (occupied or taken in the current tick),
+	 * reused between the calls; all <code>false</code> between the calls.
+	 */
+	private boolean[] blocked = new boolean[0];
+
+	/**
+	 * Highest priority of the unresolved bugs of each cell, reused between
+	 * the calls; all {@link #NONE} between the calls.
+	 */
+	private int[] minRank = new int[0];
+
+	/**
+	 * Creates a new instance using the default vision range of the bugs.
+	 *
+	 * @param pool
+	 *            the pool to compute the proposals with; <i>cannot be
+	 *            <code>null</code></i>
+	 */
+	public ParallelMovement(final WorkerPool pool) {
+		this(pool, Constants.BUG_VISION_RANGE);
+	}
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param pool
+	 *            the pool to compute the proposals with; <i>cannot be
+	 *            <code>null</code></i>
+	 * @param range
+	 *            the vision range of the bugs; <i>must be non-negative</i>
+	 */
+	public ParallelMovement(final WorkerPool pool, final int range) {
+		if (null == pool) {
+			throw new IllegalArgumentException("Parameter pool cannot be null.");
+		}
+
+		if (range < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter range = %d < 0.", range));
+		}
+
+		this.pool = pool;
+		this.range = range;
+	}
+
+	/**
+	 * Moves the specified bugs on the grid.
+	 *
+	 * @param bugs
+	 *            the bugs to move in descending priority (i.e. size) order;
+	 *            <i>cannot be <code>null</code></i>
+	 * @param grid
+	 *            the grid the bugs are located at; <i>its dimensions must be
+	 *            the same as of the food field</i>
+	 * @param field
+	 *            the food of the cells
+	 * @param occupancy
+	 *            the occupancy layer of the grid, it is updated with the moves
+	 * @param events
+	 *            the event source of the world, reporting a sample of the
+	 *            decisions; <i>cannot be <code>null</code></i>
+	 * @return the number of bugs moved to another cell
+	 */
+	public int move(final List<Bug> bugs, final Grid<Object> grid,
+			final FoodField field, final OccupancyLayer occupancy,
+			final SimulationEvents events) {
+		if (null == bugs) {
+			throw new IllegalArgumentException("Parameter bugs cannot be null.");
+		}
+
+		if (null == events) {
+			throw new IllegalArgumentException(
+					"Parameter events cannot be null.");
+		}
+
+		final int[] positions = new int[bugs.size()];
+		for (int i = 0; i < positions.length; ++i) {
+			final GridPoint location = grid.getLocation(bugs.get(i));
+			positions[i] = field.index(location.getX(), location.getY());
+		}
+
+		final int[] targets = decide(positions, field);
+		final boolean reported = SimulationEvents.isEnabled();
+
+		int ret = 0;
+		for (int i = 0; i < targets.length; ++i) {
+			// Reported in priority order, like the sequential decisions
+			if (reported) {
+				events.stepDecided(positions[i],
+						(targets[i] != positions[i]) ? targets[i] : -1);
+			}
+
+			if (targets[i] != positions[i]) {
+				grid.moveTo(bugs.get(i), occupancy.getX(targets[i]),
+						occupancy.getY(targets[i]));
+				occupancy.move(positions[i], targets[i]);
+				++ret;
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Computes the new positions of the bugs.
+	 *
+	 * @param positions
+	 *            field index of the current cell of each bug, in descending
+	 *            priority order
+	 * @param field
+	 *            the food of the cells
+	 * @return the field index of the new cell of each bug (the same as its
+	 *         current position if it does not move)
+	 */
+	public int[] decide(final int[] positions, final FoodField field) {
+		if (blocked.length != field.size()) {
+			blocked = new boolean[field.size()];
+			minRank = new int[field.size()];
+			Arrays.fill(minRank, NONE);
+		}
+
+		final int[] targets = positions.clone();
+
+		try {
+			decide(positions, field, targets);
+		} finally {
+			// Only the cells of the bugs were changed
+			for (int i = 0; i < positions.length; ++i) {
+				blocked[positions[i]] = false;
+				blocked[targets[i]] = false;
+				minRank[positions[i]] = NONE;
+			}
+		}
+
+		return targets;
+	}
+
+	/**
+	 * Computes the new positions of the bugs with the reused buffers.
+	 *
+	 * @param positions
+	 *            field index of the current cell of each bug, in descending
+	 *            priority order
+	 * @param field
+	 *            the food of the cells
+	 * @param targets
+	 *            the field index of the new cell of each bug, initialized to
+	 *            the current positions
+	 */
+	private void decide(final int[] positions, final FoodField field,
+			final int[] targets) {
+		final int n = positions.length;
+		final boolean[] blocked = this.blocked;
+		final int[] minRank = this.minRank;
+
+		for (int i = 0; i < n; ++i) {
+			blocked[positions[i]] = true;
+			minRank[positions[i]] = Math.min(minRank[positions[i]], i);
+		}
+
+		final int[] decisions = new int[n];
+
+		int[] unresolved = new int[n];
+		for (int i = 0; i < n; ++i) {
+			unresolved[i] = i;
+		}
+
+		int count = n;
+		while (count > 0) {
+			final int[] current = unresolved;
+			final int size = count;
+
+			// Propose: read-only, so it can be computed concurrently
+			pool.forEachRange(size, new WorkerPool.RangeTask() {
+
+				@Override
+				public void run(final int chunk, final int from, final int to) {
+					for (int k = from; k < to; ++k) {
+						final int rank = current[k];
+						final int best = bestFreeCell(positions[rank], field,
+								blocked);
+						decisions[rank] = (best < 0) ? STAY : (isContested(
+								best, rank, field, minRank) ? DEFER : best);
+					}
+				}
+			});
+
+			// Commit in priority order
+			int next = 0;
+			for (int k = 0; k < size; ++k) {
+				final int rank = current[k];
+				if (DEFER == decisions[rank]) {
+					current[next++] = rank;
+					continue;
+				}
+
+				if (decisions[rank] != STAY) {
+					blocked[decisions[rank]] = true;
+					targets[rank] = decisions[rank];
+				}
+
+				minRank[positions[rank]] = NONE;
+			}
+
+			for (int k = 0; k < next; ++k) {
+				minRank[positions[current[k]]] = NONE;
+			}
+
+			for (int k = 0; k < next; ++k) {
+				final int rank = current[k];
+				minRank[positions[rank]] = Math.min(minRank[positions[rank]],
+						rank);
+			}
+
+			final boolean poorProgress = (size - next) * 8 < size;
+			unresolved = current;
+			count = next;
+
+			if (poorProgress) {
+				for (int k = 0; k < count; ++k) {
+					final int rank = unresolved[k];
+					final int best = bestFreeCell(positions[rank], field,
+							blocked);
+					if (best >= 0) {
+						blocked[best] = true;
+						targets[rank] = best;
+					}
+				}
+
+				count = 0;
+			}
+		}
+	}
+
+	/**
+	 * Returns the free cell with the most food within the vision range of the
+	 * specified position.
+	 *
+	 * @param position
+	 *            the field index of the position
+	 * @param field
+	 *            the food of the cells
+	 * @param blocked
+	 *            the cells that cannot be chosen
+	 * @return the field index of the best free cell; <code>-1</code> if there
+	 *         is no free cell in range
+	 */
+	private int bestFreeCell(final int position, final FoodField field,
+			final boolean[] blocked) {
+		final int width = field.getWidth();
+		final int height = field.getHeight();
+		final int x = position / height;
+		final int y = position % height;
+
+		int best = -1;
+		double bestFood = Double.NEGATIVE_INFINITY;
+
+		for (int dx = -range; dx <= range; ++dx) {
+			final int column = ((x + dx) % width + width) % width * height;
+			for (int dy = -range; dy <= range; ++dy) {
+				final int index = column + ((y + dy) % height + height)
+						% height;
+				if (!blocked[index] && field.getFood(index) > bestFood) {
+					best = index;
+					bestFood = field.getFood(index);
+				}
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Checks if an unresolved bug with a higher priority than the specified
+	 * one can see the specified cell.
+	 *
+	 * @param cell
+	 *            the field index of the cell
+	 * @param rank
+	 *            the priority of the bug proposing the cell
+	 * @param field
+	 *            the food of the cells
+	 * @param minRank
+	 *            the highest priority of unresolved bugs for each cell
+	 * @return <code>true</code> if a bigger bug may still take the cell
+	 */
+	private boolean isContested(final int cell, final int rank,
+			final FoodField field, final int[] minRank) {
+		final int width = field.getWidth();
+		final int height = field.getHeight();
+		final int x = cell / height;
+		final int y = cell % height;
+
+		// Vision is symmetric: the cell is seen by the bugs within range
+		for (int dx = -range; dx <= range; ++dx) {
+			final int column = ((x + dx) % width + width) % width * height;
+			for (int dy = -range; dy <= range; ++dy) {
+				if (minRank[column + ((y + dy) % height + height) % height] < rank) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+}
@@ -0,0 +1,389 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.batch;
+
+import java.io.IOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Statistics sink handing the records over to a dedicated writer thread, so
+ * slow storage does not add to the duration of the ticks.
+ *
+ * <p>
+ * The records are stored in a bounded ring buffer of primitive arrays (no
+ * objects are allocated per record). The writer thread takes every record
+ * available at once, writes the batch to the target sink and flushes it, so
+ * the target is flushed once per batch instead of once per record.
+ * </p>
+ *
+ * <p>
+ * If the writer falls behind and the buffer is full, the {@link Backpressure}
+ * policy decides what happens: with {@link Backpressure#BLOCK}, the run waits
+ * for the writer (no record is lost); with {@link Backpressure#SAMPLE}, the
+ * record is dropped and only every <code>samplingInterval</code>-th record is
+ * kept until the writer has emptied half of the buffer. The ticks of the
+ * records identify the kept ones, and {@link #getDroppedCount()} tells how
+ * many were lost.
+ * </p>
+ *
+ * <p>
+ * If the target fails (with any exception), the writer thread stops: the
+ * following calls of {@link #write}, including the ones waiting for free
+ * space, {@link #flush()} and {@link #close()} throw an {@link IOException}
+ * with the failure as its cause.
+ * </p>
+ *
+ * <p>
+ * A single thread may write records; the target sink is used only by the
+ * writer thread until the sink is closed.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class AsyncStatisticsSink implements StatisticsSink {
+
+	/**
+	 * Behavior of the sink when its buffer is full.
+	 */
+	public static enum Backpressure {
+
+		/** The writing thread waits until the buffer has free space. */
+		BLOCK,
+
+		/** Records are dropped and sampled until the writer catches up. */
+		SAMPLE;
+
+	}
+
+	/** The sink the records are written to. */
+	private final StatisticsSink target;
+
+	/** Behavior when the buffer is full. */
+	private final Backpressure backpressure;
+
+	/** Every this many records are kept while sampling. */
+	private final int samplingInterval;
+
+	/** Ticks of the buffered records. */
+	private final long[] ticks;
+
+	/** Bug counts of the buffered records. */
+	private final int[] counts;
+
+	/** Minimum sizes of the buffered records. */
+	private final double[] minSizes;
+
+	/** Maximum sizes of the buffered records. */
+	private final double[] maxSizes;
+
+	/** Mean sizes of the buffered records. */
+	private final double[] meanSizes;
+
+	/** Guards the state of the buffer. */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** Signaled when a record is buffered or the sink is closed. */
+	private final Condition notEmpty = lock.newCondition();
+
+	/** Signaled when the writer takes the buffered records. */
+	private final Condition notFull = lock.newCondition();
+
+	/** Position of the oldest buffered record. */
+	private int head = 0;
+
+	/** Number of buffered records. */
+	private int size = 0;
+
+	/** Indicates if the records are being sampled. */
+	private boolean sampling = false;
+
+	/** Number of records offered since sampling started. */
+	private long sampled = 0;
+
+	/** Number of dropped records. */
+	private long dropped = 0;
+
+	/** Indicates if the sink is closed. */
+	private boolean closed = false;
+
+	/** Indicates if the writer thread stopped. */
+	private boolean terminated = false;
+
+	/** The failure stopping the writer; <code>null</code> if none. */
+	private volatile Throwable failure = null;
+
+	/** The writer thread. */
+	private final Thread writer;
+
+	/**
+	 * Creates a new sink and starts its writer thread.
+	 *
+	 * @param target
+	 *            the sink the records are written to; <i>cannot be
+	 *            <code>null</code></i>
+	 * @param capacity
+	 *            maximal number of buffered records; <i>must be positive</i>
+	 * @param backpressure
+	 *            behavior when the buffer is full; <i>cannot be
+	 *            <code>null</code></i>
+	 * @param samplingInterval
+	 *            every this many records are kept while sampling; <i>must be
+	 *            positive</i>
+	 */
+	public AsyncStatisticsSink(final StatisticsSink target, final int capacity,
+			final Backpressure backpressure, final int samplingInterval) {
+		if (null == target) {
+			throw new IllegalArgumentException("Parameter target cannot be null.");
+		}
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter capacity = %d < 1.", capacity));
+		}
+
+		if (null == backpressure) {
+			throw new IllegalArgumentException(
+					"Parameter backpressure cannot be null.");
+		}
+
+		if (samplingInterval < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter samplingInterval = %d < 1.", samplingInterval));
+		}
+
+		this.target = target;
+		this.backpressure = backpressure;
+		this.samplingInterval = samplingInterval;
+		this.ticks = new long[capacity];
+		this.counts = new int[capacity];
+		this.minSizes = new double[capacity];
+		this.maxSizes = new double[capacity];
+		this.meanSizes = new double[capacity];
+
+		this.writer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "AsyncStatisticsSink");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * The record is buffered and written later by the writer thread.
+	 * </p>
+	 *
+	 * @throws IOException
+	 *             if a previous record could not be written, i.e. the writer
+	 *             thread stopped
+	 */
+	@Override
+	public void write(final long tick, final int count, final double minSize,
+			final double maxSize, final double meanSize) throws IOException,
+			InterruptedException {
+		checkFailure();
+
+		lock.lock();
+		try {
+			if (closed) {
+				throw new IllegalStateException("Sink is closed.");
+			}
+
+			if (sampling) {
+				if (2 * size <= ticks.length) {
+					sampling = false;
+				} else if (0 != sampled++ % samplingInterval) {
+					++dropped;
+					return;
+				}
+			}
+
+			if (ticks.length == size) {
+				if (Backpressure.SAMPLE == backpressure) {
+					sampling = true;
+					sampled = 1;
+					++dropped;
+					return;
+				}
+
+				// The writer stops before the sink is closed only on a failure
+				while (ticks.length == size && !terminated) {
+					notFull.await();
+				}
+
+				checkFailure();
+			}
+
+			final int tail = (head + size) % ticks.length;
+			ticks[tail] = tick;
+			counts[tail] = count;
+			minSizes[tail] = minSize;
+			maxSizes[tail] = maxSize;
+			meanSizes[tail] = meanSize;
+			++size;
+
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * The writer thread flushes the target after each batch, so this method
+	 * only reports the failures of the writer.
+	 * </p>
+	 */
+	@Override
+	public void flush() throws IOException {
+		checkFailure();
+	}
+
+	/**
+	 * Waits until the buffered records are written, stops the writer thread
+	 * and closes the target sink.
+	 */
+	@Override
+	public void close() throws IOException, InterruptedException {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+
+			closed = true;
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+
+		try {
+			writer.join();
+		} finally {
+			target.close();
+		}
+
+		checkFailure();
+	}
+
+	/**
+	 * Returns the number of records dropped because the buffer was full.
+	 *
+	 * @return the number of dropped records; always <code>0</code> with
+	 *         {@link Backpressure#BLOCK}
+	 */
+	public long getDroppedCount() {
+		lock.lock();
+		try {
+			return dropped;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Main loop of the writer thread: takes the buffered records in batches
+	 * and writes them to the target, until the sink is closed and the buffer
+	 * is empty, or the target fails.
+	 */
+	private void drain() {
+		try {
+			drainBatches();
+		} catch (final Throwable e) {
+			// Interruption is a failure as well: the buffered records are lost
+			failure = e;
+		} finally {
+			lock.lock();
+			try {
+				terminated = true;
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Writes the buffered records in batches until the sink is closed and the
+	 * buffer is empty.
+	 *
+	 * @throws IOException
+	 *             if the records cannot be written
+	 * @throws InterruptedException
+	 *             if the writer thread is interrupted
+	 */
+	private void drainBatches() throws IOException, InterruptedException {
+		final long[] batchTicks = new long[ticks.length];
+		final int[] batchCounts = new int[ticks.length];
+		final double[] batchMinSizes = new double[ticks.length];
+		final double[] batchMaxSizes = new double[ticks.length];
+		final double[] batchMeanSizes = new double[ticks.length];
+
+		while (true) {
+			final int batch;
+
+			lock.lock();
+			try {
+				while (0 == size && !closed) {
+					notEmpty.await();
+				}
+
+				if (0 == size) {
+					return;
+				}
+
+				batch = size;
+				for (int i = 0; i < batch; ++i) {
+					final int index = (head + i) % ticks.length;
+					batchTicks[i] = ticks[index];
+					batchCounts[i] = counts[index];
+					batchMinSizes[i] = minSizes[index];
+					batchMaxSizes[i] = maxSizes[index];
+					batchMeanSizes[i] = meanSizes[index];
+				}
+
+				head = (head + batch) % ticks.length;
+				size = 0;
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+
+			for (int i = 0; i < batch; ++i) {
+				target.write(batchTicks[i], batchCounts[i], batchMinSizes[i],
+						batchMaxSizes[i], batchMeanSizes[i]);
+			}
+
+			target.flush();
+		}
+	}
+
+	/**
+	 * Throws the failure stopping the writer thread, if any.
+	 *
+	 * @throws IOException
+	 *             if a record could not be written
+	 */
+	private void checkFailure() throws IOException {
+		final Throwable current = failure;
+
+		if (current != null) {
+			throw new IOException("Statistics could not be written: "
+					+ current, current);
+		}
+	}
+
+}
@@ -0,0 +1,456 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.batch;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import stupidmodel.batch.ColumnarRunWriter.ColumnType;
+
+/**
+ * Reader of the files written by {@link ColumnarRunWriter}.
+ *
+ * <p>
+ * The header and the footer are read when the file is opened, and then only
+ * the blocks of the requested column are read (with positional reads) and
+ * decompressed, so loading a single column of many run files (see
+ * {@link #readColumn(List, String)}) touches a small part of each file.
+ * The file remains open until {@link #close()} is called. Instances are
+ * <i>not</i> thread-safe.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class ColumnarRunReader implements Closeable {
+
+	/** The read file. */
+	private final File file;
+
+	/** The opened file. */
+	private final RandomAccessFile in;
+
+	/** The channel of the file, read with positional reads. */
+	private final FileChannel channel;
+
+	/** Names of the columns. */
+	private final String[] names;
+
+	/** Types of the columns. */
+	private final ColumnType[] types;
+
+	/** Number of rows of the blocks. */
+	private final int[] blockRows;
+
+	/** Offsets of the columns of the blocks, by block. */
+	private final long[][] offsets;
+
+	/** Compressed lengths of the columns of the blocks, by block. */
+	private final int[][] lengths;
+
+	/** Total number of rows. */
+	private final int rowCount;
+
+	/**
+	 * Opens a file written by {@link ColumnarRunWriter}.
+	 *
+	 * @param file
+	 *            the file to read; <i>cannot be <code>null</code></i>
+	 * @throws IOException
+	 *             if the file cannot be read or it is not a valid columnar
+	 *             run file
+	 */
+	public ColumnarRunReader(final File file) throws IOException {
+		if (null == file) {
+			throw new IllegalArgumentException("Parameter file cannot be null.");
+		}
+
+		this.file = file;
+		in = new RandomAccessFile(file, "r");
+		channel = in.getChannel();
+
+		boolean opened = false;
+		try {
+			final long size = channel.size();
+			if (size < 20) {
+				throw new IOException("Not a columnar run file: " + file);
+			}
+
+			final ByteBuffer trailer = read(size - 12, 12);
+			final long footerOffset = trailer.getLong();
+			final ByteBuffer start = read(0, 8);
+			if (start.getInt() != ColumnarRunWriter.MAGIC
+					|| trailer.getInt() != ColumnarRunWriter.MAGIC) {
+				throw new IOException("Not a columnar run file: " + file);
+			}
+
+			final int version = start.getInt();
+			if (version != ColumnarRunWriter.VERSION) {
+				throw new IOException(String.format(
+						"Unsupported version %d of file %s.", version, file));
+			}
+
+			if (footerOffset < 12 || footerOffset > size - 16) {
+				throw new IOException(String.format(
+						"Invalid footer offset %d of file %s.", footerOffset,
+						file));
+			}
+
+			// Column names are modified UTF-8, read through a data stream;
+			// each column takes at least 3 bytes of the header
+			channel.position(8);
+			final DataInputStream header = new DataInputStream(
+					new BufferedInputStream(Channels.newInputStream(channel)));
+			final int columns = header.readInt();
+			if (columns < 0 || columns > (footerOffset - 12) / 3) {
+				throw new IOException(String.format(
+						"Invalid column count %d of file %s.", columns, file));
+			}
+
+			names = new String[columns];
+			types = new ColumnType[columns];
+			for (int i = 0; i < columns; ++i) {
+				names[i] = header.readUTF();
+				final int type = header.readByte();
+				if (type < 0 || type >= ColumnType.values().length) {
+					throw new IOException(String.format(
+							"Invalid type %d of column %s of file %s.", type,
+							names[i], file));
+				}
+
+				types[i] = ColumnType.values()[type];
+			}
+
+			final long footerLength = size - 12 - footerOffset;
+			final ByteBuffer footer = read(footerOffset, (int) Math.min(
+					footerLength, Integer.MAX_VALUE));
+
+			final long blocks = footer.getInt();
+			if (blocks < 0 || 4 + blocks * (4 + 12L * columns) != footerLength) {
+				throw new IOException(String.format(
+						"Invalid footer of file %s.", file));
+			}
+
+			blockRows = new int[(int) blocks];
+			offsets = new long[(int) blocks][columns];
+			lengths = new int[(int) blocks][columns];
+
+			long rows = 0;
+			for (int block = 0; block < blocks; ++block) {
+				blockRows[block] = footer.getInt();
+				rows += blockRows[block];
+				if (blockRows[block] < 0
+						|| blockRows[block] > Integer.MAX_VALUE / 8
+						|| rows > Integer.MAX_VALUE) {
+					throw new IOException(String.format(
+							"Invalid row count %d of block %d of file %s.",
+							blockRows[block], block, file));
+				}
+
+				for (int i = 0; i < columns; ++i) {
+					offsets[block][i] = footer.getLong();
+					lengths[block][i] = footer.getInt();
+					if (offsets[block][i] < 12 || lengths[block][i] < 0
+							|| offsets[block][i] + lengths[block][i] > footerOffset) {
+						throw new IOException(String.format(
+								"Invalid location of block %d of column %s "
+										+ "of file %s.", block, names[i], file));
+					}
+				}
+			}
+
+			rowCount = (int) rows;
+			opened = true;
+		} catch (final EOFException e) {
+			throw new IOException("Truncated header of file " + file, e);
+		} finally {
+			if (!opened) {
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of columns.
+	 *
+	 * @return the number of columns of the file
+	 */
+	public int getColumnCount() {
+		return names.length;
+	}
+
+	/**
+	 * Returns the name of a column.
+	 *
+	 * @param column
+	 *            index of the column
+	 * @return the name of the column
+	 */
+	public String getColumnName(final int column) {
+		return names[column];
+	}
+
+	/**
+	 * Returns the type of a column.
+	 *
+	 * @param column
+	 *            index of the column
+	 * @return the type of the column
+	 */
+	public ColumnType getColumnType(final int column) {
+		return types[column];
+	}
+
+	/**
+	 * Returns the index of a column.
+	 *
+	 * @param name
+	 *            name of the column
+	 * @return index of the column; <code>-1</code> if there is no such column
+	 */
+	public int getColumn(final String name) {
+		for (int i = 0; i < names.length; ++i) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 *
+	 * @return the number of rows of the file
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Reads an integer column.
+	 *
+	 * @param name
+	 *            name of the column; <i>must be a <code>LONG</code> column</i>
+	 * @return the values of the column
+	 * @throws IOException
+	 *             if the file is corrupt
+	 */
+	public long[] readLongColumn(final String name) throws IOException {
+		final int column = findColumn(name);
+		if (types[column] != ColumnType.LONG) {
+			throw new IllegalArgumentException(String.format(
+					"Column %s is of type %s.", name, types[column]));
+		}
+
+		return decode(column);
+	}
+
+	/**
+	 * Reads a column as floating point values; the values of integer columns
+	 * are converted.
+	 *
+	 * @param name
+	 *            name of the column
+	 * @return the values of the column
+	 * @throws IOException
+	 *             if the file is corrupt
+	 */
+	public double[] readDoubleColumn(final String name) throws IOException {
+		final int column = findColumn(name);
+		final long[] values = decode(column);
+		final double[] ret = new double[values.length];
+
+		for (int i = 0; i < values.length; ++i) {
+			ret[i] = (ColumnType.LONG == types[column]) ? values[i] : Double
+					.longBitsToDouble(values[i]);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Reads a column of many run files.
+	 *
+	 * @param files
+	 *            the run files; <i>cannot be <code>null</code></i>
+	 * @param name
+	 *            name of the column
+	 * @return the values of the column of each file (see
+	 *         {@link #readDoubleColumn(String)}), in the order of the files
+	 * @throws IOException
+	 *             if a file cannot be read
+	 */
+	public static double[][] readColumn(final List<File> files,
+			final String name) throws IOException {
+		if (null == files) {
+			throw new IllegalArgumentException("Parameter files cannot be null.");
+		}
+
+		final double[][] ret = new double[files.size()][];
+		for (int i = 0; i < ret.length; ++i) {
+			final ColumnarRunReader reader = new ColumnarRunReader(files
+					.get(i));
+			try {
+				ret[i] = reader.readDoubleColumn(name);
+			} finally {
+				reader.close();
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Closes the file.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Returns the index of a column that has to exist.
+	 *
+	 * @param name
+	 *            name of the column
+	 * @return index of the column
+	 */
+	private int findColumn(final String name) {
+		final int ret = getColumn(name);
+		if (-1 == ret) {
+			throw new IllegalArgumentException("No such column: " + name);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Decompresses and decodes the blocks of a column.
+	 *
+	 * @param column
+	 *            index of the column
+	 * @return the values of the column (doubles as raw bits)
+	 * @throws IOException
+	 *             if the file is corrupt
+	 */
+	private long[] decode(final int column) throws IOException {
+		final long[] ret = new long[rowCount];
+		final Inflater inflater = new Inflater();
+		byte[] input = new byte[0];
+		byte[] output = new byte[0];
+		int row = 0;
+
+		try {
+			for (int block = 0; block < blockRows.length; ++block) {
+				final int length = lengths[block][column];
+				if (input.length < length) {
+					input = new byte[length];
+				}
+
+				if (output.length < 8 * blockRows[block]) {
+					output = new byte[8 * blockRows[block]];
+				}
+
+				read(offsets[block][column], ByteBuffer.wrap(input, 0, length));
+
+				inflater.reset();
+				inflater.setInput(input, 0, length);
+				try {
+					int inflated = 0;
+					while (inflated < 8 * blockRows[block]) {
+						final int count = inflater.inflate(output, inflated, 8
+								* blockRows[block] - inflated);
+						if (0 == count && (inflater.finished()
+								|| inflater.needsInput())) {
+							throw new IOException(String.format(
+									"Block %d of column %s is truncated.", block,
+									names[column]));
+						}
+
+						inflated += count;
+					}
+				} catch (final DataFormatException e) {
+					throw new IOException(String.format(
+							"Block %d of column %s is corrupt: %s", block,
+							names[column], e.getMessage()));
+				}
+
+				final ByteBuffer values = ByteBuffer.wrap(output);
+				long previous = 0;
+				for (int i = 0; i < blockRows[block]; ++i) {
+					final long value = values.getLong();
+					previous = (ColumnType.LONG == types[column]) ? previous
+							+ value : previous ^ value;
+					ret[row++] = previous;
+				}
+			}
+		} finally {
+			inflater.end();
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Reads a part of the file.
+	 *
+	 * @param position
+	 *            position of the first byte to read
+	 * @param length
+	 *            number of bytes to read
+	 * @return a buffer containing the read bytes, positioned at its beginning
+	 * @throws IOException
+	 *             if the file is shorter or it cannot be read
+	 */
+	private ByteBuffer read(final long position, final int length)
+			throws IOException {
+		final ByteBuffer ret = ByteBuffer.allocate(length);
+		read(position, ret);
+		ret.flip();
+		return ret;
+	}
+
+	/**
+	 * Fills the remaining part of a buffer with the content of the file.
+	 *
+	 * @param position
+	 *            position of the first byte to read
+	 * @param target
+	 *            the buffer to fill
+	 * @throws IOException
+	 *             if the file is shorter or it cannot be read
+	 */
+	private void read(final long position, final ByteBuffer target)
+			throws IOException {
+		long current = position;
+		while (target.hasRemaining()) {
+			final int count = channel.read(target, current);
+			if (count < 0) {
+				throw new IOException(String.format(
+						"Unexpected end of file %s at %d.", file, current));
+			}
+
+			current += count;
+		}
+	}
+
+}
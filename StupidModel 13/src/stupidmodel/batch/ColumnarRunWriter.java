@@ -0,0 +1,341 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.batch;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writer of the per-tick results of a run in a compact binary columnar format,
+ * an alternative of the quoted text files of the file sinks.
+ *
+ * <p>
+ * The rows are collected in blocks; when a block is full, each of its columns
+ * is encoded and compressed separately, so a reader can load a single column
+ * without decompressing the others. Integer columns are delta encoded (the
+ * ticks compress to almost nothing), the bits of floating point values are
+ * XOR-ed with the previous value of the column (slowly changing statistics
+ * share their sign, exponent and leading mantissa bits), and the result is
+ * compressed with {@link Deflater}.
+ * </p>
+ *
+ * <p>
+ * The file layout is the following (all numbers are big-endian):
+ * </p>
+ * <ol>
+ * <li>header: {@link #MAGIC}, {@link #VERSION}, the number of columns and
+ * the name (modified UTF-8) and the type of each column;</li>
+ * <li>the compressed blocks of the columns;</li>
+ * <li>footer: the number of blocks, and for each block its number of rows and
+ * the offset and the length of each of its columns;</li>
+ * <li>trailer: the offset of the footer and {@link #MAGIC}.</li>
+ * </ol>
+ *
+ * <p>
+ * The files are read by {@link ColumnarRunReader}. Instances are <i>not</i>
+ * thread-safe.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class ColumnarRunWriter {
+
+	/** Magic number at the beginning and at the end of the files. */
+	public static final int MAGIC = 0x534D434C;
+
+	/** Version of the file format. */
+	public static final int VERSION = 1;
+
+	/**
+	 * Type of the values of a column.
+	 */
+	public static enum ColumnType {
+
+		/** Integer values (e.g. ticks and counts), delta encoded. */
+		LONG,
+
+		/** Floating point values, XOR encoded. */
+		DOUBLE;
+
+	}
+
+	/** Types of the columns. */
+	private final ColumnType[] types;
+
+	/** Values of the current block, by column (doubles as raw bits). */
+	private final long[][] values;
+
+	/** Indicates which columns of the current row are set. */
+	private final boolean[] set;
+
+	/** Encoding buffer of a column of a block. */
+	private final ByteBuffer encoded;
+
+	/** Compression buffer of a column of a block. */
+	private byte[] compressed;
+
+	/** The compressor of the blocks. */
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+	/** The output file. */
+	private final DataOutputStream out;
+
+	/** Number of bytes written to the output. */
+	private long position = 0;
+
+	/** Number of rows of the current block. */
+	private int rows = 0;
+
+	/** Number of rows of the written blocks. */
+	private final List<Integer> blockRows = new ArrayList<Integer>();
+
+	/** Offsets of the columns of the written blocks. */
+	private final List<long[]> blockOffsets = new ArrayList<long[]>();
+
+	/** Compressed lengths of the columns of the written blocks. */
+	private final List<int[]> blockLengths = new ArrayList<int[]>();
+
+	/** Indicates if the file is closed. */
+	private boolean closed = false;
+
+	/**
+	 * Creates a new file with the specified columns.
+	 *
+	 * @param file
+	 *            the output file, overwritten if it exists; <i>cannot be
+	 *            <code>null</code></i>
+	 * @param names
+	 *            names of the columns; <i>cannot be <code>null</code> or
+	 *            empty</i>
+	 * @param types
+	 *            types of the columns; <i>cannot be <code>null</code> and must
+	 *            have the length of <code>names</code></i>
+	 * @param blockSize
+	 *            number of rows of a block; <i>must be positive</i>
+	 * @throws IOException
+	 *             if the file cannot be created
+	 */
+	public ColumnarRunWriter(final File file, final String[] names,
+			final ColumnType[] types, final int blockSize) throws IOException {
+		if (null == file) {
+			throw new IllegalArgumentException("Parameter file cannot be null.");
+		}
+
+		if (null == names || 0 == names.length) {
+			throw new IllegalArgumentException(
+					"Parameter names cannot be null or empty.");
+		}
+
+		if (null == types || types.length != names.length) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter types should have %d elements.", names.length));
+		}
+
+		if (blockSize < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter blockSize = %d < 1.", blockSize));
+		}
+
+		this.types = types.clone();
+		this.values = new long[types.length][blockSize];
+		this.set = new boolean[types.length];
+		this.encoded = ByteBuffer.allocate(8 * blockSize);
+		this.compressed = new byte[8 * blockSize];
+
+		this.out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)));
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(names.length);
+			for (int i = 0; i < names.length; ++i) {
+				out.writeUTF(names[i]);
+				out.writeByte(types[i].ordinal());
+			}
+		} catch (final IOException e) {
+			out.close();
+			throw e;
+		}
+
+		// The header is written through the buffer, its size is known
+		position = out.size();
+	}
+
+	/**
+	 * Sets the value of an integer column of the current row.
+	 *
+	 * @param column
+	 *            index of the column; <i>must be a <code>LONG</code>
+	 *            column</i>
+	 * @param value
+	 *            the value
+	 */
+	public void set(final int column, final long value) {
+		check(column, ColumnType.LONG);
+		values[column][rows] = value;
+		set[column] = true;
+	}
+
+	/**
+	 * Sets the value of a floating point column of the current row.
+	 *
+	 * @param column
+	 *            index of the column; <i>must be a <code>DOUBLE</code>
+	 *            column</i>
+	 * @param value
+	 *            the value
+	 */
+	public void set(final int column, final double value) {
+		check(column, ColumnType.DOUBLE);
+		values[column][rows] = Double.doubleToRawLongBits(value);
+		set[column] = true;
+	}
+
+	/**
+	 * Finishes the current row; every column of it has to be set. The block is
+	 * written when it is full.
+	 *
+	 * @throws IOException
+	 *             if the block cannot be written
+	 */
+	public void endRow() throws IOException {
+		for (int i = 0; i < set.length; ++i) {
+			if (!set[i]) {
+				throw new IllegalStateException(String.format(
+						"Column %d of row %d is not set.", i, rows));
+			}
+		}
+
+		Arrays.fill(set, false);
+		++rows;
+
+		if (rows == values[0].length) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Writes the last block and the footer, and closes the file. Closing a
+	 * closed writer has no effect.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		try {
+			if (rows > 0) {
+				writeBlock();
+			}
+
+			final long footer = position;
+			out.writeInt(blockRows.size());
+			for (int block = 0; block < blockRows.size(); ++block) {
+				out.writeInt(blockRows.get(block));
+				for (int i = 0; i < types.length; ++i) {
+					out.writeLong(blockOffsets.get(block)[i]);
+					out.writeInt(blockLengths.get(block)[i]);
+				}
+			}
+
+			out.writeLong(footer);
+			out.writeInt(MAGIC);
+		} finally {
+			deflater.end();
+			out.close();
+		}
+	}
+
+	/**
+	 * Encodes, compresses and writes the columns of the current block.
+	 *
+	 * @throws IOException
+	 *             if the block cannot be written
+	 */
+	private void writeBlock() throws IOException {
+		final long[] offsets = new long[types.length];
+		final int[] lengths = new int[types.length];
+
+		for (int i = 0; i < types.length; ++i) {
+			final long[] column = values[i];
+
+			encoded.clear();
+			long previous = 0;
+			for (int row = 0; row < rows; ++row) {
+				encoded.putLong((ColumnType.LONG == types[i]) ? column[row]
+						- previous : column[row] ^ previous);
+				previous = column[row];
+			}
+
+			deflater.reset();
+			deflater.setInput(encoded.array(), 0, encoded.position());
+			deflater.finish();
+
+			int length = 0;
+			while (!deflater.finished()) {
+				if (length == compressed.length) {
+					compressed = Arrays.copyOf(compressed, 2 * length);
+				}
+
+				length += deflater.deflate(compressed, length,
+						compressed.length - length);
+			}
+
+			out.write(compressed, 0, length);
+			offsets[i] = position;
+			lengths[i] = length;
+			position += length;
+		}
+
+		blockRows.add(rows);
+		blockOffsets.add(offsets);
+		blockLengths.add(lengths);
+		rows = 0;
+	}
+
+	/**
+	 * Verifies the state of the writer and the type of a column.
+	 *
+	 * @param column
+	 *            index of the column
+	 * @param type
+	 *            the expected type of the column
+	 */
+	private void check(final int column, final ColumnType type) {
+		if (closed) {
+			throw new IllegalStateException("Writer is closed.");
+		}
+
+		if (column < 0 || column >= types.length) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter column = %d is not on the interval [0, %d).",
+					column, types.length));
+		}
+
+		if (types[column] != type) {
+			throw new IllegalArgumentException(String.format(
+					"Column %d is of type %s, not %s.", column, types[column],
+					type));
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.batch;
+
+import java.io.IOException;
+
+/**
+ * Output of the per-tick size statistics of a run.
+ *
+ * <p>
+ * A sink receives one record for each tick of a run from the thread running
+ * it, and it is closed when the run finishes. Implementations may buffer the
+ * records, they are only guaranteed to be written after {@link #flush()} or
+ * {@link #close()}.
+ * </p>
+ *
+ * @version $Id$
+ * @see AsyncStatisticsSink
+ */
+public interface StatisticsSink {
+
+	/**
+	 * Writes the statistics of a tick.
+	 *
+	 * @param tick
+	 *            the tick
+	 * @param count
+	 *            number of living bugs
+	 * @param minSize
+	 *            the smallest size of the bugs
+	 * @param maxSize
+	 *            the largest size of the bugs
+	 * @param meanSize
+	 *            the mean size of the bugs
+	 * @throws IOException
+	 *             if the record cannot be written
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting for the
+	 *             output
+	 */
+	void write(long tick, int count, double minSize, double maxSize,
+			double meanSize) throws IOException, InterruptedException;
+
+	/**
+	 * Writes the buffered records to the underlying storage.
+	 *
+	 * @throws IOException
+	 *             if the records cannot be written
+	 */
+	void flush() throws IOException;
+
+	/**
+	 * Writes the remaining records and releases the resources of the sink.
+	 *
+	 * @throws IOException
+	 *             if the records cannot be written
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting for the
+	 *             output
+	 */
+	void close() throws IOException, InterruptedException;
+
+}
@@ -0,0 +1,429 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.batch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import stupidmodel.common.Constants;
+import stupidmodel.common.RandomStreams;
+
+/**
+ * Parameter sweep definition in the format of the Repast Simphony batch
+ * parameter files (see <code>batch/batch_params.xml</code>).
+ *
+ * <p>
+ * The root <code>&lt;sweep runs="n"&gt;</code> element contains
+ * <code>&lt;parameter&gt;</code> elements of the following types:
+ * </p>
+ *
+ * <ul>
+ * <li><code>constant</code>: a single <code>value</code> of the specified
+ * <code>constant_type</code> (<code>number</code>, <code>boolean</code> or
+ * <code>string</code>);</li>
+ * <li><code>list</code>: space separated <code>values</code> of the specified
+ * <code>value_type</code> (<code>int</code>, <code>long</code>,
+ * <code>float</code>, <code>double</code>, <code>boolean</code> or
+ * <code>string</code>);</li>
+ * <li><code>number</code>: the values from <code>start</code> to
+ * <code>end</code> (inclusive) by <code>step</code>, integers if all three
+ * are integers.</li>
+ * </ul>
+ *
+ * <p>
+ * The runs are the Cartesian product of the values of the parameters: nested
+ * parameters are swept for each value of their parent, and sibling
+ * parameters for each value of their preceding siblings. Each combination is
+ * executed <code>runs</code> times.
+ * </p>
+ *
+ * <p>
+ * Every run has its own seed, derived from the value of the
+ * <code>randomSeed</code> parameter (or from a default seed if it is not
+ * swept) and the number of the run, so replicates of the same combination
+ * differ, and the seed of a run does not depend on the order of execution.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class SweepDefinition {
+
+	/** Number of runs of each parameter combination. */
+	private final int replicates;
+
+	/** The top level parameters. */
+	private final List<SweptParameter> parameters;
+
+	/**
+	 * Creates a new sweep definition.
+	 *
+	 * @param replicates
+	 *            number of runs of each parameter combination; <i>must be
+	 *            positive</i>
+	 * @param parameters
+	 *            the top level parameters
+	 */
+	private SweepDefinition(final int replicates,
+			final List<SweptParameter> parameters) {
+		if (replicates < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter replicates = %d < 1.", replicates));
+		}
+
+		this.replicates = replicates;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * Reads the sweep definition from the specified file.
+	 *
+	 * @param file
+	 *            the batch parameter file; <i>cannot be <code>null</code></i>
+	 * @return the parsed definition
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static SweepDefinition parse(final File file) throws IOException {
+		if (null == file) {
+			throw new IllegalArgumentException("Parameter file cannot be null.");
+		}
+
+		final InputStream in = new FileInputStream(file);
+		try {
+			return parse(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads the sweep definition from the specified stream.
+	 *
+	 * @param in
+	 *            the content of a batch parameter file; <i>cannot be
+	 *            <code>null</code></i>
+	 * @return the parsed definition
+	 * @throws IOException
+	 *             if the stream cannot be read
+	 */
+	public static SweepDefinition parse(final InputStream in)
+			throws IOException {
+		if (null == in) {
+			throw new IllegalArgumentException("Parameter in cannot be null.");
+		}
+
+		final Element root;
+		try {
+			root = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+					.parse(in).getDocumentElement();
+		} catch (final ParserConfigurationException e) {
+			throw new IllegalStateException("Cannot create XML parser.", e);
+		} catch (final SAXException e) {
+			throw new IllegalArgumentException(
+					"Invalid batch parameter file: " + e.getMessage(), e);
+		}
+
+		if (!"sweep".equals(root.getTagName())) {
+			throw new IllegalArgumentException(String.format(
+					"Root element is <%s> instead of <sweep>.",
+					root.getTagName()));
+		}
+
+		final String runs = root.getAttribute("runs");
+		return new SweepDefinition(runs.isEmpty() ? 1 : Integer.parseInt(runs
+				.trim()), parseChildren(root));
+	}
+
+	/**
+	 * Returns the number of runs of each parameter combination.
+	 *
+	 * @return the value of the <code>runs</code> attribute
+	 */
+	public int getReplicates() {
+		return replicates;
+	}
+
+	/**
+	 * Expands the sweep into the list of its runs.
+	 *
+	 * @param defaultSeed
+	 *            the seed to derive the run seeds from if the
+	 *            <code>randomSeed</code> parameter is not swept
+	 * @return the runs in the order of their numbers
+	 */
+	public List<SweepRun> expand(final long defaultSeed) {
+		final List<SweepRun> ret = new ArrayList<SweepRun>();
+		int run = 0;
+
+		for (final Map<String, Object> combination : product(parameters)) {
+			final Object seedValue = combination
+					.get(Constants.PARAMETER_ID_RANDOM_SEED);
+			final RandomStreams seeds = new RandomStreams(
+					(null == seedValue) ? defaultSeed : ((Number) seedValue)
+							.longValue());
+
+			for (int i = 0; i < replicates; ++i) {
+				++run;
+				ret.add(new SweepRun(run, seeds.nextLong(0, run, 0),
+						combination));
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Returns the parameter combinations of the specified siblings.
+	 *
+	 * @param siblings
+	 *            the parameters to combine
+	 * @return the Cartesian product of the values of the parameters and their
+	 *         nested parameters
+	 */
+	private static List<Map<String, Object>> product(
+			final List<SweptParameter> siblings) {
+		List<Map<String, Object>> ret = new ArrayList<Map<String, Object>>();
+		ret.add(new LinkedHashMap<String, Object>());
+
+		for (final SweptParameter parameter : siblings) {
+			final List<Map<String, Object>> nested = product(parameter.children);
+			final List<Map<String, Object>> next = new ArrayList<Map<String, Object>>();
+
+			for (final Map<String, Object> prefix : ret) {
+				for (final Object value : parameter.values) {
+					for (final Map<String, Object> suffix : nested) {
+						final Map<String, Object> combination = new LinkedHashMap<String, Object>(
+								prefix);
+						combination.put(parameter.name, value);
+						combination.putAll(suffix);
+						next.add(combination);
+					}
+				}
+			}
+
+			ret = next;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Parses the parameter elements directly under the specified element.
+	 *
+	 * @param parent
+	 *            the parent element
+	 * @return the parsed parameters
+	 */
+	private static List<SweptParameter> parseChildren(final Element parent) {
+		final List<SweptParameter> ret = new ArrayList<SweptParameter>();
+
+		for (Node node = parent.getFirstChild(); node != null; node = node
+				.getNextSibling()) {
+			if (node instanceof Element
+					&& "parameter".equals(((Element) node).getTagName())) {
+				ret.add(parseParameter((Element) node));
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Parses a parameter element.
+	 *
+	 * @param element
+	 *            the <code>&lt;parameter&gt;</code> element
+	 * @return the parsed parameter with its nested parameters
+	 */
+	private static SweptParameter parseParameter(final Element element) {
+		final String name = element.getAttribute("name");
+		final String type = element.getAttribute("type");
+		final List<Object> values = new ArrayList<Object>();
+
+		if (name.isEmpty()) {
+			throw new IllegalArgumentException("Parameter without name.");
+		}
+
+		if ("constant".equals(type)) {
+			values.add(parseValue(element.getAttribute("constant_type"),
+					element.getAttribute("value")));
+		} else if ("list".equals(type)) {
+			final String valueType = element.getAttribute("value_type");
+			for (final String value : element.getAttribute("values").trim()
+					.split("\\s+")) {
+				if (!value.isEmpty()) {
+					values.add(parseValue(valueType, value));
+				}
+			}
+		} else if ("number".equals(type)) {
+			values.addAll(parseRange(name, element.getAttribute("start"),
+					element.getAttribute("end"), element.getAttribute("step")));
+		} else {
+			throw new IllegalArgumentException(String.format(
+					"Parameter %s has unknown type '%s'.", name, type));
+		}
+
+		if (values.isEmpty()) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter %s has no values.", name));
+		}
+
+		return new SweptParameter(name, values, parseChildren(element));
+	}
+
+	/**
+	 * Parses a single value.
+	 *
+	 * @param type
+	 *            the declared type of the value
+	 * @param value
+	 *            the text of the value
+	 * @return the parsed value
+	 */
+	private static Object parseValue(final String type, final String value) {
+		final String text = value.trim();
+
+		if ("int".equals(type)) {
+			return Integer.valueOf(text);
+		} else if ("long".equals(type)) {
+			return Long.valueOf(text);
+		} else if ("float".equals(type)) {
+			return Float.valueOf(text);
+		} else if ("double".equals(type)) {
+			return Double.valueOf(text);
+		} else if ("boolean".equals(type)) {
+			return Boolean.valueOf(text);
+		} else if ("string".equals(type)) {
+			return value;
+		} else if ("number".equals(type)) {
+			return isInteger(text) ? (Object) Long.valueOf(text) : (Object) Double
+					.valueOf(text);
+		}
+
+		throw new IllegalArgumentException(String.format(
+				"Unknown value type '%s'.", type));
+	}
+
+	/**
+	 * Expands a numeric range.
+	 *
+	 * @param name
+	 *            name of the parameter
+	 * @param start
+	 *            first value
+	 * @param end
+	 *            last value (inclusive)
+	 * @param step
+	 *            difference of the consecutive values; <i>must be
+	 *            positive</i>
+	 * @return the values of the range
+	 */
+	private static List<Object> parseRange(final String name,
+			final String start, final String end, final String step) {
+		final List<Object> ret = new ArrayList<Object>();
+
+		if (isInteger(start) && isInteger(end) && isInteger(step)) {
+			final long first = Long.parseLong(start.trim());
+			final long last = Long.parseLong(end.trim());
+			final long delta = Long.parseLong(step.trim());
+			checkStep(name, delta);
+
+			for (long value = first; value <= last; value += delta) {
+				ret.add((value == (int) value) ? (Object) Integer
+						.valueOf((int) value) : (Object) Long.valueOf(value));
+			}
+		} else {
+			final double first = Double.parseDouble(start.trim());
+			final double last = Double.parseDouble(end.trim());
+			final double delta = Double.parseDouble(step.trim());
+			checkStep(name, delta);
+
+			// Values are computed by multiplication to avoid the accumulation
+			// of rounding errors, the end is inclusive with a small tolerance
+			for (long i = 0; first + i * delta <= last + delta * 1e-9; ++i) {
+				ret.add(first + i * delta);
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Verifies the step of a numeric range.
+	 *
+	 * @param name
+	 *            name of the parameter
+	 * @param step
+	 *            the step to verify
+	 */
+	private static void checkStep(final String name, final double step) {
+		if (!(step > 0)) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter %s has non-positive step %s.", name, step));
+		}
+	}
+
+	/**
+	 * Checks if the specified text is an integer literal.
+	 *
+	 * @param text
+	 *            the text to check
+	 * @return <code>true</code> if the text is an integer
+	 */
+	private static boolean isInteger(final String text) {
+		return text.trim().matches("[+-]?\\d+");
+	}
+
+	/**
+	 * A swept parameter with its values and its nested parameters.
+	 */
+	private static class SweptParameter {
+
+		/** Name of the parameter. */
+		private final String name;
+
+		/** Values of the parameter. */
+		private final List<Object> values;
+
+		/** Parameters swept for each value of this one. */
+		private final List<SweptParameter> children;
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param name
+		 *            name of the parameter
+		 * @param values
+		 *            values of the parameter
+		 * @param children
+		 *            the nested parameters
+		 */
+		SweptParameter(final String name, final List<Object> values,
+				final List<SweptParameter> children) {
+			this.name = name;
+			this.values = Collections.unmodifiableList(values);
+			this.children = children;
+		}
+
+	}
+
+}
@@ -0,0 +1,859 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.batch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import stupidmodel.batch.AsyncStatisticsSink.Backpressure;
+import stupidmodel.common.Constants;
+import stupidmodel.common.SizeStatistics;
+import stupidmodel.common.TickMetrics;
+import stupidmodel.kernel.BugKernel;
+import stupidmodel.observer.FrameRenderer;
+import stupidmodel.space.FoodField;
+
+/**
+ * In-process executor of parameter sweeps, running independent
+ * {@link BugKernel} instances concurrently on a bounded pool of threads.
+ *
+ * <p>
+ * The Repast Simphony batch runner executes one model instance at a time, as
+ * the run environment and the default random generator are global. Kernel
+ * instances have their own random streams, so any number of them can be run
+ * in parallel, each with the seed of its {@link SweepRun}; the result of a run
+ * does not depend on the number of threads or the order of execution.
+ * </p>
+ *
+ * <p>
+ * Each run writes the size statistics of its population in each tick to its
+ * own file (<code>run_&lt;n&gt;.txt</code>, in the tabular format of the file
+ * sink of the model) while it is running, and a line summarizing the run is
+ * appended to <code>sweep.txt</code> as soon as it finishes, so the results
+ * are never collected in memory. With {@link #setColumnarOutput(boolean)},
+ * the statistics are written to compressed binary column files instead
+ * (<code>run_&lt;n&gt;.col</code>, see {@link ColumnarRunWriter}), which are
+ * smaller, faster to write and can be loaded column by column with
+ * {@link ColumnarRunReader}.
+ * </p>
+ *
+ * <p>
+ * The statistics are handed over to a writer thread per run (see
+ * {@link AsyncStatisticsSink}), so the runs are not slowed down by the
+ * storage; by default a run waits if its writer falls too far behind, with
+ * {@link #setBackpressure(Backpressure)} the statistics can be sampled
+ * instead.
+ * </p>
+ *
+ * <p>
+ * With {@link #setMetricsOutput(boolean)}, the durations of the phases of the
+ * ticks (including writing the statistics and rendering the frames) and the
+ * activity of the bugs are recorded by a {@link TickMetrics} instance per
+ * run, and written to <code>run_&lt;n&gt;_metrics.txt</code> when the run
+ * finishes.
+ * </p>
+ *
+ * <p>
+ * The summary line of each run contains the number of its world (see
+ * {@link stupidmodel.common.SimulationEvents#getWorld()}), so the simulation
+ * events of the concurrent runs can be assigned to the runs.
+ * </p>
+ *
+ * <p>
+ * The following parameters are used, missing ones get the default values of
+ * the model: <code>bugCount</code>, <code>survivalProbability</code>,
+ * <code>maxConsumptionRate</code>, <code>gridSize</code> and
+ * <code>foodPrecision</code>. If the <code>frameInterval</code> parameter is
+ * positive, the world is rendered to PNG images every that many ticks, into
+ * the <code>run_&lt;n&gt;_frames</code> directory (see {@link FrameRenderer}).
+ * </p>
+ *
+ * @version $Id$
+ */
+public class SweepExecutor {
+
+	/** Default number of bugs of the runs. */
+	private static final int DEFAULT_BUG_COUNT = 100;
+
+	/**
+	 * Parameters that can differ between a branch and the base run: they are
+	 * applied to the fork or only affect the output.
+	 */
+	private static final Set<String> BRANCH_PARAMETERS = new HashSet<String>(
+			Arrays.asList(Constants.PARAMETER_ID_SURVIVAL_PROBABILITY,
+					Constants.PARAMETER_ID_MAX_CONSUMPTION_RATE,
+					Constants.PARAMETER_ID_FRAME_INTERVAL));
+
+	/** Name of the summary file in the output directory. */
+	public static final String SUMMARY_FILE = "sweep.txt";
+
+	/** Names of the columns of the statistics of the runs. */
+	public static final String[] STATISTICS_COLUMNS = { "tick", "Count",
+			"Min Size", "Max Size", "Mean Size" };
+
+	/** Types of the columns of the statistics in the columnar format. */
+	private static final ColumnarRunWriter.ColumnType[] STATISTICS_TYPES = {
+			ColumnarRunWriter.ColumnType.LONG,
+			ColumnarRunWriter.ColumnType.LONG,
+			ColumnarRunWriter.ColumnType.DOUBLE,
+			ColumnarRunWriter.ColumnType.DOUBLE,
+			ColumnarRunWriter.ColumnType.DOUBLE };
+
+	/** Number of threads executing the runs. */
+	private final int threads;
+
+	/** Maximal number of ticks of a run. */
+	private final int ticks;
+
+	/** Directory of the output files. */
+	private final File outputDirectory;
+
+	/** Indicates if the statistics are written in the columnar format. */
+	private boolean columnarOutput = Constants.COLUMNAR_SWEEP_OUTPUT;
+
+	/** Behavior of the outputs of the runs when their writer falls behind. */
+	private Backpressure backpressure = (Constants.SAMPLED_SWEEP_OUTPUT) ? Backpressure.SAMPLE
+			: Backpressure.BLOCK;
+
+	/** Indicates if the metrics of the ticks of the runs are written. */
+	private boolean metricsOutput = Constants.SWEEP_TICK_METRICS;
+
+	/**
+	 * Creates a new executor.
+	 *
+	 * @param threads
+	 *            number of threads executing the runs; <i>must be
+	 *            positive</i>
+	 * @param ticks
+	 *            maximal number of ticks of a run (runs stop earlier if every
+	 *            bug dies); <i>must be positive</i>
+	 * @param outputDirectory
+	 *            directory of the output files, created if it does not exist;
+	 *            <i>cannot be <code>null</code></i>
+	 */
+	public SweepExecutor(final int threads, final int ticks,
+			final File outputDirectory) {
+		if (threads < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter threads = %d < 1.", threads));
+		}
+
+		if (ticks < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter ticks = %d < 1.", ticks));
+		}
+
+		if (null == outputDirectory) {
+			throw new IllegalArgumentException(
+					"Parameter outputDirectory cannot be null.");
+		}
+
+		this.threads = threads;
+		this.ticks = ticks;
+		this.outputDirectory = outputDirectory;
+	}
+
+	/**
+	 * Returns if the statistics of the runs are written in the columnar
+	 * format.
+	 *
+	 * @return <code>true</code> if the runs write <code>run_&lt;n&gt;.col</code>
+	 *         files, <code>false</code> if they write text files
+	 */
+	public boolean isColumnarOutput() {
+		return columnarOutput;
+	}
+
+	/**
+	 * Sets the format of the statistics of the runs.
+	 *
+	 * @param columnarOutput
+	 *            <code>true</code> to write compressed columnar files,
+	 *            <code>false</code> to write text files
+	 */
+	public void setColumnarOutput(final boolean columnarOutput) {
+		this.columnarOutput = columnarOutput;
+	}
+
+	/**
+	 * Returns the behavior of the outputs of the runs when their writer falls
+	 * behind.
+	 *
+	 * @return the backpressure policy of the outputs
+	 */
+	public Backpressure getBackpressure() {
+		return backpressure;
+	}
+
+	/**
+	 * Sets the behavior of the outputs of the runs when their writer falls
+	 * behind.
+	 *
+	 * @param backpressure
+	 *            {@link Backpressure#BLOCK} to wait for the writer,
+	 *            {@link Backpressure#SAMPLE} to drop records until it catches
+	 *            up; <i>cannot be <code>null</code></i>
+	 */
+	public void setBackpressure(final Backpressure backpressure) {
+		if (null == backpressure) {
+			throw new IllegalArgumentException(
+					"Parameter backpressure cannot be null.");
+		}
+
+		this.backpressure = backpressure;
+	}
+
+	/**
+	 * Returns if the metrics of the ticks of the runs are recorded and
+	 * written.
+	 *
+	 * @return <code>true</code> if the runs write
+	 *         <code>run_&lt;n&gt;_metrics.txt</code> files
+	 */
+	public boolean isMetricsOutput() {
+		return metricsOutput;
+	}
+
+	/**
+	 * Sets if the metrics of the ticks of the runs are recorded and written.
+	 *
+	 * @param metricsOutput
+	 *            <code>true</code> to write the {@link TickMetrics} of each run
+	 *            to <code>run_&lt;n&gt;_metrics.txt</code>
+	 */
+	public void setMetricsOutput(final boolean metricsOutput) {
+		this.metricsOutput = metricsOutput;
+	}
+
+	/**
+	 * Executes the specified runs.
+	 *
+	 * @param runs
+	 *            the runs to execute; <i>cannot be <code>null</code></i>
+	 * @throws IOException
+	 *             if an output file cannot be written
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting for the
+	 *             runs
+	 */
+	public void execute(final List<SweepRun> runs) throws IOException,
+			InterruptedException {
+		if (null == runs) {
+			throw new IllegalArgumentException("Parameter runs cannot be null.");
+		}
+
+		execute(runs, null);
+	}
+
+	/**
+	 * Executes variants of a run that share their first ticks.
+	 *
+	 * <p>
+	 * The base run is executed once for <code>prefixTicks</code> ticks
+	 * without writing any output, then each variant continues from a fork of
+	 * the resulting world (see {@link BugKernel#fork()}) instead of
+	 * re-running the shared prefix. The <code>survivalProbability</code> and
+	 * <code>maxConsumptionRate</code> parameters of a variant, if specified,
+	 * are applied to the existing bugs of its branch as well as to the new
+	 * ones, and its <code>frameInterval</code> parameter is used for its
+	 * output. The other parameters (e.g. the grid size, the number of bugs or
+	 * the seed) cannot be applied to a fork, so they have to be either
+	 * missing or equal to the ones of the base run. The seed of the variants
+	 * is ignored: the branches use the random numbers of the base run, and
+	 * its seed is written to the summary file. The variants are executed and
+	 * written the same way as the runs of {@link #execute(List)}, the number
+	 * of ticks includes the prefix.
+	 * </p>
+	 *
+	 * @param base
+	 *            the run defining the shared prefix; <i>cannot be
+	 *            <code>null</code></i>
+	 * @param prefixTicks
+	 *            number of ticks of the shared prefix; <i>must be
+	 *            non-negative</i>
+	 * @param variants
+	 *            the variants to execute; <i>cannot be <code>null</code>, and
+	 *            their parameters must be applicable to a fork</i>
+	 * @throws IOException
+	 *             if an output file cannot be written
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting for the
+	 *             runs
+	 */
+	public void executeBranches(final SweepRun base, final int prefixTicks,
+			final List<SweepRun> variants) throws IOException,
+			InterruptedException {
+		if (null == base) {
+			throw new IllegalArgumentException("Parameter base cannot be null.");
+		}
+
+		if (prefixTicks < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter prefixTicks = %d < 0.", prefixTicks));
+		}
+
+		if (null == variants) {
+			throw new IllegalArgumentException(
+					"Parameter variants cannot be null.");
+		}
+
+		for (final SweepRun variant : variants) {
+			for (final Map.Entry<String, Object> entry : variant
+					.getParameters().entrySet()) {
+				if (!BRANCH_PARAMETERS.contains(entry.getKey())
+						&& !entry.getValue().equals(
+								base.getParameters().get(entry.getKey()))) {
+					throw new IllegalArgumentException(String.format(
+							"Parameter %s = %s of run %d cannot be applied "
+									+ "to a branch.", entry.getKey(), entry
+									.getValue(), variant.getRun()));
+				}
+			}
+		}
+
+		final BugKernel prefix = createKernel(base);
+		while (prefix.getTick() < prefixTicks && prefix.tick()) {
+			// The prefix is not written
+		}
+
+		execute(variants, prefix);
+	}
+
+	/**
+	 * Executes the specified runs, from new worlds or from forks of a shared
+	 * prefix.
+	 *
+	 * @param runs
+	 *            the runs to execute
+	 * @param prefix
+	 *            the world the runs are forked from; <code>null</code> if each
+	 *            run creates its own world
+	 * @throws IOException
+	 *             if an output file cannot be written
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting for the
+	 *             runs
+	 */
+	private void execute(final List<SweepRun> runs, final BugKernel prefix)
+			throws IOException, InterruptedException {
+		if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			throw new IOException("Cannot create output directory "
+					+ outputDirectory);
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactory() {
+
+					@Override
+					public Thread newThread(final Runnable task) {
+						final Thread ret = new Thread(task, "SweepExecutor");
+						ret.setDaemon(true);
+						return ret;
+					}
+				});
+
+		final Writer summary = new BufferedWriter(new FileWriter(new File(
+				outputDirectory, SUMMARY_FILE)));
+
+		try {
+			final CompletionService<RunResult> completion = new ExecutorCompletionService<RunResult>(
+					executor);
+
+			for (final SweepRun run : runs) {
+				completion.submit(new Callable<RunResult>() {
+
+					@Override
+					public RunResult call() throws IOException,
+							InterruptedException {
+						return execute(run, prefix);
+					}
+				});
+			}
+
+			// Results are written by this thread in the order of completion
+			for (int i = 0; i < runs.size(); ++i) {
+				final RunResult result;
+				try {
+					result = completion.take().get();
+				} catch (final ExecutionException e) {
+					throw new IllegalStateException("Run failed: "
+							+ e.getCause(), e.getCause());
+				}
+
+				if (0 == i) {
+					writeSummaryHeader(summary, result.run);
+				}
+
+				writeSummary(summary, result);
+				summary.flush();
+			}
+		} finally {
+			executor.shutdownNow();
+			summary.close();
+		}
+	}
+
+	/**
+	 * Executes a single run, writing its statistics to its own file.
+	 *
+	 * @param run
+	 *            the run to execute
+	 * @param prefix
+	 *            the world the run is forked from; <code>null</code> if the
+	 *            run creates its own world
+	 * @return the summary of the run
+	 * @throws IOException
+	 *             if the output file cannot be written
+	 * @throws InterruptedException
+	 *             if the run is interrupted while waiting for the frame
+	 *             encoder
+	 */
+	RunResult execute(final SweepRun run, final BugKernel prefix)
+			throws IOException, InterruptedException {
+		final BugKernel kernel = (null == prefix) ? createKernel(run) : branch(
+				prefix, run);
+		final TickMetrics metrics = metricsOutput ? new TickMetrics(kernel
+				.getEvents()) : null;
+		kernel.setMetrics(metrics);
+
+		final int frameInterval = run.getInt(
+				Constants.PARAMETER_ID_FRAME_INTERVAL, 0);
+		final FrameRenderer renderer = (frameInterval > 0) ? new FrameRenderer(
+				new File(outputDirectory, "run_" + run.getRun() + "_frames"),
+				Constants.FRAME_CELL_SIZE, frameInterval,
+				Constants.FRAME_QUEUE_CAPACITY, Constants.FRAME_MAX_PIXELS)
+				: null;
+
+		// The statistics are written by a background thread, so the ticks are
+		// not slowed down by the storage
+		final File file = new File(outputDirectory, "run_" + run.getRun()
+				+ (columnarOutput ? ".col" : ".txt"));
+		final StatisticsSink sink = new AsyncStatisticsSink(
+				columnarOutput ? new ColumnarSink(file) : new TextSink(file),
+				Constants.OUTPUT_QUEUE_CAPACITY, backpressure,
+				Constants.OUTPUT_SAMPLING_INTERVAL);
+
+		try {
+			// Branches keep the statistics published by the prefix
+			if (null == prefix) {
+				kernel.updateStatistics();
+			}
+
+			writeStatistics(sink, kernel);
+			render(renderer, kernel);
+
+			while (kernel.getTick() < ticks && kernel.tick()) {
+				writeStatistics(sink, kernel);
+				render(renderer, kernel);
+			}
+
+			if (0 == kernel.getCount()) {
+				writeStatistics(sink, kernel);
+			}
+		} finally {
+			sink.close();
+
+			if (renderer != null) {
+				renderer.close();
+			}
+		}
+
+		if (metrics != null) {
+			writeMetrics(new File(outputDirectory, "run_" + run.getRun()
+					+ "_metrics.txt"), metrics);
+		}
+
+		return new RunResult(run, kernel.getSeed(), kernel.getEvents()
+				.getWorld(), kernel.getTick(), kernel.getCount());
+	}
+
+	/**
+	 * Creates the world of a run.
+	 *
+	 * @param run
+	 *            the run
+	 * @return a new world with the parameters of the run
+	 */
+	private static BugKernel createKernel(final SweepRun run) {
+		final int gridSize = run.getInt(Constants.PARAMETER_ID_GRID_SIZE,
+				Constants.GRID_SIZE);
+		final Object precision = run.getParameters().get(
+				Constants.PARAMETER_ID_FOOD_PRECISION);
+		final BugKernel ret = new BugKernel(gridSize, gridSize, run.getSeed(),
+				(null == precision) ? FoodField.Precision.DOUBLE
+						: FoodField.Precision.valueOf(precision.toString()
+								.trim().toUpperCase(Locale.ENGLISH)));
+
+		ret.setDefaultSurvivalProbability(run.getDouble(
+				Constants.PARAMETER_ID_SURVIVAL_PROBABILITY,
+				Constants.BUG_DEFAULT_SURVIVAL_PROBABILITY));
+		ret.setDefaultMaxConsumptionRate(run.getDouble(
+				Constants.PARAMETER_ID_MAX_CONSUMPTION_RATE,
+				Constants.BUG_DEFAULT_MAX_CONSUMPTION_RATE));
+		ret.addRandomBugs(run.getInt(Constants.PARAMETER_ID_BUG_COUNT,
+				DEFAULT_BUG_COUNT));
+
+		return ret;
+	}
+
+	/**
+	 * Creates the world of a variant run from a fork of a shared prefix.
+	 *
+	 * @param prefix
+	 *            the world of the shared prefix
+	 * @param run
+	 *            the variant run
+	 * @return a new branch of the prefix with the parameters of the variant
+	 */
+	private static BugKernel branch(final BugKernel prefix, final SweepRun run) {
+		final BugKernel ret;
+
+		// Branches of the same prefix are forked one at a time
+		synchronized (prefix) {
+			ret = prefix.fork();
+		}
+
+		if (run.getParameters().containsKey(
+				Constants.PARAMETER_ID_SURVIVAL_PROBABILITY)) {
+			final double value = run.getDouble(
+					Constants.PARAMETER_ID_SURVIVAL_PROBABILITY,
+					Constants.BUG_DEFAULT_SURVIVAL_PROBABILITY);
+			ret.setDefaultSurvivalProbability(value);
+			for (int i = 0; i < ret.getCount(); ++i) {
+				ret.setSurvivalProbability(i, value);
+			}
+		}
+
+		if (run.getParameters().containsKey(
+				Constants.PARAMETER_ID_MAX_CONSUMPTION_RATE)) {
+			final double value = run.getDouble(
+					Constants.PARAMETER_ID_MAX_CONSUMPTION_RATE,
+					Constants.BUG_DEFAULT_MAX_CONSUMPTION_RATE);
+			ret.setDefaultMaxConsumptionRate(value);
+			for (int i = 0; i < ret.getCount(); ++i) {
+				ret.setMaxConsumptionRate(i, value);
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Writes the size statistics of the current tick of a world, as published
+	 * by its mortality phase.
+	 *
+	 * @param sink
+	 *            the output of the run
+	 * @param kernel
+	 *            the world of the run
+	 * @throws IOException
+	 *             if the output cannot be written
+	 * @throws InterruptedException
+	 *             if the run is interrupted while waiting for the output
+	 */
+	private static void writeStatistics(final StatisticsSink sink,
+			final BugKernel kernel) throws IOException, InterruptedException {
+		final TickMetrics metrics = kernel.getMetrics();
+		final long start = (null == metrics) ? 0 : metrics.start();
+		final SizeStatistics statistics = kernel.getStatistics();
+
+		sink.write(kernel.getTick(), statistics.getCount(),
+				statistics.getMinSize(), statistics.getMaxSize(),
+				statistics.getMeanSize());
+
+		if (metrics != null) {
+			metrics.stop(TickMetrics.Phase.DATA_COLLECTION, start);
+		}
+	}
+
+	/**
+	 * Renders the current tick of a world, if frames are requested.
+	 *
+	 * @param renderer
+	 *            the renderer of the run; <code>null</code> if no frames are
+	 *            rendered
+	 * @param kernel
+	 *            the world of the run
+	 * @throws IOException
+	 *             if a frame cannot be written
+	 * @throws InterruptedException
+	 *             if the run is interrupted while waiting for the encoder
+	 */
+	private static void render(final FrameRenderer renderer,
+			final BugKernel kernel) throws IOException, InterruptedException {
+		if (renderer != null) {
+			final TickMetrics metrics = kernel.getMetrics();
+			final long start = (null == metrics) ? 0 : metrics.start();
+
+			renderer.render(kernel);
+
+			if (metrics != null) {
+				metrics.stop(TickMetrics.Phase.RENDERING, start);
+			}
+		}
+	}
+
+	/**
+	 * Writes the metrics of a finished run.
+	 *
+	 * @param file
+	 *            the output file
+	 * @param metrics
+	 *            the metrics of the run
+	 * @throws IOException
+	 *             if the output cannot be written
+	 */
+	private static void writeMetrics(final File file, final TickMetrics metrics)
+			throws IOException {
+		final Writer out = new BufferedWriter(new FileWriter(file));
+
+		try {
+			out.write(metrics.getReport());
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the header of the summary file.
+	 *
+	 * @param out
+	 *            the summary file
+	 * @param run
+	 *            a run of the sweep, to get the parameter names from
+	 * @throws IOException
+	 *             if the output cannot be written
+	 */
+	private static void writeSummaryHeader(final Writer out,
+			final SweepRun run) throws IOException {
+		out.write("\"run\",\"seed\"");
+		for (final String name : run.getParameters().keySet()) {
+			out.write(",\"" + name + "\"");
+		}
+
+		out.write(",\"world\",\"ticks\",\"Count\"");
+		out.write(Constants.EOL);
+	}
+
+	/**
+	 * Writes the summary line of a finished run.
+	 *
+	 * @param out
+	 *            the summary file
+	 * @param result
+	 *            the result of the run
+	 * @throws IOException
+	 *             if the output cannot be written
+	 */
+	private static void writeSummary(final Writer out, final RunResult result)
+			throws IOException {
+		out.write(result.run.getRun() + "," + result.seed);
+		for (final Map.Entry<String, Object> entry : result.run
+				.getParameters().entrySet()) {
+			out.write("," + entry.getValue());
+		}
+
+		out.write("," + result.world + "," + result.ticks + "," + result.count);
+		out.write(Constants.EOL);
+	}
+
+	/**
+	 * Executes a sweep from the command line.
+	 *
+	 * <p>
+	 * Arguments: the batch parameter file, the output directory, the number of
+	 * ticks, and optionally the number of threads (the number of processors by
+	 * default) and the default seed (<code>0</code> by default).
+	 * </p>
+	 *
+	 * @param args
+	 *            the command line arguments
+	 * @throws Exception
+	 *             if the sweep cannot be executed
+	 */
+	public static void main(final String[] args) throws Exception {
+		if (args.length < 3) {
+			System.err.println("Usage: SweepExecutor <batch_params.xml> "
+					+ "<output directory> <ticks> [threads] [seed]");
+			System.exit(1);
+		}
+
+		final int threads = (args.length > 3) ? Integer.parseInt(args[3])
+				: Runtime.getRuntime().availableProcessors();
+		final long seed = (args.length > 4) ? Long.parseLong(args[4]) : 0L;
+
+		final List<SweepRun> runs = SweepDefinition.parse(new File(args[0]))
+				.expand(seed);
+		new SweepExecutor(threads, Integer.parseInt(args[2]), new File(args[1]))
+				.execute(runs);
+
+		System.out.println(String.format("Executed %d runs on %d threads.",
+				runs.size(), threads));
+	}
+
+	/**
+	 * Text output of the statistics of a run, in the tabular format of the
+	 * file sink of the model.
+	 */
+	static class TextSink implements StatisticsSink {
+
+		/** The output file. */
+		private final Writer out;
+
+		/**
+		 * Creates the output file and writes its header.
+		 *
+		 * @param file
+		 *            the output file
+		 * @throws IOException
+		 *             if the file cannot be created
+		 */
+		TextSink(final File file) throws IOException {
+			out = new BufferedWriter(new FileWriter(file));
+
+			try {
+				for (int i = 0; i < STATISTICS_COLUMNS.length; ++i) {
+					out.write(((i > 0) ? ",\"" : "\"") + STATISTICS_COLUMNS[i]
+							+ "\"");
+				}
+
+				out.write(Constants.EOL);
+			} catch (final IOException e) {
+				out.close();
+				throw e;
+			}
+		}
+
+		@Override
+		public void write(final long tick, final int count,
+				final double minSize, final double maxSize,
+				final double meanSize) throws IOException {
+			out.write((double) tick + "," + count + "," + minSize + ","
+					+ maxSize + "," + meanSize);
+			out.write(Constants.EOL);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+
+	}
+
+	/**
+	 * Compressed columnar output of the statistics of a run.
+	 */
+	static class ColumnarSink implements StatisticsSink {
+
+		/** The output file. */
+		private final ColumnarRunWriter columns;
+
+		/**
+		 * Creates the output file.
+		 *
+		 * @param file
+		 *            the output file
+		 * @throws IOException
+		 *             if the file cannot be created
+		 */
+		ColumnarSink(final File file) throws IOException {
+			columns = new ColumnarRunWriter(file, STATISTICS_COLUMNS,
+					STATISTICS_TYPES, Constants.COLUMNAR_BLOCK_SIZE);
+		}
+
+		@Override
+		public void write(final long tick, final int count,
+				final double minSize, final double maxSize,
+				final double meanSize) throws IOException {
+			columns.set(0, tick);
+			columns.set(1, (long) count);
+			columns.set(2, minSize);
+			columns.set(3, maxSize);
+			columns.set(4, meanSize);
+			columns.endRow();
+		}
+
+		@Override
+		public void flush() {
+			// Blocks are written when they are full
+		}
+
+		@Override
+		public void close() throws IOException {
+			columns.close();
+		}
+
+	}
+
+	/**
+	 * Summary of a finished run.
+	 */
+	static class RunResult {
+
+		/** The executed run. */
+		final SweepRun run;
+
+		/** The seed actually used; the seed of the base run for branches. */
+		final long seed;
+
+		/** Number of the world of the run in the simulation events. */
+		final int world;
+
+		/** Number of executed ticks. */
+		final long ticks;
+
+		/** Number of living bugs at the end of the run. */
+		final int count;
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param run
+		 *            the executed run
+		 * @param seed
+		 *            the seed actually used
+		 * @param world
+		 *            number of the world of the run in the simulation events
+		 * @param ticks
+		 *            number of executed ticks
+		 * @param count
+		 *            number of living bugs at the end of the run
+		 */
+		RunResult(final SweepRun run, final long seed, final int world,
+				final long ticks, final int count) {
+			this.run = run;
+			this.seed = seed;
+			this.world = world;
+			this.ticks = ticks;
+			this.count = count;
+		}
+
+	}
+
+}
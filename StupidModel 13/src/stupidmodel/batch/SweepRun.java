@@ -0,0 +1,121 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.batch;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single run of a parameter sweep: its number, its random seed and the
+ * values of the swept parameters.
+ *
+ * @version $Id$
+ * @see SweepDefinition
+ */
+public class SweepRun {
+
+	/** Number of the run, starting from <code>1</code>. */
+	private final int run;
+
+	/** Random seed of the run. */
+	private final long seed;
+
+	/** Values of the parameters, in the order of their definition. */
+	private final Map<String, Object> parameters;
+
+	/**
+	 * Creates a new run.
+	 *
+	 * @param run
+	 *            number of the run; <i>must be positive</i>
+	 * @param seed
+	 *            random seed of the run
+	 * @param parameters
+	 *            values of the parameters; <i>cannot be <code>null</code></i>
+	 */
+	public SweepRun(final int run, final long seed,
+			final Map<String, Object> parameters) {
+		if (run < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter run = %d < 1.", run));
+		}
+
+		if (null == parameters) {
+			throw new IllegalArgumentException(
+					"Parameter parameters cannot be null.");
+		}
+
+		this.run = run;
+		this.seed = seed;
+		this.parameters = Collections
+				.unmodifiableMap(new LinkedHashMap<String, Object>(parameters));
+	}
+
+	/**
+	 * Returns the number of the run.
+	 *
+	 * @return the number of the run, starting from <code>1</code>
+	 */
+	public int getRun() {
+		return run;
+	}
+
+	/**
+	 * Returns the random seed of the run.
+	 *
+	 * @return the seed of the run
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the values of the parameters.
+	 *
+	 * @return unmodifiable map of the parameter values, in the order of their
+	 *         definition
+	 */
+	public Map<String, Object> getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Returns the value of an integer parameter.
+	 *
+	 * @param name
+	 *            name of the parameter
+	 * @param defaultValue
+	 *            value to return if the parameter is not swept
+	 * @return the value of the parameter
+	 */
+	public int getInt(final String name, final int defaultValue) {
+		final Object value = parameters.get(name);
+		return (null == value) ? defaultValue : ((Number) value).intValue();
+	}
+
+	/**
+	 * Returns the value of a floating point parameter.
+	 *
+	 * @param name
+	 *            name of the parameter
+	 * @param defaultValue
+	 *            value to return if the parameter is not swept
+	 * @return the value of the parameter
+	 */
+	public double getDouble(final String name, final double defaultValue) {
+		final Object value = parameters.get(name);
+		return (null == value) ? defaultValue : ((Number) value).doubleValue();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Run %d (seed=%d) %s", run, seed, parameters);
+	}
+
+}
@@ -1,111 +1,362 @@
-/*
- * Version info:
- *     $HeadURL: https://cscs-repast-demos.googlecode.com/svn/richard/StupidModel/tags/2011_06_12_model_11/src/stupidmodel/common/Constants.java $
- *     $LastChangedDate: 2011-06-08 08:14:10 +0200 (Sze, 08 jún. 2011) $
- *     $LastChangedRevision: 292 $
- *     $LastChangedBy: richard.legendi@gmail.com $
- */
-package stupidmodel.common;
-
-import stupidmodel.StupidModelContextBuilder;
-import stupidmodel.agents.Bug;
-
-/**
- * Dedicated class to store some model-specific constant values (e.g. bug vision
- * ranges and context IDs) that is uninstantiable.
- * 
- * <p>
- * The different IDs are usually set in
- * {@link StupidModelContextBuilder#build(repast.simphony.context.Context)} and
- * used to access the shared structures (<code>Grid</code>, <code>Space</code>
- * or <code>Context</code>) easily.
- * </p>
- * 
- * <p>
- * Final class, cannot be extended.
- * </p>
- * 
- * @author Richard O. Legendi (richard.legendi)
- * @since 2.0-beta, 2011
- * @version $Id: Constants.java 149 2011-05-26 19:03:50Z
- *          richard.legendi@gmail.com $
- */
-public final class Constants {
-
-	/**
-	 * Dedicated constant for the operating system dependent <i>End of Line</i>
-	 * character sequence.
-	 */
-	public static final String EOL = System.getProperty("line.separator");
-
-	/** The root <code>Context</code> ID. */
-	public static final String CONTEXT_ID = "StupidModel";
-
-	/** The <code>Space</code> ID. */
-	public static final String SPACE_ID = "space";
-
-	/** The <code>Grid</code> ID. */
-	public static final String GRID_ID = "grid";
-
-	/** The first model specified a two-dimensional grid <code>100 * 100</code>. */
-	public static final int GRID_SIZE = 100;
-
-	/**
-	 * Unique ID for the parameter representing the initial number of bugs. It
-	 * is set to <code>100</code> by default on the graphical interface.
-	 * 
-	 * @since Model 5
-	 * @see <code>parameters.xml</code> in the <code>StupidModel.rs</code>
-	 *      directory for details
-	 */
-	public static final String PARAMETER_ID_BUG_COUNT = "bugCount";
-
-	/**
-	 * The first model specified an agent vision range of <code>4 * 4</code>
-	 * cells.
-	 */
-	public static final int BUG_VISION_RANGE = 4;
-
-	/**
-	 * Unique ID for the food availability layer.
-	 * 
-	 * @since Model 3
-	 */
-	public static final String FOOD_VALUE_LAYER_ID = "foodValueLayer";
-
-	/** Constant used to specify the dimensions of a cell in the displayed GUI. */
-	public static final float GUI_CELL_SIZE = 15.0f;
-
-	/**
-	 * Delta value used for double comparisons: double values <code>d1</code>
-	 * and <code>d2</code> declared identical if {@literal |d1 - d2| < DELTA}
-	 */
-	public static final double DELTA = 1e-6;
-	
-	/**
-	 * The specified number of children a spawning {@link Bug} agent should
-	 * create during reproduction.
-	 * 
-	 * @since Model 12
-	 */
-	public static final int BUG_REPRODUCTION_RATE = 5;
-
-	/**
-	 * Default vision range of a bug to find empty cells around when spawning
-	 * descendants.
-	 * 
-	 * @since Model 12
-	 */
-	public static final int BUG_REPRODUCTION_RANGE = 3;
-
-
-	// ========================================================================
-
-	/**
-	 * Hidden constructor to ensure no instances are created.
-	 */
-	private Constants() {
-		;
-	}
-
-}
+/*
+ * Version info:
+ *     $HeadURL: https://cscs-repast-demos.googlecode.com/svn/richard/StupidModel/tags/2011_06_12_model_11/src/stupidmodel/common/Constants.java $
+ *     $LastChangedDate: 2011-06-08 08:14:10 +0200 (Sze, 08 jún. 2011) $
+ *     $LastChangedRevision: 292 $
+ *     $LastChangedBy: richard.legendi@gmail.com $
+ */
+package stupidmodel.common;
+
+import stupidmodel.StupidModelContextBuilder;
+import stupidmodel.agents.Bug;
+
+/**
+ * Dedicated class to store some model-specific constant values (e.g. bug vision
+ * ranges and context IDs) that is uninstantiable.
+ * 
+ * <p>
+ * The different IDs are usually set in
+ * {@link StupidModelContextBuilder#build(repast.simphony.context.Context)} and
+ * used to access the shared structures (<code>Grid</code>, <code>Space</code>
+ * or <code>Context</code>) easily.
+ * </p>
+ * 
+ * <p>
+ * Final class, cannot be extended.
+ * </p>
+ * 
+ * @author Richard O. Legendi (richard.legendi)
+ * @since 2.0-beta, 2011
+ * @version $Id: Constants.java 149 2011-05-26 19:03:50Z
+ *          richard.legendi@gmail.com $
+ */
+public final class Constants {
+
+	/**
+	 * Dedicated constant for the operating system dependent <i>End of Line</i>
+	 * character sequence.
+	 */
+	public static final String EOL = System.getProperty("line.separator");
+
+	/** The root <code>Context</code> ID. */
+	public static final String CONTEXT_ID = "StupidModel";
+
+	/** The <code>Space</code> ID. */
+	public static final String SPACE_ID = "space";
+
+	/** The <code>Grid</code> ID. */
+	public static final String GRID_ID = "grid";
+
+	/** The first model specified a two-dimensional grid <code>100 * 100</code>. */
+	public static final int GRID_SIZE = 100;
+
+	/**
+	 * Unique ID for the parameter representing the initial number of bugs. It
+	 * is set to <code>100</code> by default on the graphical interface.
+	 * 
+	 * @since Model 5
+	 * @see <code>parameters.xml</code> in the <code>StupidModel.rs</code>
+	 *      directory for details
+	 */
+	public static final String PARAMETER_ID_BUG_COUNT = "bugCount";
+
+	/**
+	 * Unique ID for the parameter enabling the parallel movement of the bugs.
+	 * It is set to <code>false</code> by default on the graphical interface.
+	 * 
+	 * @see <code>parameters.xml</code> in the <code>StupidModel.rs</code>
+	 *      directory for details
+	 */
+	public static final String PARAMETER_ID_PARALLEL_MOVEMENT = "parallelMovement";
+
+	/** Unique ID for the random seed parameter of Repast Simphony. */
+	public static final String PARAMETER_ID_RANDOM_SEED = "randomSeed";
+
+	/**
+	 * Unique ID for the sweep parameter of the survival probability of the
+	 * bugs.
+	 * 
+	 * @see stupidmodel.batch.SweepExecutor
+	 */
+	public static final String PARAMETER_ID_SURVIVAL_PROBABILITY = "survivalProbability";
+
+	/**
+	 * Unique ID for the sweep parameter of the maximum food consumption rate
+	 * of the bugs.
+	 * 
+	 * @see stupidmodel.batch.SweepExecutor
+	 */
+	public static final String PARAMETER_ID_MAX_CONSUMPTION_RATE = "maxConsumptionRate";
+
+	/**
+	 * Unique ID for the sweep parameter of the size of the (square) grid.
+	 * 
+	 * @see stupidmodel.batch.SweepExecutor
+	 */
+	public static final String PARAMETER_ID_GRID_SIZE = "gridSize";
+
+	/**
+	 * Unique ID for the sweep parameter of the storage precision of the food
+	 * field (<code>double</code>, <code>float</code> or <code>fixed16</code>).
+	 * 
+	 * @see stupidmodel.space.FoodField.Precision
+	 * @see stupidmodel.batch.SweepExecutor
+	 */
+	public static final String PARAMETER_ID_FOOD_PRECISION = "foodPrecision";
+
+	/**
+	 * Unique ID for the sweep parameter of the number of ticks between the
+	 * rendered frames of a run (<code>0</code>, the default, renders none).
+	 * 
+	 * @see stupidmodel.observer.FrameRenderer
+	 * @see stupidmodel.batch.SweepExecutor
+	 */
+	public static final String PARAMETER_ID_FRAME_INTERVAL = "frameInterval";
+
+	/**
+	 * Unique ID for the parameter of the checkpoint file the world is
+	 * restored from; a new world is created if it is missing or empty.
+	 * 
+	 * @see stupidmodel.kernel.WorldCheckpoint
+	 */
+	public static final String PARAMETER_ID_CHECKPOINT_FILE = "checkpointFile";
+
+	/**
+	 * Unique ID for the parameter of the number of ticks between the
+	 * checkpoints written during the run (<code>0</code>, the default, writes
+	 * none).
+	 * 
+	 * @see #PARAMETER_ID_CHECKPOINT_OUTPUT
+	 */
+	public static final String PARAMETER_ID_CHECKPOINT_INTERVAL = "checkpointInterval";
+
+	/**
+	 * Unique ID for the parameter of the file the periodic checkpoints are
+	 * written to; each checkpoint replaces the previous one.
+	 * 
+	 * @see #PARAMETER_ID_CHECKPOINT_INTERVAL
+	 */
+	public static final String PARAMETER_ID_CHECKPOINT_OUTPUT = "checkpointOutput";
+
+	/**
+	 * The first model specified an agent vision range of <code>4 * 4</code>
+	 * cells.
+	 */
+	public static final int BUG_VISION_RANGE = 4;
+
+	/**
+	 * Unique ID for the food availability layer.
+	 * 
+	 * @since Model 3
+	 */
+	public static final String FOOD_VALUE_LAYER_ID = "foodValueLayer";
+
+	/**
+	 * Unique ID for the zoomed out food layer, a level of the
+	 * {@link stupidmodel.space.WorldPyramid} of the world.
+	 */
+	public static final String FOOD_OVERVIEW_LAYER_ID = "foodOverviewLayer";
+
+	/** Constant used to specify the dimensions of a cell in the displayed GUI. */
+	public static final float GUI_CELL_SIZE = 15.0f;
+
+	/** Side length of the food overview display in pixels. */
+	public static final float GUI_OVERVIEW_SIZE = 400.0f;
+
+	/**
+	 * Delta value used for double comparisons: double values <code>d1</code>
+	 * and <code>d2</code> declared identical if {@literal |d1 - d2| < DELTA}
+	 */
+	public static final double DELTA = 1e-6;
+	
+	/**
+	 * The specified number of children a spawning {@link Bug} agent should
+	 * create during reproduction.
+	 * 
+	 * @since Model 12
+	 */
+	public static final int BUG_REPRODUCTION_RATE = 5;
+
+	/**
+	 * Default vision range of a bug to find empty cells around when spawning
+	 * descendants.
+	 * 
+	 * @since Model 12
+	 */
+	public static final int BUG_REPRODUCTION_RANGE = 3;
+
+	/**
+	 * Size of a bug reaching which it reproduces.
+	 * 
+	 * @since Model 12
+	 */
+	public static final double BUG_REPRODUCTION_SIZE = 10.0;
+
+	/** Default maximum food consumption rate of the bugs. */
+	public static final double BUG_DEFAULT_MAX_CONSUMPTION_RATE = 1.0;
+
+	/**
+	 * Default survival probability of the bugs.
+	 * 
+	 * @since Model 12
+	 */
+	public static final double BUG_DEFAULT_SURVIVAL_PROBABILITY = 0.95;
+
+	/** Default maximum food production rate of the cells. */
+	public static final double CELL_DEFAULT_FOOD_PRODUCTION_RATE = 0.01;
+
+	/**
+	 * Minimal number of cells for which food growth is split between the
+	 * available processors, using counter-based {@link RandomStreams} (so the
+	 * result does not depend on the number of processors); smaller worlds are
+	 * grown sequentially, using the default random generator.
+	 */
+	public static final int PARALLEL_FOOD_GROWTH_THRESHOLD = 250000;
+
+	/**
+	 * Whether food fields grown by counter-based {@link RandomStreams} use the
+	 * strip-mined bulk loop by default; set the
+	 * <code>stupidmodel.bulkFoodGrowth</code> system property to
+	 * <code>false</code> to use the scalar reference loop instead.
+	 * 
+	 * @see stupidmodel.space.FoodField#setBulkGrowth(boolean)
+	 */
+	public static final boolean BULK_FOOD_GROWTH = !"false"
+			.equalsIgnoreCase(System.getProperty("stupidmodel.bulkFoodGrowth"));
+
+	/**
+	 * Number of cells whose random production is generated at once by the
+	 * bulk food growth loop; the random numbers of a strip and the food of its
+	 * cells fit in the first level cache.
+	 */
+	public static final int FOOD_GROWTH_STRIP_SIZE = 512;
+
+	/**
+	 * Side length of the blocks whose maximal food is cached by the
+	 * {@link stupidmodel.space.FoodQuery} service; windows with a smaller range
+	 * are scanned directly.
+	 */
+	public static final int FOOD_QUERY_BLOCK_SIZE = 8;
+
+	/** Side length of a cell in pixels on the frames rendered headless. */
+	public static final int FRAME_CELL_SIZE = 4;
+
+	/**
+	 * Maximal number of pixels of a frame rendered headless; larger worlds are
+	 * rendered from a level of their {@link stupidmodel.space.WorldPyramid}.
+	 */
+	public static final int FRAME_MAX_PIXELS = 16 << 20;
+
+	/**
+	 * Number of rendered frames that may wait for the background PNG encoder
+	 * before the run waits for it.
+	 */
+	public static final int FRAME_QUEUE_CAPACITY = 4;
+
+	/**
+	 * Lower bound of the bins of the {@link SizeHistogram} of the model
+	 * (matches the <i>Histogram of Bug Sizes</i> chart).
+	 */
+	public static final double SIZE_HISTOGRAM_MIN = 0.0;
+
+	/** Upper bound of the bins of the {@link SizeHistogram} of the model. */
+	public static final double SIZE_HISTOGRAM_MAX = BUG_REPRODUCTION_SIZE;
+
+	/** Number of bins of the {@link SizeHistogram} of the model. */
+	public static final int SIZE_HISTOGRAM_BINS = 10;
+
+	/**
+	 * Whether the sweep executor writes the statistics of the runs in the
+	 * compressed columnar format by default; set the
+	 * <code>stupidmodel.columnarOutput</code> system property to
+	 * <code>true</code> to enable it.
+	 * 
+	 * @see stupidmodel.batch.SweepExecutor#setColumnarOutput(boolean)
+	 */
+	public static final boolean COLUMNAR_SWEEP_OUTPUT = "true"
+			.equalsIgnoreCase(System.getProperty("stupidmodel.columnarOutput"));
+
+	/**
+	 * Number of rows of the compressed blocks of the columnar run files (see
+	 * {@link stupidmodel.batch.ColumnarRunWriter}).
+	 */
+	public static final int COLUMNAR_BLOCK_SIZE = 4096;
+
+	/**
+	 * Whether the outputs of the sweep runs drop and sample their records
+	 * when the writer thread falls behind, instead of waiting for it; set the
+	 * <code>stupidmodel.sampledOutput</code> system property to
+	 * <code>true</code> to enable it.
+	 * 
+	 * @see stupidmodel.batch.AsyncStatisticsSink
+	 */
+	public static final boolean SAMPLED_SWEEP_OUTPUT = "true"
+			.equalsIgnoreCase(System.getProperty("stupidmodel.sampledOutput"));
+
+	/**
+	 * Number of per-tick records buffered for the writer thread of a sweep
+	 * run.
+	 */
+	public static final int OUTPUT_QUEUE_CAPACITY = 1024;
+
+	/**
+	 * Every this many records are kept when a sampled output falls behind.
+	 */
+	public static final int OUTPUT_SAMPLING_INTERVAL = 10;
+
+	/**
+	 * Whether the sweep runs record and write the metrics of the phases of
+	 * their ticks by default; set the <code>stupidmodel.tickMetrics</code>
+	 * system property to <code>true</code> to enable it.
+	 * 
+	 * @see stupidmodel.batch.SweepExecutor#setMetricsOutput(boolean)
+	 */
+	public static final boolean SWEEP_TICK_METRICS = "true"
+			.equalsIgnoreCase(System.getProperty("stupidmodel.tickMetrics"));
+
+	/**
+	 * The births or deaths of a tick are reported as a reproduction burst or a
+	 * mass mortality if they exceed this fraction of the population at the
+	 * start of the tick.
+	 * 
+	 * @see SimulationEvents#tickFinished(long, int, int, int)
+	 */
+	public static final double EVENT_SPIKE_FRACTION = 0.2;
+
+	/**
+	 * Every this many movement decisions of the bugs are reported to the
+	 * {@link SimulationListener}.
+	 */
+	public static final int EVENT_STEP_SAMPLING_INTERVAL = 100;
+
+	/**
+	 * Name of the {@link SimulationListener} committing JDK Flight Recorder
+	 * events. It is compiled separately for Java 11 or later from the
+	 * <code>src-jfr</code> folder, so it is loaded by name.
+	 * 
+	 * @see SimulationEvents#installFlightRecorderListener()
+	 */
+	public static final String FLIGHT_RECORDER_LISTENER = "stupidmodel.jfr.FlightRecorderListener";
+
+	/**
+	 * Whether the simulation events are committed as JDK Flight Recorder
+	 * events, if the JVM and the class path provide them; set the
+	 * <code>stupidmodel.flightRecorder</code> system property to
+	 * <code>true</code> to enable it.
+	 * 
+	 * @see #FLIGHT_RECORDER_LISTENER
+	 */
+	public static final boolean FLIGHT_RECORDER_EVENTS = "true"
+			.equalsIgnoreCase(System.getProperty("stupidmodel.flightRecorder"));
+
+
+	// ========================================================================
+
+	/**
+	 * Hidden constructor to ensure no instances are created.
+	 */
+	private Constants() {
+		;
+	}
+
+}
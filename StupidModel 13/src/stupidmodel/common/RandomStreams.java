@@ -0,0 +1,238 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.common;
+
+/**
+ * Counter-based random number generator: each random number is a hash of its
+ * key, the <code>(seed, tick, id, draw)</code> quadruple.
+ *
+ * <p>
+ * Unlike the shared stream of {@link repast.simphony.random.RandomHelper},
+ * the value of a draw does not depend on how many numbers were drawn before
+ * it, so a parallel phase can be split between any number of threads, in any
+ * partitioning, and its result is bit-identical to the sequential execution,
+ * as long as each draw is keyed by the tick, the identifier of the agent or
+ * cell and the index of the draw for that agent or cell within the tick.
+ * </p>
+ *
+ * <p>
+ * Keys are hashed by the finalizer of the <i>SplitMix64</i> generator applied
+ * to each component of the key; instances are immutable and thread-safe.
+ * </p>
+ *
+ * @version $Id$
+ */
+public final class RandomStreams {
+
+	/** The odd constant of the Weyl sequence of SplitMix64. */
+	private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+	/** Scale converting the upper 53 bits of a hash to a double. */
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+	/** The hashed seed of the streams. */
+	private final long seed;
+
+	/**
+	 * Creates a new instance.
+	 *
+	 * @param seed
+	 *            the seed of the streams
+	 */
+	public RandomStreams(final long seed) {
+		this.seed = mix(seed + GAMMA);
+	}
+
+	/**
+	 * Returns a random 64-bit value for the specified key.
+	 *
+	 * @param tick
+	 *            the tick of the draw
+	 * @param id
+	 *            identifier of the agent or cell drawing the number
+	 * @param draw
+	 *            index of the draw of the agent or cell within the tick
+	 * @return a uniformly distributed <code>long</code> value
+	 */
+	public long nextLong(final long tick, final long id, final long draw) {
+		long h = mix(seed ^ mix(tick + GAMMA));
+		h = mix(h ^ mix(id + 2 * GAMMA));
+		return mix(h ^ mix(draw + 3 * GAMMA));
+	}
+
+	/**
+	 * Returns a random number for the specified key.
+	 *
+	 * @param tick
+	 *            the tick of the draw
+	 * @param id
+	 *            identifier of the agent or cell drawing the number
+	 * @param draw
+	 *            index of the draw of the agent or cell within the tick
+	 * @return a uniformly distributed number on the interval
+	 *         <code>[0, 1)</code>
+	 */
+	public double nextDouble(final long tick, final long id, final long draw) {
+		return (nextLong(tick, id, draw) >>> 11) * DOUBLE_UNIT;
+	}
+
+	/**
+	 * Fills an array with the random numbers of consecutive identifiers: the
+	 * <code>k</code>th value is the same as
+	 * <code>nextDouble(tick, firstId + k, draw)</code>.
+	 *
+	 * <p>
+	 * The hashes of the tick and the draw are computed only once, so a bulk
+	 * fill needs half the mixing of the same number of single draws.
+	 * </p>
+	 *
+	 * @param tick
+	 *            the tick of the draws
+	 * @param firstId
+	 *            identifier of the agent or cell of the first value
+	 * @param draw
+	 *            index of the draw of each agent or cell within the tick
+	 * @param out
+	 *            the array to fill; <i>cannot be <code>null</code></i>
+	 * @param offset
+	 *            index of the first value in the array
+	 * @param length
+	 *            number of values to generate
+	 */
+	public void nextDoubles(final long tick, final long firstId,
+			final long draw, final double[] out, final int offset,
+			final int length) {
+		if (null == out) {
+			throw new IllegalArgumentException("Parameter out cannot be null.");
+		}
+
+		if (offset < 0 || length < 0 || offset + length > out.length) {
+			throw new IllegalArgumentException(String.format(
+					"Range [%d, %d) is out of the array of %d.", offset, offset
+							+ length, out.length));
+		}
+
+		final long tickHash = mix(seed ^ mix(tick + GAMMA));
+		final long drawHash = mix(draw + 3 * GAMMA);
+
+		for (int k = 0; k < length; ++k) {
+			final long h = mix(tickHash ^ mix(firstId + k + 2 * GAMMA));
+			out[offset + k] = (mix(h ^ drawHash) >>> 11) * DOUBLE_UNIT;
+		}
+	}
+
+	/**
+	 * Returns a random integer for the specified key.
+	 *
+	 * @param tick
+	 *            the tick of the draw
+	 * @param id
+	 *            identifier of the agent or cell drawing the number
+	 * @param draw
+	 *            index of the draw of the agent or cell within the tick
+	 * @param from
+	 *            lower bound (inclusive)
+	 * @param to
+	 *            upper bound (inclusive); <i>must not be lower than
+	 *            <code>from</code></i>
+	 * @return a uniformly distributed integer on the interval
+	 *         <code>[from, to]</code>
+	 */
+	public int nextIntFromTo(final long tick, final long id, final long draw,
+			final int from, final int to) {
+		if (to < from) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter to = %d < from = %d.", to, from));
+		}
+
+		final long range = (long) to - from + 1;
+		return (int) (from + (long) (nextDouble(tick, id, draw) * range));
+	}
+
+	/**
+	 * Returns a sequential view of the draws of an agent or cell in a tick.
+	 *
+	 * @param tick
+	 *            the tick of the draws
+	 * @param id
+	 *            identifier of the agent or cell
+	 * @return a new stream starting from the first draw
+	 */
+	public Stream stream(final long tick, final long id) {
+		return new Stream(tick, id);
+	}
+
+	/**
+	 * Finalizer of SplitMix64 (variant 13 of Stafford's mixers).
+	 *
+	 * @param value
+	 *            the value to mix
+	 * @return the mixed value
+	 */
+	private static long mix(final long value) {
+		long z = value;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * The consecutive draws of an agent or cell in a tick; instances are
+	 * <i>not</i> thread-safe.
+	 */
+	public final class Stream {
+
+		/** The tick of the draws. */
+		private final long tick;
+
+		/** Identifier of the agent or cell. */
+		private final long id;
+
+		/** Index of the next draw. */
+		private long draw = 0;
+
+		/**
+		 * Creates a new stream.
+		 *
+		 * @param tick
+		 *            the tick of the draws
+		 * @param id
+		 *            identifier of the agent or cell
+		 */
+		private Stream(final long tick, final long id) {
+			this.tick = tick;
+			this.id = id;
+		}
+
+		/**
+		 * Returns the next random number of the stream.
+		 *
+		 * @return a uniformly distributed number on the interval
+		 *         <code>[0, 1)</code>
+		 */
+		public double nextDouble() {
+			return RandomStreams.this.nextDouble(tick, id, draw++);
+		}
+
+		/**
+		 * Returns the next random integer of the stream.
+		 *
+		 * @param from
+		 *            lower bound (inclusive)
+		 * @param to
+		 *            upper bound (inclusive)
+		 * @return a uniformly distributed integer on the interval
+		 *         <code>[from, to]</code>
+		 */
+		public int nextIntFromTo(final int from, final int to) {
+			return RandomStreams.this.nextIntFromTo(tick, id, draw++, from, to);
+		}
+
+	}
+
+}
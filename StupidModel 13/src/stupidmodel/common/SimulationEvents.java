@@ -0,0 +1,239 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.common;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Source of the simulation events of a world: the model reports its progress
+ * through the methods of its instance, which forward the events to the
+ * registered {@link SimulationListener}.
+ *
+ * <p>
+ * Each world (a {@link stupidmodel.kernel.BugKernel} or a Repast context)
+ * creates its own instance, identified by a world number unique in the JVM.
+ * The number is passed to every event, so the events of the worlds running
+ * concurrently (e.g. the parallel runs of a sweep) can be told apart, and the
+ * movement decisions are sampled separately in each world.
+ * </p>
+ *
+ * <p>
+ * The events are disabled by default (no listener is registered). In this
+ * case each method returns after reading a single field, and the hot paths
+ * of the model (e.g. the movement of the bugs) check {@link #isEnabled()}
+ * before computing the arguments of an event, so the instrumentation costs
+ * practically nothing.
+ * </p>
+ *
+ * <p>
+ * Only one listener can be registered; it receives the events of every world
+ * of the JVM, so it has to be thread-safe if the worlds run concurrently.
+ * </p>
+ *
+ * <p>
+ * If {@link Constants#FLIGHT_RECORDER_EVENTS} is set, the JDK Flight
+ * Recorder adapter is registered when the class is initialized (see
+ * {@link #installFlightRecorderListener()}).
+ * </p>
+ *
+ * @version $Id$
+ */
+public final class SimulationEvents {
+
+	/** The registered listener; <code>null</code> if events are disabled. */
+	private static volatile SimulationListener listener = null;
+
+	/** Number of the last created world. */
+	private static final AtomicInteger lastWorld = new AtomicInteger(0);
+
+	static {
+		if (Constants.FLIGHT_RECORDER_EVENTS) {
+			installFlightRecorderListener();
+		}
+	}
+
+	/** Number of the world reporting the events. */
+	private final int world;
+
+	/** Number of movement decisions of the world, for the sampling. */
+	private final AtomicLong steps = new AtomicLong(0);
+
+	/**
+	 * Creates the event source of a new world, with the next world number.
+	 */
+	public SimulationEvents() {
+		this.world = lastWorld.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of the world, passed to every event it reports.
+	 *
+	 * @return the positive world number, unique in the JVM
+	 */
+	public int getWorld() {
+		return world;
+	}
+
+	/**
+	 * Returns the registered listener.
+	 *
+	 * @return the listener receiving the events; <code>null</code> if the
+	 *         events are disabled
+	 */
+	public static SimulationListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Registers the listener receiving the events of every world, replacing
+	 * the previous one.
+	 *
+	 * @param listener
+	 *            the new listener; <code>null</code> to disable the events
+	 */
+	public static void setListener(final SimulationListener listener) {
+		SimulationEvents.listener = listener;
+	}
+
+	/**
+	 * Registers the adapter committing the events as JDK Flight Recorder
+	 * events (see {@link Constants#FLIGHT_RECORDER_LISTENER}).
+	 *
+	 * <p>
+	 * The model targets Java 6, so the adapter is loaded by name, and only if
+	 * the <code>jdk.jfr</code> module is present. Nothing is registered if the
+	 * JVM has no flight recorder, or the adapter is not on the class path or
+	 * it was compiled for a newer JVM.
+	 * </p>
+	 *
+	 * @return <code>true</code> if the adapter is registered
+	 */
+	public static boolean installFlightRecorderListener() {
+		final Object adapter;
+
+		try {
+			Class.forName("jdk.jfr.FlightRecorder");
+			adapter = Class.forName(Constants.FLIGHT_RECORDER_LISTENER)
+					.newInstance();
+		} catch (final ClassNotFoundException e) {
+			return false;
+		} catch (final InstantiationException e) {
+			return false;
+		} catch (final IllegalAccessException e) {
+			return false;
+		} catch (final LinkageError e) {
+			// E.g. a Java 8 JVM with a backported flight recorder
+			return false;
+		}
+
+		setListener((SimulationListener) adapter);
+		return true;
+	}
+
+	/**
+	 * Returns if the events are enabled, so the model can skip collecting the
+	 * arguments of the events if they are not.
+	 *
+	 * @return <code>true</code> if a listener is registered
+	 */
+	public static boolean isEnabled() {
+		return listener != null;
+	}
+
+	/**
+	 * Reports the start of a tick.
+	 *
+	 * @param tick
+	 *            the starting tick
+	 * @param population
+	 *            number of living bugs
+	 * @see SimulationListener#tickStarted(int, long, int)
+	 */
+	public void tickStarted(final long tick, final int population) {
+		final SimulationListener current = listener;
+
+		if (current != null) {
+			current.tickStarted(world, tick, population);
+		}
+	}
+
+	/**
+	 * Reports the end of a timed phase.
+	 *
+	 * @param phase
+	 *            the finished phase
+	 * @param nanos
+	 *            duration of the phase in nanoseconds
+	 * @see SimulationListener#phaseFinished(int, TickMetrics.Phase, long)
+	 */
+	public void phaseFinished(final TickMetrics.Phase phase, final long nanos) {
+		final SimulationListener current = listener;
+
+		if (current != null) {
+			current.phaseFinished(world, phase, nanos);
+		}
+	}
+
+	/**
+	 * Reports the end of a tick, and the reproduction bursts and mortality
+	 * spikes of the tick.
+	 *
+	 * @param tick
+	 *            the finished tick
+	 * @param population
+	 *            number of living bugs
+	 * @param births
+	 *            number of bugs born in the tick
+	 * @param deaths
+	 *            number of bugs died in the tick
+	 * @see SimulationListener#tickFinished(int, long, int, int, int)
+	 */
+	public void tickFinished(final long tick, final int population,
+			final int births, final int deaths) {
+		final SimulationListener current = listener;
+
+		if (null == current) {
+			return;
+		}
+
+		current.tickFinished(world, tick, population, births, deaths);
+
+		final int initial = population - births + deaths;
+		final double limit = Constants.EVENT_SPIKE_FRACTION * initial;
+
+		if (births > 0 && births > limit) {
+			current.reproductionBurst(world, tick, births, initial);
+		}
+
+		if (deaths > 0 && deaths > limit) {
+			current.massMortality(world, tick, deaths, initial);
+		}
+	}
+
+	/**
+	 * Reports a movement decision of a bug, if it is sampled.
+	 *
+	 * @param from
+	 *            index of the current cell of the bug
+	 * @param to
+	 *            index of the chosen cell; <code>-1</code> if there is no free
+	 *            cell in range
+	 * @see SimulationListener#stepDecided(int, int, int)
+	 */
+	public void stepDecided(final int from, final int to) {
+		final SimulationListener current = listener;
+
+		if (current != null
+				&& 0 == steps.getAndIncrement()
+						% Constants.EVENT_STEP_SAMPLING_INTERVAL) {
+			current.stepDecided(world, from, to);
+		}
+	}
+
+}
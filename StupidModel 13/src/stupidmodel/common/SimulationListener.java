@@ -0,0 +1,116 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.common;
+
+/**
+ * Listener interface for profiling and tracing tools following the progress
+ * of the simulation, e.g. an adapter committing JDK Flight Recorder events so
+ * the phases of the ticks can be lined up with the garbage collection,
+ * allocation and lock profiles of the same recording.
+ *
+ * <p>
+ * Listeners are registered with {@link SimulationEvents#setListener}, and
+ * they are called synchronously from the thread running the model, so they
+ * should do only a minimal amount of work. Every event carries the number of
+ * the world reporting it (see {@link SimulationEvents#getWorld()}), since the
+ * worlds of a sweep may run concurrently.
+ * </p>
+ *
+ * @version $Id$
+ */
+public interface SimulationListener {
+
+	/**
+	 * Called when a tick starts, before the food grows.
+	 *
+	 * @param world
+	 *            number of the world reporting the event
+	 * @param tick
+	 *            the starting tick
+	 * @param population
+	 *            number of living bugs
+	 */
+	void tickStarted(int world, long tick, int population);
+
+	/**
+	 * Called when a timed phase of a tick finishes (see {@link TickMetrics}).
+	 *
+	 * @param world
+	 *            number of the world reporting the event
+	 * @param phase
+	 *            the finished phase
+	 * @param nanos
+	 *            duration of the phase in nanoseconds
+	 */
+	void phaseFinished(int world, TickMetrics.Phase phase, long nanos);
+
+	/**
+	 * Called when a tick ends, after the births and deaths are applied.
+	 *
+	 * @param world
+	 *            number of the world reporting the event
+	 * @param tick
+	 *            the finished tick
+	 * @param population
+	 *            number of living bugs
+	 * @param births
+	 *            number of bugs born in the tick
+	 * @param deaths
+	 *            number of bugs died in the tick
+	 */
+	void tickFinished(int world, long tick, int population, int births,
+			int deaths);
+
+	/**
+	 * Called after {@link #tickFinished} if the bugs born in the tick exceed
+	 * {@link Constants#EVENT_SPIKE_FRACTION} of the population at the start of
+	 * the tick.
+	 *
+	 * @param world
+	 *            number of the world reporting the event
+	 * @param tick
+	 *            the tick
+	 * @param births
+	 *            number of bugs born in the tick
+	 * @param population
+	 *            number of living bugs at the start of the tick
+	 */
+	void reproductionBurst(int world, long tick, int births, int population);
+
+	/**
+	 * Called after {@link #tickFinished} if the bugs died in the tick exceed
+	 * {@link Constants#EVENT_SPIKE_FRACTION} of the population at the start of
+	 * the tick.
+	 *
+	 * @param world
+	 *            number of the world reporting the event
+	 * @param tick
+	 *            the tick
+	 * @param deaths
+	 *            number of bugs died in the tick
+	 * @param population
+	 *            number of living bugs at the start of the tick
+	 */
+	void massMortality(int world, long tick, int deaths, int population);
+
+	/**
+	 * Called for a sample of the movement decisions of the bugs (every
+	 * {@link Constants#EVENT_STEP_SAMPLING_INTERVAL}-th decision of the
+	 * world).
+	 *
+	 * @param world
+	 *            number of the world reporting the event
+	 * @param from
+	 *            index of the current cell of the bug
+	 * @param to
+	 *            index of the chosen cell; <code>-1</code> if there is no free
+	 *            cell in range
+	 */
+	void stepDecided(int world, int from, int to);
+
+}
@@ -0,0 +1,263 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.common;
+
+/**
+ * Fixed-bin histogram of the sizes of the living bugs, maintained
+ * incrementally.
+ *
+ * <p>
+ * The interval <code>[min, max]</code> is split into bins of equal width
+ * (the last bin also contains <code>max</code>), and the sizes outside the
+ * interval are counted separately. The histogram is updated when a bug is
+ * born ({@link #add(double)}), when its size changes
+ * ({@link #move(double, double)}) and when it dies ({@link #remove(double)}),
+ * so the cost of keeping it up to date depends on the number of changes
+ * instead of the size of the population. The counts can be read at any time,
+ * e.g. by the data sets in the <code>StupidModel.rs</code> directory.
+ * </p>
+ *
+ * <p>
+ * Instances are <i>not</i> thread-safe: the sizes change in the sequential
+ * grow and mortality phases of the model.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class SizeHistogram {
+
+	/** Lower bound of the first bin. */
+	private final double min;
+
+	/** Upper bound of the last bin. */
+	private final double max;
+
+	/** Number of bugs in each bin. */
+	private final int[] counts;
+
+	/** Number of bugs smaller than the lower bound. */
+	private int underflow = 0;
+
+	/** Number of bugs larger than the upper bound. */
+	private int overflow = 0;
+
+	/**
+	 * Creates a new, empty histogram.
+	 *
+	 * @param min
+	 *            lower bound of the first bin
+	 * @param max
+	 *            upper bound of the last bin; <i>must be larger than
+	 *            <code>min</code></i>
+	 * @param binCount
+	 *            number of bins; <i>must be positive</i>
+	 */
+	public SizeHistogram(final double min, final double max, final int binCount) {
+		if (!(min < max)) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter max = %f <= min = %f.", max, min));
+		}
+
+		if (binCount < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter binCount = %d < 1.", binCount));
+		}
+
+		this.min = min;
+		this.max = max;
+		this.counts = new int[binCount];
+	}
+
+	/**
+	 * Records a new bug.
+	 *
+	 * @param size
+	 *            size of the new bug
+	 */
+	public void add(final double size) {
+		update(size, 1);
+	}
+
+	/**
+	 * Removes a bug.
+	 *
+	 * @param size
+	 *            the last size of the removed bug
+	 */
+	public void remove(final double size) {
+		update(size, -1);
+	}
+
+	/**
+	 * Records the size change of a bug; nothing is updated if the bug stays
+	 * in the same bin.
+	 *
+	 * @param oldSize
+	 *            the previous size of the bug
+	 * @param newSize
+	 *            the current size of the bug
+	 */
+	public void move(final double oldSize, final double newSize) {
+		final int oldBin = binOf(oldSize);
+		final int newBin = binOf(newSize);
+
+		if (oldBin != newBin) {
+			increment(oldBin, -1);
+			increment(newBin, 1);
+		}
+	}
+
+	/**
+	 * Returns the number of bins.
+	 *
+	 * @return the number of bins, not counting the sizes out of range
+	 */
+	public int getBinCount() {
+		return counts.length;
+	}
+
+	/**
+	 * Returns the lower bound of a bin.
+	 *
+	 * @param bin
+	 *            index of the bin
+	 * @return the smallest size counted in the bin
+	 */
+	public double getLowerBound(final int bin) {
+		return min + bin * (max - min) / counts.length;
+	}
+
+	/**
+	 * Returns the number of bugs in a bin.
+	 *
+	 * @param bin
+	 *            index of the bin
+	 * @return the number of living bugs whose size is in the bin
+	 */
+	public int getCount(final int bin) {
+		return counts[bin];
+	}
+
+	/**
+	 * Returns the number of bugs smaller than the lower bound of the first
+	 * bin.
+	 *
+	 * @return the number of bugs below the range of the histogram
+	 */
+	public int getUnderflow() {
+		return underflow;
+	}
+
+	/**
+	 * Returns the number of bugs larger than the upper bound of the last bin.
+	 *
+	 * @return the number of bugs above the range of the histogram
+	 */
+	public int getOverflow() {
+		return overflow;
+	}
+
+	/**
+	 * Returns the number of bugs recorded in the histogram.
+	 *
+	 * @return the number of bugs, including the ones out of range
+	 */
+	public int getTotal() {
+		int ret = underflow + overflow;
+		for (final int count : counts) {
+			ret += count;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Returns the counts of the bins as a single value, to be written as one
+	 * column by the file sinks.
+	 *
+	 * @return the counts of the bins in ascending order, separated by
+	 *         semicolons
+	 */
+	public String getBinCounts() {
+		final StringBuilder ret = new StringBuilder();
+		for (int i = 0; i < counts.length; ++i) {
+			if (i > 0) {
+				ret.append(';');
+			}
+
+			ret.append(counts[i]);
+		}
+
+		return ret.toString();
+	}
+
+	/**
+	 * Adds a number of bugs to the bin of the specified size.
+	 *
+	 * @param size
+	 *            size of the bugs
+	 * @param delta
+	 *            number of bugs to add (negative to remove)
+	 */
+	private void update(final double size, final int delta) {
+		increment(binOf(size), delta);
+	}
+
+	/**
+	 * Adds a number of bugs to a bin.
+	 *
+	 * @param bin
+	 *            index of the bin; <code>-1</code> for the underflow and
+	 *            <code>getBinCount()</code> for the overflow
+	 * @param delta
+	 *            number of bugs to add (negative to remove)
+	 */
+	private void increment(final int bin, final int delta) {
+		if (bin < 0) {
+			underflow += delta;
+		} else if (bin >= counts.length) {
+			overflow += delta;
+		} else {
+			counts[bin] += delta;
+		}
+
+		assert (underflow >= 0 && overflow >= 0 && (bin < 0
+				|| bin >= counts.length || counts[bin] >= 0)) : String.format(
+				"More bugs removed from bin %d than added.", bin);
+	}
+
+	/**
+	 * Returns the bin of a size.
+	 *
+	 * @param size
+	 *            the size
+	 * @return index of the bin; <code>-1</code> for sizes below the range and
+	 *         <code>getBinCount()</code> for sizes above it
+	 */
+	private int binOf(final double size) {
+		if (size < min) {
+			return -1;
+		}
+
+		if (size > max) {
+			return counts.length;
+		}
+
+		// The upper bound belongs to the last bin
+		return Math.min((int) ((size - min) / (max - min) * counts.length),
+				counts.length - 1);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"SizeHistogram [min=%f, max=%f, bins=%s, underflow=%d, overflow=%d]",
+				min, max, getBinCounts(), underflow, overflow);
+	}
+
+}
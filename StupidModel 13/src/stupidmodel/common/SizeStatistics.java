@@ -0,0 +1,180 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.common;
+
+/**
+ * Streaming accumulator of the size statistics of the bug population.
+ *
+ * <p>
+ * The sizes are recorded during the mortality phase of a tick, which visits
+ * every bug after it has grown: the surviving bugs and the newborn children
+ * are recorded between {@link #reset()} and {@link #publish()}, so no
+ * separate pass over the population is needed to collect the statistics.
+ * The getters return the values of the last published tick, so they can be
+ * used as ready-made data sources (see the data sets in the
+ * <code>StupidModel.rs</code> directory).
+ * </p>
+ *
+ * <p>
+ * The variance is accumulated with Welford's algorithm, so it is accurate
+ * even if the sizes are large compared to their spread. Instances are
+ * <i>not</i> thread-safe.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class SizeStatistics {
+
+	/** Number of sizes recorded since the last reset. */
+	private int count = 0;
+
+	/** The smallest size recorded since the last reset. */
+	private double min = Double.NaN;
+
+	/** The largest size recorded since the last reset. */
+	private double max = Double.NaN;
+
+	/** Sum of the sizes recorded since the last reset. */
+	private double sum = 0.0;
+
+	/** Running mean of Welford's algorithm. */
+	private double runningMean = 0.0;
+
+	/** Sum of the squared differences from the running mean. */
+	private double squares = 0.0;
+
+	/** The published number of bugs. */
+	private int publishedCount = 0;
+
+	/** The published minimum size. */
+	private double publishedMin = Double.NaN;
+
+	/** The published maximum size. */
+	private double publishedMax = Double.NaN;
+
+	/** The published mean size. */
+	private double publishedMean = Double.NaN;
+
+	/** The published variance of the sizes. */
+	private double publishedVariance = Double.NaN;
+
+	/**
+	 * Starts recording the sizes of a new tick; the published values are not
+	 * changed.
+	 */
+	public void reset() {
+		count = 0;
+		min = Double.NaN;
+		max = Double.NaN;
+		sum = 0.0;
+		runningMean = 0.0;
+		squares = 0.0;
+	}
+
+	/**
+	 * Records the size of a bug.
+	 *
+	 * @param size
+	 *            the size of a living bug
+	 */
+	public void record(final double size) {
+		++count;
+		min = (1 == count) ? size : Math.min(min, size);
+		max = (1 == count) ? size : Math.max(max, size);
+		sum += size;
+
+		final double delta = size - runningMean;
+		runningMean += delta / count;
+		squares += delta * (size - runningMean);
+	}
+
+	/**
+	 * Publishes the statistics of the sizes recorded since the last reset.
+	 */
+	public void publish() {
+		publishedCount = count;
+		publishedMin = min;
+		publishedMax = max;
+		publishedMean = (0 == count) ? Double.NaN : sum / count;
+		publishedVariance = (0 == count) ? Double.NaN : squares / count;
+	}
+
+	/**
+	 * Publishes the values published by another instance, e.g. for a copy of
+	 * a world.
+	 *
+	 * @param source
+	 *            the statistics to copy the published values of; <i>cannot be
+	 *            <code>null</code></i>
+	 */
+	public void copyPublished(final SizeStatistics source) {
+		publishedCount = source.publishedCount;
+		publishedMin = source.publishedMin;
+		publishedMax = source.publishedMax;
+		publishedMean = source.publishedMean;
+		publishedVariance = source.publishedVariance;
+	}
+
+	/**
+	 * Returns the number of living bugs.
+	 *
+	 * @return the number of bugs recorded in the last published tick
+	 */
+	public int getCount() {
+		return publishedCount;
+	}
+
+	/**
+	 * Returns the minimum size of the bugs.
+	 *
+	 * @return the smallest size of the last published tick;
+	 *         <code>NaN</code> if there were no bugs
+	 */
+	public double getMinSize() {
+		return publishedMin;
+	}
+
+	/**
+	 * Returns the maximum size of the bugs.
+	 *
+	 * @return the largest size of the last published tick; <code>NaN</code>
+	 *         if there were no bugs
+	 */
+	public double getMaxSize() {
+		return publishedMax;
+	}
+
+	/**
+	 * Returns the mean size of the bugs.
+	 *
+	 * @return the mean size of the last published tick; <code>NaN</code> if
+	 *         there were no bugs
+	 */
+	public double getMeanSize() {
+		return publishedMean;
+	}
+
+	/**
+	 * Returns the (population) variance of the sizes of the bugs.
+	 *
+	 * @return the variance of the sizes of the last published tick;
+	 *         <code>NaN</code> if there were no bugs
+	 */
+	public double getSizeVariance() {
+		return publishedVariance;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"SizeStatistics [count=%d, min=%f, max=%f, mean=%f, variance=%f]",
+				publishedCount, publishedMin, publishedMax, publishedMean,
+				publishedVariance);
+	}
+
+}
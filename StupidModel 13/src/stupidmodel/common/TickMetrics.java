@@ -0,0 +1,362 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.common;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Duration and activity metrics of the phases of the ticks.
+ *
+ * <p>
+ * The duration of each phase is recorded in a latency histogram with
+ * logarithmic buckets: durations below 16 nanoseconds have their own bucket,
+ * larger ones are split into 8 buckets per power of two, so the reported
+ * percentiles are at most 12.5% above the exact values (and never above the
+ * maximum). Recording a duration allocates nothing and costs a few array
+ * updates, so the metrics can stay enabled in production runs; they are
+ * recorded once per phase, not once per bug.
+ * </p>
+ *
+ * <p>
+ * The {@link Counter}s sum the activity of the bugs (moves, births, deaths)
+ * and the number of free cell queries over all the recorded ticks.
+ * </p>
+ *
+ * <p>
+ * The metrics are recorded by the thread running the model, but they may be
+ * polled by any thread (e.g. a display or a monitoring tool). The recorded
+ * durations are also reported as events of the world of the metrics, if it
+ * is specified (see {@link #TickMetrics(SimulationEvents)}).
+ * </p>
+ *
+ * @version $Id$
+ */
+public class TickMetrics {
+
+	/**
+	 * Timed phases of a tick.
+	 */
+	public static enum Phase {
+
+		/** Growing the food of the cells. */
+		GROW_FOOD,
+
+		/** Moving the bugs. */
+		STEP,
+
+		/** Feeding and growing the bugs. */
+		GROW,
+
+		/** Reproduction and death of the bugs. */
+		MORTALITY,
+
+		/** Collecting and writing the statistics of the tick. */
+		DATA_COLLECTION,
+
+		/** Rendering the world. */
+		RENDERING;
+
+	}
+
+	/**
+	 * Counted events of the ticks.
+	 */
+	public static enum Counter {
+
+		/** Bugs moved to another cell. */
+		MOVED,
+
+		/** Bugs born. */
+		BORN,
+
+		/** Bugs died (including the parents dying at reproduction). */
+		DIED,
+
+		/** Searches for free cells around a bug. */
+		FREE_CELL_QUERIES;
+
+	}
+
+	/** Durations below this value (in nanoseconds) have their own bucket. */
+	private static final int EXACT_LIMIT = 16;
+
+	/** Base 2 logarithm of the number of buckets per power of two. */
+	private static final int SUB_BUCKET_BITS = 3;
+
+	/** Number of buckets of a latency histogram. */
+	private static final int BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+	/** Number of durations in each bucket, for each phase. */
+	private final long[][] histograms = new long[Phase.values().length][BUCKETS];
+
+	/** Number of recorded durations of each phase. */
+	private final long[] counts = new long[Phase.values().length];
+
+	/** Sum of the recorded durations of each phase. */
+	private final long[] totals = new long[Phase.values().length];
+
+	/** Longest recorded duration of each phase. */
+	private final long[] maxima = new long[Phase.values().length];
+
+	/** Value of each counter. */
+	private final long[] counters = new long[Counter.values().length];
+
+	/**
+	 * Event source of the world the phases are reported by; <code>null</code>
+	 * if they are not reported.
+	 */
+	private final SimulationEvents events;
+
+	/**
+	 * Creates new metrics, without reporting the phases as events.
+	 */
+	public TickMetrics() {
+		this(null);
+	}
+
+	/**
+	 * Creates new metrics, reporting the recorded phases as the events of the
+	 * specified world.
+	 *
+	 * @param events
+	 *            event source of the world of the metrics; <code>null</code>
+	 *            if the phases are not reported
+	 */
+	public TickMetrics(final SimulationEvents events) {
+		this.events = events;
+	}
+
+	/**
+	 * Returns the start time of a phase, to be passed to
+	 * {@link #stop(Phase, long)} at its end.
+	 *
+	 * @return the current value of the system timer, in nanoseconds
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records the duration of a phase from its start time until now.
+	 *
+	 * @param phase
+	 *            the finished phase; <i>cannot be <code>null</code></i>
+	 * @param start
+	 *            the start time of the phase, returned by {@link #start()}
+	 */
+	public void stop(final Phase phase, final long start) {
+		record(phase, System.nanoTime() - start);
+	}
+
+	/**
+	 * Records the duration of a phase.
+	 *
+	 * @param phase
+	 *            the phase; <i>cannot be <code>null</code></i>
+	 * @param nanos
+	 *            duration of the phase in nanoseconds; negative values (e.g.
+	 *            of an adjusted system timer) are recorded as <code>0</code>
+	 */
+	public void record(final Phase phase, final long nanos) {
+		final int index = phase.ordinal();
+		final long value = Math.max(0, nanos);
+
+		synchronized (this) {
+			++histograms[index][bucketOf(value)];
+			++counts[index];
+			totals[index] += value;
+			maxima[index] = Math.max(maxima[index], value);
+		}
+
+		if (events != null) {
+			events.phaseFinished(phase, value);
+		}
+	}
+
+	/**
+	 * Adds to the value of a counter.
+	 *
+	 * @param counter
+	 *            the counter; <i>cannot be <code>null</code></i>
+	 * @param value
+	 *            the value to add
+	 */
+	public synchronized void add(final Counter counter, final long value) {
+		counters[counter.ordinal()] += value;
+	}
+
+	/**
+	 * Returns the number of recorded durations of a phase.
+	 *
+	 * @param phase
+	 *            the phase; <i>cannot be <code>null</code></i>
+	 * @return the number of times the phase was recorded
+	 */
+	public synchronized long getCount(final Phase phase) {
+		return counts[phase.ordinal()];
+	}
+
+	/**
+	 * Returns the total duration of a phase.
+	 *
+	 * @param phase
+	 *            the phase; <i>cannot be <code>null</code></i>
+	 * @return the sum of the recorded durations in nanoseconds
+	 */
+	public synchronized long getTotal(final Phase phase) {
+		return totals[phase.ordinal()];
+	}
+
+	/**
+	 * Returns the longest duration of a phase.
+	 *
+	 * @param phase
+	 *            the phase; <i>cannot be <code>null</code></i>
+	 * @return the longest recorded duration in nanoseconds; <code>0</code> if
+	 *         the phase was not recorded
+	 */
+	public synchronized long getMax(final Phase phase) {
+		return maxima[phase.ordinal()];
+	}
+
+	/**
+	 * Returns a percentile of the durations of a phase.
+	 *
+	 * @param phase
+	 *            the phase; <i>cannot be <code>null</code></i>
+	 * @param percentile
+	 *            the percentile (e.g. <code>99.0</code>); <i>must be in the
+	 *            interval <code>[0, 100]</code></i>
+	 * @return the upper bound of the bucket containing the percentile, but
+	 *         at most the longest duration, in nanoseconds; <code>0</code> if
+	 *         the phase was not recorded
+	 */
+	public synchronized long getPercentile(final Phase phase,
+			final double percentile) {
+		if (!(percentile >= 0.0 && percentile <= 100.0)) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter percentile = %f is not in [0, 100].", percentile));
+		}
+
+		final int index = phase.ordinal();
+		if (0 == counts[index]) {
+			return 0;
+		}
+
+		final long rank = Math.max(1,
+				(long) Math.ceil(percentile / 100.0 * counts[index]));
+		final long[] histogram = histograms[index];
+
+		long seen = 0;
+		for (int bucket = 0; bucket < histogram.length; ++bucket) {
+			seen += histogram[bucket];
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(bucket), maxima[index]);
+			}
+		}
+
+		return maxima[index];
+	}
+
+	/**
+	 * Returns the value of a counter.
+	 *
+	 * @param counter
+	 *            the counter; <i>cannot be <code>null</code></i>
+	 * @return the sum of the added values
+	 */
+	public synchronized long getCounter(final Counter counter) {
+		return counters[counter.ordinal()];
+	}
+
+	/**
+	 * Clears every recorded duration and counter, e.g. to exclude the warm-up
+	 * ticks of a run.
+	 */
+	public synchronized void reset() {
+		for (final long[] histogram : histograms) {
+			Arrays.fill(histogram, 0);
+		}
+
+		Arrays.fill(counts, 0);
+		Arrays.fill(totals, 0);
+		Arrays.fill(maxima, 0);
+		Arrays.fill(counters, 0);
+	}
+
+	/**
+	 * Returns a human readable report of the metrics: a comma-separated table
+	 * of the phases (with the durations in microseconds), followed by the
+	 * counters.
+	 *
+	 * @return the report, one line per phase and counter
+	 */
+	public synchronized String getReport() {
+		final StringBuilder ret = new StringBuilder(
+				"Phase,Count,Total (us),p50 (us),p99 (us),Max (us)");
+		ret.append(Constants.EOL);
+
+		for (final Phase phase : Phase.values()) {
+			ret.append(String.format(Locale.ENGLISH,
+					"%s,%d,%.1f,%.1f,%.1f,%.1f", phase, getCount(phase),
+					getTotal(phase) / 1e3, getPercentile(phase, 50.0) / 1e3,
+					getPercentile(phase, 99.0) / 1e3, getMax(phase) / 1e3));
+			ret.append(Constants.EOL);
+		}
+
+		for (final Counter counter : Counter.values()) {
+			ret.append(counter).append(',').append(getCounter(counter));
+			ret.append(Constants.EOL);
+		}
+
+		return ret.toString();
+	}
+
+	/**
+	 * Returns the bucket of a duration.
+	 *
+	 * @param nanos
+	 *            the non-negative duration
+	 * @return the index of the bucket
+	 */
+	private static int bucketOf(final long nanos) {
+		if (nanos < EXACT_LIMIT) {
+			return (int) nanos;
+		}
+
+		final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		final int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS))
+				& ((1 << SUB_BUCKET_BITS) - 1);
+		return EXACT_LIMIT
+				+ ((exponent - Integer.numberOfTrailingZeros(EXACT_LIMIT)) << SUB_BUCKET_BITS)
+				+ subBucket;
+	}
+
+	/**
+	 * Returns the largest duration of a bucket.
+	 *
+	 * @param bucket
+	 *            index of the bucket
+	 * @return the largest duration belonging to the bucket
+	 */
+	private static long upperBoundOf(final int bucket) {
+		if (bucket < EXACT_LIMIT) {
+			return bucket;
+		}
+
+		final int exponent = ((bucket - EXACT_LIMIT) >>> SUB_BUCKET_BITS)
+				+ Integer.numberOfTrailingZeros(EXACT_LIMIT);
+		final int subBucket = (bucket - EXACT_LIMIT)
+				& ((1 << SUB_BUCKET_BITS) - 1);
+		final int shift = exponent - SUB_BUCKET_BITS;
+		final long lower = ((long) ((1 << SUB_BUCKET_BITS) + subBucket)) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+}
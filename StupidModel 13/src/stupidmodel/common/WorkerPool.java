@@ -0,0 +1,196 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed size pool of daemon worker threads used to split the bulk phases of
+ * the model (e.g. food growth) into contiguous index ranges.
+ *
+ * <p>
+ * The ranges are processed concurrently, the calling thread takes the first
+ * one and waits for the rest before returning, so a phase executed through
+ * the pool is finished when {@link #forEachRange(int, RangeTask)} returns.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class WorkerPool {
+
+	/**
+	 * A task processing a contiguous range of indices.
+	 *
+	 * @version $Id$
+	 */
+	public interface RangeTask {
+
+		/**
+		 * Processes the indices of the interval <code>[from, to)</code>.
+		 *
+		 * @param chunk
+		 *            index of the processed range; <i>on the interval
+		 *            <code>[0, parallelism)</code>, and the same range always
+		 *            gets the same chunk index for the same size</i>
+		 * @param from
+		 *            first index to process (inclusive)
+		 * @param to
+		 *            last index to process (exclusive)
+		 */
+		void run(int chunk, int from, int to);
+	}
+
+	/** The lazily created pool shared by the model phases. */
+	private static WorkerPool shared = null;
+
+	/** Number of ranges a phase is split into. */
+	private final int parallelism;
+
+	/** Executor of the ranges; <code>null</code> if single threaded. */
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a new pool with the specified number of threads.
+	 *
+	 * @param parallelism
+	 *            number of threads (including the caller) used to process a
+	 *            phase; <i>must be positive</i>
+	 */
+	public WorkerPool(final int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter parallelism = %d < 1.", parallelism));
+		}
+
+		this.parallelism = parallelism;
+		this.executor = (1 == parallelism) ? null : Executors
+				.newFixedThreadPool(parallelism - 1, new ThreadFactory() {
+
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread ret = new Thread(runnable,
+								"StupidModel worker " + count.incrementAndGet());
+						ret.setDaemon(true);
+						return ret;
+					}
+				});
+	}
+
+	/**
+	 * Returns the pool shared by the model phases, using one thread for each
+	 * available processor.
+	 *
+	 * @return the shared pool; <i>cannot be <code>null</code></i>
+	 */
+	public static synchronized WorkerPool getShared() {
+		if (null == shared) {
+			shared = new WorkerPool(Runtime.getRuntime().availableProcessors());
+		}
+
+		return shared;
+	}
+
+	/**
+	 * Returns the number of ranges the phases are split into.
+	 *
+	 * @return the parallelism of the pool; <i>positive</i>
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Splits the interval <code>[0, size)</code> into (at most)
+	 * {@link #getParallelism()} contiguous ranges of nearly equal length and
+	 * processes them concurrently.
+	 *
+	 * @param size
+	 *            number of indices to process; <i>must be non-negative</i>
+	 * @param task
+	 *            the task processing a range; <i>cannot be <code>null</code></i>
+	 * @throws IllegalStateException
+	 *             if the execution of a range failed
+	 */
+	public void forEachRange(final int size, final RangeTask task) {
+		if (size < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter size = %d < 0.", size));
+		}
+
+		if (null == task) {
+			throw new IllegalArgumentException("Parameter task cannot be null.");
+		}
+
+		final int chunks = Math.max(1, Math.min(parallelism, size));
+		if (1 == chunks) {
+			task.run(0, 0, size);
+			return;
+		}
+
+		final List<Future<?>> futures = new ArrayList<Future<?>>(chunks - 1);
+		for (int chunk = 1; chunk < chunks; ++chunk) {
+			final int c = chunk;
+			futures.add(executor.submit(new Runnable() {
+
+				@Override
+				public void run() {
+					task.run(c, from(c, chunks, size), from(c + 1, chunks, size));
+				}
+			}));
+		}
+
+		// The caller thread processes the first range meanwhile
+		task.run(0, 0, from(1, chunks, size));
+
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting.", e);
+			} catch (final ExecutionException e) {
+				throw new IllegalStateException("Range execution failed.",
+						e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Shuts down the worker threads of this pool.
+	 */
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the first index of the specified range.
+	 *
+	 * @param chunk
+	 *            index of the range
+	 * @param chunks
+	 *            number of ranges
+	 * @param size
+	 *            number of indices
+	 * @return the first index of the range
+	 */
+	private static int from(final int chunk, final int chunks, final int size) {
+		return (int) ((long) size * chunk / chunks);
+	}
+
+}
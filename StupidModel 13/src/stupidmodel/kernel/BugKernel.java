@@ -0,0 +1,1094 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.kernel;
+
+import java.util.Arrays;
+
+import stupidmodel.agents.Bug;
+import stupidmodel.agents.ParallelMovement;
+import stupidmodel.common.Constants;
+import stupidmodel.common.RandomStreams;
+import stupidmodel.common.SimulationEvents;
+import stupidmodel.common.SizeStatistics;
+import stupidmodel.common.TickMetrics;
+import stupidmodel.space.FoodField;
+import stupidmodel.space.FoodQuery;
+import stupidmodel.space.OccupancyLayer;
+import stupidmodel.space.WorldPyramid;
+
+/**
+ * Headless simulation kernel storing the bug population as parallel primitive
+ * arrays instead of {@link Bug} objects.
+ *
+ * <p>
+ * The state of each bug is its size and the index of its cell (see
+ * {@link FoodField#index(int, int)}); the maximum consumption rate and the
+ * survival probability are stored per bug only after one of them is set to a
+ * value differing from the default. The phases of a tick are loops over these
+ * arrays, applying the same rules as the agents of the Repast context:
+ * </p>
+ *
+ * <ol>
+ * <li>food grows on every cell ({@link FoodField#grow(RandomStreams, long)});
+ * </li>
+ * <li>bugs move to the best free cell in their vision range in descending
+ * size order ({@link Bug#step()});</li>
+ * <li>bugs eat and grow ({@link Bug#grow()});</li>
+ * <li>bugs reproduce or die ({@link Bug#mortality()}).</li>
+ * </ol>
+ *
+ * <p>
+ * Bugs of the same size are processed in the order of their creation (the
+ * Repast context orders them by its internal registry). Random numbers are
+ * drawn from the counter-based {@link RandomStreams} of the instance, keyed
+ * by the tick and the cell or the activation rank of the bug, instead of the
+ * global {@link repast.simphony.random.RandomHelper} stream, so runs of the
+ * kernel are reproducible and independent instances can be run concurrently,
+ * but they are not identical to runs of the context with the same seed.
+ * {@link Bug} objects are created only on request, as detached probes of a
+ * bug's state.
+ * </p>
+ *
+ * <p>
+ * The index of a bug is its position in the arrays; indices of the bugs are
+ * only valid until the next call of {@link #activateBugs()}, as dead bugs are
+ * removed and the rest are shifted towards the beginning of the arrays.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class BugKernel {
+
+	/** Initial capacity of the bug arrays. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** Value of {@link #cell} for the bugs died in the current tick. */
+	private static final int DEAD = -1;
+
+	/**
+	 * Index of the draw of the mortality check of a bug, keyed by its rank in
+	 * the activation order. The food growth uses draw <code>0</code> of the
+	 * cell indices and the reproduction draws <code>1</code> to
+	 * {@link Constants#BUG_REPRODUCTION_RATE} of the ranks, so the survival of
+	 * a bug does not depend on the growth of the cell with the same index.
+	 */
+	static final long MORTALITY_DRAW = 1 + Constants.BUG_REPRODUCTION_RATE;
+
+	/** Food of the cells. */
+	private final FoodField field;
+
+	/** The cells occupied by bugs. */
+	private final OccupancyLayer occupancy;
+
+	/** Best-food queries of the movement. */
+	private final FoodQuery query;
+
+	/** Seed of the random numbers of the world. */
+	private final long seed;
+
+	/** Random numbers of the world. */
+	private final RandomStreams streams;
+
+	/** The current tick; <code>0</code> before the first food growth. */
+	private long tick = 0;
+
+	/** Maximum consumption rate of the new bugs. */
+	private double defaultMaxConsumptionRate = Constants.BUG_DEFAULT_MAX_CONSUMPTION_RATE;
+
+	/** Survival probability of the new bugs. */
+	private double defaultSurvivalProbability = Constants.BUG_DEFAULT_SURVIVAL_PROBABILITY;
+
+	/** Number of bugs. */
+	private int count = 0;
+
+	/** Size of the bugs. */
+	private double[] size = new double[INITIAL_CAPACITY];
+
+	/** Cell index of the bugs. */
+	private int[] cell = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Maximum consumption rate of the bugs; <code>null</code> while every bug
+	 * has the default value of the world.
+	 */
+	private double[] maxConsumptionRate = null;
+
+	/**
+	 * Survival probability of the bugs; <code>null</code> while every bug has
+	 * the default value of the world.
+	 */
+	private double[] survivalProbability = null;
+
+	/** Bug indices in activation (descending size) order. */
+	private int[] order = new int[INITIAL_CAPACITY];
+
+	/** Temporary buffer of the merge sort. */
+	private int[] sortBuffer = new int[INITIAL_CAPACITY];
+
+	/** Buffer for the free cells of the reproduction range. */
+	private final int[] freeCells;
+
+	/**
+	 * Parallel implementation of the movement; <code>null</code> if the bugs
+	 * move sequentially.
+	 */
+	private ParallelMovement parallelMovement = null;
+
+	/**
+	 * Durations and activity of the phases of the ticks; <code>null</code> if
+	 * they are not recorded.
+	 */
+	private TickMetrics metrics = null;
+
+	/** Size statistics of the bugs, recorded in the mortality phase. */
+	private final SizeStatistics statistics = new SizeStatistics();
+
+	/** Source of the simulation events of the world. */
+	private final SimulationEvents events = new SimulationEvents();
+
+	/** Overview of the world for zoomed out frames; created on demand. */
+	private WorldPyramid pyramid = null;
+
+	/**
+	 * Creates a new empty world with the specified dimensions; the food
+	 * production rate of each cell is initialized to
+	 * {@link Constants#CELL_DEFAULT_FOOD_PRODUCTION_RATE}.
+	 *
+	 * @param width
+	 *            number of columns; <i>must be positive</i>
+	 * @param height
+	 *            number of rows; <i>must be positive</i>
+	 * @param seed
+	 *            seed of the random numbers of the world
+	 */
+	public BugKernel(final int width, final int height, final long seed) {
+		this(width, height, seed, FoodField.Precision.DOUBLE);
+	}
+
+	/**
+	 * Creates a new empty world with the specified dimensions, storing the
+	 * food of the cells in the specified precision.
+	 *
+	 * @param width
+	 *            number of columns; <i>must be positive</i>
+	 * @param height
+	 *            number of rows; <i>must be positive</i>
+	 * @param seed
+	 *            seed of the random numbers of the world
+	 * @param precision
+	 *            storage precision of the food field; <i>cannot be
+	 *            <code>null</code></i>
+	 */
+	public BugKernel(final int width, final int height, final long seed,
+			final FoodField.Precision precision) {
+		this.field = new FoodField(width, height, precision);
+		this.occupancy = new OccupancyLayer(width, height);
+		this.query = new FoodQuery(field, occupancy);
+		this.seed = seed;
+		this.streams = new RandomStreams(seed);
+
+		for (int i = 0; i < field.size(); ++i) {
+			field.setProductionRate(i,
+					Constants.CELL_DEFAULT_FOOD_PRODUCTION_RATE);
+		}
+
+		final int side = 2 * Constants.BUG_REPRODUCTION_RANGE + 1;
+		this.freeCells = new int[side * side];
+	}
+
+	/**
+	 * Creates a copy of a world; see {@link #fork()}.
+	 *
+	 * @param source
+	 *            the world to copy
+	 */
+	private BugKernel(final BugKernel source) {
+		this.field = source.field.copy();
+		this.occupancy = source.occupancy.copy();
+		this.query = new FoodQuery(field, occupancy);
+		this.seed = source.seed;
+		this.streams = source.streams;
+		this.tick = source.tick;
+		this.defaultMaxConsumptionRate = source.defaultMaxConsumptionRate;
+		this.defaultSurvivalProbability = source.defaultSurvivalProbability;
+		this.count = source.count;
+		this.size = Arrays.copyOf(source.size, source.size.length);
+		this.cell = Arrays.copyOf(source.cell, source.cell.length);
+		this.maxConsumptionRate = (null == source.maxConsumptionRate) ? null
+				: Arrays.copyOf(source.maxConsumptionRate,
+						source.maxConsumptionRate.length);
+		this.survivalProbability = (null == source.survivalProbability) ? null
+				: Arrays.copyOf(source.survivalProbability,
+						source.survivalProbability.length);
+		this.order = Arrays.copyOf(source.order, source.order.length);
+		this.sortBuffer = new int[source.sortBuffer.length];
+		this.freeCells = new int[source.freeCells.length];
+
+		// Recomputing the statistics could round the mean differently than
+		// the mortality phase of the source did
+		statistics.copyPublished(source.statistics);
+	}
+
+	/**
+	 * Creates a new world with the specified number of bugs placed randomly,
+	 * the same way as the bugs of the Repast context are placed.
+	 *
+	 * @param width
+	 *            number of columns; <i>must be positive</i>
+	 * @param height
+	 *            number of rows; <i>must be positive</i>
+	 * @param bugCount
+	 *            number of bugs to create; <i>must be non-negative</i>
+	 * @param seed
+	 *            seed of the random numbers of the world
+	 * @return the new world
+	 */
+	public static BugKernel create(final int width, final int height,
+			final int bugCount, final long seed) {
+		final BugKernel ret = new BugKernel(width, height, seed);
+		ret.addRandomBugs(bugCount);
+		return ret;
+	}
+
+	/**
+	 * Adds the specified number of bugs with the default parameters to random
+	 * locations, the same way as the bugs of the Repast context are placed.
+	 *
+	 * @param bugCount
+	 *            number of bugs to create; <i>must be non-negative</i>
+	 */
+	public void addRandomBugs(final int bugCount) {
+		if (bugCount < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter bugCount = %d < 0.", bugCount));
+		}
+
+		final int width = field.getWidth();
+		final int height = field.getHeight();
+		final int first = count;
+
+		// Negative identifiers, so the draws differ from those of the bugs
+		// activated in the same tick
+		for (int i = 0; i < bugCount; ++i) {
+			final long id = -1L - first - i;
+			final int x = (int) (streams.nextDouble(tick, id, 0) * width);
+			final int y = (int) (streams.nextDouble(tick, id, 1) * height);
+			addBug(x, y);
+		}
+	}
+
+	/**
+	 * Sets the maximum food consumption rate of the bugs created afterwards,
+	 * including the children; bugs already created keep their rate.
+	 *
+	 * @param value
+	 *            the new default rate; <i>must be non-negative</i>
+	 */
+	public void setDefaultMaxConsumptionRate(final double value) {
+		if (value < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter value = %f < 0.", value));
+		}
+
+		if (null == maxConsumptionRate && count > 0) {
+			maxConsumptionRate = filled(size.length, defaultMaxConsumptionRate);
+		}
+
+		defaultMaxConsumptionRate = value;
+	}
+
+	/**
+	 * Sets the survival probability of the bugs created afterwards, including
+	 * the children; bugs already created keep their probability.
+	 *
+	 * @param value
+	 *            the new default probability; <i>must be on the interval
+	 *            <code>[0, 1]</code></i>
+	 */
+	public void setDefaultSurvivalProbability(final double value) {
+		if (value < 0.0 || 1.0 < value) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter value=%f should be in interval [0, 1].", value));
+		}
+
+		if (null == survivalProbability && count > 0) {
+			survivalProbability = filled(size.length,
+					defaultSurvivalProbability);
+		}
+
+		defaultSurvivalProbability = value;
+	}
+
+	/**
+	 * Returns the seed of the random numbers of the world; forks share the
+	 * seed of their source.
+	 *
+	 * @return the seed the world was created with
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the current tick of the world.
+	 *
+	 * @return the number of food growths executed
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Returns the food field of the world.
+	 *
+	 * @return the food of the cells; <i>cannot be <code>null</code></i>
+	 */
+	public FoodField getFoodField() {
+		return field;
+	}
+
+	/**
+	 * Returns the occupancy layer of the world.
+	 *
+	 * @return the cells occupied by bugs; <i>cannot be <code>null</code></i>
+	 */
+	public OccupancyLayer getOccupancy() {
+		return occupancy;
+	}
+
+	/**
+	 * Returns the multi-resolution pyramid of the food and the bug density of
+	 * the world, for frames showing the world zoomed out.
+	 *
+	 * <p>
+	 * The pyramid is created on the first request, so the worlds rendered in
+	 * full resolution do not maintain it.
+	 * </p>
+	 *
+	 * @return the pyramid of the world; <i>cannot be <code>null</code></i>
+	 */
+	public WorldPyramid getPyramid() {
+		if (null == pyramid) {
+			pyramid = new WorldPyramid(field, occupancy);
+		}
+
+		return pyramid;
+	}
+
+	/**
+	 * Sets the parallel implementation of the movement.
+	 *
+	 * @param parallelMovement
+	 *            the implementation to use; <code>null</code> to move the bugs
+	 *            sequentially
+	 */
+	public void setParallelMovement(final ParallelMovement parallelMovement) {
+		this.parallelMovement = parallelMovement;
+	}
+
+	/**
+	 * Returns the metrics the phases of the ticks are recorded to.
+	 *
+	 * @return the metrics of the world; <code>null</code> if they are not
+	 *         recorded
+	 */
+	public TickMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the metrics to record the durations of the food growth and of the
+	 * step, grow and mortality phases of the bugs to, with the number of
+	 * moves, births, deaths and free cell queries.
+	 *
+	 * @param metrics
+	 *            the metrics to record to; <code>null</code> to disable the
+	 *            recording (the default)
+	 */
+	public void setMetrics(final TickMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns the source of the simulation events of the world; a forked
+	 * world has its own.
+	 *
+	 * @return the event source, identifying the world in the events (e.g. to
+	 *         create {@link TickMetrics} reporting the phases of the world)
+	 */
+	public SimulationEvents getEvents() {
+		return events;
+	}
+
+	/**
+	 * Returns the size statistics of the bugs, published at the end of each
+	 * {@link #activateBugs()}.
+	 *
+	 * @return the statistics of the world
+	 * @see #updateStatistics()
+	 */
+	public SizeStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Recomputes the size statistics from the current sizes, e.g. after the
+	 * bugs are added or changed outside of a tick.
+	 */
+	public void updateStatistics() {
+		statistics.reset();
+		for (int i = 0; i < count; ++i) {
+			statistics.record(size[i]);
+		}
+
+		statistics.publish();
+	}
+
+	/**
+	 * Returns the number of living bugs.
+	 *
+	 * @return the size of the population
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Adds a new bug with the default parameters and a size of
+	 * <code>1.0</code> to the specified location.
+	 *
+	 * @param x
+	 *            the <code>x</code> coordinate of the bug
+	 * @param y
+	 *            the <code>y</code> coordinate of the bug
+	 * @return the index of the new bug
+	 */
+	public int addBug(final int x, final int y) {
+		return addBug(field.index(x, y), 1.0);
+	}
+
+	/**
+	 * Returns the size of a bug.
+	 *
+	 * @param bug
+	 *            index of the bug
+	 * @return the size of the bug
+	 */
+	public double getSize(final int bug) {
+		return size[check(bug)];
+	}
+
+	/**
+	 * Sets the size of a bug.
+	 *
+	 * @param bug
+	 *            index of the bug
+	 * @param value
+	 *            the new size; <i>must be non-negative</i>
+	 */
+	public void setSize(final int bug, final double value) {
+		if (value < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter value = %f < 0.", value));
+		}
+
+		size[check(bug)] = value;
+	}
+
+	/**
+	 * Returns the cell index of a bug.
+	 *
+	 * @param bug
+	 *            index of the bug
+	 * @return the index of the cell the bug is located at
+	 */
+	public int getCell(final int bug) {
+		return cell[check(bug)];
+	}
+
+	/**
+	 * Returns the <code>x</code> coordinate of a bug.
+	 *
+	 * @param bug
+	 *            index of the bug
+	 * @return the <code>x</code> coordinate of the bug
+	 */
+	public int getX(final int bug) {
+		return occupancy.getX(getCell(bug));
+	}
+
+	/**
+	 * Returns the <code>y</code> coordinate of a bug.
+	 *
+	 * @param bug
+	 *            index of the bug
+	 * @return the <code>y</code> coordinate of the bug
+	 */
+	public int getY(final int bug) {
+		return occupancy.getY(getCell(bug));
+	}
+
+	/**
+	 * Returns the maximum food consumption rate of a bug.
+	 *
+	 * @param bug
+	 *            index of the bug
+	 * @return the maximum consumption rate of the bug
+	 */
+	public double getMaxConsumptionRate(final int bug) {
+		check(bug);
+		return (null == maxConsumptionRate) ? defaultMaxConsumptionRate
+				: maxConsumptionRate[bug];
+	}
+
+	/**
+	 * Sets the maximum food consumption rate of a bug.
+	 *
+	 * @param bug
+	 *            index of the bug
+	 * @param value
+	 *            the new rate; <i>must be non-negative</i>
+	 */
+	public void setMaxConsumptionRate(final int bug, final double value) {
+		if (value < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter value = %f < 0.", value));
+		}
+
+		check(bug);
+		if (null == maxConsumptionRate) {
+			maxConsumptionRate = filled(size.length, defaultMaxConsumptionRate);
+		}
+
+		maxConsumptionRate[bug] = value;
+	}
+
+	/**
+	 * Returns the survival probability of a bug.
+	 *
+	 * @param bug
+	 *            index of the bug
+	 * @return the survival probability of the bug
+	 */
+	public double getSurvivalProbability(final int bug) {
+		check(bug);
+		return (null == survivalProbability) ? defaultSurvivalProbability
+				: survivalProbability[bug];
+	}
+
+	/**
+	 * Sets the survival probability of a bug.
+	 *
+	 * @param bug
+	 *            index of the bug
+	 * @param value
+	 *            the new probability; <i>must be on the interval
+	 *            <code>[0, 1]</code></i>
+	 */
+	public void setSurvivalProbability(final int bug, final double value) {
+		if (value < 0.0 || 1.0 < value) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter value=%f should be in interval [0, 1].", value));
+		}
+
+		check(bug);
+		if (null == survivalProbability) {
+			survivalProbability = filled(size.length,
+					defaultSurvivalProbability);
+		}
+
+		survivalProbability[bug] = value;
+	}
+
+	/**
+	 * Creates a checkpoint of the current state of the world.
+	 *
+	 * <p>
+	 * The random numbers of the world are keyed by the seed and the tick, so
+	 * a world restored from the checkpoint (see
+	 * {@link #restore(WorldCheckpoint)}) continues exactly as this one.
+	 * The checkpoint refers to the food field of the world, so it should be
+	 * written or restored before the next tick.
+	 * </p>
+	 *
+	 * @return a new checkpoint, sharing the food field but no bug arrays
+	 *         with the world
+	 */
+	public WorldCheckpoint createCheckpoint() {
+		final double[] maxConsumptionRates = (null == maxConsumptionRate) ? filled(
+				count, defaultMaxConsumptionRate) : Arrays.copyOf(
+				maxConsumptionRate, count);
+		final double[] survivalProbabilities = (null == survivalProbability) ? filled(
+				count, defaultSurvivalProbability) : Arrays.copyOf(
+				survivalProbability, count);
+
+		return new WorldCheckpoint(field, tick, seed,
+				defaultMaxConsumptionRate, defaultSurvivalProbability,
+				Arrays.copyOf(cell, count), Arrays.copyOf(size, count),
+				maxConsumptionRates, survivalProbabilities);
+	}
+
+	/**
+	 * Creates a world with the state stored in a checkpoint, without
+	 * replaying its ticks; the size statistics of the bugs are published.
+	 *
+	 * @param checkpoint
+	 *            the checkpoint to restore; <i>cannot be <code>null</code></i>
+	 * @return the restored world
+	 */
+	public static BugKernel restore(final WorldCheckpoint checkpoint) {
+		if (null == checkpoint) {
+			throw new IllegalArgumentException(
+					"Parameter checkpoint cannot be null.");
+		}
+
+		final BugKernel ret = new BugKernel(checkpoint.getWidth(),
+				checkpoint.getHeight(), checkpoint.getSeed(),
+				checkpoint.getPrecision());
+		ret.tick = checkpoint.getTick();
+
+		// Both fields have the precision of the checkpoint, so the values are
+		// copied exactly
+		final FoodField food = checkpoint.getFoodField();
+		for (int i = 0; i < food.size(); ++i) {
+			ret.field.setFood(i, food.getFood(i));
+			ret.field.setProductionRate(i, food.getProductionRate(i));
+		}
+
+		ret.setDefaultMaxConsumptionRate(checkpoint
+				.getDefaultMaxConsumptionRate());
+		ret.setDefaultSurvivalProbability(checkpoint
+				.getDefaultSurvivalProbability());
+
+		final int[] cells = checkpoint.getCells();
+		final double[] sizes = checkpoint.getSizes();
+		final double[] maxConsumptionRates = checkpoint
+				.getMaxConsumptionRates();
+		final double[] survivalProbabilities = checkpoint
+				.getSurvivalProbabilities();
+
+		// The per-bug arrays are created only if a bug differs from the
+		// defaults, like in a world that was not restored
+		for (int i = 0; i < cells.length; ++i) {
+			final int bug = ret.addBug(cells[i], sizes[i]);
+
+			if (maxConsumptionRates[i] != ret.defaultMaxConsumptionRate) {
+				ret.setMaxConsumptionRate(bug, maxConsumptionRates[i]);
+			}
+
+			if (survivalProbabilities[i] != ret.defaultSurvivalProbability) {
+				ret.setSurvivalProbability(bug, survivalProbabilities[i]);
+			}
+		}
+
+		ret.updateStatistics();
+		return ret;
+	}
+
+	/**
+	 * Creates an independent branch of the world, e.g. to continue it with
+	 * different parameters.
+	 *
+	 * <p>
+	 * The branch has the same tick, seed, food and bugs, so without changes it
+	 * continues exactly as this world. The food and the bugs are copied
+	 * eagerly, since every cell and every bug is updated in each tick; the
+	 * production rates of the cells are shared until either world changes
+	 * one. Parallel movement and the metrics are not inherited, and listeners
+	 * of the occupancy layer are not copied.
+	 * </p>
+	 *
+	 * <p>
+	 * The world must not be modified while it is forked, but its branches may
+	 * run concurrently with it and with each other.
+	 * </p>
+	 *
+	 * @return the new branch, publishing the same size statistics as this
+	 *         world
+	 */
+	public BugKernel fork() {
+		return new BugKernel(this);
+	}
+
+	/**
+	 * Creates a detached {@link Bug} object with the state of the specified
+	 * bug, e.g. for probing or displaying it.
+	 *
+	 * <p>
+	 * The returned object is not part of any context and it is not updated by
+	 * the kernel.
+	 * </p>
+	 *
+	 * @param bug
+	 *            index of the bug
+	 * @return a new bug with the same size and parameters
+	 */
+	public Bug createProbe(final int bug) {
+		final Bug ret = new Bug();
+		ret.setSize(getSize(bug));
+		ret.setMaxConsumptionRate(getMaxConsumptionRate(bug));
+		ret.setSurvivalProbability(getSurvivalProbability(bug));
+		return ret;
+	}
+
+	/**
+	 * Executes a whole tick: grows the food, then activates the bugs.
+	 *
+	 * @return <code>true</code> if there are living bugs after the tick
+	 */
+	public boolean tick() {
+		growFood();
+		activateBugs();
+		return count > 0;
+	}
+
+	/**
+	 * Starts a new tick by growing the food of every cell.
+	 *
+	 * @see FoodField#grow(RandomStreams, long)
+	 */
+	public void growFood() {
+		final long start = (null == metrics) ? 0 : metrics.start();
+
+		++tick;
+		events.tickStarted(tick, count);
+		field.grow(streams, tick);
+
+		if (metrics != null) {
+			metrics.stop(TickMetrics.Phase.GROW_FOOD, start);
+		}
+	}
+
+	/**
+	 * Moves, feeds, reproduces and kills the bugs in descending size order,
+	 * then removes the dead bugs from the arrays.
+	 */
+	public void activateBugs() {
+		final long queries = (null == metrics) ? 0 : query.getQueryCount()
+				+ occupancy.getQueryCount();
+		final long stepStart = (null == metrics) ? 0 : metrics.start();
+		final int n = count;
+		sortBySize();
+
+		final int moved = move(n);
+		final long growStart = lap(TickMetrics.Phase.STEP, stepStart);
+
+		for (int k = 0; k < n; ++k) {
+			feed(order[k]);
+		}
+
+		final long mortalityStart = lap(TickMetrics.Phase.GROW, growStart);
+
+		// The sizes of the surviving and the newborn bugs are recorded during
+		// the phase
+		statistics.reset();
+
+		for (int k = 0; k < n; ++k) {
+			final int bug = order[k];
+
+			if (size[bug] > Constants.BUG_REPRODUCTION_SIZE) {
+				reproduce(bug, k);
+				die(bug);
+				continue;
+			}
+
+			// The same check as SMUtils.prob(), with a keyed random number
+			final double survival = (null == survivalProbability) ? defaultSurvivalProbability
+					: survivalProbability[bug];
+			if (survival < streams.nextDouble(tick, k, MORTALITY_DRAW)) {
+				die(bug);
+			} else {
+				statistics.record(size[bug]);
+			}
+		}
+
+		final int born = count - n;
+		compact();
+		statistics.publish();
+
+		if (metrics != null) {
+			metrics.stop(TickMetrics.Phase.MORTALITY, mortalityStart);
+			metrics.add(TickMetrics.Counter.MOVED, moved);
+			metrics.add(TickMetrics.Counter.BORN, born);
+			metrics.add(TickMetrics.Counter.DIED, n + born - count);
+			metrics.add(TickMetrics.Counter.FREE_CELL_QUERIES,
+					query.getQueryCount() + occupancy.getQueryCount() - queries);
+		}
+
+		events.tickFinished(tick, count, born, n + born - count);
+	}
+
+	/**
+	 * Records the duration of a finished phase, if the metrics are recorded.
+	 *
+	 * @param phase
+	 *            the finished phase
+	 * @param start
+	 *            the start time of the phase
+	 * @return the end time of the phase, the start time of the next one
+	 */
+	private long lap(final TickMetrics.Phase phase, final long start) {
+		if (null == metrics) {
+			return 0;
+		}
+
+		final long ret = metrics.start();
+		metrics.record(phase, ret - start);
+		return ret;
+	}
+
+	/**
+	 * Moves the first bugs of the activation order.
+	 *
+	 * @param n
+	 *            number of bugs to move
+	 * @return the number of bugs moved to another cell
+	 */
+	private int move(final int n) {
+		final boolean reported = SimulationEvents.isEnabled();
+		int ret = 0;
+
+		if (parallelMovement != null) {
+			final int[] positions = new int[n];
+			for (int k = 0; k < n; ++k) {
+				positions[k] = cell[order[k]];
+			}
+
+			final int[] targets = parallelMovement.decide(positions, field);
+			for (int k = 0; k < n; ++k) {
+				if (reported) {
+					events.stepDecided(positions[k],
+							(targets[k] != positions[k]) ? targets[k] : -1);
+				}
+
+				if (targets[k] != positions[k]) {
+					occupancy.move(positions[k], targets[k]);
+					cell[order[k]] = targets[k];
+					++ret;
+				}
+			}
+
+			return ret;
+		}
+
+		for (int k = 0; k < n; ++k) {
+			final int bug = order[k];
+			final int target = query.getBestFreeCell(occupancy.getX(cell[bug]),
+					occupancy.getY(cell[bug]), Constants.BUG_VISION_RANGE);
+
+			if (reported) {
+				events.stepDecided(cell[bug], target);
+			}
+
+			if (target >= 0) {
+				occupancy.move(cell[bug], target);
+				cell[bug] = target;
+				++ret;
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Lets the specified bug eat the food of its cell and grow by the eaten
+	 * amount.
+	 *
+	 * @param bug
+	 *            index of the bug
+	 */
+	private void feed(final int bug) {
+		final double available = field.getFood(cell[bug]);
+		final double rate = (null == maxConsumptionRate) ? defaultMaxConsumptionRate
+				: maxConsumptionRate[bug];
+		final double eaten = Math.min(rate, available);
+
+		field.setFood(cell[bug], available - eaten);
+		size[bug] += eaten;
+	}
+
+	/**
+	 * Places the children of the specified bug at random free cells in its
+	 * reproduction range.
+	 *
+	 * @param bug
+	 *            index of the parent
+	 * @param rank
+	 *            position of the parent in the activation order
+	 */
+	private void reproduce(final int bug, final int rank) {
+		final int x = occupancy.getX(cell[bug]);
+		final int y = occupancy.getY(cell[bug]);
+
+		for (int i = 0; i < Constants.BUG_REPRODUCTION_RATE; ++i) {
+			final int freeCount = occupancy.getFreeCells(x, y,
+					Constants.BUG_REPRODUCTION_RANGE, freeCells);
+
+			if (0 == freeCount) {
+				break;
+			}
+
+			addBug(freeCells[streams.nextIntFromTo(tick, rank, 1 + i, 0,
+					freeCount - 1)], 0.0);
+			statistics.record(0.0);
+		}
+	}
+
+	/**
+	 * Marks the specified bug dead and frees its cell.
+	 *
+	 * @param bug
+	 *            index of the bug
+	 */
+	private void die(final int bug) {
+		occupancy.remove(cell[bug]);
+		cell[bug] = DEAD;
+	}
+
+	/**
+	 * Adds a new bug with the default parameters.
+	 *
+	 * @param index
+	 *            index of the cell of the bug
+	 * @param initialSize
+	 *            the size of the bug
+	 * @return the index of the new bug
+	 */
+	private int addBug(final int index, final double initialSize) {
+		if (count == size.length) {
+			final int capacity = 2 * size.length;
+			size = Arrays.copyOf(size, capacity);
+			cell = Arrays.copyOf(cell, capacity);
+			order = Arrays.copyOf(order, capacity);
+			sortBuffer = Arrays.copyOf(sortBuffer, capacity);
+
+			if (maxConsumptionRate != null) {
+				maxConsumptionRate = Arrays.copyOf(maxConsumptionRate, capacity);
+			}
+
+			if (survivalProbability != null) {
+				survivalProbability = Arrays.copyOf(survivalProbability,
+						capacity);
+			}
+		}
+
+		size[count] = initialSize;
+		cell[count] = index;
+
+		if (maxConsumptionRate != null) {
+			maxConsumptionRate[count] = defaultMaxConsumptionRate;
+		}
+
+		if (survivalProbability != null) {
+			survivalProbability[count] = defaultSurvivalProbability;
+		}
+
+		occupancy.add(index);
+		return count++;
+	}
+
+	/**
+	 * Removes the dead bugs from the arrays, keeping the order of the living
+	 * ones.
+	 */
+	private void compact() {
+		int next = 0;
+
+		for (int i = 0; i < count; ++i) {
+			if (DEAD == cell[i]) {
+				continue;
+			}
+
+			size[next] = size[i];
+			cell[next] = cell[i];
+
+			if (maxConsumptionRate != null) {
+				maxConsumptionRate[next] = maxConsumptionRate[i];
+			}
+
+			if (survivalProbability != null) {
+				survivalProbability[next] = survivalProbability[i];
+			}
+
+			++next;
+		}
+
+		count = next;
+	}
+
+	/**
+	 * Fills {@link #order} with the bug indices in descending size order,
+	 * keeping the index order of bugs with the same size (stable merge sort).
+	 */
+	private void sortBySize() {
+		for (int i = 0; i < count; ++i) {
+			order[i] = i;
+		}
+
+		int[] from = order;
+		int[] to = sortBuffer;
+
+		for (int width = 1; width < count; width *= 2) {
+			for (int lo = 0; lo < count; lo += 2 * width) {
+				final int mid = Math.min(lo + width, count);
+				final int hi = Math.min(lo + 2 * width, count);
+
+				int i = lo;
+				int j = mid;
+				for (int k = lo; k < hi; ++k) {
+					if (i < mid && (j >= hi || size[from[i]] >= size[from[j]])) {
+						to[k] = from[i++];
+					} else {
+						to[k] = from[j++];
+					}
+				}
+			}
+
+			final int[] swap = from;
+			from = to;
+			to = swap;
+		}
+
+		if (from != order) {
+			System.arraycopy(from, 0, order, 0, count);
+		}
+	}
+
+	/**
+	 * Verifies the index of a bug.
+	 *
+	 * @param bug
+	 *            the index to verify
+	 * @return the index
+	 */
+	private int check(final int bug) {
+		if (bug < 0 || bug >= count) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter bug = %d is not on the interval [0, %d).", bug,
+					count));
+		}
+
+		return bug;
+	}
+
+	/**
+	 * Creates an array filled with the specified value.
+	 *
+	 * @param length
+	 *            length of the array
+	 * @param value
+	 *            the value of the elements
+	 * @return the new array
+	 */
+	private static double[] filled(final int length, final double value) {
+		final double[] ret = new double[length];
+		Arrays.fill(ret, value);
+		return ret;
+	}
+
+}
@@ -0,0 +1,844 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.kernel;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+
+import stupidmodel.space.FoodField;
+
+/**
+ * Snapshot of the full state of a world between two ticks, stored in a
+ * compact binary file.
+ *
+ * <p>
+ * A checkpoint contains the dimensions and the food of the world, the state
+ * of each bug (its cell, size, maximum consumption rate and survival
+ * probability), the parameters of the new bugs, the tick and the seed of the
+ * counter-based random streams of the world. Checkpoints are created by
+ * {@link BugKernel#createCheckpoint()} and
+ * {@link stupidmodel.StupidModelContextBuilder#createCheckpoint()}, and they
+ * are restored without replaying the ticks by {@link BugKernel#restore}
+ * and by the context builder (see the <code>checkpointFile</code> parameter).
+ * </p>
+ *
+ * <p>
+ * The file is written and read sequentially through its channel and a
+ * direct buffer of 1 MiB, reused for the whole file, so no memory mapping
+ * outlives the call and the file can be renamed or deleted right after it
+ * is written. The arrays of the bugs are transferred in bulk and the cells
+ * are streamed from and to the food field. The layout is a fixed header (all numbers are big-endian):
+ * </p>
+ * <ul>
+ * <li>{@link #MAGIC}, {@link #VERSION}, width, height, precision (ordinal of
+ * {@link FoodField.Precision}) and the number of bugs as <code>int</code>
+ * values;</li>
+ * <li>the tick and the seed as <code>long</code> values;</li>
+ * <li>the default maximum consumption rate and survival probability as
+ * <code>double</code> values;</li>
+ * </ul>
+ * <p>
+ * followed by the arrays of the sizes, the maximum consumption rates and the
+ * survival probabilities of the bugs (as <code>double</code> values), the
+ * cell indices of the bugs (as <code>int</code> values), and the production
+ * rates and the food of the cells. The food and the production rates are
+ * stored in the precision of the food field, like in the memory: as
+ * <code>double</code> values in {@link FoodField.Precision#DOUBLE}
+ * precision, as <code>float</code> values in
+ * {@link FoodField.Precision#FLOAT} precision, and as <code>float</code>
+ * production rates and 16-bit fixed point food in
+ * {@link FoodField.Precision#FIXED16} precision, so a checkpoint takes 16, 8
+ * or 6 bytes per cell. To keep every value aligned to its size, the
+ * <code>double</code> arrays of the cells precede the cell indices of the
+ * bugs.
+ * </p>
+ *
+ * <p>
+ * The food field and the arrays are <i>not</i> copied by the constructor and
+ * the getters: the cells are transferred between the field and the file one
+ * by one, so the food is never held in another precision. A checkpoint is
+ * meant to be written or restored right after it is created, before its
+ * world changes; a checkpoint read from a file has its own food field, in
+ * the stored precision.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class WorldCheckpoint {
+
+	/** Magic number at the beginning of the files. */
+	public static final int MAGIC = 0x534D4350;
+
+	/** Version of the file format. */
+	public static final int VERSION = 2;
+
+	/** Size of the header in bytes. */
+	private static final int HEADER_SIZE = 6 * 4 + 2 * 8 + 2 * 8;
+
+	/** Size of the buffer of the transfers in bytes. */
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/** Food and production rates of the cells. */
+	private final FoodField field;
+
+	/** The tick of the state. */
+	private final long tick;
+
+	/** Seed of the random streams of the world. */
+	private final long seed;
+
+	/** Maximum consumption rate of the new bugs. */
+	private final double defaultMaxConsumptionRate;
+
+	/** Survival probability of the new bugs. */
+	private final double defaultSurvivalProbability;
+
+	/** Cell index of the bugs. */
+	private final int[] cells;
+
+	/** Size of the bugs. */
+	private final double[] sizes;
+
+	/** Maximum consumption rate of the bugs. */
+	private final double[] maxConsumptionRates;
+
+	/** Survival probability of the bugs. */
+	private final double[] survivalProbabilities;
+
+	/**
+	 * Creates a new checkpoint of the specified state.
+	 *
+	 * @param field
+	 *            food and production rates of the cells, which also define
+	 *            the dimensions of the world (not copied); <i>cannot be
+	 *            <code>null</code></i>
+	 * @param tick
+	 *            the tick of the state
+	 * @param seed
+	 *            seed of the random streams of the world
+	 * @param defaultMaxConsumptionRate
+	 *            maximum consumption rate of the new bugs
+	 * @param defaultSurvivalProbability
+	 *            survival probability of the new bugs
+	 * @param cells
+	 *            cell index of the bugs; <i>cannot be <code>null</code></i>
+	 * @param sizes
+	 *            size of the bugs; <i>must have the length of
+	 *            <code>cells</code></i>
+	 * @param maxConsumptionRates
+	 *            maximum consumption rate of the bugs; <i>must have the length
+	 *            of <code>cells</code></i>
+	 * @param survivalProbabilities
+	 *            survival probability of the bugs; <i>must have the length of
+	 *            <code>cells</code></i>
+	 */
+	public WorldCheckpoint(final FoodField field, final long tick,
+			final long seed, final double defaultMaxConsumptionRate,
+			final double defaultSurvivalProbability, final int[] cells,
+			final double[] sizes, final double[] maxConsumptionRates,
+			final double[] survivalProbabilities) {
+		if (null == field) {
+			throw new IllegalArgumentException("Parameter field cannot be null.");
+		}
+
+		if (null == cells || null == sizes || sizes.length != cells.length
+				|| null == maxConsumptionRates
+				|| maxConsumptionRates.length != cells.length
+				|| null == survivalProbabilities
+				|| survivalProbabilities.length != cells.length) {
+			throw new IllegalArgumentException(
+					"The bug arrays should have the same length.");
+		}
+
+		this.field = field;
+		this.tick = tick;
+		this.seed = seed;
+		this.defaultMaxConsumptionRate = defaultMaxConsumptionRate;
+		this.defaultSurvivalProbability = defaultSurvivalProbability;
+		this.cells = cells;
+		this.sizes = sizes;
+		this.maxConsumptionRates = maxConsumptionRates;
+		this.survivalProbabilities = survivalProbabilities;
+	}
+
+	/**
+	 * Returns the number of columns of the world.
+	 *
+	 * @return the width of the world
+	 */
+	public int getWidth() {
+		return field.getWidth();
+	}
+
+	/**
+	 * Returns the number of rows of the world.
+	 *
+	 * @return the height of the world
+	 */
+	public int getHeight() {
+		return field.getHeight();
+	}
+
+	/**
+	 * Returns the storage precision of the food field.
+	 *
+	 * @return the precision of the food field of the world
+	 */
+	public FoodField.Precision getPrecision() {
+		return field.getPrecision();
+	}
+
+	/**
+	 * Returns the tick of the state.
+	 *
+	 * @return the number of ticks executed before the checkpoint
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Returns the seed of the random streams of the world.
+	 *
+	 * @return the seed of the world
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the maximum consumption rate of the new bugs.
+	 *
+	 * @return the default maximum consumption rate of the world
+	 */
+	public double getDefaultMaxConsumptionRate() {
+		return defaultMaxConsumptionRate;
+	}
+
+	/**
+	 * Returns the survival probability of the new bugs.
+	 *
+	 * @return the default survival probability of the world
+	 */
+	public double getDefaultSurvivalProbability() {
+		return defaultSurvivalProbability;
+	}
+
+	/**
+	 * Returns the food and the production rates of the cells.
+	 *
+	 * @return the food field of the checkpoint (not copied)
+	 */
+	public FoodField getFoodField() {
+		return field;
+	}
+
+	/**
+	 * Returns the number of bugs.
+	 *
+	 * @return the number of living bugs
+	 */
+	public int getBugCount() {
+		return cells.length;
+	}
+
+	/**
+	 * Returns the cell indices of the bugs.
+	 *
+	 * @return the cell index of each bug (not copied)
+	 */
+	public int[] getCells() {
+		return cells;
+	}
+
+	/**
+	 * Returns the sizes of the bugs.
+	 *
+	 * @return the size of each bug (not copied)
+	 */
+	public double[] getSizes() {
+		return sizes;
+	}
+
+	/**
+	 * Returns the maximum consumption rates of the bugs.
+	 *
+	 * @return the maximum consumption rate of each bug (not copied)
+	 */
+	public double[] getMaxConsumptionRates() {
+		return maxConsumptionRates;
+	}
+
+	/**
+	 * Returns the survival probabilities of the bugs.
+	 *
+	 * @return the survival probability of each bug (not copied)
+	 */
+	public double[] getSurvivalProbabilities() {
+		return survivalProbabilities;
+	}
+
+	/**
+	 * Writes the checkpoint to a file.
+	 *
+	 * @param file
+	 *            the output file, overwritten if it exists; <i>cannot be
+	 *            <code>null</code></i>
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public void write(final File file) throws IOException {
+		write(file, BUFFER_SIZE);
+	}
+
+	/**
+	 * Writes the checkpoint to a file through a buffer of the specified
+	 * size.
+	 *
+	 * @param file
+	 *            the output file, overwritten if it exists; <i>cannot be
+	 *            <code>null</code></i>
+	 * @param bufferSize
+	 *            size of the buffer in bytes; <i>must be at least
+	 *            the size of the header</i>
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	void write(final File file, final int bufferSize) throws IOException {
+		if (null == file) {
+			throw new IllegalArgumentException("Parameter file cannot be null.");
+		}
+
+		final FoodField.Precision precision = field.getPrecision();
+		final RandomAccessFile out = new RandomAccessFile(file, "rw");
+
+		try {
+			out.setLength(getFileSize(field.size(), cells.length, precision));
+			final BufferedFile buffered = new BufferedFile(out.getChannel(),
+					true, bufferSize);
+
+			final ByteBuffer header = buffered.next(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(field.getWidth());
+			header.putInt(field.getHeight());
+			header.putInt(precision.ordinal());
+			header.putInt(cells.length);
+			header.putLong(tick);
+			header.putLong(seed);
+			header.putDouble(defaultMaxConsumptionRate);
+			header.putDouble(defaultSurvivalProbability);
+
+			putDoubles(buffered, sizes);
+			putDoubles(buffered, maxConsumptionRates);
+			putDoubles(buffered, survivalProbabilities);
+
+			if (FoodField.Precision.DOUBLE == precision) {
+				putCells(buffered, field, true, false);
+				putCells(buffered, field, false, false);
+			}
+
+			putInts(buffered, cells);
+
+			if (FoodField.Precision.DOUBLE != precision) {
+				putCells(buffered, field, true, true);
+			}
+
+			if (FoodField.Precision.FLOAT == precision) {
+				putCells(buffered, field, false, true);
+			} else if (FoodField.Precision.FIXED16 == precision) {
+				putFixedPoints(buffered, field);
+			}
+
+			buffered.flush();
+			out.getChannel().force(false);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads a checkpoint from a file.
+	 *
+	 * @param file
+	 *            the file written by {@link #write(File)}; <i>cannot be
+	 *            <code>null</code></i>
+	 * @return the checkpoint stored in the file
+	 * @throws IOException
+	 *             if the file cannot be read or it is not a valid checkpoint
+	 */
+	public static WorldCheckpoint read(final File file) throws IOException {
+		return read(file, BUFFER_SIZE);
+	}
+
+	/**
+	 * Reads a checkpoint from a file through a buffer of the specified
+	 * size.
+	 *
+	 * @param file
+	 *            the file written by {@link #write(File)}; <i>cannot be
+	 *            <code>null</code></i>
+	 * @param bufferSize
+	 *            size of the buffer in bytes; <i>must be at least
+	 *            the size of the header</i>
+	 * @return the checkpoint stored in the file
+	 * @throws IOException
+	 *             if the file cannot be read or it is not a valid checkpoint
+	 */
+	static WorldCheckpoint read(final File file, final int bufferSize)
+			throws IOException {
+		if (null == file) {
+			throw new IllegalArgumentException("Parameter file cannot be null.");
+		}
+
+		final RandomAccessFile in = new RandomAccessFile(file, "r");
+
+		try {
+			final long length = in.length();
+			if (length < HEADER_SIZE) {
+				throw new IOException("Not a checkpoint file: " + file);
+			}
+
+			final BufferedFile buffered = new BufferedFile(in.getChannel(),
+					false, bufferSize);
+			final ByteBuffer header = buffered.next(HEADER_SIZE);
+
+			if (header.getInt() != MAGIC) {
+				throw new IOException("Not a checkpoint file: " + file);
+			}
+
+			final int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException(String.format(
+						"Unsupported version %d of checkpoint %s.", version,
+						file));
+			}
+
+			final int width = header.getInt();
+			final int height = header.getInt();
+			final int ordinal = header.getInt();
+			final int bugCount = header.getInt();
+
+			if (width < 1 || height < 1 || bugCount < 0 || ordinal < 0
+					|| ordinal >= FoodField.Precision.values().length
+					|| (long) width * height > Integer.MAX_VALUE) {
+				throw new IOException("Corrupt checkpoint file: " + file);
+			}
+
+			final FoodField.Precision precision = FoodField.Precision.values()[ordinal];
+			if (length != getFileSize((long) width * height, bugCount,
+					precision)) {
+				throw new IOException("Corrupt checkpoint file: " + file);
+			}
+
+			final long tick = header.getLong();
+			final long seed = header.getLong();
+			final double defaultMaxConsumptionRate = header.getDouble();
+			final double defaultSurvivalProbability = header.getDouble();
+
+			final FoodField field = new FoodField(width, height, precision);
+			final double[] sizes = new double[bugCount];
+			final double[] maxConsumptionRates = new double[bugCount];
+			final double[] survivalProbabilities = new double[bugCount];
+			final int[] cells = new int[bugCount];
+
+			getDoubles(buffered, sizes);
+			getDoubles(buffered, maxConsumptionRates);
+			getDoubles(buffered, survivalProbabilities);
+
+			if (FoodField.Precision.DOUBLE == precision) {
+				getCells(buffered, field, true, false);
+				getCells(buffered, field, false, false);
+			}
+
+			getInts(buffered, cells);
+
+			if (FoodField.Precision.DOUBLE != precision) {
+				getCells(buffered, field, true, true);
+			}
+
+			if (FoodField.Precision.FLOAT == precision) {
+				getCells(buffered, field, false, true);
+			} else if (FoodField.Precision.FIXED16 == precision) {
+				getFixedPoints(buffered, field);
+			}
+
+			for (final int cell : cells) {
+				if (cell < 0 || cell >= field.size()) {
+					throw new IOException(String.format(
+							"Corrupt checkpoint file %s: bug at cell %d.",
+							file, cell));
+				}
+			}
+
+			return new WorldCheckpoint(field, tick, seed,
+					defaultMaxConsumptionRate, defaultSurvivalProbability,
+					cells, sizes, maxConsumptionRates, survivalProbabilities);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the size of a checkpoint file.
+	 *
+	 * @param cellCount
+	 *            number of cells of the world
+	 * @param bugCount
+	 *            number of bugs
+	 * @param precision
+	 *            storage precision of the food field
+	 * @return the size of the file in bytes
+	 */
+	private static long getFileSize(final long cellCount, final long bugCount,
+			final FoodField.Precision precision) {
+		final int cellSize;
+		switch (precision) {
+		case DOUBLE:
+			cellSize = 8 + 8;
+			break;
+		case FLOAT:
+			cellSize = 4 + 4;
+			break;
+		default:
+			cellSize = 4 + 2;
+			break;
+		}
+
+		return HEADER_SIZE + cellSize * cellCount + (3 * 8 + 4) * bugCount;
+	}
+
+	/**
+	 * Writes an array as <code>double</code> values.
+	 *
+	 * @param file
+	 *            the file
+	 * @param values
+	 *            the values to write
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	private static void putDoubles(final BufferedFile file,
+			final double[] values) throws IOException {
+		final int capacity = file.getCapacity(8);
+
+		for (int from = 0; from < values.length; from += capacity) {
+			final int count = Math.min(capacity, values.length - from);
+			file.next(8 * count).asDoubleBuffer().put(values, from, count);
+		}
+	}
+
+	/**
+	 * Reads an array of <code>double</code> values.
+	 *
+	 * @param file
+	 *            the file
+	 * @param values
+	 *            the array to fill
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private static void getDoubles(final BufferedFile file,
+			final double[] values) throws IOException {
+		final int capacity = file.getCapacity(8);
+
+		for (int from = 0; from < values.length; from += capacity) {
+			final int count = Math.min(capacity, values.length - from);
+			file.next(8 * count).asDoubleBuffer().get(values, from, count);
+		}
+	}
+
+	/**
+	 * Writes the food or the production rates of the cells of a field.
+	 *
+	 * @param file
+	 *            the file
+	 * @param field
+	 *            the written field
+	 * @param productionRate
+	 *            indicates if the production rates are written instead of the
+	 *            food
+	 * @param single
+	 *            indicates if the values are written as <code>float</code>
+	 *            values instead of <code>double</code> values
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	private static void putCells(final BufferedFile file, final FoodField field,
+			final boolean productionRate, final boolean single)
+			throws IOException {
+		final int valueSize = single ? 4 : 8;
+		final int capacity = file.getCapacity(valueSize);
+
+		for (int from = 0; from < field.size(); from += capacity) {
+			final int count = Math.min(capacity, field.size() - from);
+			final ByteBuffer buffer = file.next(valueSize * count);
+
+			for (int i = from; i < from + count; ++i) {
+				final double value = productionRate ? field
+						.getProductionRate(i) : field.getFood(i);
+				if (single) {
+					buffer.putFloat((float) value);
+				} else {
+					buffer.putDouble(value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the food or the production rates of the cells of a field.
+	 *
+	 * @param file
+	 *            the file
+	 * @param field
+	 *            the field to fill
+	 * @param productionRate
+	 *            indicates if the production rates are read instead of the
+	 *            food
+	 * @param single
+	 *            indicates if the values are stored as <code>float</code>
+	 *            values instead of <code>double</code> values
+	 * @throws IOException
+	 *             if the file cannot be read or it contains a negative value
+	 */
+	private static void getCells(final BufferedFile file, final FoodField field,
+			final boolean productionRate, final boolean single)
+			throws IOException {
+		final int valueSize = single ? 4 : 8;
+		final int capacity = file.getCapacity(valueSize);
+
+		for (int from = 0; from < field.size(); from += capacity) {
+			final int count = Math.min(capacity, field.size() - from);
+			final ByteBuffer buffer = file.next(valueSize * count);
+
+			for (int i = from; i < from + count; ++i) {
+				final double value = single ? buffer.getFloat() : buffer
+						.getDouble();
+				if (!(value >= 0)) {
+					throw new IOException(String.format(
+							"Corrupt checkpoint: cell %d has a value of %f.",
+							i, value));
+				}
+
+				if (productionRate) {
+					field.setProductionRate(i, value);
+				} else {
+					field.setFood(i, value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the food of the cells of a field as 16-bit fixed point values
+	 * (see {@link FoodField#toFixedPoint(double)}).
+	 *
+	 * @param file
+	 *            the file
+	 * @param field
+	 *            the written field
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	private static void putFixedPoints(final BufferedFile file,
+			final FoodField field) throws IOException {
+		final int capacity = file.getCapacity(2);
+
+		for (int from = 0; from < field.size(); from += capacity) {
+			final int count = Math.min(capacity, field.size() - from);
+			final CharBuffer buffer = file.next(2 * count).asCharBuffer();
+
+			for (int i = from; i < from + count; ++i) {
+				buffer.put(FoodField.toFixedPoint(field.getFood(i)));
+			}
+		}
+	}
+
+	/**
+	 * Reads the food of the cells of a field stored as 16-bit fixed point
+	 * values.
+	 *
+	 * @param file
+	 *            the file
+	 * @param field
+	 *            the field to fill
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private static void getFixedPoints(final BufferedFile file,
+			final FoodField field) throws IOException {
+		final int capacity = file.getCapacity(2);
+
+		for (int from = 0; from < field.size(); from += capacity) {
+			final int count = Math.min(capacity, field.size() - from);
+			final CharBuffer buffer = file.next(2 * count).asCharBuffer();
+
+			for (int i = from; i < from + count; ++i) {
+				field.setFood(i, FoodField.fromFixedPoint(buffer.get()));
+			}
+		}
+	}
+
+	/**
+	 * Writes an array of <code>int</code> values.
+	 *
+	 * @param file
+	 *            the file
+	 * @param values
+	 *            the values to write
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	private static void putInts(final BufferedFile file, final int[] values)
+			throws IOException {
+		final int capacity = file.getCapacity(4);
+
+		for (int from = 0; from < values.length; from += capacity) {
+			final int count = Math.min(capacity, values.length - from);
+			file.next(4 * count).asIntBuffer().put(values, from, count);
+		}
+	}
+
+	/**
+	 * Reads an array of <code>int</code> values.
+	 *
+	 * @param file
+	 *            the file
+	 * @param values
+	 *            the array to fill
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private static void getInts(final BufferedFile file, final int[] values)
+			throws IOException {
+		final int capacity = file.getCapacity(4);
+
+		for (int from = 0; from < values.length; from += capacity) {
+			final int count = Math.min(capacity, values.length - from);
+			file.next(4 * count).asIntBuffer().get(values, from, count);
+		}
+	}
+
+	/**
+	 * Sequential access to a file through a reused direct buffer, written to
+	 * or filled from the channel of the file when it is full or exhausted.
+	 * Unlike memory-mapped buffers, which stay mapped until they are garbage
+	 * collected (and keep the file locked on some platforms), nothing refers
+	 * to the file once its channel is closed.
+	 */
+	private static final class BufferedFile {
+
+		/** Channel of the file. */
+		private final FileChannel channel;
+
+		/** Indicates if the file is written instead of read. */
+		private final boolean writing;
+
+		/**
+		 * The buffered bytes: the bytes to write before the position when
+		 * writing, the bytes not yet read between the position and the limit
+		 * when reading.
+		 */
+		private final ByteBuffer buffer;
+
+		/**
+		 * Creates a new instance, positioned at the beginning of the file.
+		 *
+		 * @param channel
+		 *            channel of the file
+		 * @param writing
+		 *            indicates if the file is written instead of read
+		 * @param bufferSize
+		 *            size of the buffer in bytes
+		 */
+		BufferedFile(final FileChannel channel, final boolean writing,
+				final int bufferSize) {
+			if (bufferSize < HEADER_SIZE) {
+				throw new IllegalArgumentException(String.format(
+						"Parameter bufferSize = %d < %d.", bufferSize,
+						HEADER_SIZE));
+			}
+
+			this.channel = channel;
+			this.writing = writing;
+			this.buffer = ByteBuffer.allocateDirect(bufferSize);
+
+			if (!writing) {
+				buffer.limit(0);
+			}
+		}
+
+		/**
+		 * Returns the number of values fitting in the buffer.
+		 *
+		 * @param valueSize
+		 *            size of a value in bytes
+		 * @return the maximal number of values transferred at once
+		 */
+		int getCapacity(final int valueSize) {
+			return buffer.capacity() / valueSize;
+		}
+
+		/**
+		 * Returns a buffer of the next bytes of the file, and moves over
+		 * them; the buffered bytes are written or more bytes are read if the
+		 * buffer does not contain them.
+		 *
+		 * @param bytes
+		 *            number of bytes; <i>at most the buffer size</i>
+		 * @return a big-endian buffer of the bytes, valid until the next call
+		 * @throws IOException
+		 *             if the file cannot be written or read, or it ends
+		 */
+		ByteBuffer next(final int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				if (writing) {
+					flush();
+				} else {
+					buffer.compact();
+					while (buffer.position() < bytes) {
+						if (channel.read(buffer) < 0) {
+							throw new EOFException(
+									"Unexpected end of checkpoint file.");
+						}
+					}
+
+					buffer.flip();
+				}
+			}
+
+			final ByteBuffer ret = buffer.slice();
+			ret.limit(bytes);
+			buffer.position(buffer.position() + bytes);
+			return ret;
+		}
+
+		/**
+		 * Writes the buffered bytes to the file.
+		 *
+		 * @throws IOException
+		 *             if the file cannot be written
+		 */
+		void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+
+			buffer.clear();
+		}
+
+	}
+
+}
@@ -1,67 +1,94 @@
-/*
- * Version info:
- *     $HeadURL: https://cscs-repast-demos.googlecode.com/svn/richard/StupidModel/tags/2011_06_12_model_11/src/stupidmodel/observer/BugStyleOGL2D.java $
- *     $LastChangedDate: 2011-07-17 10:37:32 +0200 (V, 17 júl. 2011) $
- *     $LastChangedRevision: 740 $
- *     $LastChangedBy: richard.legendi@gmail.com $
- */
-package stupidmodel.observer;
-
-import java.awt.Color;
-
-import repast.simphony.visualizationOGL2D.DefaultStyleOGL2D;
-import stupidmodel.agents.Bug;
-
-/**
- * A simple custom color implementation for {@link Bug} agents.
- * 
- * <p>
- * A bug's color on the display is shaded to reflect their size: it shades from
- * white (when size is zero) to red (when size is 10 or greater).
- * </p>
- * 
- * @author Richard O. Legendi (richard.legendi)
- * @since 2.0-beta, 2011
- * @version $Id: BugStyleOGL2D.java 183 2011-05-29 17:09:27Z
- *          richard.legendi@gmail.com $
- */
-public class BugStyleOGL2D extends DefaultStyleOGL2D {
-
-	/**
-	 * {@inheritDoc}
-	 * 
-	 * <p>
-	 * Returns a modified color value for an agent. Bit tricky, though, contains
-	 * a minor hex-magic to determine the actual color value.
-	 * </p>
-	 * 
-	 * @param agent
-	 *            the agent whose color should be determined; <i>may be null</i>
-	 * @return the color for the specified {@link Bug} agent created as
-	 *         <code>new Color(0xFF, strength, strength)</code> (where
-	 *         <code>strength = 255 - size of the bug</code>); <i>or
-	 *         <code>Color.BLUE</code> if the parameter was <code>null</code>
-	 *         </i>
-	 * @see repast.simphony.visualizationOGL2D.DefaultStyleOGL2D#getColor(java.lang.Object)
-	 */
-	@Override
-	public Color getColor(final Object agent) {
-		if (agent instanceof Bug) {
-			final Bug bug = (Bug) agent;
-
-			if (bug.getSize() < 0) {
-				throw new IllegalStateException(
-						String.format(
-								"An agent's size property should be non-negative, but its current value is %f.",
-								bug.getSize()));
-			}
-
-			final int strength = (int) Math.max(200 - 20 * bug.getSize(), 0);
-			return new Color(0xFF, strength, strength); // 0xFFFFFF - white,
-														// 0xFF0000 - red
-		}
-
-		return super.getColor(agent);
-	}
-
-}
+/*
+ * Version info:
+ *     $HeadURL: https://cscs-repast-demos.googlecode.com/svn/richard/StupidModel/tags/2011_06_12_model_11/src/stupidmodel/observer/BugStyleOGL2D.java $
+ *     $LastChangedDate: 2011-07-17 10:37:32 +0200 (V, 17 júl. 2011) $
+ *     $LastChangedRevision: 740 $
+ *     $LastChangedBy: richard.legendi@gmail.com $
+ */
+package stupidmodel.observer;
+
+import java.awt.Color;
+
+import repast.simphony.visualizationOGL2D.DefaultStyleOGL2D;
+import stupidmodel.agents.Bug;
+
+/**
+ * A simple custom color implementation for {@link Bug} agents.
+ * 
+ * <p>
+ * A bug's color on the display is shaded to reflect their size: it shades from
+ * white (when size is zero) to red (when size is 10 or greater).
+ * </p>
+ * 
+ * @author Richard O. Legendi (richard.legendi)
+ * @since 2.0-beta, 2011
+ * @version $Id: BugStyleOGL2D.java 183 2011-05-29 17:09:27Z
+ *          richard.legendi@gmail.com $
+ */
+public class BugStyleOGL2D extends DefaultStyleOGL2D {
+
+	/** The maximal strength of the green and blue components (white-ish). */
+	private static final int MAX_STRENGTH = 200;
+
+	/**
+	 * The colors of the possible strengths, so no new {@link Color} object is
+	 * created for each bug in each frame; <code>PALETTE[strength]</code> is
+	 * <code>new Color(0xFF, strength, strength)</code>.
+	 */
+	private static final Color[] PALETTE = new Color[MAX_STRENGTH + 1];
+
+	static {
+		for (int strength = 0; strength <= MAX_STRENGTH; ++strength) {
+			PALETTE[strength] = new Color(0xFF, strength, strength);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * Returns a modified color value for an agent. Bit tricky, though, contains
+	 * a minor hex-magic to determine the actual color value.
+	 * </p>
+	 * 
+	 * @param agent
+	 *            the agent whose color should be determined; <i>may be null</i>
+	 * @return the color for the specified {@link Bug} agent created as
+	 *         <code>new Color(0xFF, strength, strength)</code> (where
+	 *         <code>strength = 255 - size of the bug</code>); <i>or
+	 *         <code>Color.BLUE</code> if the parameter was <code>null</code>
+	 *         </i>; the same instance is returned for the same strength
+	 * @see repast.simphony.visualizationOGL2D.DefaultStyleOGL2D#getColor(java.lang.Object)
+	 */
+	@Override
+	public Color getColor(final Object agent) {
+		if (agent instanceof Bug) {
+			final Bug bug = (Bug) agent;
+
+			if (bug.getSize() < 0) {
+				throw new IllegalStateException(
+						String.format(
+								"An agent's size property should be non-negative, but its current value is %f.",
+								bug.getSize()));
+			}
+
+			return PALETTE[getStrength(bug.getSize())]; // 0xFFFFFF - white,
+															// 0xFF0000 - red
+		}
+
+		return super.getColor(agent);
+	}
+
+	/**
+	 * Returns the strength of the green and blue components of the color of a
+	 * bug.
+	 * 
+	 * @param size
+	 *            the size of the bug; <i>must be non-negative</i>
+	 * @return the strength on the interval <code>[0, 200]</code>
+	 */
+	static int getStrength(final double size) {
+		return (int) Math.max(MAX_STRENGTH - 20 * size, 0);
+	}
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.observer;
+
+import repast.simphony.space.Dimensions;
+import stupidmodel.common.Constants;
+
+/**
+ * Color implementation of the food overview layer, a level of the
+ * {@link stupidmodel.space.WorldPyramid} of the world.
+ *
+ * <p>
+ * The blocks are shaded like the cells of the food display (see
+ * {@link FoodValueLayerStyleOGL}), but they are sized so the whole layer fits
+ * the overview display of {@link Constants#GUI_OVERVIEW_SIZE} pixels,
+ * whatever the size of the world is.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class FoodOverviewStyleOGL extends FoodValueLayerStyleOGL {
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * Returns the size of a block fitting the layer to the overview display,
+	 * or the default cell size before the style is initialized.
+	 * </p>
+	 *
+	 * @see repast.simphony.visualizationOGL2D.ValueLayerStyleOGL#getCellSize()
+	 */
+	@Override
+	public float getCellSize() {
+		if (null == layer) {
+			return Constants.GUI_CELL_SIZE;
+		}
+
+		final Dimensions dimensions = layer.getDimensions();
+		return Constants.GUI_OVERVIEW_SIZE
+				/ (float) Math.max(dimensions.getWidth(),
+						dimensions.getHeight());
+	}
+
+}
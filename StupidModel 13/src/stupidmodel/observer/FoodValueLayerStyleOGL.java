@@ -1,106 +1,155 @@
-/*
- * Version info:
- *     $HeadURL: https://cscs-repast-demos.googlecode.com/svn/richard/StupidModel/tags/2011_06_12_model_11/src/stupidmodel/observer/FoodValueLayerStyleOGL.java $
- *     $LastChangedDate: 2011-07-17 10:37:32 +0200 (V, 17 júl. 2011) $
- *     $LastChangedRevision: 740 $
- *     $LastChangedBy: richard.legendi@gmail.com $
- */
-package stupidmodel.observer;
-
-import java.awt.Color;
-
-import repast.simphony.valueLayer.ValueLayer;
-import repast.simphony.visualizationOGL2D.ValueLayerStyleOGL;
-import stupidmodel.agents.HabitatCell;
-import stupidmodel.common.Constants;
-
-/**
- * A simple custom color implementation for {@link HabitatCell} food production
- * values.
- * 
- * <p>
- * A cell's color on the display is shaded to reflect the food available on
- * them: it shades from black (when available food is zero) to green (when food
- * is <code>1</code> or greater).
- * </p>
- * 
- * @author rlegendi
- * @author Richard O. Legendi (richard.legendi)
- * @since 2.0-beta, 2011
- * @since Model 3
- * @version $Id: FoodValueLayerStyleOGL.java 183 2011-05-29 17:09:27Z
- *          richard.legendi@gmail.com $
- */
-public class FoodValueLayerStyleOGL implements ValueLayerStyleOGL {
-
-	/** The <code>ValueLayer</code> object to reflect its values. */
-	protected ValueLayer layer = null; // Protected to access from the same
-										// package for testing
-
-	/**
-	 * {@inheritDoc}
-	 * 
-	 * <p>
-	 * We keep a reference for the specified <code>ValueLayer</code> instance.
-	 * </p>
-	 * 
-	 * @param layer
-	 *            {@inheritDoc}; <i>cannot be <code>null</code></i>
-	 * @see repast.simphony.visualizationOGL2D.ValueLayerStyleOGL#init(repast.simphony.valueLayer.ValueLayer)
-	 */
-	@Override
-	public void init(final ValueLayer layer) {
-		if (null == layer) {
-			throw new IllegalArgumentException(
-					"Parameter layer cannot be null.");
-		}
-
-		if (this.layer != null) {
-			throw new IllegalStateException(
-					String.format("Food value layer should not be reinitialized with a new ValueLayer instance."));
-		}
-
-		this.layer = layer;
-	}
-
-	/**
-	 * {@inheritDoc}
-	 * 
-	 * <p>
-	 * Returns the default value (<code>15.0f</code>) that is used by the
-	 * wizards when a new display is created.
-	 * </p>
-	 * 
-	 * @see repast.simphony.visualizationOGL2D.ValueLayerStyleOGL#getCellSize()
-	 */
-	@Override
-	public float getCellSize() {
-		return Constants.GUI_CELL_SIZE;
-	}
-
-	/**
-	 * {@inheritDoc}
-	 * 
-	 * <p>
-	 * Returns a modified color value for a cell. Bit tricky, though, contains a
-	 * minor hex-magic to determine the actual color value.
-	 * </p>
-	 * 
-	 * @see repast.simphony.visualizationOGL2D.ValueLayerStyleOGL#getColor(double[])
-	 */
-	@Override
-	public Color getColor(final double... coordinates) {
-		final double food = layer.get(coordinates);
-
-		if (food < 0) {
-			throw new IllegalStateException(
-					String.format(
-							"A cell's food availability property should be non-negative, but its current value is %f.",
-							food));
-		}
-
-		final int strength = (int) Math.min(200 * food, 255);
-		return new Color(0, strength, 0); // 0x000000 - black,
-											// 0x00FF00 - green
-	}
-}
+/*
+ * Version info:
+ *     $HeadURL: https://cscs-repast-demos.googlecode.com/svn/richard/StupidModel/tags/2011_06_12_model_11/src/stupidmodel/observer/FoodValueLayerStyleOGL.java $
+ *     $LastChangedDate: 2011-07-17 10:37:32 +0200 (V, 17 júl. 2011) $
+ *     $LastChangedRevision: 740 $
+ *     $LastChangedBy: richard.legendi@gmail.com $
+ */
+package stupidmodel.observer;
+
+import java.awt.Color;
+
+import repast.simphony.valueLayer.ValueLayer;
+import repast.simphony.visualizationOGL2D.ValueLayerStyleOGL;
+import stupidmodel.agents.HabitatCell;
+import stupidmodel.common.Constants;
+
+/**
+ * A simple custom color implementation for {@link HabitatCell} food production
+ * values.
+ * 
+ * <p>
+ * A cell's color on the display is shaded to reflect the food available on
+ * them: it shades from black (when available food is zero) to green (when food
+ * is <code>1</code> or greater).
+ * </p>
+ * 
+ * <p>
+ * The colors are computed for every cell in each frame, they are not tracked
+ * between the frames: a cell produces up to two color steps of food in a
+ * tick, so the color of most cells that are not saturated changes in every
+ * tick anyway.
+ * </p>
+ * 
+ * @author rlegendi
+ * @author Richard O. Legendi (richard.legendi)
+ * @since 2.0-beta, 2011
+ * @since Model 3
+ * @version $Id: FoodValueLayerStyleOGL.java 183 2011-05-29 17:09:27Z
+ *          richard.legendi@gmail.com $
+ */
+public class FoodValueLayerStyleOGL implements ValueLayerStyleOGL {
+
+	/** The maximal strength of the green component. */
+	private static final int MAX_STRENGTH = 255;
+
+	/** Strength of the green component for one unit of food. */
+	private static final double STRENGTH_PER_FOOD = 200.0;
+
+	/**
+	 * Food above which cells are displayed with the maximal strength, so the
+	 * palette index is not computed for them.
+	 */
+	private static final double SATURATION_FOOD = MAX_STRENGTH
+			/ STRENGTH_PER_FOOD;
+
+	/**
+	 * The colors of the possible strengths, so no new {@link Color} object is
+	 * created for each cell in each frame; <code>PALETTE[strength]</code> is
+	 * <code>new Color(0, strength, 0)</code>.
+	 */
+	private static final Color[] PALETTE = new Color[MAX_STRENGTH + 1];
+
+	static {
+		for (int strength = 0; strength <= MAX_STRENGTH; ++strength) {
+			PALETTE[strength] = new Color(0, strength, 0);
+		}
+	}
+
+	/** The <code>ValueLayer</code> object to reflect its values. */
+	protected ValueLayer layer = null; // Protected to access from the same
+										// package for testing
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * We keep a reference for the specified <code>ValueLayer</code> instance.
+	 * </p>
+	 * 
+	 * @param layer
+	 *            {@inheritDoc}; <i>cannot be <code>null</code></i>
+	 * @see repast.simphony.visualizationOGL2D.ValueLayerStyleOGL#init(repast.simphony.valueLayer.ValueLayer)
+	 */
+	@Override
+	public void init(final ValueLayer layer) {
+		if (null == layer) {
+			throw new IllegalArgumentException(
+					"Parameter layer cannot be null.");
+		}
+
+		if (this.layer != null) {
+			throw new IllegalStateException(
+					String.format("Food value layer should not be reinitialized with a new ValueLayer instance."));
+		}
+
+		this.layer = layer;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * Returns the default value (<code>15.0f</code>) that is used by the
+	 * wizards when a new display is created.
+	 * </p>
+	 * 
+	 * @see repast.simphony.visualizationOGL2D.ValueLayerStyleOGL#getCellSize()
+	 */
+	@Override
+	public float getCellSize() {
+		return Constants.GUI_CELL_SIZE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * <p>
+	 * Returns a modified color value for a cell. Bit tricky, though, contains a
+	 * minor hex-magic to determine the actual color value. The colors are taken
+	 * from a precomputed palette, the same instance is returned for the same
+	 * strength.
+	 * </p>
+	 * 
+	 * @see repast.simphony.visualizationOGL2D.ValueLayerStyleOGL#getColor(double[])
+	 */
+	@Override
+	public Color getColor(final double... coordinates) {
+		final double food = layer.get(coordinates);
+
+		if (food < 0) {
+			throw new IllegalStateException(
+					String.format(
+							"A cell's food availability property should be non-negative, but its current value is %f.",
+							food));
+		}
+
+		return PALETTE[getStrength(food)];
+	}
+
+	/**
+	 * Returns the strength of the green component of the color of a cell;
+	 * also used by the headless {@link FrameRenderer}.
+	 * 
+	 * @param food
+	 *            the food available at the cell; <i>must be non-negative</i>
+	 * @return the strength on the interval <code>[0, 255]</code>
+	 */
+	static int getStrength(final double food) {
+		if (food >= SATURATION_FOOD) {
+			return MAX_STRENGTH; // 0x00FF00 - green
+		}
+
+		return (int) (STRENGTH_PER_FOOD * food); // 0x000000 - black
+	}
+}
@@ -0,0 +1,399 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.observer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import stupidmodel.common.Constants;
+import stupidmodel.kernel.BugKernel;
+import stupidmodel.space.FoodField;
+import stupidmodel.space.WorldPyramid;
+
+/**
+ * Headless renderer writing the state of a {@link BugKernel} world to a
+ * sequence of PNG images, without an OpenGL display.
+ *
+ * <p>
+ * Frames are rasterized directly from the food field and the bug arrays of
+ * the world with the color rules of the interactive display (see
+ * {@link FoodValueLayerStyleOGL} and {@link BugStyleOGL2D}): each cell is a
+ * square of <code>cellSize</code> pixels, the origin is at the bottom left
+ * corner like on the display, and bugs are drawn as squares inset by one
+ * pixel (if the cells are large enough) over the food of their cells.
+ * </p>
+ *
+ * <p>
+ * If such a frame would exceed <code>maxPixels</code> pixels, the world is
+ * rendered zoomed out from the coarsest level of its {@link WorldPyramid}
+ * that fits the budget instead: each block is shaded green by its mean food
+ * and red by its bug density, so the frames of huge worlds stay bounded.
+ * </p>
+ *
+ * <p>
+ * Rasterization is done by the calling thread, but the PNG encoding is done
+ * by a background thread, so the tick loop is not stalled by the encoder. At
+ * most <code>maxPendingFrames</code> frames wait for encoding; if the encoder
+ * falls further behind, {@link #render(BugKernel)} waits for it, so the
+ * memory used by the frames is bounded.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class FrameRenderer {
+
+	/** Directory of the frames. */
+	private final File outputDirectory;
+
+	/** Side length of a cell in pixels. */
+	private final int cellSize;
+
+	/** Maximal number of pixels of a frame. */
+	private final int maxPixels;
+
+	/** Number of ticks between two frames. */
+	private final int interval;
+
+	/** Permits of the frames that may wait for encoding. */
+	private final Semaphore pending;
+
+	/** The background thread encoding the frames. */
+	private final ExecutorService encoder;
+
+	/** The first failure of the encoder; <code>null</code> if none. */
+	private volatile Exception failure = null;
+
+	/** Number of frames rendered so far. */
+	private int frames = 0;
+
+	/**
+	 * Creates a new renderer.
+	 *
+	 * @param outputDirectory
+	 *            directory of the frames, created if it does not exist;
+	 *            <i>cannot be <code>null</code></i>
+	 * @param cellSize
+	 *            side length of a cell in pixels; <i>must be positive</i>
+	 * @param interval
+	 *            number of ticks between two frames; <i>must be positive</i>
+	 * @param maxPendingFrames
+	 *            number of frames that may wait for encoding before
+	 *            rendering blocks; <i>must be positive</i>
+	 * @throws IOException
+	 *             if the output directory cannot be created
+	 */
+	public FrameRenderer(final File outputDirectory, final int cellSize,
+			final int interval, final int maxPendingFrames) throws IOException {
+		this(outputDirectory, cellSize, interval, maxPendingFrames,
+				Constants.FRAME_MAX_PIXELS);
+	}
+
+	/**
+	 * Creates a new renderer with a pixel budget of the frames.
+	 *
+	 * @param outputDirectory
+	 *            directory of the frames, created if it does not exist;
+	 *            <i>cannot be <code>null</code></i>
+	 * @param cellSize
+	 *            side length of a cell in pixels; <i>must be positive</i>
+	 * @param interval
+	 *            number of ticks between two frames; <i>must be positive</i>
+	 * @param maxPendingFrames
+	 *            number of frames that may wait for encoding before
+	 *            rendering blocks; <i>must be positive</i>
+	 * @param maxPixels
+	 *            maximal number of pixels of a frame, larger worlds are
+	 *            rendered zoomed out; <i>must be positive</i>
+	 * @throws IOException
+	 *             if the output directory cannot be created
+	 */
+	public FrameRenderer(final File outputDirectory, final int cellSize,
+			final int interval, final int maxPendingFrames,
+			final int maxPixels) throws IOException {
+		if (null == outputDirectory) {
+			throw new IllegalArgumentException(
+					"Parameter outputDirectory cannot be null.");
+		}
+
+		if (cellSize < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter cellSize = %d < 1.", cellSize));
+		}
+
+		if (interval < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter interval = %d < 1.", interval));
+		}
+
+		if (maxPendingFrames < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter maxPendingFrames = %d < 1.", maxPendingFrames));
+		}
+
+		if (maxPixels < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter maxPixels = %d < 1.", maxPixels));
+		}
+
+		if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			throw new IOException("Cannot create output directory "
+					+ outputDirectory);
+		}
+
+		this.outputDirectory = outputDirectory;
+		this.cellSize = cellSize;
+		this.maxPixels = maxPixels;
+		this.interval = interval;
+		this.pending = new Semaphore(maxPendingFrames);
+		this.encoder = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+			@Override
+			public Thread newThread(final Runnable task) {
+				final Thread ret = new Thread(task, "FrameRenderer");
+				ret.setDaemon(true);
+				return ret;
+			}
+		});
+	}
+
+	/**
+	 * Returns the number of frames rendered so far.
+	 *
+	 * @return the number of frames passed to the encoder
+	 */
+	public int getFrameCount() {
+		return frames;
+	}
+
+	/**
+	 * Renders the current state of the specified world if its tick is a
+	 * multiple of the interval; the frame is written to
+	 * <code>frame_&lt;tick&gt;.png</code> in the background.
+	 *
+	 * @param kernel
+	 *            the world to render; <i>cannot be <code>null</code></i>
+	 * @return <code>true</code> if a frame is rendered
+	 * @throws IOException
+	 *             if a previous frame could not be written
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting for the
+	 *             encoder
+	 */
+	public boolean render(final BugKernel kernel) throws IOException,
+			InterruptedException {
+		if (null == kernel) {
+			throw new IllegalArgumentException("Parameter kernel cannot be null.");
+		}
+
+		checkFailure();
+
+		if (kernel.getTick() % interval != 0) {
+			return false;
+		}
+
+		final BufferedImage image = rasterize(kernel);
+		final File file = new File(outputDirectory, String.format(
+				"frame_%06d.png", kernel.getTick()));
+
+		pending.acquire();
+		encoder.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					if (null == failure && !ImageIO.write(image, "png", file)) {
+						throw new IOException("No PNG encoder is available.");
+					}
+				} catch (final IOException e) {
+					if (null == failure) {
+						failure = e;
+					}
+				} catch (final RuntimeException e) {
+					// Encoders may also fail unchecked, e.g. on a full disk
+					if (null == failure) {
+						failure = e;
+					}
+				} finally {
+					pending.release();
+				}
+			}
+		});
+
+		++frames;
+		return true;
+	}
+
+	/**
+	 * Rasterizes the current state of the specified world.
+	 *
+	 * @param kernel
+	 *            the world to rasterize; <i>cannot be <code>null</code></i>
+	 * @return a new image of <code>width * cellSize</code> by
+	 *         <code>height * cellSize</code> pixels, or a zoomed out image of
+	 *         at most <code>maxPixels</code> pixels if it would be larger
+	 */
+	public BufferedImage rasterize(final BugKernel kernel) {
+		if (null == kernel) {
+			throw new IllegalArgumentException("Parameter kernel cannot be null.");
+		}
+
+		final FoodField field = kernel.getFoodField();
+		final long cells = (long) field.getWidth() * field.getHeight();
+
+		if (cells * cellSize * cellSize > maxPixels) {
+			return rasterizeOverview(kernel.getPyramid(), cells);
+		}
+
+		final int width = field.getWidth() * cellSize;
+		final int height = field.getHeight() * cellSize;
+		final BufferedImage ret = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_RGB);
+		final int[] pixels = ((DataBufferInt) ret.getRaster().getDataBuffer())
+				.getData();
+
+		for (int x = 0; x < field.getWidth(); ++x) {
+			for (int y = 0; y < field.getHeight(); ++y) {
+				final int strength = FoodValueLayerStyleOGL.getStrength(field
+						.getFood(field.index(x, y)));
+				fill(pixels, width, height, x, y, cellSize, 0, strength << 8);
+			}
+		}
+
+		final int inset = (cellSize > 2) ? 1 : 0;
+		for (int i = 0; i < kernel.getCount(); ++i) {
+			final int strength = BugStyleOGL2D.getStrength(kernel.getSize(i));
+			fill(pixels, width, height, kernel.getX(i), kernel.getY(i),
+					cellSize, inset, 0xFF0000 | (strength << 8) | strength);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Waits for the encoding of the rendered frames, and stops the encoder.
+	 *
+	 * @throws IOException
+	 *             if a frame could not be written
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting for the
+	 *             encoder
+	 */
+	public void close() throws IOException, InterruptedException {
+		encoder.shutdown();
+		while (!encoder.awaitTermination(1, TimeUnit.SECONDS)) {
+			// Waiting for the remaining frames
+		}
+
+		checkFailure();
+	}
+
+	/**
+	 * Rasterizes a zoomed out image of a world from the coarsest level of its
+	 * pyramid whose blocks fit the pixel budget.
+	 *
+	 * @param pyramid
+	 *            the pyramid of the world
+	 * @param cells
+	 *            number of cells of the world
+	 * @return a new image of at most <code>maxPixels</code> pixels
+	 */
+	private BufferedImage rasterizeOverview(final WorldPyramid pyramid,
+			final long cells) {
+		final double scale = Math.sqrt((double) maxPixels / cells);
+		int level = pyramid.getLevelForScale(scale);
+		int blockSize = Math.max(1, (int) (scale * (1 << level)));
+
+		// Rounding may still exceed the budget at the edges of the levels
+		while ((long) pyramid.getWidth(level) * pyramid.getHeight(level)
+				* blockSize * blockSize > maxPixels) {
+			if (blockSize > 1) {
+				--blockSize;
+			} else if (level + 1 < pyramid.getLevelCount()) {
+				++level;
+			} else {
+				break; // A single pixel, within any budget
+			}
+		}
+
+		final int width = pyramid.getWidth(level) * blockSize;
+		final int height = pyramid.getHeight(level) * blockSize;
+		final BufferedImage ret = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_RGB);
+		final int[] pixels = ((DataBufferInt) ret.getRaster().getDataBuffer())
+				.getData();
+
+		for (int x = 0; x < pyramid.getWidth(level); ++x) {
+			for (int y = 0; y < pyramid.getHeight(level); ++y) {
+				final int red = (int) (255 * pyramid.getDensity(level, x, y));
+				final int green = FoodValueLayerStyleOGL.getStrength(pyramid
+						.getFoodMean(level, x, y));
+				fill(pixels, width, height, x, y, blockSize, 0, (red << 16)
+						| (green << 8));
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Fills the pixels of a cell, leaving a border of the specified width.
+	 *
+	 * @param pixels
+	 *            the pixels of the image
+	 * @param width
+	 *            width of the image in pixels
+	 * @param height
+	 *            height of the image in pixels
+	 * @param x
+	 *            the <code>x</code> coordinate of the cell
+	 * @param y
+	 *            the <code>y</code> coordinate of the cell
+	 * @param size
+	 *            side length of the cell in pixels
+	 * @param inset
+	 *            width of the border left unchanged
+	 * @param rgb
+	 *            the color to fill with
+	 */
+	private static void fill(final int[] pixels, final int width,
+			final int height, final int x, final int y, final int size,
+			final int inset, final int rgb) {
+		// Rows of the image go downwards, the y axis of the world upwards
+		final int top = height - (y + 1) * size;
+
+		for (int row = top + inset; row < top + size - inset; ++row) {
+			final int offset = row * width + x * size;
+			for (int column = inset; column < size - inset; ++column) {
+				pixels[offset + column] = rgb;
+			}
+		}
+	}
+
+	/**
+	 * Rethrows the first failure of the encoder.
+	 *
+	 * @throws IOException
+	 *             if a frame could not be written
+	 */
+	private void checkFailure() throws IOException {
+		if (failure != null) {
+			throw new IOException("Cannot write frame: "
+					+ failure.getMessage(), failure);
+		}
+	}
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+/**
+ * Listener interface for objects following the changes of the cells of a
+ * {@link FoodField} or an {@link OccupancyLayer}.
+ *
+ * <p>
+ * Listeners are called synchronously from the modifying thread, so they
+ * should do only a minimal amount of work (e.g. marking derived data as
+ * dirty).
+ * </p>
+ *
+ * @version $Id$
+ */
+public interface CellChangeListener {
+
+	/**
+	 * Called when the state of the specified cell is changed.
+	 *
+	 * @param index
+	 *            index of the changed cell
+	 */
+	void cellChanged(int index);
+
+	/**
+	 * Called when (potentially) all of the cells are changed, e.g. after food
+	 * growth.
+	 */
+	void allCellsChanged();
+
+}
@@ -0,0 +1,623 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+import java.util.Arrays;
+
+import repast.simphony.random.RandomHelper;
+import stupidmodel.agents.HabitatCell;
+import stupidmodel.common.Constants;
+import stupidmodel.common.RandomStreams;
+import stupidmodel.common.WorkerPool;
+
+/**
+ * Dense storage of the food availability and the maximum food production rate
+ * of every cell of the world.
+ *
+ * <p>
+ * Values are stored in primitive arrays indexed by {@link #index(int, int)}
+ * (column-major, <code>x * height + y</code>), and {@link HabitatCell} objects
+ * read and write their food through them. This way the food growth of the
+ * whole world is a single loop instead of one scheduled method call for each
+ * cell.
+ * </p>
+ *
+ * <p>
+ * The values can be stored in a compact {@link Precision} to fit very large
+ * worlds in the memory; the values are still read and written as
+ * <code>double</code>s, and each stored value is rounded to the nearest value
+ * representable in the selected precision.
+ * </p>
+ *
+ * @version $Id$
+ * @see HabitatCell
+ */
+public class FoodField {
+
+	/**
+	 * Storage precision of the food availability and the production rate of
+	 * the cells.
+	 *
+	 * <p>
+	 * The error bounds are given for a single stored value, relative to the
+	 * value written; as every growth step and consumption writes the food of
+	 * the cell, the food of a compact field may drift from the food of a
+	 * {@link #DOUBLE} field updated the same way by at most the sum of these
+	 * bounds over the writes of the cell.
+	 * </p>
+	 */
+	public enum Precision {
+
+		/**
+		 * 64-bit floating point values, the reference representation; 16
+		 * bytes per cell.
+		 */
+		DOUBLE,
+
+		/**
+		 * 32-bit floating point food and production rate; 8 bytes per cell.
+		 * The relative error of a stored value is at most <code>2^-24</code>
+		 * (about <code>6e-8</code>).
+		 */
+		FLOAT,
+
+		/**
+		 * 16-bit unsigned fixed point food with a resolution of
+		 * <code>2^-10</code>, and a 32-bit floating point production rate; 6
+		 * bytes per cell. The absolute error of a stored food value is at most
+		 * <code>2^-11</code> (about <code>4.9e-4</code>), food above
+		 * {@link FoodField#FIXED_POINT_MAX} (about <code>64.0</code>) is
+		 * saturated.
+		 */
+		FIXED16
+	}
+
+	/** Number of the fixed point food units in one unit of food. */
+	private static final double FIXED_POINT_SCALE = 1024.0;
+
+	/** The maximal food of a cell in {@link Precision#FIXED16} precision. */
+	public static final double FIXED_POINT_MAX = Character.MAX_VALUE
+			/ FIXED_POINT_SCALE;
+
+	/** Dimensions of the field. */
+	private final int width, height;
+
+	/** The storage precision of the field. */
+	private final Precision precision;
+
+	/**
+	 * Food availability of the cells in {@link Precision#DOUBLE} precision;
+	 * <code>null</code> otherwise.
+	 */
+	private final double[] food;
+
+	/**
+	 * Food availability of the cells in {@link Precision#FLOAT} precision;
+	 * <code>null</code> otherwise.
+	 */
+	private final float[] foodFloat;
+
+	/**
+	 * Food availability of the cells in {@link Precision#FIXED16} precision,
+	 * in units of <code>1 / FIXED_POINT_SCALE</code>; <code>null</code>
+	 * otherwise.
+	 */
+	private final char[] foodFixed;
+
+	/**
+	 * Maximum food production rate of the cells in {@link Precision#DOUBLE}
+	 * precision; <code>null</code> otherwise.
+	 */
+	private double[] productionRate;
+
+	/**
+	 * Maximum food production rate of the cells in the compact precisions;
+	 * <code>null</code> in {@link Precision#DOUBLE} precision.
+	 */
+	private float[] productionRateFloat;
+
+	/**
+	 * Indicates if the production rate array may be shared with copies of the
+	 * field, so it has to be copied before it is modified.
+	 */
+	private boolean sharedProductionRate = false;
+
+	/** Listeners notified about food changes. */
+	private CellChangeListener[] listeners = new CellChangeListener[0];
+
+	/**
+	 * Whether growth by counter-based streams uses the strip-mined bulk loop
+	 * or the scalar reference loop.
+	 */
+	private boolean bulkGrowth = Constants.BULK_FOOD_GROWTH;
+
+	/**
+	 * Creates a new field with the specified dimensions; food availability
+	 * and the production rate of each cell is initialized to <code>0.0</code>.
+	 *
+	 * @param width
+	 *            number of columns; <i>must be positive</i>
+	 * @param height
+	 *            number of rows; <i>must be positive</i>
+	 */
+	public FoodField(final int width, final int height) {
+		this(width, height, Precision.DOUBLE);
+	}
+
+	/**
+	 * Creates a new field with the specified dimensions and storage precision;
+	 * food availability and the production rate of each cell is initialized
+	 * to <code>0.0</code>.
+	 *
+	 * @param width
+	 *            number of columns; <i>must be positive</i>
+	 * @param height
+	 *            number of rows; <i>must be positive</i>
+	 * @param precision
+	 *            the storage precision of the values; <i>cannot be
+	 *            <code>null</code></i>
+	 */
+	public FoodField(final int width, final int height,
+			final Precision precision) {
+		if (width < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter width = %d < 1.", width));
+		}
+
+		if (height < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter height = %d < 1.", height));
+		}
+
+		if (null == precision) {
+			throw new IllegalArgumentException(
+					"Parameter precision cannot be null.");
+		}
+
+		if ((long) width * height > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(String.format(
+					"Field of %d * %d has too many cells.", width, height));
+		}
+
+		final int size = width * height;
+		this.width = width;
+		this.height = height;
+		this.precision = precision;
+		this.food = (Precision.DOUBLE == precision) ? new double[size] : null;
+		this.foodFloat = (Precision.FLOAT == precision) ? new float[size]
+				: null;
+		this.foodFixed = (Precision.FIXED16 == precision) ? new char[size]
+				: null;
+		this.productionRate = (Precision.DOUBLE == precision) ? new double[size]
+				: null;
+		this.productionRateFloat = (Precision.DOUBLE == precision) ? null
+				: new float[size];
+	}
+
+	/**
+	 * Creates a copy of the specified field, see {@link #copy()}.
+	 *
+	 * @param source
+	 *            the copied field
+	 */
+	private FoodField(final FoodField source) {
+		this.width = source.width;
+		this.height = source.height;
+		this.precision = source.precision;
+		this.food = (null == source.food) ? null : source.food.clone();
+		this.foodFloat = (null == source.foodFloat) ? null : source.foodFloat
+				.clone();
+		this.foodFixed = (null == source.foodFixed) ? null : source.foodFixed
+				.clone();
+		this.productionRate = source.productionRate;
+		this.productionRateFloat = source.productionRateFloat;
+		this.bulkGrowth = source.bulkGrowth;
+
+		source.sharedProductionRate = true;
+		this.sharedProductionRate = true;
+	}
+
+	/**
+	 * Creates a copy of the field with the same food and production rates;
+	 * the listeners are not copied.
+	 *
+	 * <p>
+	 * The food of the cells changes in every tick, so it is copied right
+	 * away. The production rates are usually set once, so they are shared
+	 * copy-on-write: the field whose rates are modified first copies them.
+	 * Copies may be used concurrently by different threads, but a field and
+	 * its copies should be created by the same thread.
+	 * </p>
+	 *
+	 * @return a new field with the state of this one
+	 */
+	public FoodField copy() {
+		return new FoodField(this);
+	}
+
+	/**
+	 * Returns the storage precision of the field.
+	 *
+	 * @return the precision specified at creation
+	 */
+	public Precision getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Registers a listener to be notified when the food of a cell changes.
+	 *
+	 * @param listener
+	 *            the listener to register; <i>cannot be <code>null</code></i>
+	 */
+	public void addListener(final CellChangeListener listener) {
+		if (null == listener) {
+			throw new IllegalArgumentException(
+					"Parameter listener cannot be null.");
+		}
+
+		listeners = Arrays.copyOf(listeners, listeners.length + 1);
+		listeners[listeners.length - 1] = listener;
+	}
+
+	/**
+	 * Returns whether growth by counter-based streams uses the bulk loop.
+	 *
+	 * @return <code>true</code> if the bulk loop is used,
+	 *         <code>false</code> if the scalar reference loop
+	 * @see #setBulkGrowth(boolean)
+	 */
+	public boolean isBulkGrowth() {
+		return bulkGrowth;
+	}
+
+	/**
+	 * Selects the loop used by {@link #grow(RandomStreams, long)} and
+	 * {@link #grow(RandomStreams, long, WorkerPool)}.
+	 *
+	 * <p>
+	 * The scalar loop draws the production of each cell by a separate call.
+	 * The bulk loop processes the cells in strips of
+	 * {@link Constants#FOOD_GROWTH_STRIP_SIZE}: the random numbers of a strip
+	 * are generated at once (see
+	 * {@link RandomStreams#nextDoubles(long, long, long, double[], int, int)}
+	 * ), then a tight loop without calls scales and adds them to the food, so
+	 * the loop can be unrolled and vectorized by the JIT compiler. Both loops
+	 * perform the same floating point operations, so their results are
+	 * bit-identical.
+	 * </p>
+	 *
+	 * @param bulkGrowth
+	 *            <code>true</code> to use the bulk loop, <code>false</code>
+	 *            to use the scalar reference loop; the default is
+	 *            {@link Constants#BULK_FOOD_GROWTH}
+	 */
+	public void setBulkGrowth(final boolean bulkGrowth) {
+		this.bulkGrowth = bulkGrowth;
+	}
+
+	/**
+	 * Returns the number of columns of the field.
+	 *
+	 * @return the width of the field
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of rows of the field.
+	 *
+	 * @return the height of the field
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the number of cells of the field.
+	 *
+	 * @return <code>width * height</code>
+	 */
+	public int size() {
+		return width * height;
+	}
+
+	/**
+	 * Returns the storage index of the specified location.
+	 *
+	 * @param x
+	 *            the <code>x</code> coordinate; <i>on the interval
+	 *            <code>[0, width)</code></i>
+	 * @param y
+	 *            the <code>y</code> coordinate; <i>on the interval
+	 *            <code>[0, height)</code></i>
+	 * @return the index of the cell
+	 */
+	public int index(final int x, final int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			throw new IllegalArgumentException(String.format(
+					"Location (%d, %d) is out of the field of %d * %d.", x, y,
+					width, height));
+		}
+
+		return x * height + y;
+	}
+
+	/**
+	 * Returns the food availability of the specified cell.
+	 *
+	 * @param index
+	 *            index of the cell
+	 * @return the food available at the cell
+	 */
+	public double getFood(final int index) {
+		if (food != null) {
+			return food[index];
+		} else if (foodFloat != null) {
+			return foodFloat[index];
+		} else {
+			return fromFixedPoint(foodFixed[index]);
+		}
+	}
+
+	/**
+	 * Sets the food availability of the specified cell.
+	 *
+	 * @param index
+	 *            index of the cell
+	 * @param value
+	 *            the new food availability, rounded to the precision of the
+	 *            field; <i>must be non-negative</i>
+	 */
+	public void setFood(final int index, final double value) {
+		if (value < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter value = %f < 0.", value));
+		}
+
+		store(index, value);
+
+		for (final CellChangeListener listener : listeners) {
+			listener.cellChanged(index);
+		}
+	}
+
+	/**
+	 * Returns the maximum food production rate of the specified cell.
+	 *
+	 * @param index
+	 *            index of the cell
+	 * @return the maximum food production rate of the cell
+	 */
+	public double getProductionRate(final int index) {
+		return (productionRate != null) ? productionRate[index]
+				: productionRateFloat[index];
+	}
+
+	/**
+	 * Sets the maximum food production rate of the specified cell.
+	 *
+	 * @param index
+	 *            index of the cell
+	 * @param value
+	 *            the new production rate, rounded to the precision of the
+	 *            field; <i>must be non-negative</i>
+	 */
+	public void setProductionRate(final int index, final double value) {
+		if (value < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter value = %f < 0.", value));
+		}
+
+		if (sharedProductionRate) {
+			productionRate = (null == productionRate) ? null : productionRate
+					.clone();
+			productionRateFloat = (null == productionRateFloat) ? null
+					: productionRateFloat.clone();
+			sharedProductionRate = false;
+		}
+
+		if (productionRate != null) {
+			productionRate[index] = value;
+		} else {
+			productionRateFloat[index] = (float) value;
+		}
+	}
+
+	/**
+	 * Grows food on every cell: food availability of each cell is increased by
+	 * a random floating point number between zero and its maximum food
+	 * production rate, drawn from the default generator of
+	 * {@link RandomHelper}.
+	 *
+	 * <p>
+	 * This is the same as calling {@link HabitatCell#growFood()} for each cell,
+	 * in the order of the cell indices.
+	 * </p>
+	 */
+	public void grow() {
+		for (int i = 0; i < size(); ++i) {
+			store(i, getFood(i)
+					+ RandomHelper.nextDoubleFromTo(0.0, getProductionRate(i)));
+		}
+
+		fireAllCellsChanged();
+	}
+
+	/**
+	 * Grows food on every cell like {@link #grow()}, but the production of
+	 * each cell is drawn from the specified counter-based streams, keyed by
+	 * the tick and the index of the cell.
+	 *
+	 * @param streams
+	 *            the random streams to use; <i>cannot be <code>null</code></i>
+	 * @param tick
+	 *            the current tick
+	 * @see #grow(RandomStreams, long, WorkerPool)
+	 */
+	public void grow(final RandomStreams streams, final long tick) {
+		if (null == streams) {
+			throw new IllegalArgumentException(
+					"Parameter streams cannot be null.");
+		}
+
+		grow(streams, tick, 0, size());
+		fireAllCellsChanged();
+	}
+
+	/**
+	 * Grows food on every cell like {@link #grow(RandomStreams, long)}, but
+	 * splits the cells into contiguous ranges processed concurrently by the
+	 * specified pool.
+	 *
+	 * <p>
+	 * As the random production of a cell depends only on the tick and the
+	 * index of the cell, the result is bit-identical to the sequential growth
+	 * with the same streams, regardless of the parallelism of the pool.
+	 * </p>
+	 *
+	 * @param streams
+	 *            the random streams to use; <i>cannot be <code>null</code></i>
+	 * @param tick
+	 *            the current tick
+	 * @param pool
+	 *            the pool to use; <i>cannot be <code>null</code></i>
+	 */
+	public void grow(final RandomStreams streams, final long tick,
+			final WorkerPool pool) {
+		if (null == streams) {
+			throw new IllegalArgumentException(
+					"Parameter streams cannot be null.");
+		}
+
+		if (null == pool) {
+			throw new IllegalArgumentException("Parameter pool cannot be null.");
+		}
+
+		pool.forEachRange(size(), new WorkerPool.RangeTask() {
+
+			@Override
+			public void run(final int chunk, final int from, final int to) {
+				grow(streams, tick, from, to);
+			}
+		});
+
+		fireAllCellsChanged();
+	}
+
+	/**
+	 * Grows food on the specified range of cells, using the counter-based
+	 * streams.
+	 *
+	 * @param streams
+	 *            the random streams to use
+	 * @param tick
+	 *            the current tick
+	 * @param from
+	 *            index of the first cell (inclusive)
+	 * @param to
+	 *            index of the last cell (exclusive)
+	 */
+	private void grow(final RandomStreams streams, final long tick,
+			final int from, final int to) {
+		if (!bulkGrowth) {
+			for (int i = from; i < to; ++i) {
+				store(i, getFood(i) + streams.nextDouble(tick, i, 0)
+						* getProductionRate(i));
+			}
+
+			return;
+		}
+
+		final double[] production = new double[Math.min(
+				Constants.FOOD_GROWTH_STRIP_SIZE, to - from)];
+
+		for (int start = from; start < to; start += production.length) {
+			final int length = Math.min(production.length, to - start);
+			streams.nextDoubles(tick, start, 0, production, 0, length);
+
+			// One loop for each precision, so the loops stay free of branches
+			if (food != null) {
+				for (int k = 0; k < length; ++k) {
+					food[start + k] += production[k]
+							* productionRate[start + k];
+				}
+			} else if (foodFloat != null) {
+				for (int k = 0; k < length; ++k) {
+					foodFloat[start + k] = (float) (foodFloat[start + k] + production[k]
+							* productionRateFloat[start + k]);
+				}
+			} else {
+				for (int k = 0; k < length; ++k) {
+					foodFixed[start + k] = toFixedPoint(foodFixed[start + k]
+							/ FIXED_POINT_SCALE + production[k]
+							* productionRateFloat[start + k]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stores the food of a cell, rounded to the precision of the field,
+	 * without notifying the listeners.
+	 *
+	 * @param index
+	 *            index of the cell
+	 * @param value
+	 *            the new food availability
+	 */
+	private void store(final int index, final double value) {
+		if (food != null) {
+			food[index] = value;
+		} else if (foodFloat != null) {
+			foodFloat[index] = (float) value;
+		} else {
+			foodFixed[index] = toFixedPoint(value);
+		}
+	}
+
+	/**
+	 * Rounds a non-negative food value to the nearest fixed point value,
+	 * saturating at {@link #FIXED_POINT_MAX}, as stored in
+	 * {@link Precision#FIXED16} precision.
+	 *
+	 * @param value
+	 *            the food value
+	 * @return the fixed point representation of the value
+	 */
+	public static char toFixedPoint(final double value) {
+		if (value >= FIXED_POINT_MAX) {
+			return Character.MAX_VALUE;
+		}
+
+		return (char) (value * FIXED_POINT_SCALE + 0.5);
+	}
+
+	/**
+	 * Returns the food value of a fixed point value stored in
+	 * {@link Precision#FIXED16} precision.
+	 *
+	 * @param value
+	 *            the fixed point representation of the food
+	 * @return the food value
+	 */
+	public static double fromFixedPoint(final char value) {
+		return value / FIXED_POINT_SCALE;
+	}
+
+	/**
+	 * Notifies the listeners that the food of all cells are changed.
+	 */
+	private void fireAllCellsChanged() {
+		for (final CellChangeListener listener : listeners) {
+			listener.allCellsChanged();
+		}
+	}
+
+}
@@ -0,0 +1,465 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+import java.util.Arrays;
+
+import stupidmodel.common.Constants;
+
+/**
+ * Spatial query service returning the free cell with the most food within a
+ * toroidal neighbourhood.
+ *
+ * <p>
+ * The answer is computed as a single maximum search over the window, without
+ * collecting and sorting the candidate cells. For small ranges the cells of
+ * the window are scanned directly. For ranges of at least the block size, the
+ * grid is covered with square blocks, and the maximal food of the free cells
+ * of each block is cached; blocks completely inside the window are evaluated
+ * by their cached maximum, so only the cells of the partially covered blocks
+ * at the edges of the window have to be read.
+ * </p>
+ *
+ * <p>
+ * The cache is maintained incrementally: the instance listens to the changes
+ * of the {@link FoodField} and the {@link OccupancyLayer}, marks the affected
+ * blocks dirty and recomputes them lazily, when a query needs them. After food
+ * growth every block is dirty, so each block is recomputed at most once per
+ * tick.
+ * </p>
+ *
+ * <p>
+ * Both strategies return the same cell: the first free cell with the most
+ * food in the scan order of the window (column by column from the lowest
+ * coordinates, wrapping around the borders), the same as the first element
+ * of the free cells sorted by food availability. The instance is <i>not</i>
+ * thread-safe.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class FoodQuery implements CellChangeListener {
+
+	/** The food of the cells. */
+	private final FoodField field;
+
+	/** The occupied cells. */
+	private final OccupancyLayer occupancy;
+
+	/** Dimensions of the grid. */
+	private final int width, height;
+
+	/** Side length of the blocks. */
+	private final int blockSize;
+
+	/** Number of block rows. */
+	private final int blockRows;
+
+	/** Maximal food of the free cells of each block. */
+	private final double[] blockMax;
+
+	/** Blocks whose cached maximum has to be recomputed. */
+	private final boolean[] dirty;
+
+	/** Number of answered queries. */
+	private long queryCount = 0;
+
+	/**
+	 * Creates a new query service with the default block size.
+	 *
+	 * @param field
+	 *            the food of the cells; <i>cannot be <code>null</code></i>
+	 * @param occupancy
+	 *            the occupied cells; <i>cannot be <code>null</code>, must have
+	 *            the same dimensions as the field</i>
+	 */
+	public FoodQuery(final FoodField field, final OccupancyLayer occupancy) {
+		this(field, occupancy, Constants.FOOD_QUERY_BLOCK_SIZE);
+	}
+
+	/**
+	 * Creates a new query service.
+	 *
+	 * @param field
+	 *            the food of the cells; <i>cannot be <code>null</code></i>
+	 * @param occupancy
+	 *            the occupied cells; <i>cannot be <code>null</code>, must have
+	 *            the same dimensions as the field</i>
+	 * @param blockSize
+	 *            side length of the cached blocks; <i>must be positive</i>
+	 */
+	public FoodQuery(final FoodField field, final OccupancyLayer occupancy,
+			final int blockSize) {
+		if (null == field) {
+			throw new IllegalArgumentException("Parameter field cannot be null.");
+		}
+
+		if (null == occupancy) {
+			throw new IllegalArgumentException(
+					"Parameter occupancy cannot be null.");
+		}
+
+		if (field.getWidth() != occupancy.getWidth()
+				|| field.getHeight() != occupancy.getHeight()) {
+			throw new IllegalArgumentException(String.format(
+					"Field of %d * %d and occupancy layer of %d * %d differ.",
+					field.getWidth(), field.getHeight(), occupancy.getWidth(),
+					occupancy.getHeight()));
+		}
+
+		if (blockSize < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter blockSize = %d < 1.", blockSize));
+		}
+
+		this.field = field;
+		this.occupancy = occupancy;
+		this.width = field.getWidth();
+		this.height = field.getHeight();
+		this.blockSize = blockSize;
+		this.blockRows = (height + blockSize - 1) / blockSize;
+
+		final int blocks = ((width + blockSize - 1) / blockSize) * blockRows;
+		this.blockMax = new double[blocks];
+		this.dirty = new boolean[blocks];
+		Arrays.fill(dirty, true);
+
+		field.addListener(this);
+		occupancy.addListener(this);
+	}
+
+	/**
+	 * Returns the free cell with the most food within the specified range of
+	 * a location (the <code>(2 * range + 1)^2</code> toroidal neighbourhood of
+	 * the location, excluding the location itself).
+	 *
+	 * @param x
+	 *            the <code>x</code> coordinate of the location
+	 * @param y
+	 *            the <code>y</code> coordinate of the location
+	 * @param range
+	 *            the extent of the neighbourhood; <i>must be non-negative</i>
+	 * @return the index of the first free cell with the most food in scan
+	 *         order; <code>-1</code> if there is no free cell in range
+	 */
+	public int getBestFreeCell(final int x, final int y, final int range) {
+		if (range < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter range = %d < 0.", range));
+		}
+
+		++queryCount;
+
+		final int center = field.index(x, y);
+		final int side = (int) Math.min(2L * range + 1, Integer.MAX_VALUE);
+		final int columns = Math.min(side, width);
+		final int firstColumn = (columns == width) ? 0 : wrap(x - range, width);
+		final int rows = Math.min(side, height);
+		final int firstRow = (rows == height) ? 0 : wrap(y - range, height);
+
+		if (range < blockSize) {
+			return scan(firstColumn, columns, firstRow, rows, center);
+		}
+
+		final double max = getMaximum(firstColumn, columns, firstRow, rows,
+				center);
+		if (Double.NEGATIVE_INFINITY == max) {
+			return -1;
+		}
+
+		return findFirst(firstColumn, columns, firstRow, rows, center, max);
+	}
+
+	/**
+	 * Returns the number of answered queries (see
+	 * {@link #getBestFreeCell(int, int, int)}), e.g. for the
+	 * {@link stupidmodel.common.TickMetrics} of the model.
+	 *
+	 * @return the number of queries since the service was created
+	 */
+	public long getQueryCount() {
+		return queryCount;
+	}
+
+	@Override
+	public void cellChanged(final int index) {
+		dirty[(index / height / blockSize) * blockRows + (index % height)
+				/ blockSize] = true;
+	}
+
+	@Override
+	public void allCellsChanged() {
+		Arrays.fill(dirty, true);
+	}
+
+	/**
+	 * Returns the first free cell with the most food of the window by reading
+	 * each of its cells.
+	 *
+	 * @param firstColumn
+	 *            first column of the window
+	 * @param columns
+	 *            number of columns of the window
+	 * @param firstRow
+	 *            first row of the window
+	 * @param rows
+	 *            number of rows of the window
+	 * @param center
+	 *            index of the cell to exclude
+	 * @return the index of the best cell; <code>-1</code> if there is no free
+	 *         cell in the window
+	 */
+	private int scan(final int firstColumn, final int columns,
+			final int firstRow, final int rows, final int center) {
+		int ret = -1;
+		double best = Double.NEGATIVE_INFINITY;
+
+		int column = firstColumn;
+		for (int c = 0; c < columns; ++c) {
+			int row = firstRow;
+			for (int r = 0; r < rows; ++r) {
+				final int index = column * height + row;
+				if (index != center && !occupancy.isOccupied(index)
+						&& field.getFood(index) > best) {
+					ret = index;
+					best = field.getFood(index);
+				}
+
+				if (++row == height) {
+					row = 0;
+				}
+			}
+
+			if (++column == width) {
+				column = 0;
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Returns the maximal food of the free cells of the window, using the
+	 * cached maximum of the blocks completely inside the window.
+	 *
+	 * @param firstColumn
+	 *            first column of the window
+	 * @param columns
+	 *            number of columns of the window
+	 * @param firstRow
+	 *            first row of the window
+	 * @param rows
+	 *            number of rows of the window
+	 * @param center
+	 *            index of the cell to exclude
+	 * @return the maximal food; {@link Double#NEGATIVE_INFINITY} if there is
+	 *         no free cell in the window
+	 */
+	private double getMaximum(final int firstColumn, final int columns,
+			final int firstRow, final int rows, final int center) {
+		double ret = Double.NEGATIVE_INFINITY;
+
+		// The window is split into segments along the block boundaries, each
+		// segment is either a whole block or a part of a block at the edges
+		for (int c = 0; c < columns;) {
+			final int column = wrap(firstColumn + c, width);
+			final int columnCount = segmentLength(column, columns - c, width);
+			final boolean wholeColumns = isWholeBlock(column, columnCount,
+					width);
+
+			for (int r = 0; r < rows;) {
+				final int row = wrap(firstRow + r, height);
+				final int rowCount = segmentLength(row, rows - r, height);
+
+				if (wholeColumns && isWholeBlock(row, rowCount, height)
+						&& !isFreeCenterOf(column, row, center)) {
+					ret = Math.max(ret, getBlockMax(column, row));
+				} else {
+					for (int i = column; i < column + columnCount; ++i) {
+						for (int j = row; j < row + rowCount; ++j) {
+							final int index = i * height + j;
+							if (index != center && !occupancy.isOccupied(index)) {
+								ret = Math.max(ret, field.getFood(index));
+							}
+						}
+					}
+				}
+
+				r += rowCount;
+			}
+
+			c += columnCount;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Returns the first free cell of the window in scan order with the
+	 * specified amount of food, skipping the blocks whose cached maximum is
+	 * smaller.
+	 *
+	 * @param firstColumn
+	 *            first column of the window
+	 * @param columns
+	 *            number of columns of the window
+	 * @param firstRow
+	 *            first row of the window
+	 * @param rows
+	 *            number of rows of the window
+	 * @param center
+	 *            index of the cell to exclude
+	 * @param max
+	 *            the maximal food of the free cells of the window
+	 * @return the index of the first cell with the specified food
+	 */
+	private int findFirst(final int firstColumn, final int columns,
+			final int firstRow, final int rows, final int center,
+			final double max) {
+		for (int c = 0; c < columns;) {
+			final int column = wrap(firstColumn + c, width);
+			final int columnCount = segmentLength(column, columns - c, width);
+			final boolean wholeColumns = isWholeBlock(column, columnCount,
+					width);
+
+			for (int i = column; i < column + columnCount; ++i) {
+				for (int r = 0; r < rows;) {
+					final int row = wrap(firstRow + r, height);
+					final int rowCount = segmentLength(row, rows - r, height);
+
+					if (!wholeColumns || !isWholeBlock(row, rowCount, height)
+							|| isFreeCenterOf(column, row, center)
+							|| getBlockMax(column, row) >= max) {
+						for (int j = row; j < row + rowCount; ++j) {
+							final int index = i * height + j;
+							if (index != center && !occupancy.isOccupied(index)
+									&& field.getFood(index) == max) {
+								return index;
+							}
+						}
+					}
+
+					r += rowCount;
+				}
+			}
+
+			c += columnCount;
+		}
+
+		throw new IllegalStateException(String.format(
+				"Cannot find a cell with food %f in the window.", max));
+	}
+
+	/**
+	 * Returns the length of the segment starting at the specified coordinate
+	 * and ending at the next block boundary, the border of the grid or the end
+	 * of the window, whichever comes first.
+	 *
+	 * @param start
+	 *            first coordinate of the segment
+	 * @param remaining
+	 *            number of coordinates remaining in the window
+	 * @param size
+	 *            size of the dimension
+	 * @return the length of the segment
+	 */
+	private int segmentLength(final int start, final int remaining,
+			final int size) {
+		final int blockEnd = Math.min(size, (start / blockSize + 1)
+				* blockSize);
+		return Math.min(blockEnd - start, remaining);
+	}
+
+	/**
+	 * Checks if the specified segment covers a whole block along a dimension.
+	 *
+	 * @param start
+	 *            first coordinate of the segment
+	 * @param length
+	 *            length of the segment
+	 * @param size
+	 *            size of the dimension
+	 * @return <code>true</code> if the segment is the whole block
+	 */
+	private boolean isWholeBlock(final int start, final int length,
+			final int size) {
+		return 0 == start % blockSize
+				&& length == Math.min(size, start + blockSize) - start;
+	}
+
+	/**
+	 * Checks if the excluded center cell is in the specified block and it is
+	 * free, i.e. the cached maximum of the block may belong to it.
+	 *
+	 * @param column
+	 *            a column of the block
+	 * @param row
+	 *            a row of the block
+	 * @param center
+	 *            index of the excluded cell
+	 * @return <code>true</code> if the cached maximum cannot be used
+	 */
+	private boolean isFreeCenterOf(final int column, final int row,
+			final int center) {
+		return center / height / blockSize == column / blockSize
+				&& center % height / blockSize == row / blockSize
+				&& !occupancy.isOccupied(center);
+	}
+
+	/**
+	 * Returns the maximal food of the free cells of the block containing the
+	 * specified location, recomputing it if it is dirty.
+	 *
+	 * @param column
+	 *            a column of the block
+	 * @param row
+	 *            a row of the block
+	 * @return the maximal food; {@link Double#NEGATIVE_INFINITY} if every cell
+	 *         of the block is occupied
+	 */
+	private double getBlockMax(final int column, final int row) {
+		final int block = (column / blockSize) * blockRows + row / blockSize;
+
+		if (dirty[block]) {
+			final int firstColumn = column - column % blockSize;
+			final int firstRow = row - row % blockSize;
+			final int lastColumn = Math.min(width, firstColumn + blockSize);
+			final int lastRow = Math.min(height, firstRow + blockSize);
+
+			double max = Double.NEGATIVE_INFINITY;
+			for (int i = firstColumn; i < lastColumn; ++i) {
+				for (int j = firstRow; j < lastRow; ++j) {
+					final int index = i * height + j;
+					if (!occupancy.isOccupied(index)) {
+						max = Math.max(max, field.getFood(index));
+					}
+				}
+			}
+
+			blockMax[block] = max;
+			dirty[block] = false;
+		}
+
+		return blockMax[block];
+	}
+
+	/**
+	 * Wraps the specified coordinate into the interval <code>[0, size)</code>.
+	 *
+	 * @param value
+	 *            the coordinate to wrap
+	 * @param size
+	 *            the size of the dimension
+	 * @return the wrapped coordinate
+	 */
+	private static int wrap(final int value, final int size) {
+		final int ret = value % size;
+		return (ret < 0) ? ret + size : ret;
+	}
+
+}
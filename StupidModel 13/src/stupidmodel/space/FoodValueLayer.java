@@ -0,0 +1,89 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+import repast.simphony.space.Dimensions;
+import repast.simphony.valueLayer.ValueLayer;
+
+/**
+ * Read-only {@link ValueLayer} view of a {@link FoodField}, used to display
+ * the food of the cells.
+ *
+ * <p>
+ * The layer does not store any values: each query reads the array of the
+ * field, so the displayed food is always the same as the food the agents
+ * see, including the consumption of the bugs, without copying the whole
+ * field into a separate layer each tick.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class FoodValueLayer implements ValueLayer {
+
+	/** Name of the layer. */
+	private final String name;
+
+	/** The viewed field. */
+	private final FoodField field;
+
+	/** Dimensions of the field. */
+	private final Dimensions dimensions;
+
+	/**
+	 * Creates a new view.
+	 *
+	 * @param name
+	 *            name of the layer; <i>cannot be <code>null</code></i>
+	 * @param field
+	 *            the viewed field; <i>cannot be <code>null</code></i>
+	 */
+	public FoodValueLayer(final String name, final FoodField field) {
+		if (null == name) {
+			throw new IllegalArgumentException("Parameter name cannot be null.");
+		}
+
+		if (null == field) {
+			throw new IllegalArgumentException("Parameter field cannot be null.");
+		}
+
+		this.name = name;
+		this.field = field;
+		this.dimensions = new Dimensions(field.getWidth(), field.getHeight());
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the food of the cell at the specified coordinates.
+	 *
+	 * @param coordinates
+	 *            the <code>x</code> and <code>y</code> coordinates of the
+	 *            cell, truncated to integers
+	 * @return the food availability of the cell
+	 */
+	@Override
+	public double get(final double... coordinates) {
+		if (coordinates.length != 2) {
+			throw new IllegalArgumentException(String.format(
+					"Expected 2 coordinates instead of %d.",
+					coordinates.length));
+		}
+
+		return field.getFood(field.index((int) coordinates[0],
+				(int) coordinates[1]));
+	}
+
+	@Override
+	public Dimensions getDimensions() {
+		return dimensions;
+	}
+
+}
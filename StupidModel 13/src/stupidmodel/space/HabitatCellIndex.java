@@ -0,0 +1,135 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+import stupidmodel.agents.HabitatCell;
+
+/**
+ * Dense lookup table of the {@link HabitatCell} objects of the grid, keyed by
+ * their coordinates.
+ *
+ * <p>
+ * Cells are stored in an array in the same order as in a {@link FoodField} (
+ * <code>x * height + y</code>), so accessing the cell of a location is a
+ * single array access instead of a query of the multi-occupancy grid.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class HabitatCellIndex {
+
+	/** Dimensions of the index. */
+	private final int width, height;
+
+	/** The registered cells. */
+	private final HabitatCell[] cells;
+
+	/**
+	 * Creates a new empty index with the specified dimensions.
+	 *
+	 * @param width
+	 *            number of columns; <i>must be positive</i>
+	 * @param height
+	 *            number of rows; <i>must be positive</i>
+	 */
+	public HabitatCellIndex(final int width, final int height) {
+		if (width < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter width = %d < 1.", width));
+		}
+
+		if (height < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter height = %d < 1.", height));
+		}
+
+		this.width = width;
+		this.height = height;
+		this.cells = new HabitatCell[width * height];
+	}
+
+	/**
+	 * Registers the specified cell at its location.
+	 *
+	 * @param cell
+	 *            the cell to register; <i>cannot be <code>null</code>, and its
+	 *            location must be free</i>
+	 */
+	public void register(final HabitatCell cell) {
+		if (null == cell) {
+			throw new IllegalArgumentException("Parameter cell cannot be null.");
+		}
+
+		final int index = index(cell.getX(), cell.getY());
+		if (cells[index] != null) {
+			throw new IllegalStateException(String.format(
+					"Multiple cells defined for the same position;"
+							+ "cell 1=%s, cell 2=%s", cells[index], cell));
+		}
+
+		cells[index] = cell;
+	}
+
+	/**
+	 * Returns the cell of the specified location.
+	 *
+	 * @param x
+	 *            the <code>x</code> coordinate; <i>on the interval
+	 *            <code>[0, width)</code></i>
+	 * @param y
+	 *            the <code>y</code> coordinate; <i>on the interval
+	 *            <code>[0, height)</code></i>
+	 * @return the cell registered at the location
+	 * @throws IllegalStateException
+	 *             if no cell is registered at the location
+	 */
+	public HabitatCell get(final int x, final int y) {
+		return get(index(x, y));
+	}
+
+	/**
+	 * Returns the cell with the specified index.
+	 *
+	 * @param index
+	 *            index of the cell (see {@link FoodField#index(int, int)})
+	 * @return the cell registered with the index
+	 * @throws IllegalStateException
+	 *             if no cell is registered with the index
+	 */
+	public HabitatCell get(final int index) {
+		final HabitatCell ret = cells[index];
+
+		if (null == ret) {
+			throw new IllegalStateException(String.format(
+					"Cannot find any cells for location (%d, %d)", index
+							/ height, index % height));
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Returns the index of the specified location.
+	 *
+	 * @param x
+	 *            the <code>x</code> coordinate
+	 * @param y
+	 *            the <code>y</code> coordinate
+	 * @return the index of the location
+	 */
+	private int index(final int x, final int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			throw new IllegalArgumentException(String.format(
+					"Location (%d, %d) is out of the index of %d * %d.", x, y,
+					width, height));
+		}
+
+		return x * height + y;
+	}
+
+}
@@ -0,0 +1,370 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import stupidmodel.agents.Bug;
+
+/**
+ * A bit-per-cell layer storing which cells of a toroidal grid are occupied by
+ * {@link Bug} agents.
+ *
+ * <p>
+ * Bits are packed into <code>long</code> words in the same order as the cells
+ * of a {@link FoodField} (<code>x * height + y</code>), so the cells of a
+ * column are contiguous and the free cells of a neighbourhood can be collected
+ * with word-level operations, without creating any objects.
+ * </p>
+ *
+ * <p>
+ * A cell may be occupied by more than one bug (e.g. after the random initial
+ * placement), the number of additional bugs of such cells are counted in a
+ * sparse map, so a cell becomes free only when its last bug leaves.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class OccupancyLayer {
+
+	/** Dimensions of the layer. */
+	private final int width, height;
+
+	/** The occupancy bits of the cells. */
+	private final long[] bits;
+
+	/** Number of bugs above one for cells occupied by multiple bugs. */
+	private final HashMap<Integer, Integer> extra = new HashMap<Integer, Integer>();
+
+	/** Listeners notified when a cell becomes occupied or free. */
+	private CellChangeListener[] listeners = new CellChangeListener[0];
+
+	/** Number of free cell queries answered by the layer. */
+	private long queryCount = 0;
+
+	/**
+	 * Creates a new empty layer with the specified dimensions.
+	 *
+	 * @param width
+	 *            number of columns; <i>must be positive</i>
+	 * @param height
+	 *            number of rows; <i>must be positive</i>
+	 */
+	public OccupancyLayer(final int width, final int height) {
+		if (width < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter width = %d < 1.", width));
+		}
+
+		if (height < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter height = %d < 1.", height));
+		}
+
+		this.width = width;
+		this.height = height;
+		this.bits = new long[(int) (((long) width * height + 63) >>> 6)];
+	}
+
+	/**
+	 * Creates a copy of the layer with the same occupied cells; the listeners
+	 * are not copied.
+	 *
+	 * @return a new layer with the state of this one
+	 */
+	public OccupancyLayer copy() {
+		final OccupancyLayer ret = new OccupancyLayer(width, height);
+		System.arraycopy(bits, 0, ret.bits, 0, bits.length);
+		ret.extra.putAll(extra);
+		return ret;
+	}
+
+	/**
+	 * Registers a listener to be notified when a cell becomes occupied or
+	 * free.
+	 *
+	 * @param listener
+	 *            the listener to register; <i>cannot be <code>null</code></i>
+	 */
+	public void addListener(final CellChangeListener listener) {
+		if (null == listener) {
+			throw new IllegalArgumentException(
+					"Parameter listener cannot be null.");
+		}
+
+		listeners = Arrays.copyOf(listeners, listeners.length + 1);
+		listeners[listeners.length - 1] = listener;
+	}
+
+	/**
+	 * Returns the number of columns of the layer.
+	 *
+	 * @return the width of the layer
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of rows of the layer.
+	 *
+	 * @return the height of the layer
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the index of the specified location.
+	 *
+	 * @param x
+	 *            the <code>x</code> coordinate; <i>on the interval
+	 *            <code>[0, width)</code></i>
+	 * @param y
+	 *            the <code>y</code> coordinate; <i>on the interval
+	 *            <code>[0, height)</code></i>
+	 * @return the index of the cell
+	 */
+	public int index(final int x, final int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			throw new IllegalArgumentException(String.format(
+					"Location (%d, %d) is out of the layer of %d * %d.", x, y,
+					width, height));
+		}
+
+		return x * height + y;
+	}
+
+	/**
+	 * Returns the <code>x</code> coordinate of the specified cell.
+	 *
+	 * @param index
+	 *            index of the cell
+	 * @return the <code>x</code> coordinate of the cell
+	 */
+	public int getX(final int index) {
+		return index / height;
+	}
+
+	/**
+	 * Returns the <code>y</code> coordinate of the specified cell.
+	 *
+	 * @param index
+	 *            index of the cell
+	 * @return the <code>y</code> coordinate of the cell
+	 */
+	public int getY(final int index) {
+		return index % height;
+	}
+
+	/**
+	 * Checks if the specified cell is occupied.
+	 *
+	 * @param index
+	 *            index of the cell
+	 * @return <code>true</code> if at least one bug is located at the cell
+	 */
+	public boolean isOccupied(final int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Registers a bug at the specified cell.
+	 *
+	 * @param index
+	 *            index of the cell
+	 */
+	public void add(final int index) {
+		if (isOccupied(index)) {
+			final Integer count = extra.get(index);
+			extra.put(index, (null == count) ? 1 : count + 1);
+		} else {
+			bits[index >>> 6] |= 1L << index;
+			fireCellChanged(index);
+		}
+	}
+
+	/**
+	 * Unregisters a bug from the specified cell.
+	 *
+	 * @param index
+	 *            index of the cell; <i>must be occupied</i>
+	 */
+	public void remove(final int index) {
+		if (!isOccupied(index)) {
+			throw new IllegalStateException(String.format(
+					"Cell %d is not occupied.", index));
+		}
+
+		final Integer count = extra.get(index);
+		if (null == count) {
+			bits[index >>> 6] &= ~(1L << index);
+			fireCellChanged(index);
+		} else if (1 == count) {
+			extra.remove(index);
+		} else {
+			extra.put(index, count - 1);
+		}
+	}
+
+	/**
+	 * Moves a bug between the specified cells.
+	 *
+	 * @param from
+	 *            index of the current cell of the bug; <i>must be
+	 *            occupied</i>
+	 * @param to
+	 *            index of the new cell of the bug
+	 */
+	public void move(final int from, final int to) {
+		remove(from);
+		add(to);
+	}
+
+	/**
+	 * Returns the number of free cell queries answered by the layer (see
+	 * {@link #getFreeCells(int, int, int, int[])}), e.g. for the
+	 * {@link stupidmodel.common.TickMetrics} of the model.
+	 *
+	 * @return the number of queries since the layer was created
+	 */
+	public long getQueryCount() {
+		return queryCount;
+	}
+
+	/**
+	 * Collects the free cells within the specified range of a location (the
+	 * <code>(2 * range + 1)^2</code> toroidal neighbourhood of the location,
+	 * excluding the location itself).
+	 *
+	 * <p>
+	 * Cells are collected column by column, each column from the lowest
+	 * <code>y</code> coordinate of the neighbourhood (wrapping around the
+	 * border).
+	 * </p>
+	 *
+	 * @param x
+	 *            the <code>x</code> coordinate of the location
+	 * @param y
+	 *            the <code>y</code> coordinate of the location
+	 * @param range
+	 *            the extent of the neighbourhood; <i>must be non-negative</i>
+	 * @param ret
+	 *            buffer to store the indices of the free cells into; <i>must
+	 *            have at least <code>(2 * range + 1)^2</code> elements</i>
+	 * @return the number of free cells stored in the buffer
+	 */
+	public int getFreeCells(final int x, final int y, final int range,
+			final int[] ret) {
+		if (range < 0) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter range = %d < 0.", range));
+		}
+
+		++queryCount;
+
+		final int side = 2 * range + 1;
+		if (ret.length < (long) side * side) {
+			throw new IllegalArgumentException(String.format(
+					"Buffer of length %d is too small for range %d.",
+					ret.length, range));
+		}
+
+		final int center = index(x, y);
+		final int columns = Math.min(side, width);
+		final int firstColumn = (columns == width) ? 0 : wrap(x - range, width);
+		final int rows = Math.min(side, height);
+		final int firstRow = (rows == height) ? 0 : wrap(y - range, height);
+
+		int count = 0;
+		for (int c = 0; c < columns; ++c) {
+			final int column = wrap(firstColumn + c, width) * height;
+
+			if (firstRow + rows <= height) {
+				count = collectFree(column + firstRow,
+						column + firstRow + rows, center, ret, count);
+			} else {
+				count = collectFree(column + firstRow, column + height, center,
+						ret, count);
+				count = collectFree(column, column + firstRow + rows - height,
+						center, ret, count);
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Collects the free cells of the specified index interval.
+	 *
+	 * @param from
+	 *            first index (inclusive)
+	 * @param to
+	 *            last index (exclusive)
+	 * @param skip
+	 *            index not to collect
+	 * @param ret
+	 *            buffer to store the indices of the free cells into
+	 * @param count
+	 *            number of elements already in the buffer
+	 * @return the new number of elements in the buffer
+	 */
+	private int collectFree(final int from, final int to, final int skip,
+			final int[] ret, final int count) {
+		int size = count;
+		int start = from;
+
+		while (start < to) {
+			final int word = start >>> 6;
+			final int end = Math.min(to, (word + 1) << 6);
+			final long mask = (-1L << start) & (-1L >>> (63 - ((end - 1) & 63)));
+
+			long free = ~bits[word] & mask;
+			while (free != 0) {
+				final int index = (word << 6) + Long.numberOfTrailingZeros(free);
+				if (index != skip) {
+					ret[size++] = index;
+				}
+
+				free &= free - 1;
+			}
+
+			start = end;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Notifies the listeners that the specified cell is changed.
+	 *
+	 * @param index
+	 *            index of the changed cell
+	 */
+	private void fireCellChanged(final int index) {
+		for (final CellChangeListener listener : listeners) {
+			listener.cellChanged(index);
+		}
+	}
+
+	/**
+	 * Wraps the specified coordinate into the interval <code>[0, size)</code>.
+	 *
+	 * @param value
+	 *            the coordinate to wrap
+	 * @param size
+	 *            the size of the dimension
+	 * @return the wrapped coordinate
+	 */
+	private static int wrap(final int value, final int size) {
+		final int ret = value % size;
+		return (ret < 0) ? ret + size : ret;
+	}
+
+}
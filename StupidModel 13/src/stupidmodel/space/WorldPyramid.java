@@ -0,0 +1,431 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+import java.util.Arrays;
+
+import repast.simphony.space.Dimensions;
+import repast.simphony.valueLayer.ValueLayer;
+
+/**
+ * Multi-resolution pyramid of the mean food and the bug density of a world,
+ * used to display huge worlds zoomed out.
+ *
+ * <p>
+ * Level <code>0</code> is the world itself; each block of level
+ * <code>k</code> covers <code>2^k * 2^k</code> cells (fewer at the right and
+ * top edges), and the last level is a single block covering the whole world.
+ * A display shows the level matching its zoom (see
+ * {@link #getLevelForScale(double)}), so the cost of drawing an overview
+ * depends on the number of screen pixels instead of the number of cells.
+ * </p>
+ *
+ * <p>
+ * The sums of the blocks are maintained incrementally: a change of a cell
+ * marks the blocks containing it dirty on every level, and dirty blocks are
+ * recomputed lazily from their four children when they are queried. Food
+ * growth changes every cell, so after it the first query of a level
+ * aggregates the whole world once; changes of the occupancy do not affect the
+ * food sums and vice versa. Like the listeners, instances are <i>not</i>
+ * thread-safe.
+ * </p>
+ *
+ * @version $Id$
+ */
+public class WorldPyramid {
+
+	/** The food field of the world. */
+	private final FoodField field;
+
+	/** The occupancy layer of the world. */
+	private final OccupancyLayer occupancy;
+
+	/** Number of block columns on each level. */
+	private final int[] columns;
+
+	/** Number of block rows on each level. */
+	private final int[] rows;
+
+	/** Sum of the food of the blocks on each level (except level 0). */
+	private final double[][] food;
+
+	/** Number of occupied cells of the blocks on each level (except level 0). */
+	private final int[][] occupied;
+
+	/** Blocks whose food sum is out of date on each level. */
+	private final boolean[][] dirtyFood;
+
+	/** Blocks whose occupied count is out of date on each level. */
+	private final boolean[][] dirtyOccupied;
+
+	/**
+	 * Creates a new pyramid of the specified world.
+	 *
+	 * @param field
+	 *            the food field of the world; <i>cannot be <code>null</code>
+	 *            </i>
+	 * @param occupancy
+	 *            the occupancy layer of the world; <i>cannot be
+	 *            <code>null</code> and must have the dimensions of the
+	 *            field</i>
+	 */
+	public WorldPyramid(final FoodField field, final OccupancyLayer occupancy) {
+		if (null == field) {
+			throw new IllegalArgumentException("Parameter field cannot be null.");
+		}
+
+		if (null == occupancy) {
+			throw new IllegalArgumentException(
+					"Parameter occupancy cannot be null.");
+		}
+
+		if (occupancy.getWidth() != field.getWidth()
+				|| occupancy.getHeight() != field.getHeight()) {
+			throw new IllegalArgumentException(String.format(
+					"Occupancy layer of %d * %d does not match the field of %d * %d.",
+					occupancy.getWidth(), occupancy.getHeight(),
+					field.getWidth(), field.getHeight()));
+		}
+
+		this.field = field;
+		this.occupancy = occupancy;
+
+		int levels = 1;
+		while ((field.getWidth() - 1) >> (levels - 1) > 0
+				|| (field.getHeight() - 1) >> (levels - 1) > 0) {
+			++levels;
+		}
+
+		this.columns = new int[levels];
+		this.rows = new int[levels];
+		this.food = new double[levels][];
+		this.occupied = new int[levels][];
+		this.dirtyFood = new boolean[levels][];
+		this.dirtyOccupied = new boolean[levels][];
+
+		for (int level = 0; level < levels; ++level) {
+			columns[level] = ((field.getWidth() - 1) >> level) + 1;
+			rows[level] = ((field.getHeight() - 1) >> level) + 1;
+
+			if (level > 0) {
+				final int blocks = columns[level] * rows[level];
+				food[level] = new double[blocks];
+				occupied[level] = new int[blocks];
+				dirtyFood[level] = new boolean[blocks];
+				dirtyOccupied[level] = new boolean[blocks];
+				Arrays.fill(dirtyFood[level], true);
+				Arrays.fill(dirtyOccupied[level], true);
+			}
+		}
+
+		field.addListener(new CellChangeListener() {
+
+			@Override
+			public void cellChanged(final int index) {
+				markDirty(dirtyFood, index);
+			}
+
+			@Override
+			public void allCellsChanged() {
+				markAllDirty(dirtyFood);
+			}
+		});
+
+		occupancy.addListener(new CellChangeListener() {
+
+			@Override
+			public void cellChanged(final int index) {
+				markDirty(dirtyOccupied, index);
+			}
+
+			@Override
+			public void allCellsChanged() {
+				markAllDirty(dirtyOccupied);
+			}
+		});
+	}
+
+	/**
+	 * Returns the number of levels of the pyramid.
+	 *
+	 * @return the number of levels, including level <code>0</code> (the
+	 *         world) and the single block covering the world
+	 */
+	public int getLevelCount() {
+		return columns.length;
+	}
+
+	/**
+	 * Returns the number of block columns of the specified level.
+	 *
+	 * @param level
+	 *            the level
+	 * @return the width of the level in blocks
+	 */
+	public int getWidth(final int level) {
+		return columns[level];
+	}
+
+	/**
+	 * Returns the number of block rows of the specified level.
+	 *
+	 * @param level
+	 *            the level
+	 * @return the height of the level in blocks
+	 */
+	public int getHeight(final int level) {
+		return rows[level];
+	}
+
+	/**
+	 * Returns the coarsest level whose blocks are still at least one pixel
+	 * large at the specified zoom.
+	 *
+	 * @param pixelsPerCell
+	 *            size of a cell on the screen in pixels; <i>must be
+	 *            positive</i>
+	 * @return the level to display
+	 */
+	public int getLevelForScale(final double pixelsPerCell) {
+		if (!(pixelsPerCell > 0)) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter pixelsPerCell = %f <= 0.", pixelsPerCell));
+		}
+
+		int ret = 0;
+		while (ret + 1 < getLevelCount() && pixelsPerCell * (1 << ret) < 1.0) {
+			++ret;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Returns the mean food of the cells of a block.
+	 *
+	 * @param level
+	 *            the level of the block
+	 * @param x
+	 *            the block column
+	 * @param y
+	 *            the block row
+	 * @return the mean food availability of the cells of the block
+	 */
+	public double getFoodMean(final int level, final int x, final int y) {
+		return getFoodSum(level, x, y) / getCellCount(level, x, y);
+	}
+
+	/**
+	 * Returns the bug density of a block.
+	 *
+	 * @param level
+	 *            the level of the block
+	 * @param x
+	 *            the block column
+	 * @param y
+	 *            the block row
+	 * @return the ratio of the occupied cells of the block on the interval
+	 *         <code>[0, 1]</code>
+	 */
+	public double getDensity(final int level, final int x, final int y) {
+		return (double) getOccupiedCount(level, x, y)
+				/ getCellCount(level, x, y);
+	}
+
+	/**
+	 * Creates a read-only {@link ValueLayer} view of the mean food of a level,
+	 * to be displayed instead of the food of the cells.
+	 *
+	 * @param name
+	 *            name of the layer; <i>cannot be <code>null</code></i>
+	 * @param level
+	 *            the displayed level
+	 * @return a layer with the dimensions of the level
+	 */
+	public ValueLayer createFoodLayer(final String name, final int level) {
+		if (null == name) {
+			throw new IllegalArgumentException("Parameter name cannot be null.");
+		}
+
+		if (level < 0 || level >= getLevelCount()) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter level = %d is not on the interval [0, %d).",
+					level, getLevelCount()));
+		}
+
+		final Dimensions dimensions = new Dimensions(columns[level],
+				rows[level]);
+
+		return new ValueLayer() {
+
+			@Override
+			public String getName() {
+				return name;
+			}
+
+			@Override
+			public double get(final double... coordinates) {
+				return getFoodMean(level, (int) coordinates[0],
+						(int) coordinates[1]);
+			}
+
+			@Override
+			public Dimensions getDimensions() {
+				return dimensions;
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of cells of a block.
+	 *
+	 * @param level
+	 *            the level of the block
+	 * @param x
+	 *            the block column
+	 * @param y
+	 *            the block row
+	 * @return the number of cells covered by the block
+	 */
+	private int getCellCount(final int level, final int x, final int y) {
+		checkBlock(level, x, y);
+
+		final int side = 1 << level;
+		return Math.min(side, field.getWidth() - x * side)
+				* Math.min(side, field.getHeight() - y * side);
+	}
+
+	/**
+	 * Returns the food sum of a block, recomputing it if it is dirty.
+	 *
+	 * @param level
+	 *            the level of the block
+	 * @param x
+	 *            the block column
+	 * @param y
+	 *            the block row
+	 * @return the sum of the food of the cells of the block
+	 */
+	private double getFoodSum(final int level, final int x, final int y) {
+		if (0 == level) {
+			return field.getFood(field.index(x, y));
+		}
+
+		final int block = x * rows[level] + y;
+		if (dirtyFood[level][block]) {
+			double sum = 0.0;
+			for (int cx = 2 * x; cx < Math.min(2 * x + 2, columns[level - 1]); ++cx) {
+				for (int cy = 2 * y; cy < Math.min(2 * y + 2, rows[level - 1]); ++cy) {
+					sum += getFoodSum(level - 1, cx, cy);
+				}
+			}
+
+			food[level][block] = sum;
+			dirtyFood[level][block] = false;
+		}
+
+		return food[level][block];
+	}
+
+	/**
+	 * Returns the number of occupied cells of a block, recomputing it if it is
+	 * dirty.
+	 *
+	 * @param level
+	 *            the level of the block
+	 * @param x
+	 *            the block column
+	 * @param y
+	 *            the block row
+	 * @return the number of the occupied cells of the block
+	 */
+	private int getOccupiedCount(final int level, final int x, final int y) {
+		if (0 == level) {
+			return occupancy.isOccupied(occupancy.index(x, y)) ? 1 : 0;
+		}
+
+		final int block = x * rows[level] + y;
+		if (dirtyOccupied[level][block]) {
+			int count = 0;
+			for (int cx = 2 * x; cx < Math.min(2 * x + 2, columns[level - 1]); ++cx) {
+				for (int cy = 2 * y; cy < Math.min(2 * y + 2, rows[level - 1]); ++cy) {
+					count += getOccupiedCount(level - 1, cx, cy);
+				}
+			}
+
+			occupied[level][block] = count;
+			dirtyOccupied[level][block] = false;
+		}
+
+		return occupied[level][block];
+	}
+
+	/**
+	 * Marks the blocks containing a cell dirty on every level.
+	 *
+	 * <p>
+	 * The ancestors of a dirty block are always dirty, so the marking stops at
+	 * the first block that is already dirty.
+	 * </p>
+	 *
+	 * @param dirty
+	 *            the dirty flags to update
+	 * @param index
+	 *            index of the changed cell
+	 */
+	private void markDirty(final boolean[][] dirty, final int index) {
+		final int x = index / field.getHeight();
+		final int y = index % field.getHeight();
+
+		for (int level = 1; level < dirty.length; ++level) {
+			final int block = (x >> level) * rows[level] + (y >> level);
+			if (dirty[level][block]) {
+				return;
+			}
+
+			dirty[level][block] = true;
+		}
+	}
+
+	/**
+	 * Marks every block dirty.
+	 *
+	 * @param dirty
+	 *            the dirty flags to update
+	 */
+	private static void markAllDirty(final boolean[][] dirty) {
+		for (int level = 1; level < dirty.length; ++level) {
+			Arrays.fill(dirty[level], true);
+		}
+	}
+
+	/**
+	 * Verifies the coordinates of a block.
+	 *
+	 * @param level
+	 *            the level of the block
+	 * @param x
+	 *            the block column
+	 * @param y
+	 *            the block row
+	 */
+	private void checkBlock(final int level, final int x, final int y) {
+		if (level < 0 || level >= getLevelCount()) {
+			throw new IllegalArgumentException(String.format(
+					"Parameter level = %d is not on the interval [0, %d).",
+					level, getLevelCount()));
+		}
+
+		if (x < 0 || x >= columns[level] || y < 0 || y >= rows[level]) {
+			throw new IllegalArgumentException(String.format(
+					"Block (%d, %d) is out of level %d of %d * %d.", x, y,
+					level, columns[level], rows[level]));
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+/**
+ * Temporary directories for the tests writing output files.
+ *
+ * @version $Id$
+ */
+public final class TemporaryDirectories {
+
+	/**
+	 * Creates an empty temporary directory.
+	 *
+	 * @param name
+	 *            prefix of the name of the directory
+	 * @return the new directory
+	 * @throws IOException
+	 *             if the directory cannot be created
+	 */
+	public static File create(final String name) throws IOException {
+		final File ret = File.createTempFile(name, "");
+		Assert.assertTrue(ret.delete());
+		Assert.assertTrue(ret.mkdir());
+		return ret;
+	}
+
+	/**
+	 * Deletes a directory with its files and subdirectories.
+	 *
+	 * @param directory
+	 *            the directory to delete
+	 */
+	public static void delete(final File directory) {
+		final File[] files = directory.listFiles();
+
+		if (files != null) {
+			for (final File file : files) {
+				if (file.isDirectory()) {
+					delete(file);
+				} else {
+					file.delete();
+				}
+			}
+		}
+
+		directory.delete();
+	}
+
+	/**
+	 * Hidden constructor to ensure no instances are created.
+	 */
+	private TemporaryDirectories() {
+		;
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.agents;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import repast.simphony.context.Context;
+import repast.simphony.context.DefaultContext;
+import repast.simphony.context.space.grid.GridFactoryFinder;
+import repast.simphony.space.grid.Grid;
+import repast.simphony.space.grid.GridBuilderParameters;
+import repast.simphony.space.grid.SimpleGridAdder;
+import repast.simphony.space.grid.WrapAroundBorders;
+import stupidmodel.space.OccupancyLayer;
+
+/**
+ * Simple tests for the {@link BirthDeathBuffer} class.
+ *
+ * @version $Id$
+ */
+public class TestBirthDeathBuffer {
+
+	/** Context of the tests. */
+	private Context<Object> context;
+
+	/** Grid of the tests. */
+	private Grid<Object> grid;
+
+	/** Occupancy layer of the tests. */
+	private OccupancyLayer occupancy;
+
+	/** Buffer of the tests. */
+	private BirthDeathBuffer buffer;
+
+	/**
+	 * Creates a context with a small grid.
+	 */
+	@Before
+	public void setUp() {
+		context = new DefaultContext<Object>();
+		grid = GridFactoryFinder.createGridFactory(null).createGrid(
+				"grid",
+				context,
+				new GridBuilderParameters<Object>(new WrapAroundBorders(),
+						new SimpleGridAdder<Object>(), true, 10, 10));
+		occupancy = new OccupancyLayer(10, 10);
+		buffer = new BirthDeathBuffer(context, grid, occupancy);
+	}
+
+	/**
+	 * Changes are applied right away outside of a phase.
+	 */
+	@Test
+	public void testImmediate() {
+		final Bug bug = new Bug();
+		buffer.recordBirth(bug, occupancy.index(2, 3));
+
+		Assert.assertTrue(context.contains(bug));
+		Assert.assertEquals(2, grid.getLocation(bug).getX());
+		Assert.assertEquals(3, grid.getLocation(bug).getY());
+
+		buffer.recordDeath(bug, occupancy.index(2, 3));
+		Assert.assertFalse(context.contains(bug));
+		Assert.assertFalse(occupancy.isOccupied(occupancy.index(2, 3)));
+	}
+
+	/**
+	 * Changes of a phase are applied at its end, but the occupancy follows
+	 * them right away.
+	 */
+	@Test
+	public void testDeferred() {
+		final Bug parent = new Bug();
+		buffer.recordBirth(parent, occupancy.index(5, 5));
+
+		buffer.begin();
+		final Bug first = new Bug();
+		final Bug second = new Bug();
+		buffer.recordBirth(first, occupancy.index(4, 4));
+		buffer.recordBirth(second, occupancy.index(6, 6));
+		buffer.recordDeath(parent, occupancy.index(5, 5));
+
+		Assert.assertEquals(3, buffer.getPendingCount());
+		Assert.assertTrue(context.contains(parent));
+		Assert.assertFalse(context.contains(first));
+		Assert.assertTrue(occupancy.isOccupied(occupancy.index(4, 4)));
+		Assert.assertFalse(occupancy.isOccupied(occupancy.index(5, 5)));
+
+		buffer.commit();
+
+		Assert.assertEquals(0, buffer.getPendingCount());
+		Assert.assertFalse(context.contains(parent));
+		Assert.assertTrue(context.contains(first));
+		Assert.assertEquals(6, grid.getLocation(second).getX());
+		Assert.assertEquals(6, grid.getLocation(second).getY());
+	}
+
+	/**
+	 * Phases cannot be nested.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testNestedPhase() {
+		buffer.begin();
+		buffer.begin();
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.agents;
+
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import repast.simphony.context.Context;
+import repast.simphony.context.DefaultContext;
+
+/**
+ * Simple tests for the {@link BugPopulation} registry.
+ *
+ * @version $Id$
+ */
+public class TestBugPopulation {
+
+	/**
+	 * Registering <code>null</code> should fail.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNull() {
+		new BugPopulation().add(null);
+	}
+
+	/**
+	 * A bug cannot be registered twice.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testAddTwice() {
+		final BugPopulation population = new BugPopulation();
+		final Bug bug = new Bug();
+
+		population.add(bug);
+		population.add(bug);
+	}
+
+	/**
+	 * Removing bugs keeps the rest of the population registered.
+	 */
+	@Test
+	public void testAddAndRemove() {
+		final BugPopulation population = new BugPopulation();
+		final Bug b1 = new Bug();
+		final Bug b2 = new Bug();
+		final Bug b3 = new Bug();
+
+		population.add(b1);
+		population.add(b2);
+		population.add(b3);
+		Assert.assertEquals(3, population.size());
+
+		Assert.assertTrue(population.remove(b1));
+		Assert.assertFalse(population.remove(b1));
+		Assert.assertEquals(2, population.size());
+
+		final List<Bug> bugs = population.snapshot();
+		Assert.assertTrue(bugs.contains(b2));
+		Assert.assertTrue(bugs.contains(b3));
+		Assert.assertFalse(bugs.contains(b1));
+	}
+
+	/**
+	 * The snapshot is a copy: modifying the population does not change it.
+	 */
+	@Test
+	public void testSnapshotIsCopy() {
+		final BugPopulation population = new BugPopulation();
+		final Bug b1 = new Bug();
+		final Bug b2 = new Bug();
+
+		population.add(b1);
+		population.add(b2);
+
+		final List<Bug> bugs = population.snapshot();
+		population.remove(b2);
+
+		Assert.assertEquals(2, bugs.size());
+		Assert.assertEquals(1, population.size());
+	}
+
+	/**
+	 * The registry follows the bugs added to and removed from the context, and
+	 * ignores other objects.
+	 */
+	@Test
+	public void testFollowsContext() {
+		final Context<Object> context = new DefaultContext<Object>();
+		final Bug b1 = new Bug();
+		context.add(b1);
+		context.add(new HabitatCell(0, 0));
+
+		final BugPopulation population = BugPopulation.attach(context);
+		Assert.assertEquals(1, population.size());
+
+		final Bug b2 = new Bug();
+		context.add(b2);
+		Assert.assertEquals(2, population.size());
+
+		context.remove(b1);
+		Assert.assertEquals(1, population.size());
+		Assert.assertEquals(b2, population.get(0));
+	}
+
+}
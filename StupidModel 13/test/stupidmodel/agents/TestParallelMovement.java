@@ -0,0 +1,190 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.agents;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import stupidmodel.common.WorkerPool;
+import stupidmodel.space.FoodField;
+
+/**
+ * Simple tests for the {@link ParallelMovement} class.
+ *
+ * @version $Id$
+ */
+public class TestParallelMovement {
+
+	/** Vision range used by the tests. */
+	private static final int RANGE = 2;
+
+	/**
+	 * The bigger bug gets the best cell if two bugs see it.
+	 */
+	@Test
+	public void testBiggerBugWins() {
+		final FoodField field = new FoodField(10, 10);
+		field.setFood(field.index(5, 5), 1.0);
+		field.setFood(field.index(3, 5), 0.5);
+
+		final WorkerPool pool = new WorkerPool(2);
+		try {
+			// The second bug is closer, but it is smaller, so it gets the
+			// second best cell
+			final int[] targets = new ParallelMovement(pool, RANGE).decide(
+					new int[] { field.index(3, 4), field.index(5, 6) }, field);
+
+			Assert.assertEquals(field.index(5, 5), targets[0]);
+			Assert.assertEquals(field.index(3, 5), targets[1]);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Bugs without free cells in range stay at their position.
+	 */
+	@Test
+	public void testNoFreeCell() {
+		final FoodField field = new FoodField(1, 2);
+
+		final WorkerPool pool = new WorkerPool(1);
+		try {
+			final int[] targets = new ParallelMovement(pool, RANGE).decide(
+					new int[] { 0, 1 }, field);
+
+			Assert.assertEquals(0, targets[0]);
+			Assert.assertEquals(1, targets[1]);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * The result is the same as of the sequential reference for random worlds,
+	 * regardless of the number of threads.
+	 */
+	@Test
+	public void testMatchesSequentialReference() {
+		final Random random = new Random(7);
+
+		for (int run = 0; run < 20; ++run) {
+			final FoodField field = new FoodField(12 + run, 17);
+			for (int i = 0; i < field.size(); ++i) {
+				field.setFood(i, random.nextInt(4) / 4.0);
+			}
+
+			final int[] positions = new int[10 + 5 * run];
+			for (int i = 0; i < positions.length; ++i) {
+				positions[i] = random.nextInt(field.size());
+			}
+
+			final int[] expected = sequential(positions, field);
+
+			for (int threads = 1; threads <= 4; ++threads) {
+				final WorkerPool pool = new WorkerPool(threads);
+				try {
+					final int[] targets = new ParallelMovement(pool, RANGE)
+							.decide(positions, field);
+
+					for (int i = 0; i < positions.length; ++i) {
+						Assert.assertEquals(expected[i], targets[i]);
+					}
+				} finally {
+					pool.shutdown();
+				}
+			}
+		}
+	}
+
+	/**
+	 * An instance reused for the ticks of a world decides the same way as a
+	 * new one.
+	 */
+	@Test
+	public void testReusedBuffers() {
+		final Random random = new Random(11);
+		final FoodField field = new FoodField(15, 13);
+
+		final WorkerPool pool = new WorkerPool(2);
+		try {
+			final ParallelMovement movement = new ParallelMovement(pool, RANGE);
+
+			for (int tick = 0; tick < 10; ++tick) {
+				for (int i = 0; i < field.size(); ++i) {
+					field.setFood(i, random.nextInt(4) / 4.0);
+				}
+
+				final int[] positions = new int[20 + 3 * tick];
+				for (int i = 0; i < positions.length; ++i) {
+					positions[i] = random.nextInt(field.size());
+				}
+
+				final int[] expected = sequential(positions, field);
+				final int[] targets = movement.decide(positions, field);
+
+				for (int i = 0; i < positions.length; ++i) {
+					Assert.assertEquals(expected[i], targets[i]);
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Sequential reference: bugs choose in priority order, vacated cells stay
+	 * blocked.
+	 *
+	 * @param positions
+	 *            the positions of the bugs in priority order
+	 * @param field
+	 *            the food of the cells
+	 * @return the new positions of the bugs
+	 */
+	private static int[] sequential(final int[] positions,
+			final FoodField field) {
+		final boolean[] blocked = new boolean[field.size()];
+		for (final int position : positions) {
+			blocked[position] = true;
+		}
+
+		final int w = field.getWidth();
+		final int h = field.getHeight();
+		final int[] ret = positions.clone();
+
+		for (int i = 0; i < positions.length; ++i) {
+			final int x = positions[i] / h;
+			final int y = positions[i] % h;
+			int best = -1;
+
+			for (int dx = -RANGE; dx <= RANGE; ++dx) {
+				for (int dy = -RANGE; dy <= RANGE; ++dy) {
+					final int index = field.index((x + dx + w) % w, (y + dy + h)
+							% h);
+					if (!blocked[index]
+							&& (best < 0 || field.getFood(index) > field
+									.getFood(best))) {
+						best = index;
+					}
+				}
+			}
+
+			if (best >= 0) {
+				blocked[best] = true;
+				ret[i] = best;
+			}
+		}
+
+		return ret;
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.batch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import stupidmodel.batch.AsyncStatisticsSink.Backpressure;
+
+/**
+ * Simple tests for the {@link AsyncStatisticsSink} class.
+ *
+ * @version $Id$
+ */
+public class TestAsyncStatisticsSink {
+
+	/**
+	 * Blocking sinks write every record in order, however slow the target
+	 * is.
+	 *
+	 * @throws Exception
+	 *             if the records cannot be written
+	 */
+	@Test
+	public void testBlock() throws Exception {
+		final RecordingSink target = new RecordingSink(null);
+		final AsyncStatisticsSink sink = new AsyncStatisticsSink(target, 4,
+				Backpressure.BLOCK, 10);
+
+		for (int tick = 0; tick < 100; ++tick) {
+			sink.write(tick, tick, 0.0, 1.0, 0.5);
+		}
+
+		sink.close();
+
+		Assert.assertTrue(target.closed);
+		Assert.assertEquals(0, sink.getDroppedCount());
+		Assert.assertEquals(100, target.ticks.size());
+		for (int tick = 0; tick < 100; ++tick) {
+			Assert.assertEquals(Long.valueOf(tick), target.ticks.get(tick));
+		}
+	}
+
+	/**
+	 * Sampling sinks drop records instead of waiting for a stalled writer.
+	 *
+	 * @throws Exception
+	 *             if the records cannot be written
+	 */
+	@Test
+	public void testSample() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final RecordingSink target = new RecordingSink(release);
+		final AsyncStatisticsSink sink = new AsyncStatisticsSink(target, 4,
+				Backpressure.SAMPLE, 10);
+
+		// The writer is stalled at the first record, so the buffer fills up
+		for (int tick = 0; tick < 100; ++tick) {
+			sink.write(tick, tick, 0.0, 1.0, 0.5);
+		}
+
+		release.countDown();
+		sink.close();
+
+		Assert.assertTrue(sink.getDroppedCount() > 0);
+		Assert.assertEquals(100, target.ticks.size() + sink.getDroppedCount());
+		for (int i = 1; i < target.ticks.size(); ++i) {
+			Assert.assertTrue(target.ticks.get(i - 1) < target.ticks.get(i));
+		}
+	}
+
+	/**
+	 * Failures of the target are reported to the writing thread.
+	 *
+	 * @throws Exception
+	 *             if the sink cannot be closed
+	 */
+	@Test(expected = IOException.class)
+	public void testFailure() throws Exception {
+		final AsyncStatisticsSink sink = new AsyncStatisticsSink(
+				new RecordingSink(null) {
+
+					@Override
+					public void flush() throws IOException {
+						throw new IOException("Disk full.");
+					}
+				}, 4, Backpressure.BLOCK, 10);
+
+		sink.write(0, 0, 0.0, 1.0, 0.5);
+		sink.close();
+	}
+
+	/**
+	 * Unchecked failures of the target stop the writer, and the writing
+	 * thread waiting for free space is released with the failure.
+	 *
+	 * @throws Exception
+	 *             if the sink cannot be closed
+	 */
+	@Test(timeout = 10000)
+	public void testUncheckedFailure() throws Exception {
+		final IllegalStateException cause = new IllegalStateException(
+				"Broken target.");
+		final AsyncStatisticsSink sink = new AsyncStatisticsSink(
+				new RecordingSink(null) {
+
+					@Override
+					public void write(final long tick, final int count,
+							final double minSize, final double maxSize,
+							final double meanSize) {
+						throw cause;
+					}
+				}, 1, Backpressure.BLOCK, 10);
+
+		try {
+			for (int tick = 0; tick < 100; ++tick) {
+				sink.write(tick, tick, 0.0, 1.0, 0.5);
+			}
+
+			Assert.fail("The failure of the target was not reported.");
+		} catch (final IOException e) {
+			Assert.assertSame(cause, e.getCause());
+		}
+
+		try {
+			sink.close();
+			Assert.fail("The failure of the target was not reported.");
+		} catch (final IOException e) {
+			Assert.assertSame(cause, e.getCause());
+		}
+	}
+
+	/**
+	 * Target sink recording the ticks of the written records.
+	 */
+	private static class RecordingSink implements StatisticsSink {
+
+		/** Ticks of the written records. */
+		final List<Long> ticks = new ArrayList<Long>();
+
+		/** Indicates if the sink is closed. */
+		boolean closed = false;
+
+		/** The writes wait for it; <code>null</code> if they do not wait. */
+		private final CountDownLatch release;
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param release
+		 *            the writes wait for it; <code>null</code> if they do not
+		 *            wait
+		 */
+		RecordingSink(final CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void write(final long tick, final int count,
+				final double minSize, final double maxSize,
+				final double meanSize) throws InterruptedException {
+			if (release != null) {
+				release.await();
+			}
+
+			ticks.add(tick);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			// Nothing is buffered
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+
+	}
+
+}
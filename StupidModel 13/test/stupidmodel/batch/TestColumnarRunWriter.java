@@ -0,0 +1,271 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import stupidmodel.batch.ColumnarRunWriter.ColumnType;
+
+/**
+ * Simple tests for the {@link ColumnarRunWriter} and the
+ * {@link ColumnarRunReader} classes.
+ *
+ * @version $Id$
+ */
+public class TestColumnarRunWriter {
+
+	/** Names of the columns of the test files. */
+	private static final String[] NAMES = { "tick", "Count", "Mean Size" };
+
+	/** Types of the columns of the test files. */
+	private static final ColumnType[] TYPES = { ColumnType.LONG,
+			ColumnType.LONG, ColumnType.DOUBLE };
+
+	/**
+	 * The values read back are the written ones, across multiple blocks.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written or read
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		final File file = File.createTempFile("run", ".col");
+		final Random random = new Random(7);
+		final long[] counts = new long[1000];
+		final double[] means = new double[counts.length];
+
+		try {
+			final ColumnarRunWriter writer = new ColumnarRunWriter(file, NAMES,
+					TYPES, 64);
+			for (int i = 0; i < counts.length; ++i) {
+				counts[i] = random.nextInt(500) - 100;
+				means[i] = (0 == i % 10) ? Double.NaN : random.nextDouble() * 10;
+
+				writer.set(0, (long) i);
+				writer.set(1, counts[i]);
+				writer.set(2, means[i]);
+				writer.endRow();
+			}
+
+			writer.close();
+
+			final ColumnarRunReader reader = new ColumnarRunReader(file);
+			try {
+				Assert.assertEquals(NAMES.length, reader.getColumnCount());
+				Assert.assertEquals("Mean Size", reader.getColumnName(2));
+				Assert.assertEquals(ColumnType.LONG, reader.getColumnType(1));
+				Assert.assertEquals(-1, reader.getColumn("Max Size"));
+				Assert.assertEquals(counts.length, reader.getRowCount());
+
+				Assert.assertTrue(Arrays.equals(counts, reader
+						.readLongColumn("Count")));
+				Assert.assertTrue(Arrays.equals(means, reader
+						.readDoubleColumn("Mean Size")));
+				Assert.assertEquals(999.0,
+						reader.readDoubleColumn("tick")[999], 0.0);
+			} finally {
+				reader.close();
+			}
+
+			Assert.assertTrue(Arrays.equals(means, ColumnarRunReader
+					.readColumn(Arrays.asList(file, file), "Mean Size")[1]));
+
+			// Ticks are delta encoded and the counts are small, so the file
+			// is smaller than two uncompressed columns
+			Assert.assertTrue(file.length() < 2 * 8 * counts.length);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Files without rows have no blocks.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written or read
+	 */
+	@Test
+	public void testEmpty() throws IOException {
+		final File file = File.createTempFile("run", ".col");
+
+		try {
+			new ColumnarRunWriter(file, NAMES, TYPES, 64).close();
+			Assert.assertEquals(0, ColumnarRunReader.readColumn(
+					Arrays.asList(file), "Mean Size")[0].length);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * A footer offset outside the file is reported as an I/O error.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	@Test
+	public void testInvalidFooterOffset() throws IOException {
+		final File file = writeCorrupt(-12, 8, 1L << 40);
+		assertCorrupt(file);
+	}
+
+	/**
+	 * A block outside the file is reported as an I/O error.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	@Test
+	public void testInvalidBlockOffset() throws IOException {
+		// The first block of the first column is right after the footer
+		// count and the block row count
+		final File file = writeCorrupt(-1, 8, 1L << 20);
+		assertCorrupt(file);
+	}
+
+	/**
+	 * An unknown column type is reported as an I/O error.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	@Test
+	public void testInvalidType() throws IOException {
+		// The type of the first column follows its two byte long name
+		final File file = writeCorrupt(12 + 2 + NAMES[0].length(), 1, 99);
+		assertCorrupt(file);
+	}
+
+	/**
+	 * A truncated file is reported as an I/O error.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	@Test
+	public void testTruncated() throws IOException {
+		final File file = writeCorrupt(0, 0, 0);
+		final RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.setLength(out.length() / 2);
+		} finally {
+			out.close();
+		}
+
+		assertCorrupt(file);
+	}
+
+	/**
+	 * Every column of a row has to be set.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testIncompleteRow() throws IOException {
+		final File file = File.createTempFile("run", ".col");
+
+		try {
+			final ColumnarRunWriter writer = new ColumnarRunWriter(file, NAMES,
+					TYPES, 64);
+			writer.set(0, 1L);
+			writer.endRow();
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Writes a small valid file and overwrites a part of it.
+	 *
+	 * @param position
+	 *            position of the overwritten value; the first block of the
+	 *            footer if <code>-1</code>, the trailer if <code>-12</code>
+	 * @param size
+	 *            size of the overwritten value in bytes (1 or 8), nothing is
+	 *            overwritten if <code>0</code>
+	 * @param value
+	 *            the new value
+	 * @return the written file, deleted when the virtual machine exits
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	private static File writeCorrupt(final long position, final int size,
+			final long value) throws IOException {
+		final File file = File.createTempFile("run", ".col");
+		file.deleteOnExit();
+
+		final ColumnarRunWriter writer = new ColumnarRunWriter(file, NAMES,
+				TYPES, 64);
+		for (int i = 0; i < 100; ++i) {
+			writer.set(0, (long) i);
+			writer.set(1, (long) i);
+			writer.set(2, 0.5 * i);
+			writer.endRow();
+		}
+
+		writer.close();
+
+		final RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			long target = position;
+			if (-12 == position) {
+				target = out.length() - 12;
+			} else if (-1 == position) {
+				out.seek(out.length() - 12);
+				target = out.readLong() + 4 + 4;
+			}
+
+			out.seek(target);
+			if (1 == size) {
+				out.writeByte((int) value);
+			} else if (8 == size) {
+				out.writeLong(value);
+			}
+		} finally {
+			out.close();
+		}
+
+		return file;
+	}
+
+	/**
+	 * Opens a file and reads its columns, expecting an {@link IOException},
+	 * and deletes the file.
+	 *
+	 * @param file
+	 *            the corrupt file
+	 */
+	private static void assertCorrupt(final File file) {
+		try {
+			final ColumnarRunReader reader = new ColumnarRunReader(file);
+			try {
+				for (final String name : NAMES) {
+					reader.readDoubleColumn(name);
+				}
+			} finally {
+				reader.close();
+			}
+
+			Assert.fail("The corrupt file was read.");
+		} catch (final IOException e) {
+			// Expected
+		} finally {
+			file.delete();
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.batch;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Simple tests for the {@link SweepDefinition} class.
+ *
+ * @version $Id$
+ */
+public class TestSweepDefinition {
+
+	/** A sweep with all parameter types and nesting. */
+	private static final String SWEEP = "<?xml version=\"1.0\"?>"
+			+ "<sweep runs=\"2\">"
+			+ "<parameter name=\"randomSeed\" type=\"constant\" constant_type=\"number\" value=\"7\"/>"
+			+ "<parameter name=\"bugCount\" type=\"list\" value_type=\"int\" values=\"10 20\">"
+			+ "<parameter name=\"survivalProbability\" type=\"number\" start=\"0.9\" end=\"1.0\" step=\"0.05\"/>"
+			+ "</parameter>"
+			+ "<parameter name=\"gridSize\" type=\"number\" start=\"10\" end=\"12\" step=\"2\"/>"
+			+ "</sweep>";
+
+	/**
+	 * The runs are the product of the parameter values, each repeated.
+	 *
+	 * @throws IOException
+	 *             never
+	 */
+	@Test
+	public void testExpand() throws IOException {
+		final SweepDefinition definition = parse(SWEEP);
+		Assert.assertEquals(2, definition.getReplicates());
+
+		final List<SweepRun> runs = definition.expand(0);
+		Assert.assertEquals(1 * 2 * 3 * 2 * 2, runs.size());
+
+		final SweepRun first = runs.get(0);
+		Assert.assertEquals(1, first.getRun());
+		Assert.assertEquals(10, first.getInt("bugCount", 0));
+		Assert.assertEquals(0.9, first.getDouble("survivalProbability", 0),
+				1e-12);
+		Assert.assertEquals(10, first.getInt("gridSize", 0));
+
+		final SweepRun last = runs.get(runs.size() - 1);
+		Assert.assertEquals(runs.size(), last.getRun());
+		Assert.assertEquals(20, last.getInt("bugCount", 0));
+		Assert.assertEquals(1.0, last.getDouble("survivalProbability", 0),
+				1e-12);
+		Assert.assertEquals(12, last.getInt("gridSize", 0));
+	}
+
+	/**
+	 * Every run has its own seed, derived from the swept seed.
+	 *
+	 * @throws IOException
+	 *             never
+	 */
+	@Test
+	public void testSeeds() throws IOException {
+		final List<SweepRun> runs = parse(SWEEP).expand(0);
+		final Set<Long> seeds = new HashSet<Long>();
+
+		for (final SweepRun run : runs) {
+			seeds.add(run.getSeed());
+		}
+
+		Assert.assertEquals(runs.size(), seeds.size());
+		Assert.assertEquals(runs.get(3).getSeed(), parse(SWEEP).expand(99)
+				.get(3).getSeed());
+	}
+
+	/**
+	 * The empty sweep of the model has a single run.
+	 *
+	 * @throws IOException
+	 *             never
+	 */
+	@Test
+	public void testEmptySweep() throws IOException {
+		final List<SweepRun> runs = parse(
+				"<?xml version=\"1.0\"?><sweep runs=\"1\"></sweep>").expand(0);
+
+		Assert.assertEquals(1, runs.size());
+		Assert.assertTrue(runs.get(0).getParameters().isEmpty());
+	}
+
+	/**
+	 * Unknown parameter types are rejected.
+	 *
+	 * @throws IOException
+	 *             never
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownType() throws IOException {
+		parse("<sweep runs=\"1\"><parameter name=\"a\" type=\"foo\"/></sweep>");
+	}
+
+	/**
+	 * Parses the specified text.
+	 *
+	 * @param text
+	 *            content of a batch parameter file
+	 * @return the parsed definition
+	 * @throws IOException
+	 *             never
+	 */
+	private static SweepDefinition parse(final String text) throws IOException {
+		return SweepDefinition.parse(new ByteArrayInputStream(text
+				.getBytes("UTF-8")));
+	}
+
+}
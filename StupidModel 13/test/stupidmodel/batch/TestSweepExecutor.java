@@ -0,0 +1,265 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import stupidmodel.TemporaryDirectories;
+import stupidmodel.common.Constants;
+import stupidmodel.common.TickMetrics;
+
+/**
+ * Simple tests for the {@link SweepExecutor} class.
+ *
+ * @version $Id$
+ */
+public class TestSweepExecutor {
+
+	/**
+	 * The output of the runs does not depend on the number of threads.
+	 *
+	 * @throws Exception
+	 *             if the sweep fails
+	 */
+	@Test
+	public void testIndependentOfThreads() throws Exception {
+		final List<SweepRun> runs = new ArrayList<SweepRun>();
+		for (int i = 1; i <= 6; ++i) {
+			final Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+			parameters.put(Constants.PARAMETER_ID_BUG_COUNT, 10 * i);
+			parameters.put(Constants.PARAMETER_ID_GRID_SIZE, 20);
+			runs.add(new SweepRun(i, i * 31L, parameters));
+		}
+
+		final File sequential = TemporaryDirectories.create("sequential");
+		final File parallel = TemporaryDirectories.create("parallel");
+
+		try {
+			new SweepExecutor(1, 30, sequential).execute(runs);
+			new SweepExecutor(3, 30, parallel).execute(runs);
+
+			for (int i = 1; i <= runs.size(); ++i) {
+				final List<String> expected = read(new File(sequential, "run_"
+						+ i + ".txt"));
+				Assert.assertTrue(expected.size() > 1);
+				Assert.assertEquals(expected, read(new File(parallel, "run_"
+						+ i + ".txt")));
+			}
+
+			Assert.assertEquals(1 + runs.size(), read(
+					new File(parallel, SweepExecutor.SUMMARY_FILE)).size());
+		} finally {
+			TemporaryDirectories.delete(sequential);
+			TemporaryDirectories.delete(parallel);
+		}
+	}
+
+	/**
+	 * The columnar output of a run contains the values of the text output.
+	 *
+	 * @throws Exception
+	 *             if the sweep fails
+	 */
+	@Test
+	public void testColumnarOutput() throws Exception {
+		final Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+		parameters.put(Constants.PARAMETER_ID_BUG_COUNT, 40);
+		parameters.put(Constants.PARAMETER_ID_GRID_SIZE, 20);
+		final List<SweepRun> runs = new ArrayList<SweepRun>();
+		runs.add(new SweepRun(1, 17L, parameters));
+
+		final File text = TemporaryDirectories.create("text");
+		final File columnar = TemporaryDirectories.create("columnar");
+
+		try {
+			new SweepExecutor(1, 30, text).execute(runs);
+
+			final SweepExecutor executor = new SweepExecutor(1, 30, columnar);
+			executor.setColumnarOutput(true);
+			executor.execute(runs);
+
+			final List<String> lines = read(new File(text, "run_1.txt"));
+			final ColumnarRunReader reader = new ColumnarRunReader(new File(
+					columnar, "run_1.col"));
+			try {
+				Assert.assertEquals(lines.size() - 1, reader.getRowCount());
+
+				for (int i = 0; i < SweepExecutor.STATISTICS_COLUMNS.length; ++i) {
+					final double[] values = reader
+							.readDoubleColumn(SweepExecutor.STATISTICS_COLUMNS[i]);
+					for (int row = 0; row < values.length; ++row) {
+						Assert.assertEquals(Double.parseDouble(lines.get(
+								row + 1).split(",")[i]), values[row], 0.0);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} finally {
+			TemporaryDirectories.delete(text);
+			TemporaryDirectories.delete(columnar);
+		}
+	}
+
+	/**
+	 * The metrics of each run are written when the run finishes.
+	 *
+	 * @throws Exception
+	 *             if the sweep fails
+	 */
+	@Test
+	public void testMetricsOutput() throws Exception {
+		final Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+		parameters.put(Constants.PARAMETER_ID_BUG_COUNT, 40);
+		parameters.put(Constants.PARAMETER_ID_GRID_SIZE, 20);
+		final List<SweepRun> runs = new ArrayList<SweepRun>();
+		runs.add(new SweepRun(1, 17L, parameters));
+
+		final File directory = TemporaryDirectories.create("metrics");
+
+		try {
+			final SweepExecutor executor = new SweepExecutor(1, 30, directory);
+			executor.setMetricsOutput(true);
+			executor.execute(runs);
+
+			final List<String> lines = read(new File(directory,
+					"run_1_metrics.txt"));
+			Assert.assertEquals(1 + TickMetrics.Phase.values().length
+					+ TickMetrics.Counter.values().length, lines.size());
+			Assert.assertTrue(lines.get(1).startsWith("GROW_FOOD,30,"));
+		} finally {
+			TemporaryDirectories.delete(directory);
+		}
+	}
+
+	/**
+	 * Branches forked from a shared prefix continue the base run, with the
+	 * parameters of their variants.
+	 *
+	 * @throws Exception
+	 *             if the sweep fails
+	 */
+	@Test
+	public void testBranches() throws Exception {
+		final Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+		parameters.put(Constants.PARAMETER_ID_BUG_COUNT, 40);
+		parameters.put(Constants.PARAMETER_ID_GRID_SIZE, 20);
+		final SweepRun base = new SweepRun(1, 23L, parameters);
+
+		final Map<String, Object> changed = new LinkedHashMap<String, Object>();
+		changed.put(Constants.PARAMETER_ID_GRID_SIZE, 20);
+		changed.put(Constants.PARAMETER_ID_SURVIVAL_PROBABILITY, 0.5);
+		final List<SweepRun> variants = new ArrayList<SweepRun>();
+		variants.add(new SweepRun(1, 5L, new LinkedHashMap<String, Object>()));
+		variants.add(new SweepRun(2, 6L, changed));
+
+		final List<SweepRun> runs = new ArrayList<SweepRun>();
+		runs.add(base);
+
+		final File direct = TemporaryDirectories.create("direct");
+		final File branches = TemporaryDirectories.create("branches");
+
+		try {
+			new SweepExecutor(1, 30, direct).execute(runs);
+			new SweepExecutor(2, 30, branches)
+					.executeBranches(base, 10, variants);
+
+			// The unchanged branch writes the ticks after the prefix
+			final List<String> expected = read(new File(direct, "run_1.txt"));
+			final List<String> actual = read(new File(branches, "run_1.txt"));
+			Assert.assertEquals(expected.get(0), actual.get(0));
+			Assert.assertEquals(expected.subList(11, expected.size()),
+					actual.subList(1, actual.size()));
+
+			final List<String> changedLines = read(new File(branches,
+					"run_2.txt"));
+			Assert.assertEquals(actual.get(1), changedLines.get(1));
+			Assert.assertFalse(actual.equals(changedLines));
+
+			// The branches use the seed of the base run
+			final List<String> summary = read(new File(branches,
+					SweepExecutor.SUMMARY_FILE));
+			Assert.assertEquals(3, summary.size());
+			for (final String line : summary.subList(1, summary.size())) {
+				Assert.assertEquals("23", line.split(",")[1]);
+			}
+		} finally {
+			TemporaryDirectories.delete(direct);
+			TemporaryDirectories.delete(branches);
+		}
+	}
+
+	/**
+	 * Branches cannot change the parameters defining the initial world.
+	 *
+	 * @throws Exception
+	 *             if the sweep fails
+	 */
+	@Test
+	public void testBranchWithInitialParameter() throws Exception {
+		final Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+		parameters.put(Constants.PARAMETER_ID_GRID_SIZE, 20);
+		final SweepRun base = new SweepRun(1, 23L, parameters);
+
+		final Map<String, Object> changed = new LinkedHashMap<String, Object>();
+		changed.put(Constants.PARAMETER_ID_SURVIVAL_PROBABILITY, 0.5);
+		changed.put(Constants.PARAMETER_ID_GRID_SIZE, 30);
+		final List<SweepRun> variants = new ArrayList<SweepRun>();
+		variants.add(new SweepRun(1, 0L, changed));
+
+		final File directory = TemporaryDirectories.create("branches");
+
+		try {
+			new SweepExecutor(1, 30, directory).executeBranches(base, 10,
+					variants);
+			Assert.fail("The grid size of a branch was changed.");
+		} catch (final IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().contains(
+					Constants.PARAMETER_ID_GRID_SIZE));
+		} finally {
+			TemporaryDirectories.delete(directory);
+		}
+	}
+
+	/**
+	 * Reads the lines of a file.
+	 *
+	 * @param file
+	 *            the file to read
+	 * @return the lines of the file
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	private static List<String> read(final File file) throws IOException {
+		final List<String> ret = new ArrayList<String>();
+		final BufferedReader in = new BufferedReader(new FileReader(file));
+
+		try {
+			for (String line = in.readLine(); line != null; line = in
+					.readLine()) {
+				ret.add(line);
+			}
+		} finally {
+			in.close();
+		}
+
+		return ret;
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.common;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Simple tests for the {@link RandomStreams} class.
+ *
+ * @version $Id$
+ */
+public class TestRandomStreams {
+
+	/**
+	 * Draws depend only on the seed and the key.
+	 */
+	@Test
+	public void testReproducible() {
+		final RandomStreams first = new RandomStreams(42);
+		final RandomStreams second = new RandomStreams(42);
+
+		Assert.assertEquals(first.nextLong(3, 7, 1), second.nextLong(3, 7, 1));
+		Assert.assertTrue(first.nextLong(3, 7, 1) != first.nextLong(3, 7, 2));
+		Assert.assertTrue(first.nextLong(3, 7, 1) != first.nextLong(3, 8, 1));
+		Assert.assertTrue(first.nextLong(3, 7, 1) != first.nextLong(4, 7, 1));
+		Assert.assertTrue(first.nextLong(3, 7, 1) != new RandomStreams(43)
+				.nextLong(3, 7, 1));
+	}
+
+	/**
+	 * Streams return the draws of their key in order.
+	 */
+	@Test
+	public void testStream() {
+		final RandomStreams streams = new RandomStreams(1);
+		final RandomStreams.Stream stream = streams.stream(5, 9);
+
+		Assert.assertEquals(streams.nextDouble(5, 9, 0), stream.nextDouble(),
+				0.0);
+		Assert.assertEquals(streams.nextIntFromTo(5, 9, 1, 0, 10),
+				stream.nextIntFromTo(0, 10));
+	}
+
+	/**
+	 * Bulk fills return the same numbers as the single draws.
+	 */
+	@Test
+	public void testNextDoubles() {
+		final RandomStreams streams = new RandomStreams(3);
+		final double[] values = new double[100];
+		streams.nextDoubles(8, 1000, 2, values, 10, 80);
+
+		for (int k = 0; k < 80; ++k) {
+			Assert.assertEquals(streams.nextDouble(8, 1000 + k, 2),
+					values[10 + k], 0.0);
+		}
+
+		Assert.assertEquals(0.0, values[9], 0.0);
+		Assert.assertEquals(0.0, values[90], 0.0);
+	}
+
+	/**
+	 * Numbers are on the specified intervals, and roughly uniform.
+	 */
+	@Test
+	public void testDistribution() {
+		final RandomStreams streams = new RandomStreams(7);
+		final int[] counts = new int[10];
+		double sum = 0.0;
+
+		for (int i = 0; i < 100000; ++i) {
+			final double value = streams.nextDouble(0, i, 0);
+			Assert.assertTrue(0.0 <= value && value < 1.0);
+			sum += value;
+
+			final int bin = streams.nextIntFromTo(1, i, 0, 0, 9);
+			Assert.assertTrue(0 <= bin && bin <= 9);
+			++counts[bin];
+		}
+
+		Assert.assertEquals(0.5, sum / 100000, 0.01);
+		for (final int count : counts) {
+			Assert.assertEquals(10000, count, 500);
+		}
+	}
+
+	/**
+	 * Bounds must be ordered.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBounds() {
+		new RandomStreams(0).nextIntFromTo(0, 0, 0, 5, 4);
+	}
+
+}
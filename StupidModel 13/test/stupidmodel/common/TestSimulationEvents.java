@@ -0,0 +1,322 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.common;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Test;
+
+import stupidmodel.kernel.BugKernel;
+
+/**
+ * Simple tests for the {@link SimulationEvents} class.
+ *
+ * @version $Id$
+ */
+public class TestSimulationEvents {
+
+	/**
+	 * Disables the events after each test.
+	 */
+	@After
+	public void tearDown() {
+		SimulationEvents.setListener(null);
+	}
+
+	/**
+	 * Events are reported for each tick and timed phase of a world, and the
+	 * population changes reported by the ticks add up.
+	 */
+	@Test
+	public void testKernelEvents() {
+		final BugKernel kernel = BugKernel.create(30, 30, 80, 12);
+		kernel.setMetrics(new TickMetrics(kernel.getEvents()));
+		final RecordingListener listener = new RecordingListener(kernel
+				.getEvents().getWorld());
+		SimulationEvents.setListener(listener);
+
+		int ticks = 0;
+		while (ticks < 60 && kernel.tick()) {
+			++ticks;
+		}
+
+		Assert.assertEquals(kernel.getTick(), listener.started);
+		Assert.assertEquals(kernel.getTick(), listener.finished);
+		Assert.assertEquals(4 * kernel.getTick(), listener.phases);
+		Assert.assertEquals(kernel.getCount(), listener.population);
+		Assert.assertEquals(kernel.getCount() - 80, listener.births
+				- listener.deaths);
+		Assert.assertTrue(listener.steps > 0);
+	}
+
+	/**
+	 * The events of concurrently running worlds are told apart by their world
+	 * numbers.
+	 *
+	 * @throws Exception
+	 *             if a world fails
+	 */
+	@Test
+	public void testConcurrentWorlds() throws Exception {
+		final BugKernel first = BugKernel.create(30, 30, 80, 12);
+		final BugKernel second = BugKernel.create(30, 30, 80, 13);
+		final BugKernel fork = first.fork();
+		Assert.assertTrue(first.getEvents().getWorld() != second.getEvents()
+				.getWorld());
+		Assert.assertTrue(first.getEvents().getWorld() != fork.getEvents()
+				.getWorld());
+
+		final RecordingListener firstListener = new RecordingListener(first
+				.getEvents().getWorld());
+		final RecordingListener secondListener = new RecordingListener(second
+				.getEvents().getWorld());
+		SimulationEvents.setListener(new SimulationListener() {
+
+			@Override
+			public void tickStarted(final int world, final long tick,
+					final int population) {
+				firstListener.tickStarted(world, tick, population);
+				secondListener.tickStarted(world, tick, population);
+			}
+
+			@Override
+			public void phaseFinished(final int world,
+					final TickMetrics.Phase phase, final long nanos) {
+				firstListener.phaseFinished(world, phase, nanos);
+				secondListener.phaseFinished(world, phase, nanos);
+			}
+
+			@Override
+			public void tickFinished(final int world, final long tick,
+					final int population, final int births, final int deaths) {
+				firstListener.tickFinished(world, tick, population, births,
+						deaths);
+				secondListener.tickFinished(world, tick, population, births,
+						deaths);
+			}
+
+			@Override
+			public void reproductionBurst(final int world, final long tick,
+					final int births, final int population) {
+				firstListener.reproductionBurst(world, tick, births,
+						population);
+				secondListener.reproductionBurst(world, tick, births,
+						population);
+			}
+
+			@Override
+			public void massMortality(final int world, final long tick,
+					final int deaths, final int population) {
+				firstListener.massMortality(world, tick, deaths, population);
+				secondListener.massMortality(world, tick, deaths, population);
+			}
+
+			@Override
+			public void stepDecided(final int world, final int from,
+					final int to) {
+				firstListener.stepDecided(world, from, to);
+				secondListener.stepDecided(world, from, to);
+			}
+		});
+
+		final Thread other = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				for (int tick = 0; tick < 40; ++tick) {
+					second.tick();
+				}
+			}
+		});
+		other.start();
+
+		for (int tick = 0; tick < 40; ++tick) {
+			first.tick();
+		}
+
+		other.join();
+
+		Assert.assertEquals(first.getTick(), firstListener.finished);
+		Assert.assertEquals(first.getCount(), firstListener.population);
+		Assert.assertEquals(first.getCount() - 80, firstListener.births
+				- firstListener.deaths);
+		Assert.assertEquals(second.getTick(), secondListener.finished);
+		Assert.assertEquals(second.getCount(), secondListener.population);
+		Assert.assertEquals(second.getCount() - 80, secondListener.births
+				- secondListener.deaths);
+	}
+
+	/**
+	 * Births and deaths above the spike fraction are reported.
+	 */
+	@Test
+	public void testSpikes() {
+		final SimulationEvents events = new SimulationEvents();
+		final RecordingListener listener = new RecordingListener(events
+				.getWorld());
+		SimulationEvents.setListener(listener);
+
+		// 100 bugs at the start of the tick, 30 born, 10 died
+		events.tickFinished(1, 120, 30, 10);
+		Assert.assertEquals(1, listener.bursts);
+		Assert.assertEquals(0, listener.mortalities);
+
+		// 100 bugs at the start of the tick, 0 born, 50 died
+		events.tickFinished(2, 50, 0, 50);
+		Assert.assertEquals(1, listener.bursts);
+		Assert.assertEquals(1, listener.mortalities);
+	}
+
+	/**
+	 * Movement decisions are sampled separately in each world.
+	 */
+	@Test
+	public void testStepSampling() {
+		final SimulationEvents events = new SimulationEvents();
+		final SimulationEvents other = new SimulationEvents();
+		final RecordingListener listener = new RecordingListener(events
+				.getWorld());
+		SimulationEvents.setListener(listener);
+
+		for (int i = 0; i < 10 * Constants.EVENT_STEP_SAMPLING_INTERVAL; ++i) {
+			events.stepDecided(i, -1);
+			other.stepDecided(i, -1);
+		}
+
+		Assert.assertEquals(10, listener.steps);
+	}
+
+	/**
+	 * Nothing is reported without a listener.
+	 */
+	@Test
+	public void testDisabled() {
+		final SimulationEvents events = new SimulationEvents();
+		Assert.assertFalse(SimulationEvents.isEnabled());
+		events.tickStarted(1, 10);
+		events.tickFinished(1, 10, 5, 5);
+		events.stepDecided(0, 1);
+	}
+
+	/**
+	 * The flight recorder adapter is registered only if it can be loaded; the
+	 * listener is not changed otherwise.
+	 */
+	@Test
+	public void testFlightRecorderListener() {
+		final RecordingListener listener = new RecordingListener(0);
+		SimulationEvents.setListener(listener);
+
+		if (SimulationEvents.installFlightRecorderListener()) {
+			Assert.assertEquals(Constants.FLIGHT_RECORDER_LISTENER,
+					SimulationEvents.getListener().getClass().getName());
+		} else {
+			Assert.assertSame(listener, SimulationEvents.getListener());
+		}
+	}
+
+	/**
+	 * Listener counting the received events of a single world.
+	 */
+	private static class RecordingListener implements SimulationListener {
+
+		/** Number of the recorded world. */
+		private final int world;
+
+		/** Number of started ticks. */
+		long started = 0;
+
+		/** Number of finished ticks. */
+		long finished = 0;
+
+		/** Number of finished phases. */
+		long phases = 0;
+
+		/** Population at the end of the last tick. */
+		int population = 0;
+
+		/** Number of births of the finished ticks. */
+		long births = 0;
+
+		/** Number of deaths of the finished ticks. */
+		long deaths = 0;
+
+		/** Number of reproduction bursts. */
+		int bursts = 0;
+
+		/** Number of mass mortalities. */
+		int mortalities = 0;
+
+		/** Number of sampled movement decisions. */
+		int steps = 0;
+
+		/**
+		 * Creates a new instance.
+		 *
+		 * @param world
+		 *            number of the recorded world; the events of the other
+		 *            worlds are ignored
+		 */
+		RecordingListener(final int world) {
+			this.world = world;
+		}
+
+		@Override
+		public void tickStarted(final int world, final long tick,
+				final int population) {
+			if (this.world == world) {
+				++started;
+			}
+		}
+
+		@Override
+		public void phaseFinished(final int world,
+				final TickMetrics.Phase phase, final long nanos) {
+			if (this.world == world) {
+				++phases;
+			}
+		}
+
+		@Override
+		public void tickFinished(final int world, final long tick,
+				final int population, final int births, final int deaths) {
+			if (this.world == world) {
+				++finished;
+				this.population = population;
+				this.births += births;
+				this.deaths += deaths;
+			}
+		}
+
+		@Override
+		public void reproductionBurst(final int world, final long tick,
+				final int births, final int population) {
+			if (this.world == world) {
+				++bursts;
+			}
+		}
+
+		@Override
+		public void massMortality(final int world, final long tick,
+				final int deaths, final int population) {
+			if (this.world == world) {
+				++mortalities;
+			}
+		}
+
+		@Override
+		public void stepDecided(final int world, final int from, final int to) {
+			if (this.world == world) {
+				++steps;
+			}
+		}
+
+	}
+
+}
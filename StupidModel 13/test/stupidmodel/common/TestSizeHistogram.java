@@ -0,0 +1,101 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.common;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Simple tests for the {@link SizeHistogram} class.
+ *
+ * @version $Id$
+ */
+public class TestSizeHistogram {
+
+	/**
+	 * Histograms need a non-empty range and at least one bin.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyRange() {
+		new SizeHistogram(1.0, 1.0, 10);
+	}
+
+	/**
+	 * Histograms need a non-empty range and at least one bin.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoBins() {
+		new SizeHistogram(0.0, 10.0, 0);
+	}
+
+	/**
+	 * The bounds of the range belong to the first and the last bin.
+	 */
+	@Test
+	public void testBounds() {
+		final SizeHistogram histogram = new SizeHistogram(0.0, 10.0, 10);
+		histogram.add(0.0);
+		histogram.add(10.0);
+		histogram.add(-0.5);
+		histogram.add(10.5);
+		histogram.add(4.0);
+
+		Assert.assertEquals(1, histogram.getCount(0));
+		Assert.assertEquals(1, histogram.getCount(4));
+		Assert.assertEquals(1, histogram.getCount(9));
+		Assert.assertEquals(1, histogram.getUnderflow());
+		Assert.assertEquals(1, histogram.getOverflow());
+		Assert.assertEquals(5, histogram.getTotal());
+		Assert.assertEquals(4.0, histogram.getLowerBound(4), Constants.DELTA);
+		Assert.assertEquals("1;0;0;0;1;0;0;0;0;1", histogram.getBinCounts());
+	}
+
+	/**
+	 * Incremental updates give the same counts as binning the sizes from
+	 * scratch.
+	 */
+	@Test
+	public void testIncrementalUpdates() {
+		final SizeHistogram histogram = new SizeHistogram(0.0, 10.0, 7);
+		final Random random = new Random(11);
+		final double[] sizes = new double[200];
+
+		for (int i = 0; i < sizes.length; ++i) {
+			sizes[i] = 12.0 * random.nextDouble() - 1.0;
+			histogram.add(sizes[i]);
+		}
+
+		for (int round = 0; round < 1000; ++round) {
+			final int bug = random.nextInt(sizes.length);
+			final double size = 12.0 * random.nextDouble() - 1.0;
+
+			if (random.nextBoolean()) {
+				histogram.move(sizes[bug], size);
+			} else {
+				histogram.remove(sizes[bug]);
+				histogram.add(size);
+			}
+
+			sizes[bug] = size;
+		}
+
+		final SizeHistogram expected = new SizeHistogram(0.0, 10.0, 7);
+		for (final double size : sizes) {
+			expected.add(size);
+		}
+
+		Assert.assertEquals(expected.getBinCounts(), histogram.getBinCounts());
+		Assert.assertEquals(expected.getUnderflow(), histogram.getUnderflow());
+		Assert.assertEquals(expected.getOverflow(), histogram.getOverflow());
+		Assert.assertEquals(sizes.length, histogram.getTotal());
+	}
+
+}
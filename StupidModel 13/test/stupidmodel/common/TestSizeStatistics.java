@@ -0,0 +1,85 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.common;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Simple tests for the {@link SizeStatistics} class.
+ *
+ * @version $Id$
+ */
+public class TestSizeStatistics {
+
+	/**
+	 * Statistics of no bugs are undefined.
+	 */
+	@Test
+	public void testEmpty() {
+		final SizeStatistics statistics = new SizeStatistics();
+		statistics.publish();
+
+		Assert.assertEquals(0, statistics.getCount());
+		Assert.assertTrue(Double.isNaN(statistics.getMinSize()));
+		Assert.assertTrue(Double.isNaN(statistics.getMaxSize()));
+		Assert.assertTrue(Double.isNaN(statistics.getMeanSize()));
+		Assert.assertTrue(Double.isNaN(statistics.getSizeVariance()));
+	}
+
+	/**
+	 * Published values match the statistics computed in two passes, and they
+	 * do not change until the next publication.
+	 */
+	@Test
+	public void testStatistics() {
+		final SizeStatistics statistics = new SizeStatistics();
+		final Random random = new Random(5);
+		final double[] sizes = new double[1000];
+
+		for (int i = 0; i < sizes.length; ++i) {
+			sizes[i] = 1000.0 + 10.0 * random.nextDouble();
+			statistics.record(sizes[i]);
+		}
+
+		statistics.publish();
+
+		double min = sizes[0];
+		double max = sizes[0];
+		double sum = 0.0;
+		for (final double size : sizes) {
+			min = Math.min(min, size);
+			max = Math.max(max, size);
+			sum += size;
+		}
+
+		final double mean = sum / sizes.length;
+		double squares = 0.0;
+		for (final double size : sizes) {
+			squares += (size - mean) * (size - mean);
+		}
+
+		statistics.reset();
+		statistics.record(3.0);
+
+		Assert.assertEquals(sizes.length, statistics.getCount());
+		Assert.assertEquals(min, statistics.getMinSize(), 0.0);
+		Assert.assertEquals(max, statistics.getMaxSize(), 0.0);
+		Assert.assertEquals(mean, statistics.getMeanSize(), 0.0);
+		Assert.assertEquals(squares / sizes.length,
+				statistics.getSizeVariance(), 1e-9);
+
+		statistics.publish();
+		Assert.assertEquals(1, statistics.getCount());
+		Assert.assertEquals(0.0, statistics.getSizeVariance(), 0.0);
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.common;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import stupidmodel.common.TickMetrics.Counter;
+import stupidmodel.common.TickMetrics.Phase;
+
+/**
+ * Simple tests for the {@link TickMetrics} class.
+ *
+ * @version $Id$
+ */
+public class TestTickMetrics {
+
+	/**
+	 * Percentiles are at most 12.5% above the exact values, and never above
+	 * the maximum.
+	 */
+	@Test
+	public void testPercentiles() {
+		final TickMetrics metrics = new TickMetrics();
+		for (long nanos = 1; nanos <= 100000; ++nanos) {
+			metrics.record(Phase.STEP, nanos);
+		}
+
+		Assert.assertEquals(100000, metrics.getCount(Phase.STEP));
+		Assert.assertEquals(100000L * 100001 / 2, metrics.getTotal(Phase.STEP));
+		Assert.assertEquals(100000, metrics.getMax(Phase.STEP));
+		Assert.assertEquals(100000, metrics.getPercentile(Phase.STEP, 100.0));
+		Assert.assertEquals(1, metrics.getPercentile(Phase.STEP, 0.0));
+
+		final long median = metrics.getPercentile(Phase.STEP, 50.0);
+		Assert.assertTrue(median >= 50000 && median <= 50000 * 1.125);
+
+		final long p99 = metrics.getPercentile(Phase.STEP, 99.0);
+		Assert.assertTrue(p99 >= 99000 && p99 <= 100000);
+
+		// Durations below 16 nanoseconds are exact
+		metrics.record(Phase.GROW, 3);
+		metrics.record(Phase.GROW, 7);
+		Assert.assertEquals(3, metrics.getPercentile(Phase.GROW, 50.0));
+		Assert.assertEquals(7, metrics.getPercentile(Phase.GROW, 99.0));
+	}
+
+	/**
+	 * Unrecorded phases and very long durations are reported.
+	 */
+	@Test
+	public void testLimits() {
+		final TickMetrics metrics = new TickMetrics();
+		Assert.assertEquals(0, metrics.getPercentile(Phase.RENDERING, 99.0));
+		Assert.assertEquals(0, metrics.getMax(Phase.RENDERING));
+
+		metrics.record(Phase.RENDERING, Long.MAX_VALUE);
+		metrics.record(Phase.RENDERING, -5);
+		Assert.assertEquals(Long.MAX_VALUE,
+				metrics.getPercentile(Phase.RENDERING, 99.0));
+		Assert.assertEquals(0, metrics.getPercentile(Phase.RENDERING, 50.0));
+	}
+
+	/**
+	 * Counters sum the added values, and everything is cleared by a reset.
+	 */
+	@Test
+	public void testCountersAndReset() {
+		final TickMetrics metrics = new TickMetrics();
+		metrics.add(Counter.BORN, 3);
+		metrics.add(Counter.BORN, 4);
+		metrics.add(Counter.DIED, 2);
+		metrics.record(Phase.MORTALITY, 1000);
+
+		Assert.assertEquals(7, metrics.getCounter(Counter.BORN));
+		Assert.assertEquals(2, metrics.getCounter(Counter.DIED));
+		Assert.assertEquals(0, metrics.getCounter(Counter.MOVED));
+		Assert.assertTrue(metrics.getReport().contains("BORN,7"));
+
+		metrics.reset();
+		Assert.assertEquals(0, metrics.getCounter(Counter.BORN));
+		Assert.assertEquals(0, metrics.getCount(Phase.MORTALITY));
+		Assert.assertEquals(0, metrics.getPercentile(Phase.MORTALITY, 50.0));
+	}
+
+	/**
+	 * Percentiles must be in the interval <code>[0, 100]</code>.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPercentile() {
+		new TickMetrics().getPercentile(Phase.STEP, 101.0);
+	}
+
+}
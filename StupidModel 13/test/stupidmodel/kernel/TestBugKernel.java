@@ -0,0 +1,294 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.kernel;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import stupidmodel.agents.Bug;
+import stupidmodel.common.Constants;
+import stupidmodel.common.RandomStreams;
+import stupidmodel.common.SizeStatistics;
+import stupidmodel.common.TickMetrics;
+
+/**
+ * Simple tests for the {@link BugKernel} class.
+ *
+ * @version $Id$
+ */
+public class TestBugKernel {
+
+	/**
+	 * Bigger bugs move first, so the bigger of two competing bugs gets the
+	 * richest cell.
+	 */
+	@Test
+	public void testBiggerBugMovesFirst() {
+		final BugKernel kernel = new BugKernel(10, 10, 0);
+		kernel.getFoodField().setFood(kernel.getFoodField().index(5, 5), 0.5);
+		kernel.getFoodField().setFood(kernel.getFoodField().index(3, 5), 0.25);
+
+		final int small = kernel.addBug(5, 6);
+		final int big = kernel.addBug(3, 4);
+		kernel.setSize(big, 2.0);
+		kernel.setSurvivalProbability(small, 1.0);
+		kernel.setSurvivalProbability(big, 1.0);
+
+		kernel.activateBugs();
+
+		Assert.assertEquals(2, kernel.getCount());
+		Assert.assertEquals(5, kernel.getX(1));
+		Assert.assertEquals(5, kernel.getY(1));
+		Assert.assertEquals(2.5, kernel.getSize(1), Constants.DELTA);
+		Assert.assertEquals(3, kernel.getX(0));
+		Assert.assertEquals(5, kernel.getY(0));
+		Assert.assertEquals(1.25, kernel.getSize(0), Constants.DELTA);
+	}
+
+	/**
+	 * A bug bigger than the reproduction size is replaced by its children.
+	 */
+	@Test
+	public void testReproduction() {
+		final BugKernel kernel = new BugKernel(20, 20, 3);
+		final int parent = kernel.addBug(10, 10);
+		kernel.setSize(parent, Constants.BUG_REPRODUCTION_SIZE + 1.0);
+		kernel.setMaxConsumptionRate(parent, 0.5);
+
+		kernel.activateBugs();
+
+		Assert.assertEquals(Constants.BUG_REPRODUCTION_RATE, kernel.getCount());
+		for (int i = 0; i < kernel.getCount(); ++i) {
+			Assert.assertEquals(0.0, kernel.getSize(i), Constants.DELTA);
+			Assert.assertEquals(Constants.BUG_DEFAULT_MAX_CONSUMPTION_RATE,
+					kernel.getMaxConsumptionRate(i), Constants.DELTA);
+			for (int j = 0; j < i; ++j) {
+				Assert.assertTrue(kernel.getCell(i) != kernel.getCell(j));
+			}
+		}
+	}
+
+	/**
+	 * The occupancy layer always reflects the cells of the living bugs.
+	 */
+	@Test
+	public void testOccupancyConsistency() {
+		final BugKernel kernel = BugKernel.create(30, 30, 50, 1);
+
+		for (int tick = 0; tick < 200 && kernel.tick(); ++tick) {
+			final boolean[] occupied = new boolean[kernel.getFoodField().size()];
+			for (int i = 0; i < kernel.getCount(); ++i) {
+				occupied[kernel.getCell(i)] = true;
+			}
+
+			for (int i = 0; i < occupied.length; ++i) {
+				Assert.assertEquals(occupied[i], kernel.getOccupancy()
+						.isOccupied(i));
+			}
+		}
+	}
+
+	/**
+	 * Probes carry the state of the bug.
+	 */
+	@Test
+	public void testProbe() {
+		final BugKernel kernel = new BugKernel(5, 5, 0);
+		final int bug = kernel.addBug(1, 2);
+		kernel.setSize(bug, 3.0);
+		kernel.setSurvivalProbability(bug, 0.5);
+
+		final Bug probe = kernel.createProbe(bug);
+		Assert.assertEquals(3.0, probe.getSize(), Constants.DELTA);
+		Assert.assertEquals(0.5, probe.getSurvivalProbability(),
+				Constants.DELTA);
+	}
+
+	/**
+	 * Runs with the same seed are identical, different seeds give different
+	 * runs.
+	 */
+	@Test
+	public void testReproducible() {
+		final BugKernel first = BugKernel.create(25, 25, 40, 9);
+		final BugKernel second = BugKernel.create(25, 25, 40, 9);
+		final BugKernel other = BugKernel.create(25, 25, 40, 10);
+		boolean differs = false;
+
+		for (int tick = 0; tick < 50; ++tick) {
+			first.tick();
+			second.tick();
+			other.tick();
+
+			Assert.assertEquals(first.getCount(), second.getCount());
+			for (int i = 0; i < first.getCount(); ++i) {
+				Assert.assertEquals(first.getCell(i), second.getCell(i));
+				Assert.assertEquals(first.getSize(i), second.getSize(i), 0.0);
+			}
+
+			differs |= first.getCount() != other.getCount();
+		}
+
+		Assert.assertTrue(differs);
+	}
+
+	/**
+	 * Default parameters apply to the bugs created afterwards.
+	 */
+	@Test
+	public void testDefaultParameters() {
+		final BugKernel kernel = new BugKernel(5, 5, 0);
+		final int old = kernel.addBug(0, 0);
+		kernel.setDefaultSurvivalProbability(0.5);
+		kernel.setDefaultMaxConsumptionRate(2.0);
+		final int young = kernel.addBug(1, 1);
+
+		Assert.assertEquals(Constants.BUG_DEFAULT_SURVIVAL_PROBABILITY,
+				kernel.getSurvivalProbability(old), 0.0);
+		Assert.assertEquals(0.5, kernel.getSurvivalProbability(young), 0.0);
+		Assert.assertEquals(Constants.BUG_DEFAULT_MAX_CONSUMPTION_RATE,
+				kernel.getMaxConsumptionRate(old), 0.0);
+		Assert.assertEquals(2.0, kernel.getMaxConsumptionRate(young), 0.0);
+	}
+
+	/**
+	 * The statistics recorded in the mortality phase match the population at
+	 * the end of each tick.
+	 */
+	@Test
+	public void testStatistics() {
+		final BugKernel kernel = BugKernel.create(30, 30, 80, 4);
+
+		for (int tick = 0; tick < 40 && kernel.tick(); ++tick) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			double sum = 0.0;
+
+			for (int i = 0; i < kernel.getCount(); ++i) {
+				min = Math.min(min, kernel.getSize(i));
+				max = Math.max(max, kernel.getSize(i));
+				sum += kernel.getSize(i);
+			}
+
+			final SizeStatistics statistics = kernel.getStatistics();
+			Assert.assertEquals(kernel.getCount(), statistics.getCount());
+			Assert.assertEquals(min, statistics.getMinSize(), 0.0);
+			Assert.assertEquals(max, statistics.getMaxSize(), 0.0);
+			Assert.assertEquals(sum / kernel.getCount(),
+					statistics.getMeanSize(), 1e-9);
+		}
+	}
+
+	/**
+	 * A branch continues exactly as its source, and changing either world
+	 * does not affect the other one.
+	 */
+	@Test
+	public void testFork() {
+		final BugKernel source = BugKernel.create(25, 25, 60, 6);
+		source.setSurvivalProbability(0, 0.9);
+		for (int tick = 0; tick < 15; ++tick) {
+			source.tick();
+		}
+
+		final BugKernel branch = source.fork();
+		Assert.assertEquals(source.getTick(), branch.getTick());
+		Assert.assertEquals(source.getCount(), branch.getStatistics()
+				.getCount());
+		Assert.assertEquals(source.getStatistics().getMeanSize(), branch
+				.getStatistics().getMeanSize(), 0.0);
+
+		for (int tick = 0; tick < 20; ++tick) {
+			Assert.assertEquals(source.tick(), branch.tick());
+			Assert.assertEquals(source.getCount(), branch.getCount());
+
+			for (int i = 0; i < source.getCount(); ++i) {
+				Assert.assertEquals(source.getCell(i), branch.getCell(i));
+				Assert.assertEquals(source.getSize(i), branch.getSize(i), 0.0);
+				Assert.assertEquals(source.getSurvivalProbability(i),
+						branch.getSurvivalProbability(i), 0.0);
+			}
+		}
+
+		final double rate = source.getFoodField().getProductionRate(0);
+		final double food = source.getFoodField().getFood(0);
+		final double size = source.getSize(0);
+		branch.getFoodField().setProductionRate(0, rate + 1.0);
+		branch.getFoodField().setFood(0, food + 1.0);
+		branch.setSize(0, size + 1.0);
+
+		Assert.assertEquals(rate, source.getFoodField().getProductionRate(0),
+				0.0);
+		Assert.assertEquals(food, source.getFoodField().getFood(0), 0.0);
+		Assert.assertEquals(size, source.getSize(0), 0.0);
+		Assert.assertEquals(rate + 1.0,
+				branch.getFoodField().getProductionRate(0), 0.0);
+	}
+
+	/**
+	 * The metrics record each phase once per tick, and the births and deaths
+	 * add up to the population change.
+	 */
+	@Test
+	public void testMetrics() {
+		final BugKernel kernel = BugKernel.create(30, 30, 80, 12);
+		final TickMetrics metrics = new TickMetrics();
+		kernel.setMetrics(metrics);
+
+		int ticks = 0;
+		while (ticks < 60 && kernel.tick()) {
+			++ticks;
+		}
+
+		for (final TickMetrics.Phase phase : new TickMetrics.Phase[] {
+				TickMetrics.Phase.GROW_FOOD, TickMetrics.Phase.STEP,
+				TickMetrics.Phase.GROW, TickMetrics.Phase.MORTALITY }) {
+			Assert.assertEquals(kernel.getTick(), metrics.getCount(phase));
+		}
+
+		Assert.assertEquals(0,
+				metrics.getCount(TickMetrics.Phase.DATA_COLLECTION));
+		Assert.assertEquals(kernel.getCount() - 80,
+				metrics.getCounter(TickMetrics.Counter.BORN)
+						- metrics.getCounter(TickMetrics.Counter.DIED));
+		Assert.assertTrue(metrics.getCounter(TickMetrics.Counter.MOVED) > 0);
+		Assert.assertTrue(metrics.getCounter(TickMetrics.Counter.FREE_CELL_QUERIES) >= metrics
+				.getCounter(TickMetrics.Counter.MOVED));
+	}
+
+	/**
+	 * The mortality checks of the bugs draw other random numbers than the
+	 * food growth of the cells with the same index in the same tick.
+	 */
+	@Test
+	public void testMortalityDrawsIndependentOfGrowth() {
+		final RandomStreams streams = new RandomStreams(3);
+
+		for (long tick = 1; tick <= 10; ++tick) {
+			final double[] growth = new double[100];
+			streams.nextDoubles(tick, 0, 0, growth, 0, growth.length);
+
+			for (int k = 0; k < growth.length; ++k) {
+				Assert.assertTrue(growth[k] != streams.nextDouble(tick, k,
+						BugKernel.MORTALITY_DRAW));
+			}
+		}
+
+		Assert.assertTrue(BugKernel.MORTALITY_DRAW > Constants.BUG_REPRODUCTION_RATE);
+	}
+
+	/**
+	 * Bugs are referenced by their index.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidIndex() {
+		new BugKernel(5, 5, 0).getSize(0);
+	}
+
+}
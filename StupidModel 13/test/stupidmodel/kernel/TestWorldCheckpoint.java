@@ -0,0 +1,198 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.kernel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import stupidmodel.space.FoodField;
+
+/**
+ * Simple tests for the {@link WorldCheckpoint} class.
+ *
+ * @version $Id$
+ */
+public class TestWorldCheckpoint {
+
+	/**
+	 * A checkpoint read back from its file equals the written one.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written or read
+	 */
+	@Test
+	public void testFile() throws IOException {
+		final BugKernel kernel = BugKernel.create(17, 9, 30, 5);
+		kernel.setSurvivalProbability(3, 0.5);
+		for (int tick = 0; tick < 10; ++tick) {
+			kernel.tick();
+		}
+
+		final WorldCheckpoint expected = kernel.createCheckpoint();
+		final File file = File.createTempFile("world", ".checkpoint");
+
+		try {
+			expected.write(file);
+			final WorldCheckpoint actual = WorldCheckpoint.read(file);
+
+			Assert.assertEquals(17, actual.getWidth());
+			Assert.assertEquals(9, actual.getHeight());
+			Assert.assertEquals(FoodField.Precision.DOUBLE,
+					actual.getPrecision());
+			Assert.assertEquals(10, actual.getTick());
+			Assert.assertEquals(5, actual.getSeed());
+			Assert.assertEquals(kernel.getCount(), actual.getBugCount());
+			assertFieldEquals(expected.getFoodField(), actual.getFoodField());
+			Assert.assertTrue(Arrays.equals(expected.getCells(),
+					actual.getCells()));
+			Assert.assertTrue(Arrays.equals(expected.getSizes(),
+					actual.getSizes()));
+			Assert.assertTrue(Arrays.equals(expected.getSurvivalProbabilities(),
+					actual.getSurvivalProbabilities()));
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Compact food fields are stored in their own precision, and they are
+	 * read back exactly, also through buffers smaller than the arrays.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written or read
+	 */
+	@Test
+	public void testPrecisionAndBuffers() throws IOException {
+		for (final FoodField.Precision precision : FoodField.Precision.values()) {
+			final BugKernel kernel = new BugKernel(40, 30, 7, precision);
+			kernel.addRandomBugs(50);
+			for (int tick = 0; tick < 10; ++tick) {
+				kernel.tick();
+			}
+
+			final WorldCheckpoint expected = kernel.createCheckpoint();
+			final File whole = File.createTempFile("world", ".checkpoint");
+			final File buffered = File.createTempFile("world", ".checkpoint");
+
+			try {
+				expected.write(whole);
+				expected.write(buffered, 100);
+
+				final long cellSize = (FoodField.Precision.DOUBLE == precision) ? 16
+						: (FoodField.Precision.FLOAT == precision) ? 8 : 6;
+				Assert.assertEquals(56 + 1200 * cellSize + 28
+						* expected.getBugCount(), whole.length());
+				Assert.assertEquals(whole.length(), buffered.length());
+
+				final WorldCheckpoint actual = WorldCheckpoint.read(whole, 64);
+				Assert.assertEquals(precision, actual.getPrecision());
+				assertFieldEquals(expected.getFoodField(), actual
+						.getFoodField());
+				Assert.assertTrue(Arrays.equals(expected.getCells(),
+						actual.getCells()));
+				Assert.assertTrue(Arrays.equals(expected.getSizes(),
+						actual.getSizes()));
+
+				final WorldCheckpoint copy = WorldCheckpoint.read(buffered);
+				assertFieldEquals(expected.getFoodField(), copy.getFoodField());
+				Assert.assertTrue(Arrays.equals(expected.getCells(),
+						copy.getCells()));
+			} finally {
+				whole.delete();
+				buffered.delete();
+			}
+		}
+	}
+
+	/**
+	 * Truncated files are rejected.
+	 *
+	 * @throws IOException
+	 *             if the checkpoint is not valid
+	 */
+	@Test(expected = IOException.class)
+	public void testTruncatedFile() throws IOException {
+		final File file = File.createTempFile("world", ".checkpoint");
+
+		try {
+			BugKernel.create(5, 5, 3, 1).createCheckpoint().write(file);
+
+			final RandomAccessFile out = new RandomAccessFile(file, "rw");
+			try {
+				out.setLength(out.length() - 4);
+			} finally {
+				out.close();
+			}
+
+			WorldCheckpoint.read(file);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * A restored world continues exactly as the original one.
+	 */
+	@Test
+	public void testRestoredKernel() {
+		final BugKernel original = BugKernel.create(25, 25, 40, 9);
+		original.setDefaultMaxConsumptionRate(0.8);
+		for (int tick = 0; tick < 20; ++tick) {
+			original.tick();
+		}
+
+		final BugKernel restored = BugKernel.restore(original
+				.createCheckpoint());
+		Assert.assertEquals(original.getTick(), restored.getTick());
+		Assert.assertEquals(original.getStatistics().getCount(), restored
+				.getStatistics().getCount());
+
+		for (int tick = 0; tick < 30; ++tick) {
+			Assert.assertEquals(original.tick(), restored.tick());
+			Assert.assertEquals(original.getCount(), restored.getCount());
+
+			for (int i = 0; i < original.getCount(); ++i) {
+				Assert.assertEquals(original.getCell(i), restored.getCell(i));
+				Assert.assertEquals(original.getSize(i), restored.getSize(i),
+						0.0);
+				Assert.assertEquals(original.getMaxConsumptionRate(i),
+						restored.getMaxConsumptionRate(i), 0.0);
+			}
+		}
+	}
+
+	/**
+	 * Checks that two food fields have the same precision, food and
+	 * production rates.
+	 *
+	 * @param expected
+	 *            the expected field
+	 * @param actual
+	 *            the checked field
+	 */
+	private static void assertFieldEquals(final FoodField expected,
+			final FoodField actual) {
+		Assert.assertNotSame(expected, actual);
+		Assert.assertEquals(expected.getPrecision(), actual.getPrecision());
+		Assert.assertEquals(expected.getWidth(), actual.getWidth());
+		Assert.assertEquals(expected.getHeight(), actual.getHeight());
+
+		for (int i = 0; i < expected.size(); ++i) {
+			Assert.assertEquals(expected.getFood(i), actual.getFood(i), 0.0);
+			Assert.assertEquals(expected.getProductionRate(i), actual
+					.getProductionRate(i), 0.0);
+		}
+	}
+
+}
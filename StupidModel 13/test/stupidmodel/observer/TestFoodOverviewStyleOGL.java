@@ -0,0 +1,49 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.observer;
+
+import java.awt.Color;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import stupidmodel.common.Constants;
+import stupidmodel.space.FoodField;
+import stupidmodel.space.OccupancyLayer;
+import stupidmodel.space.WorldPyramid;
+
+/**
+ * Simple tests for the {@link FoodOverviewStyleOGL} class.
+ *
+ * @version $Id$
+ */
+public class TestFoodOverviewStyleOGL {
+
+	/**
+	 * The blocks of the displayed level fill the overview display.
+	 */
+	@Test
+	public void testCellSize() {
+		final FoodField field = new FoodField(64, 32);
+		final WorldPyramid pyramid = new WorldPyramid(field,
+				new OccupancyLayer(64, 32));
+		final FoodOverviewStyleOGL style = new FoodOverviewStyleOGL();
+
+		Assert.assertEquals(Constants.GUI_CELL_SIZE, style.getCellSize());
+
+		style.init(pyramid.createFoodLayer("overview", 2));
+		Assert.assertEquals(Constants.GUI_OVERVIEW_SIZE / 16,
+				style.getCellSize(), Constants.DELTA);
+
+		field.setFood(field.index(0, 0), 16.0);
+		Assert.assertEquals(new Color(0, 200, 0),
+				style.getColor(0, 0));
+	}
+
+}
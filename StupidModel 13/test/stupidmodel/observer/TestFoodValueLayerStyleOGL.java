@@ -1,128 +1,151 @@
-/*
- * Version info:
- *     $HeadURL$
- *     $LastChangedDate$
- *     $LastChangedRevision$
- *     $LastChangedBy$
- */
-package stupidmodel.observer;
-
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
-
-import java.awt.Color;
-
-import org.junit.Assert;
-import org.junit.Before;
-import org.junit.Test;
-
-import repast.simphony.random.RandomHelper;
-import repast.simphony.valueLayer.ValueLayer;
-import stupidmodel.common.Constants;
-
-/**
- * Simple tests for the created custom food value layer style.
- * 
- * <p>
- * Food color shade from white when size is zero to green, when the available
- * food on a cell is <code>255</code> or greater.
- * </p>
- * 
- * @author Richard O. Legendi (richard.legendi)
- * @since 2.0-beta, 2011
- * @version $Id$
- */
-public class TestFoodValueLayerStyleOGL {
-
-	/** Style object to test, mocked out when verifying behaviour. */
-	private FoodValueLayerStyleOGL style;
-
-	/**
-	 * Initialize the style object (it may be parameterized differently for each
-	 * test).
-	 */
-	@Before
-	public void initTest() {
-		style = new FoodValueLayerStyleOGL();
-	}
-
-	// ========================================================================
-	// === General Tests ======================================================
-
-	/**
-	 * Testing {@link FoodValueLayerStyleOGL#init(ValueLayer)} for
-	 * <code>null</code> parameter.
-	 */
-	@Test(expected = IllegalArgumentException.class)
-	public void testInitParameterValidation() {
-		style.init(null);
-	}
-
-	/**
-	 * Testing {@link FoodValueLayerStyleOGL#init(ValueLayer)} for multiple
-	 * initialization calls.
-	 */
-	@Test(expected = IllegalStateException.class)
-	public void testMultipleInit() {
-		final ValueLayer layer = mock(ValueLayer.class);
-		style.init(layer);
-		style.init(layer); // Multiple initialization should fail
-	}
-
-	/**
-	 * Testing {@link FoodValueLayerStyleOGL#init(ValueLayer)} for proper
-	 * initialization by checking the representation directly.
-	 */
-	@Test
-	public void testInitWorksProperly() {
-		final ValueLayer layer = mock(ValueLayer.class);
-		style.init(layer);
-		Assert.assertEquals(layer, style.layer); // Testing representation
-	}
-
-	/**
-	 * Test if the returned cell size is the specified constant value.
-	 */
-	@Test
-	public void testCellSize() {
-		Assert.assertEquals(Constants.GUI_CELL_SIZE, style.getCellSize(),
-				Constants.DELTA);
-	}
-
-	// ========================================================================
-	// === Test Color Values ==================================================
-
-	/**
-	 * Test if returned color is white when size is <code>0</code>.
-	 */
-	@Test
-	public void testWhiteColor() {
-		final int x = RandomHelper.nextIntFromTo(0, Integer.MAX_VALUE);
-		final int y = RandomHelper.nextIntFromTo(0, Integer.MAX_VALUE);
-
-		final ValueLayer layer = mock(ValueLayer.class);
-		when(layer.get(x, y)).thenReturn(0.0);
-		style.init(layer);
-
-		Assert.assertEquals(Color.WHITE, style.getColor(x, y));
-	}
-
-	/**
-	 * Test if returned color is green when size is <code>255</code>.
-	 */
-	@Test
-	public void testGreenColor() {
-		final int x = RandomHelper.nextIntFromTo(0, Integer.MAX_VALUE);
-		final int y = RandomHelper.nextIntFromTo(0, Integer.MAX_VALUE);
-
-		final ValueLayer layer = mock(ValueLayer.class);
-		when(layer.get(x, y)).thenReturn(255.0);
-		style.init(layer);
-
-		Assert.assertEquals(Color.GREEN, style.getColor(x, y));
-	}
-
-	// No test for the intermediate state, since there is no dedicated constant
-	// for it in class java.awt.Color
-
-}
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.observer;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.awt.Color;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import repast.simphony.random.RandomHelper;
+import repast.simphony.valueLayer.ValueLayer;
+import stupidmodel.common.Constants;
+import stupidmodel.space.FoodField;
+import stupidmodel.space.FoodValueLayer;
+
+/**
+ * Simple tests for the created custom food value layer style.
+ * 
+ * <p>
+ * Food color shade from white when size is zero to green, when the available
+ * food on a cell is <code>255</code> or greater.
+ * </p>
+ * 
+ * @author Richard O. Legendi (richard.legendi)
+ * @since 2.0-beta, 2011
+ * @version $Id$
+ */
+public class TestFoodValueLayerStyleOGL {
+
+	/** Style object to test, mocked out when verifying behaviour. */
+	private FoodValueLayerStyleOGL style;
+
+	/**
+	 * Initialize the style object (it may be parameterized differently for each
+	 * test).
+	 */
+	@Before
+	public void initTest() {
+		style = new FoodValueLayerStyleOGL();
+	}
+
+	// ========================================================================
+	// === General Tests ======================================================
+
+	/**
+	 * Testing {@link FoodValueLayerStyleOGL#init(ValueLayer)} for
+	 * <code>null</code> parameter.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInitParameterValidation() {
+		style.init(null);
+	}
+
+	/**
+	 * Testing {@link FoodValueLayerStyleOGL#init(ValueLayer)} for multiple
+	 * initialization calls.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testMultipleInit() {
+		final ValueLayer layer = mock(ValueLayer.class);
+		style.init(layer);
+		style.init(layer); // Multiple initialization should fail
+	}
+
+	/**
+	 * Testing {@link FoodValueLayerStyleOGL#init(ValueLayer)} for proper
+	 * initialization by checking the representation directly.
+	 */
+	@Test
+	public void testInitWorksProperly() {
+		final ValueLayer layer = mock(ValueLayer.class);
+		style.init(layer);
+		Assert.assertEquals(layer, style.layer); // Testing representation
+	}
+
+	/**
+	 * Test if the returned cell size is the specified constant value.
+	 */
+	@Test
+	public void testCellSize() {
+		Assert.assertEquals(Constants.GUI_CELL_SIZE, style.getCellSize(),
+				Constants.DELTA);
+	}
+
+	// ========================================================================
+	// === Test Color Values ==================================================
+
+	/**
+	 * Test if returned color is white when size is <code>0</code>.
+	 */
+	@Test
+	public void testWhiteColor() {
+		final int x = RandomHelper.nextIntFromTo(0, Integer.MAX_VALUE);
+		final int y = RandomHelper.nextIntFromTo(0, Integer.MAX_VALUE);
+
+		final ValueLayer layer = mock(ValueLayer.class);
+		when(layer.get(x, y)).thenReturn(0.0);
+		style.init(layer);
+
+		Assert.assertEquals(Color.WHITE, style.getColor(x, y));
+	}
+
+	/**
+	 * Test if returned color is green when size is <code>255</code>.
+	 */
+	@Test
+	public void testGreenColor() {
+		final int x = RandomHelper.nextIntFromTo(0, Integer.MAX_VALUE);
+		final int y = RandomHelper.nextIntFromTo(0, Integer.MAX_VALUE);
+
+		final ValueLayer layer = mock(ValueLayer.class);
+		when(layer.get(x, y)).thenReturn(255.0);
+		style.init(layer);
+
+		Assert.assertEquals(Color.GREEN, style.getColor(x, y));
+	}
+
+	/**
+	 * Test if colors come from the palette: they are shaded by the available
+	 * food, and the same instance is returned for the same food.
+	 */
+	@Test
+	public void testPaletteColors() {
+		final FoodField field = new FoodField(1, 200);
+		for (int y = 0; y < 200; ++y) {
+			field.setFood(y, y / 100.0);
+		}
+
+		style.init(new FoodValueLayer(Constants.FOOD_VALUE_LAYER_ID, field));
+
+		for (int y = 0; y < 200; ++y) {
+			final int strength = (int) Math.min(200 * (y / 100.0), 255);
+			final Color color = style.getColor(0, y);
+			Assert.assertEquals(new Color(0, strength, 0), color);
+			Assert.assertSame(color, style.getColor(0, y));
+		}
+	}
+
+	// No test for the intermediate state, since there is no dedicated constant
+	// for it in class java.awt.Color
+
+}
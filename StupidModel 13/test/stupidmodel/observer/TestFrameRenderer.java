@@ -0,0 +1,136 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.observer;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import stupidmodel.TemporaryDirectories;
+import stupidmodel.kernel.BugKernel;
+import stupidmodel.space.FoodField;
+
+/**
+ * Simple tests for the {@link FrameRenderer} class.
+ *
+ * @version $Id$
+ */
+public class TestFrameRenderer {
+
+	/**
+	 * Frames use the colors of the display styles, with the origin at the
+	 * bottom left corner.
+	 *
+	 * @throws Exception
+	 *             if the renderer cannot be created
+	 */
+	@Test
+	public void testRasterize() throws Exception {
+		final File directory = TemporaryDirectories.create("frames");
+
+		try {
+			final BugKernel kernel = new BugKernel(4, 3, 1L);
+			final FoodField field = kernel.getFoodField();
+			field.setFood(field.index(0, 0), 0.5);
+			kernel.addBug(3, 2);
+			kernel.setSize(0, 5.0);
+
+			final FrameRenderer renderer = new FrameRenderer(directory, 5, 1, 1);
+			final BufferedImage image = renderer.rasterize(kernel);
+			renderer.close();
+
+			Assert.assertEquals(20, image.getWidth());
+			Assert.assertEquals(15, image.getHeight());
+
+			// Food of cell (0, 0) at the bottom left corner
+			Assert.assertEquals(0x000000 | (100 << 8),
+					image.getRGB(0, 14) & 0xFFFFFF);
+			Assert.assertEquals(0x000000, image.getRGB(0, 0) & 0xFFFFFF);
+
+			// Bug at cell (3, 2), inset by one pixel
+			Assert.assertEquals(0xFF6464, image.getRGB(17, 2) & 0xFFFFFF);
+			Assert.assertEquals(0x000000, image.getRGB(15, 0) & 0xFFFFFF);
+		} finally {
+			TemporaryDirectories.delete(directory);
+		}
+	}
+
+	/**
+	 * Worlds exceeding the pixel budget are rasterized from a level of their
+	 * pyramid, shaded by the mean food and the bug density of the blocks.
+	 *
+	 * @throws Exception
+	 *             if the renderer cannot be created
+	 */
+	@Test
+	public void testRasterizeOverview() throws Exception {
+		final File directory = TemporaryDirectories.create("frames");
+
+		try {
+			final BugKernel kernel = new BugKernel(64, 64, 1L);
+			final FoodField field = kernel.getFoodField();
+			field.setFood(field.index(0, 0), 1.0);
+			kernel.addBug(0, 0);
+
+			final FrameRenderer renderer = new FrameRenderer(directory, 4, 1,
+					1, 1024);
+			final BufferedImage image = renderer.rasterize(kernel);
+			renderer.close();
+
+			// Blocks of 2 * 2 cells, one pixel each
+			Assert.assertEquals(32, image.getWidth());
+			Assert.assertEquals(32, image.getHeight());
+
+			// A quarter of the block (0, 0) is occupied, its mean food is 0.25
+			Assert.assertEquals((63 << 16) | (50 << 8),
+					image.getRGB(0, 31) & 0xFFFFFF);
+			Assert.assertEquals(0x000000, image.getRGB(1, 31) & 0xFFFFFF);
+		} finally {
+			TemporaryDirectories.delete(directory);
+		}
+	}
+
+	/**
+	 * Frames are written every <code>interval</code> ticks.
+	 *
+	 * @throws Exception
+	 *             if the frames cannot be written
+	 */
+	@Test
+	public void testRender() throws Exception {
+		final File directory = TemporaryDirectories.create("frames");
+
+		try {
+			final BugKernel kernel = BugKernel.create(10, 10, 5, 7L);
+			final FrameRenderer renderer = new FrameRenderer(directory, 2, 3, 1);
+
+			Assert.assertTrue(renderer.render(kernel));
+			for (int i = 0; i < 7; ++i) {
+				kernel.tick();
+				renderer.render(kernel);
+			}
+
+			renderer.close();
+
+			Assert.assertEquals(3, renderer.getFrameCount());
+			for (final long tick : new long[] { 0, 3, 6 }) {
+				final BufferedImage frame = ImageIO.read(new File(directory,
+						String.format("frame_%06d.png", tick)));
+				Assert.assertEquals(20, frame.getWidth());
+			}
+		} finally {
+			TemporaryDirectories.delete(directory);
+		}
+	}
+
+}
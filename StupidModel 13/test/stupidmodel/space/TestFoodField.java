@@ -0,0 +1,251 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import stupidmodel.agents.HabitatCell;
+import stupidmodel.common.Constants;
+import stupidmodel.common.RandomStreams;
+import stupidmodel.common.WorkerPool;
+
+/**
+ * Simple tests for the {@link FoodField} storage.
+ *
+ * @version $Id$
+ */
+public class TestFoodField {
+
+	/**
+	 * Fields cannot be created with non-positive dimensions.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidWidth() {
+		new FoodField(0, 10);
+	}
+
+	/**
+	 * Fields cannot be created with non-positive dimensions.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidHeight() {
+		new FoodField(10, 0);
+	}
+
+	/**
+	 * Locations outside the field have no index.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testIndexOutOfField() {
+		new FoodField(10, 5).index(3, 5);
+	}
+
+	/**
+	 * Indices are column-major and cover the whole field.
+	 */
+	@Test
+	public void testIndex() {
+		final FoodField field = new FoodField(10, 5);
+
+		Assert.assertEquals(50, field.size());
+		Assert.assertEquals(0, field.index(0, 0));
+		Assert.assertEquals(4, field.index(0, 4));
+		Assert.assertEquals(5, field.index(1, 0));
+		Assert.assertEquals(49, field.index(9, 4));
+	}
+
+	/**
+	 * Food cannot be negative.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetNegativeFood() {
+		new FoodField(1, 1).setFood(0, -1.0);
+	}
+
+	/**
+	 * Cells read and write their food through the shared field.
+	 */
+	@Test
+	public void testSharedWithCells() {
+		final FoodField field = new FoodField(3, 3);
+		final HabitatCell cell = new HabitatCell(1, 2, field);
+
+		Assert.assertEquals(0.01, field.getProductionRate(field.index(1, 2)),
+				Constants.DELTA);
+
+		cell.setFoodAvailability(0.5);
+		Assert.assertEquals(0.5, field.getFood(field.index(1, 2)),
+				Constants.DELTA);
+
+		field.setFood(field.index(1, 2), 0.25);
+		Assert.assertEquals(0.25, cell.getFoodAvailability(), Constants.DELTA);
+	}
+
+	/**
+	 * Sequential growth increases the food of each cell by at most its
+	 * production rate.
+	 */
+	@Test
+	public void testGrow() {
+		final FoodField field = createField();
+		field.grow();
+		assertGrown(field);
+	}
+
+	/**
+	 * Parallel growth increases the food of each cell by at most its
+	 * production rate, and it is bit-identical to the sequential growth with
+	 * the same streams, regardless of the number of threads.
+	 */
+	@Test
+	public void testParallelGrow() {
+		final RandomStreams streams = new RandomStreams(42);
+		final FoodField expected = createField();
+		expected.grow(streams, 3);
+		assertGrown(expected);
+
+		for (int threads = 1; threads <= 4; ++threads) {
+			final WorkerPool pool = new WorkerPool(threads);
+
+			try {
+				final FoodField field = createField();
+				field.grow(streams, 3, pool);
+
+				for (int i = 0; i < field.size(); ++i) {
+					Assert.assertEquals(expected.getFood(i), field.getFood(i),
+							0.0);
+				}
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * The bulk growth loop is bit-identical to the scalar reference loop.
+	 */
+	@Test
+	public void testBulkGrow() {
+		final RandomStreams streams = new RandomStreams(42);
+		final FoodField expected = createField();
+		expected.setBulkGrowth(false);
+		expected.grow(streams, 3);
+
+		final FoodField field = createField();
+		field.setBulkGrowth(true);
+		field.grow(streams, 3);
+		assertGrown(field);
+
+		for (int i = 0; i < field.size(); ++i) {
+			Assert.assertEquals(expected.getFood(i), field.getFood(i), 0.0);
+		}
+	}
+
+	/**
+	 * Stored values of the compact precisions are within the documented
+	 * bounds of the written values.
+	 */
+	@Test
+	public void testCompactPrecisionBounds() {
+		final FoodField single = new FoodField(10, 10,
+				FoodField.Precision.FLOAT);
+		final FoodField fixed = new FoodField(10, 10,
+				FoodField.Precision.FIXED16);
+
+		for (int i = 0; i < 100; ++i) {
+			final double value = i * 0.3791;
+			single.setFood(i, value);
+			fixed.setFood(i, value);
+
+			Assert.assertEquals(value, single.getFood(i), value * 0x1.0p-24);
+			Assert.assertEquals(value, fixed.getFood(i), 0x1.0p-11);
+		}
+
+		fixed.setFood(0, FoodField.FIXED_POINT_MAX + 10.0);
+		Assert.assertEquals(FoodField.FIXED_POINT_MAX, fixed.getFood(0), 0.0);
+	}
+
+	/**
+	 * Compact fields grow like the reference field, within the accumulated
+	 * error bounds, and their bulk and scalar growth loops are bit-identical.
+	 */
+	@Test
+	public void testCompactPrecisionGrow() {
+		final RandomStreams streams = new RandomStreams(11);
+		final int ticks = 10;
+
+		for (final FoodField.Precision precision : FoodField.Precision
+				.values()) {
+			final FoodField reference = createField();
+			final FoodField bulk = createField(precision);
+			final FoodField scalar = createField(precision);
+			scalar.setBulkGrowth(false);
+
+			for (int tick = 0; tick < ticks; ++tick) {
+				reference.grow(streams, tick);
+				bulk.grow(streams, tick);
+				scalar.grow(streams, tick);
+			}
+
+			for (int i = 0; i < reference.size(); ++i) {
+				final double expected = reference.getFood(i);
+				final double bound = (FoodField.Precision.FIXED16 == precision) ? (ticks + 1) * 0x1.0p-11
+						: (ticks + 1) * expected * 0x1.0p-22;
+
+				Assert.assertEquals(scalar.getFood(i), bulk.getFood(i), 0.0);
+				Assert.assertEquals(expected, bulk.getFood(i), bound);
+			}
+		}
+	}
+
+	/**
+	 * Creates a field with a different production rate for each cell.
+	 *
+	 * @return a new field with <code>1.0</code> food on each cell
+	 */
+	private static FoodField createField() {
+		return createField(FoodField.Precision.DOUBLE);
+	}
+
+	/**
+	 * Creates a field with a different production rate for each cell, stored
+	 * in the specified precision.
+	 *
+	 * @param precision
+	 *            the storage precision of the field
+	 * @return a new field with <code>1.0</code> food on each cell
+	 */
+	private static FoodField createField(final FoodField.Precision precision) {
+		final FoodField field = new FoodField(20, 30, precision);
+
+		for (int i = 0; i < field.size(); ++i) {
+			field.setFood(i, 1.0);
+			field.setProductionRate(i, i / 100.0);
+		}
+
+		return field;
+	}
+
+	/**
+	 * Asserts that the food grown on each cell of the specified field created
+	 * by {@link #createField()} is between zero and the production rate.
+	 *
+	 * @param field
+	 *            the field to check
+	 */
+	private static void assertGrown(final FoodField field) {
+		for (int i = 0; i < field.size(); ++i) {
+			Assert.assertTrue(1.0 <= field.getFood(i));
+			Assert.assertTrue(field.getFood(i) <= 1.0 + field
+					.getProductionRate(i));
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Simple tests for the {@link FoodQuery} class.
+ *
+ * @version $Id$
+ */
+public class TestFoodQuery {
+
+	/**
+	 * Field and occupancy layer must have the same dimensions.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testDifferentDimensions() {
+		new FoodQuery(new FoodField(10, 10), new OccupancyLayer(10, 11));
+	}
+
+	/**
+	 * Without free cells in range there is no answer.
+	 */
+	@Test
+	public void testNoFreeCell() {
+		final FoodField field = new FoodField(1, 2);
+		final OccupancyLayer occupancy = new OccupancyLayer(1, 2);
+		occupancy.add(1);
+
+		Assert.assertEquals(-1,
+				new FoodQuery(field, occupancy, 1).getBestFreeCell(0, 0, 3));
+	}
+
+	/**
+	 * The cached block maxima follow the changes of the food and the
+	 * occupancy.
+	 */
+	@Test
+	public void testFollowsChanges() {
+		final FoodField field = new FoodField(20, 20);
+		final OccupancyLayer occupancy = new OccupancyLayer(20, 20);
+		final FoodQuery query = new FoodQuery(field, occupancy, 2);
+
+		final int rich = field.index(12, 13);
+		field.setFood(rich, 5.0);
+		Assert.assertEquals(rich, query.getBestFreeCell(10, 10, 4));
+
+		occupancy.add(rich);
+		field.setFood(field.index(7, 8), 3.0);
+		Assert.assertEquals(field.index(7, 8), query.getBestFreeCell(10, 10, 4));
+
+		occupancy.remove(rich);
+		Assert.assertEquals(rich, query.getBestFreeCell(10, 10, 4));
+	}
+
+	/**
+	 * Both strategies return the first free cell with the most food in scan
+	 * order, the same as a brute force search, also around the borders and for
+	 * ranges larger than the grid.
+	 */
+	@Test
+	public void testMatchesBruteForce() {
+		final Random random = new Random(5);
+
+		for (int run = 0; run < 200; ++run) {
+			final int width = 1 + random.nextInt(40);
+			final int height = 1 + random.nextInt(40);
+			final FoodField field = new FoodField(width, height);
+			final OccupancyLayer occupancy = new OccupancyLayer(width, height);
+			final FoodQuery query = new FoodQuery(field, occupancy,
+					1 + random.nextInt(5));
+
+			// Few distinct values, so ties are common
+			for (int i = 0; i < field.size(); ++i) {
+				field.setFood(i, random.nextInt(5));
+				if (random.nextInt(3) == 0) {
+					occupancy.add(i);
+				}
+			}
+
+			for (int q = 0; q < 10; ++q) {
+				final int x = random.nextInt(width);
+				final int y = random.nextInt(height);
+				final int range = random.nextInt(25);
+
+				Assert.assertEquals(bruteForce(field, occupancy, x, y, range),
+						query.getBestFreeCell(x, y, range));
+
+				// Modify a cell to exercise the incremental update
+				final int changed = random.nextInt(field.size());
+				field.setFood(changed, random.nextInt(5));
+				if (occupancy.isOccupied(changed)) {
+					occupancy.remove(changed);
+				} else {
+					occupancy.add(changed);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reference implementation scanning the window in the specified order.
+	 *
+	 * @param field
+	 *            the food of the cells
+	 * @param occupancy
+	 *            the occupied cells
+	 * @param x
+	 *            the <code>x</code> coordinate of the location
+	 * @param y
+	 *            the <code>y</code> coordinate of the location
+	 * @param range
+	 *            the extent of the neighbourhood
+	 * @return the index of the best cell; <code>-1</code> if there is no free
+	 *         cell
+	 */
+	private static int bruteForce(final FoodField field,
+			final OccupancyLayer occupancy, final int x, final int y,
+			final int range) {
+		final int width = field.getWidth();
+		final int height = field.getHeight();
+		final int columns = Math.min(2 * range + 1, width);
+		final int rows = Math.min(2 * range + 1, height);
+		final int firstColumn = (columns == width) ? 0 : x - range;
+		final int firstRow = (rows == height) ? 0 : y - range;
+
+		int ret = -1;
+		for (int c = 0; c < columns; ++c) {
+			for (int r = 0; r < rows; ++r) {
+				final int index = field.index(
+						((firstColumn + c) % width + width) % width,
+						((firstRow + r) % height + height) % height);
+				if (index != field.index(x, y) && !occupancy.isOccupied(index)
+						&& (ret < 0 || field.getFood(index) > field.getFood(ret))) {
+					ret = index;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import stupidmodel.common.Constants;
+
+/**
+ * Simple tests for the {@link FoodValueLayer} class.
+ *
+ * @version $Id$
+ */
+public class TestFoodValueLayer {
+
+	/**
+	 * The layer has the name and the dimensions of the field.
+	 */
+	@Test
+	public void testNameAndDimensions() {
+		final FoodValueLayer layer = new FoodValueLayer("food", new FoodField(
+				7, 5));
+
+		Assert.assertEquals("food", layer.getName());
+		Assert.assertEquals(7, (int) layer.getDimensions().getWidth());
+		Assert.assertEquals(5, (int) layer.getDimensions().getHeight());
+	}
+
+	/**
+	 * Changes of the field are visible through the layer without copying.
+	 */
+	@Test
+	public void testViewOfField() {
+		final FoodField field = new FoodField(7, 5);
+		final FoodValueLayer layer = new FoodValueLayer("food", field);
+
+		Assert.assertEquals(0.0, layer.get(3, 4), Constants.DELTA);
+
+		field.setFood(field.index(3, 4), 0.25);
+		Assert.assertEquals(0.25, layer.get(3, 4), Constants.DELTA);
+		Assert.assertEquals(0.0, layer.get(4, 3), Constants.DELTA);
+
+		field.grow();
+		for (int x = 0; x < 7; ++x) {
+			for (int y = 0; y < 5; ++y) {
+				Assert.assertEquals(field.getFood(field.index(x, y)),
+						layer.get(x, y), Constants.DELTA);
+			}
+		}
+	}
+
+	/**
+	 * The layer can be queried by two coordinates only.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCoordinates() {
+		new FoodValueLayer("food", new FoodField(7, 5)).get(1, 2, 3);
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import stupidmodel.agents.HabitatCell;
+
+/**
+ * Simple tests for the {@link HabitatCellIndex} class.
+ *
+ * @version $Id$
+ */
+public class TestHabitatCellIndex {
+
+	/**
+	 * Registered cells are returned for their location and index.
+	 */
+	@Test
+	public void testRegister() {
+		final FoodField field = new FoodField(4, 6);
+		final HabitatCellIndex index = new HabitatCellIndex(4, 6);
+		final HabitatCell cell = new HabitatCell(3, 2, field);
+
+		index.register(cell);
+
+		Assert.assertSame(cell, index.get(3, 2));
+		Assert.assertSame(cell, index.get(field.index(3, 2)));
+	}
+
+	/**
+	 * Only one cell may be registered for a location.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testRegisterTwice() {
+		final HabitatCellIndex index = new HabitatCellIndex(4, 6);
+
+		index.register(new HabitatCell(1, 1));
+		index.register(new HabitatCell(1, 1));
+	}
+
+	/**
+	 * Cells outside the index cannot be registered.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegisterOutside() {
+		new HabitatCellIndex(4, 6).register(new HabitatCell(4, 1));
+	}
+
+	/**
+	 * Querying a location without a cell fails.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testMissingCell() {
+		new HabitatCellIndex(4, 6).get(0, 0);
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Simple tests for the {@link OccupancyLayer} class.
+ *
+ * @version $Id$
+ */
+public class TestOccupancyLayer {
+
+	/**
+	 * Layers cannot be created with non-positive dimensions.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDimensions() {
+		new OccupancyLayer(0, 10);
+	}
+
+	/**
+	 * A free cell cannot be released.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testRemoveFree() {
+		new OccupancyLayer(10, 10).remove(5);
+	}
+
+	/**
+	 * A cell occupied by multiple bugs becomes free when the last one leaves.
+	 */
+	@Test
+	public void testMultipleOccupancy() {
+		final OccupancyLayer layer = new OccupancyLayer(10, 10);
+		final int index = layer.index(3, 4);
+
+		layer.add(index);
+		layer.add(index);
+		Assert.assertTrue(layer.isOccupied(index));
+
+		layer.remove(index);
+		Assert.assertTrue(layer.isOccupied(index));
+
+		layer.move(index, layer.index(9, 9));
+		Assert.assertFalse(layer.isOccupied(index));
+		Assert.assertTrue(layer.isOccupied(layer.index(9, 9)));
+	}
+
+	/**
+	 * Coordinates can be restored from the index.
+	 */
+	@Test
+	public void testCoordinates() {
+		final OccupancyLayer layer = new OccupancyLayer(7, 13);
+		final int index = layer.index(5, 11);
+
+		Assert.assertEquals(5, layer.getX(index));
+		Assert.assertEquals(11, layer.getY(index));
+	}
+
+	/**
+	 * The buffer has to be large enough for the whole neighbourhood.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSmallBuffer() {
+		new OccupancyLayer(10, 10).getFreeCells(0, 0, 2, new int[24]);
+	}
+
+	/**
+	 * Free cells are the same as collected one by one, also around the
+	 * borders and for ranges larger than the layer.
+	 */
+	@Test
+	public void testFreeCells() {
+		final Random random = new Random(11);
+
+		for (int run = 0; run < 50; ++run) {
+			final int width = 1 + random.nextInt(70);
+			final int height = 1 + random.nextInt(70);
+			final OccupancyLayer layer = new OccupancyLayer(width, height);
+			final boolean[] occupied = new boolean[width * height];
+
+			for (int i = 0; i < occupied.length / 2; ++i) {
+				final int index = random.nextInt(occupied.length);
+				layer.add(index);
+				occupied[index] = true;
+			}
+
+			final int x = random.nextInt(width);
+			final int y = random.nextInt(height);
+			final int range = random.nextInt(6);
+
+			final int[] buffer = new int[(2 * range + 1) * (2 * range + 1)];
+			final int count = layer.getFreeCells(x, y, range, buffer);
+
+			final boolean[] expected = new boolean[occupied.length];
+			int expectedCount = 0;
+			for (int dx = -range; dx <= range; ++dx) {
+				for (int dy = -range; dy <= range; ++dy) {
+					final int index = layer.index(((x + dx) % width + width)
+							% width, ((y + dy) % height + height) % height);
+					if (!occupied[index] && index != layer.index(x, y)
+							&& !expected[index]) {
+						expected[index] = true;
+						++expectedCount;
+					}
+				}
+			}
+
+			Assert.assertEquals(expectedCount, count);
+			for (int i = 0; i < count; ++i) {
+				Assert.assertTrue(expected[buffer[i]]);
+				expected[buffer[i]] = false;
+			}
+		}
+	}
+
+}
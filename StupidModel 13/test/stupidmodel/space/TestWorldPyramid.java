@@ -0,0 +1,142 @@
+/*
+ * Version info:
+ *     $HeadURL$
+ *     $LastChangedDate$
+ *     $LastChangedRevision$
+ *     $LastChangedBy$
+ */
+package stupidmodel.space;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import repast.simphony.valueLayer.ValueLayer;
+import stupidmodel.common.Constants;
+import stupidmodel.common.RandomStreams;
+
+/**
+ * Simple tests for the {@link WorldPyramid} class.
+ *
+ * @version $Id$
+ */
+public class TestWorldPyramid {
+
+	/**
+	 * The levels halve the dimensions down to a single block.
+	 */
+	@Test
+	public void testLevels() {
+		final WorldPyramid pyramid = new WorldPyramid(new FoodField(13, 5),
+				new OccupancyLayer(13, 5));
+
+		Assert.assertEquals(5, pyramid.getLevelCount());
+		Assert.assertEquals(7, pyramid.getWidth(1));
+		Assert.assertEquals(3, pyramid.getHeight(1));
+		Assert.assertEquals(1, pyramid.getWidth(4));
+		Assert.assertEquals(1, pyramid.getHeight(4));
+
+		Assert.assertEquals(0, pyramid.getLevelForScale(15.0));
+		Assert.assertEquals(0, pyramid.getLevelForScale(1.0));
+		Assert.assertEquals(2, pyramid.getLevelForScale(0.25));
+		Assert.assertEquals(4, pyramid.getLevelForScale(0.001));
+	}
+
+	/**
+	 * Block means and densities follow the changes of the world.
+	 */
+	@Test
+	public void testIncrementalUpdates() {
+		final FoodField field = new FoodField(13, 5);
+		final OccupancyLayer occupancy = new OccupancyLayer(13, 5);
+		final WorldPyramid pyramid = new WorldPyramid(field, occupancy);
+		final Random random = new Random(3);
+
+		for (int i = 0; i < field.size(); ++i) {
+			field.setProductionRate(i, 0.5);
+		}
+
+		for (int round = 0; round < 20; ++round) {
+			field.setFood(random.nextInt(field.size()), random.nextDouble());
+
+			final int cell = random.nextInt(field.size());
+			if (occupancy.isOccupied(cell)) {
+				occupancy.remove(cell);
+			} else {
+				occupancy.add(cell);
+			}
+
+			if (0 == round % 5) {
+				field.grow(new RandomStreams(round), round);
+			}
+
+			// Query only some of the levels to leave dirty blocks behind
+			for (int level = round % 2; level < pyramid.getLevelCount(); level += 2) {
+				assertLevel(pyramid, field, occupancy, level);
+			}
+		}
+	}
+
+	/**
+	 * The food layer of a level has the dimensions and the means of the
+	 * level.
+	 */
+	@Test
+	public void testFoodLayer() {
+		final FoodField field = new FoodField(4, 4);
+		field.setFood(field.index(1, 1), 2.0);
+
+		final WorldPyramid pyramid = new WorldPyramid(field,
+				new OccupancyLayer(4, 4));
+		final ValueLayer layer = pyramid.createFoodLayer("overview", 1);
+
+		Assert.assertEquals(2, (int) layer.getDimensions().getWidth());
+		Assert.assertEquals(0.5, layer.get(0, 0), Constants.DELTA);
+		Assert.assertEquals(0.0, layer.get(1, 1), Constants.DELTA);
+	}
+
+	/**
+	 * Asserts that the blocks of a level match the cells they cover.
+	 *
+	 * @param pyramid
+	 *            the pyramid to check
+	 * @param field
+	 *            the food field of the world
+	 * @param occupancy
+	 *            the occupancy layer of the world
+	 * @param level
+	 *            the level to check
+	 */
+	private static void assertLevel(final WorldPyramid pyramid,
+			final FoodField field, final OccupancyLayer occupancy,
+			final int level) {
+		final int side = 1 << level;
+
+		for (int bx = 0; bx < pyramid.getWidth(level); ++bx) {
+			for (int by = 0; by < pyramid.getHeight(level); ++by) {
+				double food = 0.0;
+				int bugs = 0;
+				int cells = 0;
+
+				for (int x = bx * side; x < Math.min((bx + 1) * side,
+						field.getWidth()); ++x) {
+					for (int y = by * side; y < Math.min((by + 1) * side,
+							field.getHeight()); ++y) {
+						food += field.getFood(field.index(x, y));
+						bugs += occupancy.isOccupied(occupancy.index(x, y)) ? 1
+								: 0;
+						++cells;
+					}
+				}
+
+				Assert.assertEquals(food / cells,
+						pyramid.getFoodMean(level, bx, by), 1e-12);
+				Assert.assertEquals((double) bugs / cells,
+						pyramid.getDensity(level, bx, by), 1e-12);
+			}
+		}
+	}
+
+}